@@ -0,0 +1,420 @@
+package com.cloudsiness.csmongo.processor;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Builds the source code of the descriptor of a model. It reads the same data that CsModelMetadata
+ * reads with reflection: the public fields of the model and its superclasses, the @NotSave, @Searchable
+ * and @Safe annotations, the constraints (annotations annotated with @CsConstraint) and the public methods
+ * annotated with the event annotations.
+ */
+class CsDescriptorGenerator {
+	
+	private static final String CS_MODEL = "com.cloudsiness.csmongo.active.annotations.CsModel";
+	private static final String NOT_SAVE = "com.cloudsiness.csmongo.active.annotations.NotSave";
+	private static final String SAFE = "com.cloudsiness.csmongo.active.annotations.Safe";
+	private static final String SEARCHABLE = "com.cloudsiness.csmongo.active.annotations.Searchable";
+	private static final String EVENTS_PACKAGE = "com.cloudsiness.csmongo.active.annotations.events";
+	private static final String AFTER_FIND_ALL = "com.cloudsiness.csmongo.active.annotations.events.AfterFindAll";
+	private static final String RELATIONS_PACKAGE = "com.cloudsiness.csmongo.active.annotations.relations";
+	private static final String CS_CONSTRAINT = "com.cloudsiness.csmongo.active.validators.CsConstraint";
+	
+	private static final String CONSTRAINT_DESCRIPTOR = "com.cloudsiness.csmongo.active.metadata.CsConstraintDescriptor";
+	private static final String HOOK_INVOKER = "com.cloudsiness.csmongo.active.hooks.CsHookInvoker";
+	
+	/**
+	 * The modifiers that CsModelMetadata takes into account to know if a field is an attribute. Only
+	 * the public fields without any other of these modifiers are attributes.
+	 */
+	private static final Set<Modifier> FIELD_MODIFIERS = EnumSet.of(Modifier.PUBLIC, Modifier.PROTECTED, Modifier.PRIVATE,
+			Modifier.STATIC, Modifier.FINAL, Modifier.TRANSIENT, Modifier.VOLATILE);
+	
+	
+	private final Elements elements;
+	private final Types types;
+	private final TypeElement model;
+	private final PackageElement modelPackage;
+	
+	private String collectionName;
+	private String mongoClient;
+	private final List<String> attributes = new ArrayList<String>();
+	private final Set<String> notSaveAttributes = new LinkedHashSet<String>();
+	private final Set<String> searchableAttributes = new LinkedHashSet<String>();
+	private final Map<String, List<String>> safeAttributes = new LinkedHashMap<String, List<String>>();
+	private final List<String> modelConstraints = new ArrayList<String>();
+	private final Map<String, List<String>> attributesConstraints = new LinkedHashMap<String, List<String>>();
+	private final Map<String, List<String>> hooks = new LinkedHashMap<String, List<String>>();
+	
+	
+	CsDescriptorGenerator(ProcessingEnvironment processingEnv, TypeElement model) {
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.model = model;
+		this.modelPackage = elements.getPackageOf(model);
+	}
+	
+	
+	/**
+	 * @return	the binary name of the descriptor class.
+	 */
+	String getDescriptorName() {
+		String binaryName = elements.getBinaryName(model).toString();
+		
+		return binaryName + CsModelProcessor.SUFFIX;
+	}
+	
+	/**
+	 * Reads the model and builds the source code of its descriptor.
+	 *
+	 * @return									the source code.
+	 * @throws UnsupportedModelException		if the model uses something that the descriptor can not describe.
+	 */
+	String generate() throws UnsupportedModelException {
+		readModelAnnotations();
+		readAttributes();
+		readHooks();
+		
+		return write();
+	}
+	
+	
+	// READ METHODS -------
+	
+	private void readModelAnnotations() throws UnsupportedModelException {
+		for(AnnotationMirror am : model.getAnnotationMirrors()) {
+			if(getName(am).equals(CS_MODEL)) {
+				collectionName = (String) getValue(am, "collectionName");
+				mongoClient = (String) getValue(am, "mongoClient");
+			}
+		}
+		
+		// The class annotations are read with getAnnotations(), that includes the inherited ones
+		for(AnnotationMirror am : elements.getAllAnnotationMirrors(model)) {
+			String constraint = readConstraint(am);
+			if(constraint != null)
+				modelConstraints.add(constraint);
+		}
+	}
+	
+	private void readAttributes() throws UnsupportedModelException {
+		for(TypeElement type = model; type != null; type = getSuperclass(type)) {
+			for(Element e : type.getEnclosedElements()) {
+				if(e.getKind() != ElementKind.FIELD)
+					continue;
+				
+				Set<Modifier> modifiers = EnumSet.noneOf(Modifier.class);
+				modifiers.addAll(e.getModifiers());
+				modifiers.retainAll(FIELD_MODIFIERS);
+				if(!modifiers.equals(EnumSet.of(Modifier.PUBLIC)))
+					continue;
+				
+				// The relations are not attributes
+				if(isRelation(e))
+					continue;
+				
+				readAttribute((VariableElement) e);
+			}
+		}
+	}
+	
+	private boolean isRelation(Element field) {
+		for(AnnotationMirror am : field.getAnnotationMirrors()) {
+			if(elements.getPackageOf(am.getAnnotationType().asElement()).getQualifiedName().contentEquals(RELATIONS_PACKAGE))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	private void readAttribute(VariableElement field) throws UnsupportedModelException {
+		String name = field.getSimpleName().toString();
+		
+		// The fields are resolved by name, so a hidden field is the same attribute than the field that hides it
+		if(attributes.contains(name))
+			return;
+		attributes.add(name);
+		
+		List<String> constraints = new ArrayList<String>();
+		for(AnnotationMirror am : field.getAnnotationMirrors()) {
+			String annotationName = getName(am);
+			
+			if(annotationName.equals(NOT_SAVE)) {
+				notSaveAttributes.add(name);
+			} else if(annotationName.equals(SEARCHABLE)) {
+				searchableAttributes.add(name);
+			} else if(annotationName.equals(SAFE)) {
+				safeAttributes.put(name, getScenarios(am));
+			} else {
+				String constraint = readConstraint(am);
+				if(constraint != null)
+					constraints.add(constraint);
+			}
+		}
+		
+		if(!constraints.isEmpty())
+			attributesConstraints.put(name, constraints);
+	}
+	
+	/**
+	 * @param am	an annotation of a field or of the model.
+	 * @return		the expression that creates the CsConstraintDescriptor of the annotation or <code>null</code>
+	 * 				if the annotation is not a constraint.
+	 */
+	private String readConstraint(AnnotationMirror am) throws UnsupportedModelException {
+		TypeElement annotationType = (TypeElement) am.getAnnotationType().asElement();
+		
+		for(AnnotationMirror meta : annotationType.getAnnotationMirrors()) {
+			if(getName(meta).equals(CS_CONSTRAINT)) {
+				StringBuilder sb = new StringBuilder();
+				sb.append("new ").append(CONSTRAINT_DESCRIPTOR).append("(")
+					.append(classLiteral(annotationType)).append(", ")
+					.append(stringArray(getScenarios(am)));
+				
+				for(Object value : (List<?>) getValue(meta, "validatedBy")) {
+					TypeMirror validator = (TypeMirror) ((AnnotationValue) value).getValue();
+					if(validator.getKind() != TypeKind.DECLARED)
+						throw new UnsupportedModelException("the validator " + validator + " of " + annotationType + " can not be resolved");
+					
+					sb.append(", ").append(classLiteral((TypeElement) ((DeclaredType) validator).asElement()));
+				}
+				
+				return sb.append(")").toString();
+			}
+		}
+		
+		return null;
+	}
+	
+	private void readHooks() throws UnsupportedModelException {
+		TypeMirror handlerType = getHandlerType();
+		String modelName = model.getQualifiedName().toString();
+		
+		for(Element e : elements.getAllMembers(model)) {
+			if(e.getKind() != ElementKind.METHOD || !e.getModifiers().contains(Modifier.PUBLIC))
+				continue;
+			
+			ExecutableElement method = (ExecutableElement) e;
+			for(AnnotationMirror am : method.getAnnotationMirrors()) {
+				TypeElement annotationType = (TypeElement) am.getAnnotationType().asElement();
+				if(!elements.getPackageOf(annotationType).getQualifiedName().contentEquals(EVENTS_PACKAGE))
+					continue;
+				
+				// The events of a list of models are read with reflection by CsModelMetadata
+				if(annotationType.getQualifiedName().contentEquals(AFTER_FIND_ALL))
+					continue;
+				
+				if(method.getParameters().size() != 1 || (handlerType != null && !types.isAssignable(handlerType, method.getParameters().get(0).asType())))
+					throw new UnsupportedModelException("the method " + method + " must have only a Handler<AsyncResult<Boolean>> parameter");
+				
+				String receiver = method.getModifiers().contains(Modifier.STATIC) ? modelName : "((" + modelName + ") model)";
+				String invoker = "(model, handler) -> " + receiver + "." + method.getSimpleName() + "(handler)";
+				
+				String key = classLiteral(annotationType);
+				List<String> invokers = hooks.get(key);
+				if(invokers == null) {
+					invokers = new ArrayList<String>();
+					hooks.put(key, invokers);
+				}
+				invokers.add(invoker);
+			}
+		}
+	}
+	
+	
+	// WRITE METHODS -------
+	
+	private String write() {
+		String descriptorName = getDescriptorName();
+		String packageName = modelPackage.getQualifiedName().toString();
+		String simpleName = packageName.isEmpty() ? descriptorName : descriptorName.substring(packageName.length() + 1);
+		
+		StringBuilder sb = new StringBuilder();
+		if(!packageName.isEmpty())
+			sb.append("package ").append(packageName).append(";\n\n");
+		
+		sb.append("/**\n")
+			.append(" * Descriptor of {@link ").append(model.getQualifiedName()).append("}.\n")
+			.append(" * Generated by csmongo-processor. Do not edit.\n")
+			.append(" */\n")
+			.append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n")
+			.append("public final class ").append(simpleName)
+			.append(" implements com.cloudsiness.csmongo.active.metadata.CsModelDescriptor {\n\n");
+		
+		method(sb, "String", "getCollectionName", "return " + stringLiteral(collectionName) + ";");
+		method(sb, "String", "getMongoClient", "return " + stringLiteral(mongoClient) + ";");
+		method(sb, "java.util.List<String>", "getAttributes",
+				"return java.util.Arrays.<String>asList(" + join(literals(attributes)) + ");");
+		method(sb, "java.util.Set<String>", "getNotSaveAttributes",
+				"return new java.util.LinkedHashSet<String>(java.util.Arrays.<String>asList(" + join(literals(notSaveAttributes)) + "));");
+		method(sb, "java.util.Set<String>", "getSearchableAttributes",
+				"return new java.util.LinkedHashSet<String>(java.util.Arrays.<String>asList(" + join(literals(searchableAttributes)) + "));");
+		
+		StringBuilder body = new StringBuilder("java.util.Map<String, String[]> result = new java.util.HashMap<String, String[]>();\n");
+		for(Map.Entry<String, List<String>> entry : safeAttributes.entrySet()) {
+			body.append("\t\tresult.put(").append(stringLiteral(entry.getKey())).append(", ").append(stringArray(entry.getValue())).append(");\n");
+		}
+		body.append("\t\treturn result;");
+		method(sb, "java.util.Map<String, String[]>", "getSafeAttributes", body.toString());
+		
+		method(sb, "java.util.List<" + CONSTRAINT_DESCRIPTOR + ">", "getModelConstraints",
+				"return java.util.Arrays.<" + CONSTRAINT_DESCRIPTOR + ">asList(" + join(modelConstraints) + ");");
+		
+		body = new StringBuilder("java.util.Map<String, java.util.List<" + CONSTRAINT_DESCRIPTOR + ">> result = new java.util.HashMap<String, java.util.List<" + CONSTRAINT_DESCRIPTOR + ">>();\n");
+		for(Map.Entry<String, List<String>> entry : attributesConstraints.entrySet()) {
+			body.append("\t\tresult.put(").append(stringLiteral(entry.getKey())).append(", java.util.Arrays.<")
+				.append(CONSTRAINT_DESCRIPTOR).append(">asList(").append(join(entry.getValue())).append("));\n");
+		}
+		body.append("\t\treturn result;");
+		method(sb, "java.util.Map<String, java.util.List<" + CONSTRAINT_DESCRIPTOR + ">>", "getAttributesConstraints", body.toString());
+		
+		String hooksType = "java.util.Map<Class<? extends java.lang.annotation.Annotation>, java.util.List<" + HOOK_INVOKER + ">>";
+		body = new StringBuilder(hooksType + " result = new java.util.HashMap<Class<? extends java.lang.annotation.Annotation>, java.util.List<" + HOOK_INVOKER + ">>();\n");
+		for(Map.Entry<String, List<String>> entry : hooks.entrySet()) {
+			body.append("\t\tresult.put(").append(entry.getKey()).append(", java.util.Arrays.<")
+				.append(HOOK_INVOKER).append(">asList(").append(join(entry.getValue())).append("));\n");
+		}
+		body.append("\t\treturn result;");
+		method(sb, hooksType, "getHooks", body.toString());
+		
+		sb.append("}\n");
+		
+		return sb.toString();
+	}
+	
+	private static void method(StringBuilder sb, String returnType, String name, String body) {
+		sb.append("\t@Override\n")
+			.append("\tpublic ").append(returnType).append(" ").append(name).append("() {\n")
+			.append("\t\t").append(body).append("\n")
+			.append("\t}\n\n");
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private TypeElement getSuperclass(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		if(superclass.getKind() != TypeKind.DECLARED)
+			return null;
+		
+		TypeElement result = (TypeElement) ((DeclaredType) superclass).asElement();
+		
+		return result.getQualifiedName().contentEquals("java.lang.Object") ? null : result;
+	}
+	
+	/**
+	 * @return	the type Handler&lt;AsyncResult&lt;Boolean&gt;&gt; or <code>null</code> if Vert.x is not in the classpath.
+	 */
+	private TypeMirror getHandlerType() {
+		TypeElement handler = elements.getTypeElement("io.vertx.core.Handler");
+		TypeElement asyncResult = elements.getTypeElement("io.vertx.core.AsyncResult");
+		TypeElement bool = elements.getTypeElement("java.lang.Boolean");
+		if(handler == null || asyncResult == null)
+			return null;
+		
+		return types.getDeclaredType(handler, types.getDeclaredType(asyncResult, bool.asType()));
+	}
+	
+	private static String getName(AnnotationMirror am) {
+		return ((TypeElement) am.getAnnotationType().asElement()).getQualifiedName().toString();
+	}
+	
+	private Object getValue(AnnotationMirror am, String name) {
+		for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(am).entrySet()) {
+			if(entry.getKey().getSimpleName().contentEquals(name))
+				return entry.getValue().getValue();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @return	the values of the method scenarios() of the annotation or an empty list if it has not the method.
+	 */
+	private List<String> getScenarios(AnnotationMirror am) {
+		List<String> result = new ArrayList<String>();
+		
+		Object value = getValue(am, "scenarios");
+		if(value instanceof List) {
+			for(Object v : (List<?>) value) {
+				result.add((String) ((AnnotationValue) v).getValue());
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return	the class literal of the type if it can be used from the package of the model.
+	 */
+	private String classLiteral(TypeElement type) throws UnsupportedModelException {
+		for(Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+			boolean samePackage = elements.getPackageOf(e).equals(modelPackage);
+			Set<Modifier> modifiers = e.getModifiers();
+			
+			if(!modifiers.contains(Modifier.PUBLIC) && (modifiers.contains(Modifier.PRIVATE) || !samePackage))
+				throw new UnsupportedModelException(type + " is not visible from the package of the model");
+		}
+		
+		return type.getQualifiedName() + ".class";
+	}
+	
+	private String stringLiteral(String value) {
+		return value == null ? "null" : elements.getConstantExpression(value);
+	}
+	
+	private String stringArray(List<String> values) {
+		return "new String[] {" + join(literals(values)) + "}";
+	}
+	
+	private List<String> literals(Iterable<String> values) {
+		List<String> result = new ArrayList<String>();
+		for(String value : values) {
+			result.add(stringLiteral(value));
+		}
+		
+		return result;
+	}
+	
+	private static String join(List<String> values) {
+		return String.join(", ", values);
+	}
+	
+	
+	// EXCEPTIONS -------
+	
+	/**
+	 * The model uses something that the descriptor can not describe.
+	 */
+	static class UnsupportedModelException extends Exception {
+		
+		private static final long serialVersionUID = 1L;
+		
+		UnsupportedModelException(String message) {
+			super(message);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,114 @@
+package com.cloudsiness.csmongo.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a descriptor (<code>[model class name]_CsDescriptor</code>) for each model of the
+ * compilation, that is, for each not abstract class that extends CsActiveForm. The descriptor has the
+ * attributes, the validation constraints and the event methods of the model, so CsModelMetadata does
+ * not have to scan the model with reflection at runtime.
+ * <p>
+ * If a model uses something that can not be described (for example, a validator that is not visible
+ * from the package of the model), a warning is reported and the descriptor is not generated. In that
+ * case the model is scanned at runtime as usual.
+ */
+@SupportedAnnotationTypes("*")
+public class CsModelProcessor extends AbstractProcessor {
+	
+	static final String ACTIVE_FORM = "com.cloudsiness.csmongo.active.CsActiveForm";
+	
+	static final String SUFFIX = "_CsDescriptor";
+	
+	/**
+	 * The models whose descriptor has already been generated.
+	 */
+	private final Set<String> generated = new HashSet<String>();
+	
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement activeForm = processingEnv.getElementUtils().getTypeElement(ACTIVE_FORM);
+		if(activeForm == null)
+			return false;
+		
+		TypeMirror activeFormType = processingEnv.getTypeUtils().erasure(activeForm.asType());
+		for(Element e : roundEnv.getRootElements()) {
+			processElement(e, activeFormType);
+		}
+		
+		return false;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private void processElement(Element e, TypeMirror activeFormType) {
+		if(e.getKind() != ElementKind.CLASS)
+			return;
+		
+		TypeElement type = (TypeElement) e;
+		if(isModel(type, activeFormType))
+			generate(type);
+		
+		for(Element enclosed : type.getEnclosedElements()) {
+			processElement(enclosed, activeFormType);
+		}
+	}
+	
+	private boolean isModel(TypeElement type, TypeMirror activeFormType) {
+		if(type.getModifiers().contains(Modifier.ABSTRACT) || type.getModifiers().contains(Modifier.PRIVATE))
+			return false;
+		if(type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))
+			return false;
+		if(type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS)
+			return false;
+		
+		return processingEnv.getTypeUtils().isSubtype(processingEnv.getTypeUtils().erasure(type.asType()), activeFormType);
+	}
+	
+	private void generate(TypeElement type) {
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		if(!generated.add(binaryName))
+			return;
+		
+		CsDescriptorGenerator generator = new CsDescriptorGenerator(processingEnv, type);
+		String source;
+		try {
+			source = generator.generate();
+		} catch (CsDescriptorGenerator.UnsupportedModelException e) {
+			processingEnv.getMessager().printMessage(Kind.WARNING, "The descriptor of the model can not be generated: " + e.getMessage(), type);
+			return;
+		}
+		
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(generator.getDescriptorName(), type);
+			try(Writer writer = file.openWriter()) {
+				writer.write(source);
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "The descriptor of the model can not be written: " + e.getMessage(), type);
+		}
+	}
+	
+}
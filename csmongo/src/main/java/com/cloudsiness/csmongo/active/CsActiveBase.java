@@ -1,13 +1,17 @@
 package com.cloudsiness.csmongo.active;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import com.cloudsiness.csmongo.active.annotations.events.AfterCount;
 import com.cloudsiness.csmongo.active.annotations.events.AfterDelete;
 import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFindAll;
 import com.cloudsiness.csmongo.active.annotations.events.AfterSave;
 import com.cloudsiness.csmongo.active.annotations.events.BeforeCount;
 import com.cloudsiness.csmongo.active.annotations.events.BeforeDelete;
@@ -15,6 +19,8 @@ import com.cloudsiness.csmongo.active.annotations.events.BeforeFind;
 import com.cloudsiness.csmongo.active.annotations.events.BeforeSave;
 import com.cloudsiness.csmongo.active.exceptions.CsModelsNotInitialized;
 import com.cloudsiness.csmongo.active.hooks.CsHookHandler;
+import com.cloudsiness.csmongo.active.hooks.CsListHookHandler;
+import com.cloudsiness.csmongo.active.hooks.CsListHookInvoker;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
@@ -51,6 +57,11 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 	 */
 	public static final String ON_AFTER_FIND = "onAfterFind";
 	
+	/**
+	 * Constant name for event "on after find all", run once with the list of found models.
+	 */
+	public static final String ON_AFTER_FIND_ALL = "onAfterFindAll";
+	
 	/**
 	 * Constant name for event "on before count".
 	 */
@@ -79,6 +90,12 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 	 */
 	protected boolean isNewRecord;
 	
+	/**
+	 * The document of the model as it is stored in the database, kept when the model is found or
+	 * saved. The saves of the models that have it only write the paths that have changed since then.
+	 */
+	protected JsonObject storedDocument;
+	
 	
 	// HOOKS FIELDS -------
 	
@@ -102,6 +119,11 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 	 */
 	private List<CsHookHandler<T>> hooksOnAfterFind;
 	
+	/**
+	 * Hooks registered for to be called on after find all.
+	 */
+	private List<CsListHookHandler<T>> hooksOnAfterFindAll;
+	
 	/**
 	 * Hooks registered for to be called on before count.
 	 */
@@ -130,14 +152,15 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 		
 		this.isNewRecord = true;
 		
-		this.hooksOnBeforeSave = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnAfterSave = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnBeforeFind = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnAfterFind = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnBeforeCount = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnAfterCount = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnBeforeDelete = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnAfterDelete = new LinkedList<CsHookHandler<T>>();
+		this.hooksOnBeforeSave = Collections.emptyList();
+		this.hooksOnAfterSave = Collections.emptyList();
+		this.hooksOnBeforeFind = Collections.emptyList();
+		this.hooksOnAfterFind = Collections.emptyList();
+		this.hooksOnAfterFindAll = Collections.emptyList();
+		this.hooksOnBeforeCount = Collections.emptyList();
+		this.hooksOnAfterCount = Collections.emptyList();
+		this.hooksOnBeforeDelete = Collections.emptyList();
+		this.hooksOnAfterDelete = Collections.emptyList();
 	}
 	
 	
@@ -183,6 +206,55 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 		callOn(AfterFind.class, hooksOnAfterFind, handler);
 	}
 	
+	/**
+	 * Call the methods annotated with @AfterFindAll and the hooks of the field hooksOnAfterFindAll with
+	 * the list of found models listed in parameters. The methods and hooks run at the same time and the
+	 * handler gets <code>false</code> if any of them gives <code>false</code>.
+	 * 
+	 * @param models	the found models.
+	 * @param handler	the handler to run when all the methods and hooks are executed.
+	 */
+	protected void callOnAfterFindAll(List<T> models, Handler<AsyncResult<Boolean>> handler) {
+		List<CsListHookInvoker> invokers = getMetadata().getListHookInvokers(AfterFindAll.class);
+		int total = invokers.size() + hooksOnAfterFindAll.size();
+		if(total == 0) {
+			handler.handle(Future.succeededFuture(true));
+			return;
+		}
+		
+		int[] count = { 0 };
+		boolean[] result = { true };
+		boolean[] error = { false };
+		Handler<AsyncResult<Boolean>> resultHandler = res -> {
+			if(error[0])
+				return;
+			
+			if(res.failed()) {
+				error[0] = true;
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			if(!res.result())
+				result[0] = false;
+			
+			if(++count[0] == total)
+				handler.handle(Future.succeededFuture(result[0]));
+		};
+		
+		try {
+			for(CsListHookInvoker invoker : invokers) {
+				invoker.invoke(this, models, resultHandler);
+			}
+			
+			for(CsListHookHandler<T> h : hooksOnAfterFindAll) {
+				h.handle(models, resultHandler);
+			}
+		} catch(Exception e) {
+			resultHandler.handle(Future.failedFuture(e));
+		}
+	}
+	
 	/**
 	 * Call the methods annotated with @BeforeCount and the hooks of the field hooksOnBeforeCount.
 	 * @throws InvocationTargetException 
@@ -223,6 +295,27 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 		callOn(AfterDelete.class, hooksOnAfterDelete, handler);
 	}
 	
+	/**
+	 * @return	<code>true</code> if the model has methods annotated with @BeforeFind or @AfterFind or hooks for these events.
+	 */
+	protected boolean hasFindHooks() {
+		return hasHooks(BeforeFind.class, hooksOnBeforeFind) || hasHooks(AfterFind.class, hooksOnAfterFind);
+	}
+	
+	/**
+	 * @return	the policy with which the lists of models are converted from and to documents.
+	 */
+	protected CsExecutionPolicy getExecutionPolicy() {
+		return new CsExecutionPolicy();
+	}
+	
+	/**
+	 * @return	<code>true</code> if the model has methods annotated with @BeforeDelete or hooks for this event.
+	 */
+	protected boolean hasBeforeDeleteHooks() {
+		return hasHooks(BeforeDelete.class, hooksOnBeforeDelete);
+	}
+	
 	/**
 	 * Register hooks to an event.
 	 * 
@@ -233,40 +326,56 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 	public void registerHook(String where, CsHookHandler<T> handler) {
 		switch(where) {
 			case ON_BEFORE_SAVE:
-				hooksOnBeforeSave.add(handler);
+				hooksOnBeforeSave = addHook(hooksOnBeforeSave, handler);
 				break;
 			case ON_AFTER_SAVE:
-				hooksOnAfterSave.add(handler);
+				hooksOnAfterSave = addHook(hooksOnAfterSave, handler);
 				break;
 			case ON_BEFORE_FIND:
-				hooksOnBeforeFind.add(handler);
+				hooksOnBeforeFind = addHook(hooksOnBeforeFind, handler);
 				break;
 			case ON_AFTER_FIND:
-				hooksOnAfterFind.add(handler);
+				hooksOnAfterFind = addHook(hooksOnAfterFind, handler);
 				break;
 			case ON_BEFORE_COUNT:
-				hooksOnBeforeCount.add(handler);
+				hooksOnBeforeCount = addHook(hooksOnBeforeCount, handler);
 				break;
 			case ON_AFTER_COUNT:
-				hooksOnAfterCount.add(handler);
+				hooksOnAfterCount = addHook(hooksOnAfterCount, handler);
 				break;
 			case ON_BEFORE_DELETE:
-				hooksOnBeforeDelete.add(handler);
+				hooksOnBeforeDelete = addHook(hooksOnBeforeDelete, handler);
 				break;
 			case ON_AFTER_DELETE:
-				hooksOnAfterDelete.add(handler);
+				hooksOnAfterDelete = addHook(hooksOnAfterDelete, handler);
 				break;
 			default:
 				super.registerHook(where, handler);
 		}
 	}
 	
+	/**
+	 * Register hooks to an event of a list of models.
+	 * 
+	 * @param where		the event where register the hook (ON_AFTER_FIND_ALL).
+	 * @param handler	the handler for to run when the event happen.
+	 */
+	public void registerListHook(String where, CsListHookHandler<T> handler) {
+		switch(where) {
+			case ON_AFTER_FIND_ALL:
+				hooksOnAfterFindAll = addHook(hooksOnAfterFindAll, handler);
+				break;
+			default:
+				throw new IllegalArgumentException("The event " + where + " is not an event of a list of models");
+		}
+	}
+	
 	
 	// AUX -------
 	
 	/**
 	 * Sets the values of the attributes of the model with the values in the JSON object listed in the parameters.
-	 * Triggers the beforeFind and AfterFind events.
+	 * The JSON object is kept as the stored document of the model. Triggers the beforeFind and AfterFind events.
 	 * 
 	 * @param values	the values of the attributes.
 	 * @throws InvocationTargetException 
@@ -277,8 +386,37 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 	 * @throws InstantiationException 
 	 */
 	protected void initializeModel(JsonObject values, Handler<AsyncResult<T>> handler) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, InstantiationException, NoSuchMethodException, SecurityException{
+		initializeModel(result -> {
+			result.setAttributes(false, values);
+			result.storedDocument = values;
+		}, handler);
+	}
+	
+	/**
+	 * Creates a model and sets the values of its attributes with the function listed in parameters.
+	 * Triggers the beforeFind and AfterFind events.
+	 * 
+	 * @param fill		sets the values of the attributes of the created model.
+	 * @param handler	the handler of the model.
+	 * @see #initializeModel(JsonObject, Handler)
+	 */
+	protected void initializeModel(Consumer<T> fill, Handler<AsyncResult<T>> handler) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, InstantiationException, NoSuchMethodException, SecurityException{
 		T result = modelType.getConstructor().newInstance();
 		
+		// Fast path: the model has not find methods nor hooks
+		if(!result.hasFindHooks()) {
+			try {
+				fill.accept(result);
+				result.isNewRecord = false;
+			} catch (Exception e) {
+				handler.handle(Future.failedFuture(e));
+				return;
+			}
+			
+			handler.handle(Future.succeededFuture(result));
+			return;
+		}
+		
 		result.callOnBeforeFind(res -> {
 			if(res.failed()) {
 				handler.handle(Future.failedFuture(res.cause()));
@@ -286,9 +424,12 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 			}
 			
 			try {
-				result.setAttributes(false, values);
+				fill.accept(result);
 				result.isNewRecord = false;
-			
+				
+				// The find methods and hooks can read the attributes directly
+				result.hydrate();
+				
 				result.callOnAfterFind(res2 -> {
 					if(res2.failed()) {
 						handler.handle(Future.failedFuture(res2.cause()));
@@ -304,38 +445,38 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 	}
 	
 	/**
-	 * Auxiliar method to initialize models recursively. It is mandatory to initialize models 
-	 * in order because the sort.
+	 * Initializes the models of the objects from the position count, adding them to results in the
+	 * order of the objects.
 	 * 
-	 * @param count
-	 * @param results
-	 * @param objects
-	 * @param handler
+	 * @param count		the position of the first object to initialize.
+	 * @param results	the list to which the models are added.
+	 * @param objects	the values of the attributes of the models.
+	 * @param handler	the handler of results.
 	 */
 	@SuppressWarnings("unchecked")
 	protected void initializeModelsAux(int count, List<T> results, List<JsonObject> objects, Handler<AsyncResult<List<T>>> handler) {
-		Handler<AsyncResult<T>> resultHandler = res -> {
+		initializeModelsAux(count, results, (List<Object>) (List<?>) objects, (result, object) -> {
+			JsonObject values = object instanceof JsonObject ? (JsonObject) object : new JsonObject((Map<String, Object>) object);
+			result.setAttributes(false, values);
+		}, handler);
+	}
+	
+	/**
+	 * Same as {@link #initializeModelsAux(int, List, List, Handler)} but the values of the attributes
+	 * of each model are set with the function listed in parameters.
+	 * 
+	 * @param fill	sets the values of the attributes of a model with its document.
+	 */
+	protected <D> void initializeModelsAux(int count, List<T> results, List<D> objects, BiConsumer<T, D> fill, Handler<AsyncResult<List<T>>> handler) {
+		initializeModels(objects.subList(count, objects.size()), fill, new CsInitializeOptions(), res -> {
 			if(res.failed()) {
 				handler.handle(Future.failedFuture(res.cause()));
-			} else {
-				results.add(res.result());
-				int newCount = count + 1;
-				
-				if(newCount < objects.size()) {
-					initializeModelsAux(newCount, results, objects, handler);
-				} else {
-					handler.handle(Future.succeededFuture(results));
-				}
+				return;
 			}
-		};
-		
-		try {
-			JsonObject model = objects.get(count) instanceof JsonObject ? objects.get(count) : new JsonObject((Map<String, Object>) objects.get(count));
-			initializeModel(model, resultHandler);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | InstantiationException
-				| NoSuchMethodException | SecurityException e) {
-			handler.handle(Future.failedFuture(new CsModelsNotInitialized()));
-		}
+			
+			results.addAll(res.result());
+			handler.handle(Future.succeededFuture(results));
+		});
 	}
 	
 	/**
@@ -346,13 +487,43 @@ public abstract class CsActiveBase<T extends CsActiveBase<T>> extends CsActiveFo
 	 * @throws CsModelsNotInitialized	if some errors happen when initializing any model.
 	 */
 	protected void initializeModels(List<JsonObject> objects, Handler<AsyncResult<List<T>>> handler) throws CsModelsNotInitialized {
-		List<T> results = new LinkedList<T>();
-		
-		if(objects.size() > 0) {
-			initializeModelsAux(0, results, objects, handler);
-		} else {
-			handler.handle(Future.succeededFuture(results));
-		}
+		initializeModelsAux(0, new ArrayList<T>(objects.size()), objects, handler);
+	}
+	
+	/**
+	 * Same as {@link #initializeModels(List, Handler)}, with the options listed in parameters.
+	 * 
+	 * @see #initializeModels(List, BiConsumer, CsInitializeOptions, Handler)
+	 */
+	@SuppressWarnings("unchecked")
+	protected void initializeModels(List<JsonObject> objects, CsInitializeOptions options, Handler<AsyncResult<List<T>>> handler) {
+		initializeModels((List<Object>) (List<?>) objects, (result, object) -> {
+			JsonObject values = object instanceof JsonObject ? (JsonObject) object : new JsonObject((Map<String, Object>) object);
+			result.setAttributes(false, values);
+		}, options, handler);
+	}
+	
+	/**
+	 * Transforms a list of documents into a list of models, setting the values of the attributes of
+	 * each model with the function listed in parameters.
+	 * 
+	 * @param objects	the list of documents.
+	 * @param fill		sets the values of the attributes of a model with its document.
+	 * @param handler	the handler of the list of models.
+	 */
+	protected <D> void initializeModels(List<D> objects, BiConsumer<T, D> fill, Handler<AsyncResult<List<T>>> handler) {
+		initializeModels(objects, fill, new CsInitializeOptions(), handler);
+	}
+	
+	/**
+	 * Same as {@link #initializeModels(List, BiConsumer, Handler)}, with the options listed in
+	 * parameters. The find methods and hooks of several models can run at the same time, but the
+	 * models are given in the order of the documents.
+	 * 
+	 * @param options	the parallelism of the hooks and every how many models the event loop is released.
+	 */
+	protected <D> void initializeModels(List<D> objects, BiConsumer<T, D> fill, CsInitializeOptions options, Handler<AsyncResult<List<T>>> handler) {
+		new CsInitializeModels<T, D>(this, objects, fill, options, handler).run();
 	}
 	
 	
@@ -4,11 +4,10 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -18,24 +17,24 @@ import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.bson.types.ObjectId;
+import org.bson.RawBsonDocument;
 
-import com.cloudsiness.csmongo.active.annotations.Safe;
 import com.cloudsiness.csmongo.active.annotations.Searchable;
 import com.cloudsiness.csmongo.active.annotations.events.AfterValidate;
 import com.cloudsiness.csmongo.active.annotations.events.BeforeValidate;
-import com.cloudsiness.csmongo.active.exceptions.CsConstraintAnnotationWithoutScenarios;
 import com.cloudsiness.csmongo.active.hooks.CsHookHandler;
-import com.cloudsiness.csmongo.active.validators.CsConstraint;
-import com.cloudsiness.csmongo.active.validators.CsConstraintValidator;
+import com.cloudsiness.csmongo.active.hooks.CsHookInvoker;
+import com.cloudsiness.csmongo.active.metadata.CsFieldAccessor;
+import com.cloudsiness.csmongo.active.metadata.CsModelMetadata;
+import com.cloudsiness.csmongo.active.metadata.CsScenarioMetadata;
 import com.cloudsiness.csmongo.active.validators.CsValidationError;
 import com.cloudsiness.csmongo.active.validators.CsValidator;
-import com.cloudsiness.csmongo.active.validators.required.Required;
 import com.cloudsiness.csmongo.helpers.CsFutureHelper;
 import com.cloudsiness.csmongo.helpers.CsMultiMapHelper;
 import com.cloudsiness.csmongo.helpers.CsReflectionHelper;
+import com.cloudsiness.csmongo.helpers.pojo.CsLazyDocument;
+import com.cloudsiness.csmongo.helpers.pojo.CsModelCodec;
 import com.cloudsiness.csmongo.helpers.pojo.CsPojoHelper;
-import com.cloudsiness.csmongo.helpers.serializers.ObjectIdDbJsonSerializer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 
@@ -82,24 +81,58 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	public static final String GENERAL_ERRORS = "GENERAL_ERRORS";
 	
 	
+	/**
+	 * The model type of each class that extends CsActiveForm, resolved from the generic superclass 
+	 * only once per class.
+	 */
+	private static final ClassValue<Class<?>> MODEL_TYPES = new ClassValue<Class<?>>() {
+		@Override
+		protected Class<?> computeValue(Class<?> type) {
+			return (Class<?>) ((ParameterizedType) type.getGenericSuperclass()).getActualTypeArguments()[0];
+		}
+	};
+	
+	/**
+	 * The logger of each model type.
+	 */
+	private static final ClassValue<Logger> LOGGERS = new ClassValue<Logger>() {
+		@Override
+		protected Logger computeValue(Class<?> type) {
+			return LoggerFactory.getLogger(type);
+		}
+	};
+	
+	
 	// ATTRIBUTES -------
 	
 	/**
 	 * The Class of the supper class. Needed to get the annotations.
 	 */
 	@SuppressWarnings("unchecked")
-	protected Class<T> modelType = ((Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0]);
+	protected Class<T> modelType = (Class<T>) MODEL_TYPES.get(getClass());
+	
+	/**
+	 * The reflection data of the model class. Initialized on first use.
+	 */
+	private CsModelMetadata metadata;
 	
 	/**
-	 * Saves the errors when the model is validated.
+	 * Saves the errors when the model is validated. Initialized when the first error is added, so it is
+	 * read through {@link #getErrors()}.
 	 */
-	protected Map<String, List<CsValidationError>> errors;
+	private Map<String, List<CsValidationError>> errors;
 	
 	/**
 	 * Saves the current scenario of the active form for the validation.
 	 */
 	private String scenario;
 	
+	/**
+	 * The stored document of a model hydrated lazily, with the attributes that have not been decoded
+	 * yet. It is <code>null</code> when all the attributes are set.
+	 */
+	private CsLazyDocument lazyDocument;
+	
 	
 	// CONTEXT DATA -------
 	
@@ -109,31 +142,46 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	// HOOKS FIELDS -------
 	
 	/**
-	 * Hooks registered for to be called on before validate.
+	 * Hooks registered for to be called on before validate. They are added with
+	 * {@link #registerHook(String, CsHookHandler)}.
 	 */
-	protected List<CsHookHandler<T>> hooksOnBeforeValidate;
+	private List<CsHookHandler<T>> hooksOnBeforeValidate;
 	
 	/**
-	 * Hooks registered for to be called on after validate.
+	 * Hooks registered for to be called on after validate. They are added with
+	 * {@link #registerHook(String, CsHookHandler)}.
 	 */
-	protected List<CsHookHandler<T>> hooksOnAfterValidate;
+	private List<CsHookHandler<T>> hooksOnAfterValidate;
 	
 	
 	// CONSTRUCTORS -------
 	
+	/**
+	 * The hooks containers are shared empty lists until a hook is registered, so the models that never
+	 * register hooks (as the ones returned by the find methods) do not allocate them.
+	 */
 	protected CsActiveForm() {
-		this.hooksOnBeforeValidate = new LinkedList<CsHookHandler<T>>();
-		this.hooksOnAfterValidate = new LinkedList<CsHookHandler<T>>();
+		this.hooksOnBeforeValidate = Collections.emptyList();
+		this.hooksOnAfterValidate = Collections.emptyList();
 		
-		this.errors = new HashMap<String, List<CsValidationError>>();
 		this.scenario = MAIN_SCENARIO;
 		
-		this.logger = LoggerFactory.getLogger(modelType);
+		this.logger = LOGGERS.get(modelType);
 	}
 	
 	
 	// HELPER METHODS -------
 	
+	/**
+	 * @return	the reflection data of the model, shared by all the instances of the model class.
+	 */
+	protected CsModelMetadata getMetadata() {
+		if(metadata == null)
+			metadata = CsModelMetadata.of(modelType);
+		
+		return metadata;
+	}
+	
 	/**
 	 * Get all the methods that has the annotation listed in parameters.
 	 * 
@@ -141,15 +189,7 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	 * @return				a list of the methods with the listed annotation.
 	 */
 	protected List<Method> getMethodsAnnotedWith(Class<? extends Annotation> annotation) {
-		List<Method> result = new LinkedList<Method>();
-		
-		for(Method m : modelType.getMethods()) {
-			if(m.isAnnotationPresent(annotation)) {
-				result.add(m);
-			}
-		}
-				
-		return result;
+		return getMetadata().getMethodsAnnotatedWith(annotation);
 	}
 	
 	/**
@@ -157,33 +197,18 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	 * @return		a list with all the public fields (attributes of the model).
 	 */
 	public List<Field> getFields(boolean safe, String scenario) {
-		List<Field> result = new LinkedList<Field>();
-
-		for(Field f : getAllFields(new LinkedList<Field>(), modelType)) {
-			if(
-				Modifier.toString(f.getModifiers()).equals("public")
-					&& 
-				(
-					!safe 
-						|| 
-					(safe && isSafeAttribute(f, scenario))
-				)
-			) {
-				result.add(f);
-			}
-		}
-		
-		return result;
+		return new ArrayList<Field>(getAttributeFields(safe, scenario));
 	}
 	
-	private static List<Field> getAllFields(List<Field> fields, Class<?> type) {
-	    fields.addAll(Arrays.asList(type.getDeclaredFields()));
-
-	    if (type.getSuperclass() != null) {
-	        fields = getAllFields(fields, type.getSuperclass());
-	    }
-
-	    return fields;
+	/**
+	 * Same as {@link #getFields(boolean, String)} but returns the unmodifiable list of the metadata, 
+	 * without copying it.
+	 */
+	protected List<Field> getAttributeFields(boolean safe, String scenario) {
+		if(safe)
+			return getMetadata().getScenario(scenario).getSafeFields();
+		
+		return getMetadata().getFields();
 	}
 	
 	/**
@@ -216,7 +241,13 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	 */
 	@SuppressWarnings("unchecked")
 	public <S> S getAttributeValue(String attribute) {
+		hydrate(attribute);
+		
 		try {
+			CsFieldAccessor accessor = getMetadata().getAccessor(attribute);
+			if(accessor != null)
+				return (S) accessor.get(this);
+			
 			Field f = modelType.getField(attribute);
 			return (S) f.get(this);
 		} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
@@ -225,35 +256,6 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 		
 	}
 	
-	/**
-	 * A field is safe if it has the annotation @Safe or some validator annotation.
-	 * 
-	 * @param f	the field that we want know if it is safe.
-	 * @return	<code>true</code> if the field is safe.
-	 */
-	private boolean isSafeAttribute(Field f, String scenario) {
-		return isAnnotationSafePresent(f, scenario) || hasAttributeValidators(f, scenario);
-	}
-	
-	/**
-	 * Returns if the attributed is annotated as safe for the scenario listed in parameters.
-	 * 
-	 * @param f			the field that is looking for.
-	 * @param scenario	the scenario that the safe annotation must contains.
-	 * @return			<code>true</code> if the field is annotated as safe.
-	 */
-	private boolean isAnnotationSafePresent(Field f, String scenario) {
-		return f.isAnnotationPresent(Safe.class) && isAnnotationInScenario(f.getAnnotation(Safe.class), scenario);
-	}
-	
-	/**
-	 * @param f	the field for find out if it has validators.
-	 * @return	<code>true</code> if the field has validators.s
-	 */
-	private boolean hasAttributeValidators(Field f, String scenario) {
-		return !getValidators(f, scenario).isEmpty();
-	}
-	
 	/**
 	 * Get the annotated validations in the field and in the scenario that are listed as parameters.
 	 * <p>
@@ -264,20 +266,9 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	 * @return			a list of validators for the attribute/model in the scenario.
 	 */
 	private List<CsValidator> getValidators(Field f, String scenario) {
-		List<CsValidator> validators = new ArrayList<CsValidator>();
-		Annotation[] anns = f != null ? f.getAnnotations() : modelType.getAnnotations();
-		
-		for(Annotation ann : anns) {
-			CsConstraint constraint = ann.annotationType().getAnnotation(CsConstraint.class);
-			if(constraint != null) {
-				if(isAnnotationInScenario(ann, scenario)) {
-					for(Class<? extends CsConstraintValidator<?>> c : constraint.validatedBy())
-						validators.add(CsValidator.create(c, ann, scenario));
-				}
-			}
-		}
+		CsScenarioMetadata scenarioMetadata = getMetadata().getScenario(scenario);
 		
-		return validators;
+		return f != null ? scenarioMetadata.getValidators(f) : scenarioMetadata.getModelValidators();
 	}
 	
 	/**
@@ -289,44 +280,6 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 		return getValidators(null, scenario);
 	}
 	
-	/**
-	 * Invokes the method scenarios() to know in which scenarios are the validator available.
-	 * <p>
-	 * If the annotation has no method scenarios(), then returns <code>false</code>.
-	 * 
-	 * @param ann		the annotation to know if is in the scenario.
-	 * @param scenario	the scenario to check.
-	 * @return			<code>true</code> if the validator is available in the scenario listed in the parameters.
-	 */
-	private boolean isAnnotationInScenario(Annotation ann, String scenario) {
-		try {
-			for(String s : getScenarios(ann)) {
-				if(s.equals(scenario) || s.equals(MAIN_SCENARIO))
-					return true;
-			}
-		} catch (CsConstraintAnnotationWithoutScenarios e) {
-			e.printStackTrace();
-		}
-		
-		return false;
-	}
-	
-	/**
-	 * Gets the available scenarios for a constraint in an annotation.
-	 * 
-	 * @param ann	the annotation for to looking for the scenarios.
-	 * @return		a list of the available scenarios.
-	 * @throws CsConstraintAnnotationWithoutScenarios
-	 */
-	private String[] getScenarios(Annotation ann) throws CsConstraintAnnotationWithoutScenarios {
-		try {
-			Method m = ann.getClass().getMethod("scenarios");
-			return (String[]) m.invoke(ann);
-		} catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-			throw new CsConstraintAnnotationWithoutScenarios(ann.annotationType().getName());
-		}
-	}
-	
 	
 	// ON EVENT METHODS -------
 	
@@ -341,8 +294,25 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	 */
 	@SuppressWarnings("unchecked")
 	protected void callOn(Class<? extends Annotation> annotationClass, List<CsHookHandler<T>> hooks, Handler<AsyncResult<Boolean>> handler) {
-		List<Method> methods = getMethodsAnnotedWith(annotationClass);
-		int total = methods.size() + hooks.size();
+		List<CsHookInvoker> invokers = getMetadata().getHookInvokers(annotationClass);
+		int total = invokers.size() + hooks.size();
+		
+		// Fast paths: nothing to run or only one method or hook, that can receive the handler directly
+		if(total == 0) {
+			handler.handle(Future.succeededFuture(true));
+			return;
+		} else if(total == 1) {
+			try {
+				if(invokers.isEmpty())
+					hooks.get(0).handle((T) this, handler);
+				else
+					invokers.get(0).invoke(this, handler);
+			} catch(Exception e) {
+				handler.handle(Future.failedFuture(e));
+			}
+			return;
+		}
+		
 		AtomicInteger count = new AtomicInteger(0);
 		AtomicBoolean result = new AtomicBoolean(true);
 		AtomicBoolean error = new AtomicBoolean(false);
@@ -362,25 +332,30 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 			}
 		};
 		
-		if(total == 0) {
-			handler.handle(Future.succeededFuture(result.get()));
-		} else {
-			try {
-				// Run methods with annotation
-				for(Method m : getMethodsAnnotedWith(annotationClass)) {
-					m.invoke(this, resultHandler);
-				}
-				
-				// Run hooks
-				for(CsHookHandler<T> h : hooks) {
-					h.handle((T) this, resultHandler);
-				}
-			} catch(IllegalAccessException | IllegalArgumentException | InvocationTargetException  e) {
-				handler.handle(Future.failedFuture(e));
+		try {
+			// Run methods with annotation
+			for(CsHookInvoker invoker : invokers) {
+				invoker.invoke(this, resultHandler);
+			}
+			
+			// Run hooks
+			for(CsHookHandler<T> h : hooks) {
+				h.handle((T) this, resultHandler);
 			}
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
 		}
 	}
 	
+	/**
+	 * @param annotationClass	the annotation class of the event.
+	 * @param hooks				the hooks registered for the event.
+	 * @return					<code>true</code> if there are methods annotated with the annotation class or hooks.
+	 */
+	protected boolean hasHooks(Class<? extends Annotation> annotationClass, List<CsHookHandler<T>> hooks) {
+		return !hooks.isEmpty() || !getMetadata().getHookInvokers(annotationClass).isEmpty();
+	}
+	
 	/**
 	 * Call the methods annotated with @BeforeValidate and the hooks of the field hooksOnBeforeValidate.
 	 * @throws InvocationTargetException 
@@ -410,23 +385,37 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	public void registerHook(String where, CsHookHandler<T> handler) {
 		switch(where) {
 			case ON_BEFORE_VALIDATE:
-				hooksOnBeforeValidate.add(handler);
+				hooksOnBeforeValidate = addHook(hooksOnBeforeValidate, handler);
 				break;
 			case ON_AFTER_VALIDATE:
-				hooksOnAfterValidate.add(handler);
+				hooksOnAfterValidate = addHook(hooksOnAfterValidate, handler);
 				break;
 		}
 	}
 	
+	/**
+	 * Adds the hook to the hooks container, allocating the container if it is still the shared empty list.
+	 * 
+	 * @param hooks		the hooks container.
+	 * @param handler	the hook to add.
+	 * @return			the hooks container with the hook.
+	 */
+	protected static <H> List<H> addHook(List<H> hooks, H handler) {
+		List<H> result = hooks == Collections.<H>emptyList() ? new LinkedList<H>() : hooks;
+		result.add(handler);
+		
+		return result;
+	}
+	
 	
 	// ERRORS METHODS -------
 	
 	public Map<String, List<CsValidationError>> getErrors() {
-		return errors;
+		return getErrorsMap();
 	}
 	
 	public List<CsValidationError> getErrors(String attribute) {
-		return errors.get(attribute);
+		return errors != null ? errors.get(attribute) : null;
 	}
 	
 	public List<CsValidationError> getErrorsAsList() {
@@ -463,15 +452,15 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	}
 	
 	public boolean hasErrors() {
-		return errors.size() > 0;
+		return errors != null && errors.size() > 0;
 	}
 	
 	public boolean hasErrors(String attribute) {
-		return errors.get(attribute) != null && errors.get(attribute).size() > 0;
+		return errors != null && errors.get(attribute) != null && errors.get(attribute).size() > 0;
 	}
 	
 	public void addError(String attribute, String error) {
-		List<CsValidationError> attributeErrors = errors.get(attribute);
+		List<CsValidationError> attributeErrors = getErrorsMap().get(attribute);
 		if(attributeErrors == null) {
 			attributeErrors = new LinkedList<CsValidationError>();
 			errors.put(attribute, attributeErrors);
@@ -481,7 +470,7 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	}
 	
 	public void addError(String attribute, CsValidationError error) {
-		List<CsValidationError> attributeErrors = errors.get(attribute);
+		List<CsValidationError> attributeErrors = getErrorsMap().get(attribute);
 		if(attributeErrors == null) {
 			attributeErrors = new LinkedList<CsValidationError>();
 			errors.put(attribute, attributeErrors);
@@ -491,7 +480,7 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	}
 	
 	public void addErrors(String attribute, List<String> newErrors) {
-		List<CsValidationError> attributeErrors = errors.get(attribute);
+		List<CsValidationError> attributeErrors = getErrorsMap().get(attribute);
 		if(attributeErrors == null) {
 			attributeErrors = new LinkedList<CsValidationError>();
 			errors.put(attribute, attributeErrors);
@@ -503,24 +492,54 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	
 	public void addErrors(Map<String,List<CsValidationError>> newErrors) {
 		if(newErrors != null)
-			errors.putAll(newErrors);
+			getErrorsMap().putAll(newErrors);
 	}
 	
 	public void clearErrors() {
-		errors.clear();
+		if(errors != null)
+			errors.clear();
+	}
+	
+	/**
+	 * @return	the errors map, allocating it if the model has not had errors yet.
+	 */
+	private Map<String, List<CsValidationError>> getErrorsMap() {
+		if(errors == null)
+			errors = new HashMap<String, List<CsValidationError>>();
+		
+		return errors;
 	}
 	
 	
 	// SET ATTRIBUTES -------
 	
+	/**
+	 * Custom deserializers of the model. It is called only once per model class, the first time that
+	 * a model of the class is filled, so it can not depend on the state of the model.
+	 * 
+	 * @return	the module with the custom deserializers or <code>null</code>.
+	 */
 	protected SimpleModule getCustomDeserializers() {
 		return null;
 	}
 	
+	/**
+	 * Custom serializers of the model. It is called only once per model class and options, so it can 
+	 * not depend on the state of the model.
+	 * 
+	 * @return	the module with the custom serializers or <code>null</code>.
+	 */
 	protected SimpleModule getCustomSerializers() {
 		return null;
 	}
 	
+	/**
+	 * @return	the codec of the model or <code>null</code> if the model is converted with Jackson.
+	 */
+	protected CsModelCodec getCodec() {
+		return CsModelCodec.forModel(modelType, this::getCustomSerializers, this::getCustomDeserializers);
+	}
+	
 	/**
 	 * Sets the attributes of the object with the values on the JSON object listed in parameters.
 	 * 
@@ -531,9 +550,11 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 		if(body == null)
 			body = new JsonObject();
 		
+		hydrate();
+		
 		JsonObject endBody = new JsonObject();
 		
-		for(Field f : getFields(safes)) {
+		for(Field f : getAttributeFields(safes, getScenario())) {
 			String fieldName = f.getName();
 			if(body.containsKey(fieldName)) {
 				endBody.put(fieldName, body.getValue(fieldName));
@@ -559,12 +580,86 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 		}
 		
 		try {
-			CsPojoHelper.deserialize(this, endBody, getCustomDeserializers());
+			CsModelCodec codec = getCodec();
+			if(codec != null)
+				codec.decode(this, endBody);
+			else
+				CsPojoHelper.deserialize(this, endBody, CsPojoHelper.reader(modelType, this::getCustomDeserializers));
+		} catch(Exception e) {
+			logger.error("CsActiveForm - setAttributes", e);
+		}
+	}
+	
+	/**
+	 * Sets all the attributes with the values of the stored BSON document listed in parameters, with
+	 * the codec of the model. The values are set as in {@link #setAttributes(boolean, JsonObject)}.
+	 * 
+	 * @param codec		the codec of the model.
+	 * @param document	the stored document.
+	 */
+	protected void setAttributes(CsModelCodec codec, RawBsonDocument document) {
+		try {
+			codec.decode(this, document);
 		} catch(Exception e) {
 			logger.error("CsActiveForm - setAttributes", e);
 		}
 	}
 	
+	/**
+	 * Sets the stored document from which the attributes are decoded lazily: each attribute is decoded
+	 * the first time that it is got or set through {@link #getAttributeValue(String)},
+	 * {@link #setAttribute(String, Object)} or {@link #getAttributes(List)}, and all the attributes
+	 * that are left are decoded when the model is validated, saved or {@link #hydrate() hydrated}.
+	 * 
+	 * @param document	the stored document.
+	 */
+	protected void setAttributes(CsLazyDocument document) {
+		lazyDocument = document;
+	}
+	
+	/**
+	 * Decodes all the attributes that have not been decoded yet of a model hydrated lazily. The public
+	 * attributes of these models are not set until they are decoded, so this method must be called
+	 * before reading them directly. It does nothing if the model is not hydrated lazily.
+	 */
+	public void hydrate() {
+		CsLazyDocument document = lazyDocument;
+		if(document != null) {
+			lazyDocument = null;
+			
+			try {
+				document.decodeAll(this);
+			} catch(Exception e) {
+				logger.error("CsActiveForm - hydrate", e);
+			}
+		}
+	}
+	
+	/**
+	 * Decodes the attributes listed in parameters (all the attributes if it is <code>null</code>).
+	 * 
+	 * @see #hydrate()
+	 */
+	protected void hydrate(List<String> attributes) {
+		if(attributes == null)
+			hydrate();
+		else if(lazyDocument != null)
+			attributes.forEach(this::hydrate);
+	}
+	
+	/**
+	 * Decodes the attribute if the model is hydrated lazily and it has not been decoded yet.
+	 */
+	private void hydrate(String attribute) {
+		if(lazyDocument != null) {
+			try {
+				lazyDocument.decode(this, attribute);
+			} catch(Exception e) {
+				logger.error("CsActiveForm - hydrate " + attribute, e);
+			}
+		}
+	}
+	
 	/**
 	 * Sets the safe attributes.
 	 * 
@@ -579,7 +674,15 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	}
 	
 	public void setAttribute(String attribute, Object value) {
+		hydrate(attribute);
+		
 		try {
+			CsFieldAccessor accessor = getMetadata().getAccessor(attribute);
+			if(accessor != null) {
+				accessor.set(this, value);
+				return;
+			}
+			
 			Field f = modelType.getField(attribute);
 			f.set(this, value);
 		} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
@@ -597,11 +700,12 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	 * @throws JsonProcessingException 
 	 */
 	protected JsonObject getAttributes(List<String> attributes, boolean emptyValues, boolean toSave) throws JsonProcessingException {
-		SimpleModule customModule = getCustomSerializers() != null ? getCustomSerializers() : new SimpleModule();
-		if(toSave)
-			customModule.addSerializer(ObjectId.class, new ObjectIdDbJsonSerializer());
+		hydrate(attributes);
 		
-		JsonObject result = CsPojoHelper.serialize(this, emptyValues, customModule);
+		CsModelCodec codec = getCodec();
+		JsonObject result = codec != null
+				? codec.encode(this, emptyValues, toSave)
+				: CsPojoHelper.serialize(this, CsPojoHelper.writer(modelType, emptyValues, toSave, this::getCustomSerializers));
 		
 		if(attributes != null) {
 			JsonObject newResult = result.copy();
@@ -649,6 +753,8 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	 * @throws InvocationTargetException
 	 */
 	public void validate(Handler<AsyncResult<Boolean>> handler) {
+		hydrate();
+		
 		// Clear errors of a previous validation
 		clearErrors();
 		
@@ -661,20 +767,9 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 				if(!result) {
 					handler.handle(Future.succeededFuture(false));
 				} else {
-					List<CsValidator> validators = getValidators(getScenario());
-					Map<Field, List<CsValidator>> fieldsValidators = new HashMap<Field, List<CsValidator>>();
-					
-					for(Field field : getFields()) {
-						List<CsValidator> fieldValidators = fieldsValidators.get(field);
-						if(fieldValidators == null) {
-							fieldValidators = new ArrayList<CsValidator>();
-							fieldsValidators.put(field, fieldValidators);
-						}
-						
-						for(CsValidator validator : getValidators(field, getScenario())) {
-							fieldValidators.add(validator);
-						}
-					}
+					CsScenarioMetadata scenarioMetadata = getMetadata().getScenario(getScenario());
+					List<CsValidator> validators = scenarioMetadata.getModelValidators();
+					Map<Field, List<CsValidator>> fieldsValidators = scenarioMetadata.getFieldsValidators();
 					
 					Handler<AsyncResult<Boolean>> validationHandler = valRes -> {
 						if(valRes.failed()) {
@@ -764,18 +859,7 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 	// GET REQUIRED FIELDS
 	
 	public List<String> getRequiredFields() {
-		List<String> result = new ArrayList<String>();
-		
-		for(Field field : getSafeFields()) {
-			Annotation ann = field.getAnnotation(Required.class);
-			if(ann != null) {
-				if(isAnnotationInScenario(ann, scenario)) {
-					result.add(field.getName());
-				}
-			}
-		}
-		
-		return result;
+		return new ArrayList<String>(getMetadata().getScenario(scenario).getRequiredFields());
 	}
 	
 	
@@ -785,56 +869,54 @@ public abstract class CsActiveForm<T extends CsActiveForm<T>> {
 		JsonObject query = new JsonObject();
 		setAttributes(false, filters);
 		
-		for(Field f : getFields(false, null)) {
-			if(f.isAnnotationPresent(Searchable.class)) {
-				Searchable annotation = f.getAnnotation(Searchable.class);
-				
-				if(annotation.type() == Searchable.EXACT) {
-					try {
-						if(f.getType().isAssignableFrom(CsActiveForm.class)) {
-							JsonObject sub = new JsonObject();
-							
-							for(Map.Entry<String, Object> entry : filters) {
-								if(entry.getKey().startsWith(f.getName() + ".")) {
-									String key = entry.getKey().substring(entry.getKey().indexOf(".") + 1);
-									sub.put(key, entry.getValue());
-								}
+		for(Field f : getMetadata().getSearchableFields()) {
+			Searchable annotation = f.getAnnotation(Searchable.class);
+			
+			if(annotation.type() == Searchable.EXACT) {
+				try {
+					if(f.getType().isAssignableFrom(CsActiveForm.class)) {
+						JsonObject sub = new JsonObject();
+						
+						for(Map.Entry<String, Object> entry : filters) {
+							if(entry.getKey().startsWith(f.getName() + ".")) {
+								String key = entry.getKey().substring(entry.getKey().indexOf(".") + 1);
+								sub.put(key, entry.getValue());
 							}
+						}
 
-							if(!sub.isEmpty()) {
-								CsActiveForm<?> aux;
-								aux = (CsActiveForm<?>) CsReflectionHelper.helper().resolveParameterizedType(f, getClass())
-										.getConstructor().newInstance();
-								JsonObject subFilters = aux.searchFilters(sub);
-								
-								for(Map.Entry<String, Object> entry : subFilters)
-									query.put(f.getName() + "." + entry.getKey(), entry.getValue());
-							}
-						} else if(filters.containsKey(f.getName())) {
-							Object value = f.get(this);
+						if(!sub.isEmpty()) {
+							CsActiveForm<?> aux;
+							aux = (CsActiveForm<?>) CsReflectionHelper.helper().resolveParameterizedType(f, getClass())
+									.getConstructor().newInstance();
+							JsonObject subFilters = aux.searchFilters(sub);
 							
-							value = value != null ? value : filters.getValue(f.getName());
-							if(value != null && value.getClass().equals(Date.class))
-								query.put(f.getName(), ((Date) value).getTime());
-							else
-								query.put(f.getName(), value);
+							for(Map.Entry<String, Object> entry : subFilters)
+								query.put(f.getName() + "." + entry.getKey(), entry.getValue());
 						}
-					} catch (Exception e) {
-						logger.error("Field can not be set (exact) in search filters: " + f.getName(), e);
+					} else if(filters.containsKey(f.getName())) {
+						Object value = f.get(this);
+						
+						value = value != null ? value : filters.getValue(f.getName());
+						if(value != null && value.getClass().equals(Date.class))
+							query.put(f.getName(), ((Date) value).getTime());
+						else
+							query.put(f.getName(), value);
 					}
-				} else {
-					if(filters.containsKey(f.getName())) {
-						try {
-							Object value = f.get(this);
-							
-							JsonObject singleQuery = new JsonObject()
-									.put("$regex", value != null ? value : null)
-									.put("$options", !annotation.options().isEmpty() ? annotation.options() : "i");
-							
-							query.put(f.getName(), singleQuery);
-						} catch (IllegalArgumentException | IllegalAccessException e) {
-							logger.error("Field can not be set in search filters: " + f.getName(), e);
-						}
+				} catch (Exception e) {
+					logger.error("Field can not be set (exact) in search filters: " + f.getName(), e);
+				}
+			} else {
+				if(filters.containsKey(f.getName())) {
+					try {
+						Object value = f.get(this);
+						
+						JsonObject singleQuery = new JsonObject()
+								.put("$regex", value != null ? value : null)
+								.put("$options", !annotation.options().isEmpty() ? annotation.options() : "i");
+						
+						query.put(f.getName(), singleQuery);
+					} catch (IllegalArgumentException | IllegalAccessException e) {
+						logger.error("Field can not be set in search filters: " + f.getName(), e);
 					}
 				}
 			}
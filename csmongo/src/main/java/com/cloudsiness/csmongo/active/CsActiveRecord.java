@@ -1,29 +1,38 @@
 package com.cloudsiness.csmongo.active;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
 import org.bson.types.ObjectId;
 
 import com.cloudsiness.csmongo.active.annotations.CsModel;
-import com.cloudsiness.csmongo.active.annotations.NotSave;
+import com.cloudsiness.csmongo.active.annotations.Sequence;
 import com.cloudsiness.csmongo.active.exceptions.CsCanNotSaveAttributesOfNewRecords;
 import com.cloudsiness.csmongo.active.exceptions.CsModelNotAnnotatedException;
+import com.cloudsiness.csmongo.active.metadata.CsScenarioMetadata;
 import com.cloudsiness.csmongo.criteria.CsCriteria;
 import com.cloudsiness.csmongo.data.provider.CsDbDataProvider;
 import com.cloudsiness.csmongo.data.provider.CsPagination;
+import com.cloudsiness.csmongo.factory.CsMongoClient;
 import com.cloudsiness.csmongo.factory.CsMongoFactory;
 import com.cloudsiness.csmongo.factory.exceptions.CsClientNotInitializedException;
+import com.cloudsiness.csmongo.helpers.CsFutureHelper;
+import com.cloudsiness.csmongo.helpers.pojo.CsDocumentChanges;
+import com.cloudsiness.csmongo.helpers.pojo.CsLazyDocument;
+import com.cloudsiness.csmongo.helpers.pojo.CsModelCodec;
+import com.cloudsiness.csmongo.sequence.CsSequence;
+import com.cloudsiness.csmongo.sequence.CsSequenceOptions;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import io.vertx.core.AsyncResult;
-import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.FindOptions;
@@ -50,16 +59,17 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	 */
 	public ObjectId _id;
 	
-	/**
-	 * The Class of the supper class. Needed to get the annotations.
-	 */
-	@SuppressWarnings("unchecked")
-	protected Class<T> modelType = ((Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0]);
-	
 	protected JsonObject searchDefaultSort;
 	
 	protected int searchDefaultPageSize;
 	
+	/**
+	 * The stored document of the models read and saved as BSON documents.
+	 * 
+	 * @see #storedDocument
+	 */
+	RawBsonDocument storedBsonDocument;
+	
 	
 	// CONSTRUCTORS -------
 	
@@ -69,8 +79,6 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	public CsActiveRecord() {
 		super();
 		
-		this.searchDefaultSort = new JsonObject()
-				.put("_id", 1);
 		this.searchDefaultPageSize = CsPagination.DEFAULT_PAGE_SIZE;
 	}
 	
@@ -84,7 +92,7 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	 * @throws CsModelNotAnnotatedException		If the superclass has not been annotated with CsModel.
 	 */
 	private CsModel getModelAnnotation() throws CsModelNotAnnotatedException  {
-		CsModel ann = modelType.getAnnotation(CsModel.class);
+		CsModel ann = getMetadata().getModelAnnotation();
 		if(ann == null)
 			throw new CsModelNotAnnotatedException("The model " + modelType.getName() + "has not been annotated.");
 		
@@ -97,8 +105,12 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	 * @return									The name of the collection.
 	 * @throws CsModelNotAnnotatedException		If the superclass has not been annotated with CsModel.
 	 */
-	private String getCollectionName() throws CsModelNotAnnotatedException {
-		return getModelAnnotation().collectionName();
+	String getCollectionName() throws CsModelNotAnnotatedException {
+		String collectionName = getMetadata().getCollectionName();
+		if(collectionName == null)
+			throw new CsModelNotAnnotatedException("The model " + modelType.getName() + "has not been annotated.");
+		
+		return collectionName;
 	}
 	
 	/**
@@ -108,12 +120,97 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	 * @throws CsModelNotAnnotatedException		If the superclass has not been annotated with CsModel.
 	 * @throws CsClientNotInitializedException	If the mongo client has not been initializated yet.
 	 */
-	private MongoClient getMongoClient() throws CsModelNotAnnotatedException, CsClientNotInitializedException {
-		String clientKey = getModelAnnotation().mongoClient();
+	MongoClient getMongoClient() throws CsModelNotAnnotatedException, CsClientNotInitializedException {
+		String clientKey = getMetadata().getMongoClient();
+		if(clientKey == null)
+			throw new CsModelNotAnnotatedException("The model " + modelType.getName() + "has not been annotated.");
 		
 		return CsMongoFactory.mongo(clientKey);
 	}
 	
+	/**
+	 * Gets the mongo client of the model if the model is read and saved as BSON documents: the model
+	 * is annotated with CsModel(bson=true), it can use its codec and its client is a CsMongoClient.
+	 * 
+	 * @return									The mongo client or <code>null</code> if the model uses JSON objects.
+	 * @throws CsModelNotAnnotatedException		If the superclass has not been annotated with CsModel.
+	 * @throws CsClientNotInitializedException	If the mongo client has not been initializated yet.
+	 */
+	CsMongoClient getBsonClient() throws CsModelNotAnnotatedException, CsClientNotInitializedException {
+		CsModel ann = getMetadata().getModelAnnotation();
+		if(ann == null || !ann.bson() || getCodec() == null)
+			return null;
+		
+		MongoClient client = getMongoClient();
+		
+		return client instanceof CsMongoClient ? (CsMongoClient) client : null;
+	}
+	
+	/**
+	 * @return	the codec of the model if the found models are hydrated lazily (the model is annotated
+	 * 			with CsModel(lazy=true) and it can use its codec) or <code>null</code> otherwise.
+	 */
+	CsModelCodec getLazyCodec() {
+		CsModel ann = getMetadata().getModelAnnotation();
+		
+		return ann != null && ann.lazy() ? getCodec() : null;
+	}
+	
+	/**
+	 * The policy of the model, with the offloadThreshold of its CsModel annotation if it sets one.
+	 */
+	@Override
+	protected CsExecutionPolicy getExecutionPolicy() {
+		CsExecutionPolicy policy = super.getExecutionPolicy();
+		CsModel ann = getMetadata().getModelAnnotation();
+		if(ann != null && ann.offloadThreshold() != CsExecutionPolicy.NEVER)
+			policy.setThreshold(ann.offloadThreshold());
+		
+		return policy;
+	}
+	
+	/**
+	 * The _id is decoded at once, because it is read directly (to save the model, to compare it...).
+	 */
+	@Override
+	protected void setAttributes(CsLazyDocument document) {
+		super.setAttributes(document);
+		getAttributeValue("_id");
+	}
+	
+	/**
+	 * Sets the attributes with the values of the stored document listed in parameters (lazily if the
+	 * codec is listed) and keeps it as the stored document of the model.
+	 * 
+	 * @param document	the stored document.
+	 * @param lazyCodec	the codec of the model if it is hydrated lazily or <code>null</code>.
+	 */
+	protected void setStoredDocument(JsonObject document, CsModelCodec lazyCodec) {
+		if(lazyCodec != null)
+			setAttributes(new CsLazyDocument(lazyCodec, document));
+		else
+			setAttributes(false, document);
+		
+		storedDocument = document;
+	}
+	
+	/**
+	 * Sets the attributes with the values of the stored BSON document listed in parameters and keeps it
+	 * as the stored document of the model.
+	 * 
+	 * @param document	the stored document.
+	 * @param codec		the codec of the model.
+	 * @param lazy		if the model is hydrated lazily.
+	 */
+	protected void setStoredDocument(RawBsonDocument document, CsModelCodec codec, boolean lazy) {
+		if(lazy)
+			setAttributes(new CsLazyDocument(codec, document));
+		else
+			setAttributes(codec, document);
+		
+		storedBsonDocument = document;
+	}
+	
 	
 	// DB FIND METHODS -------
 	
@@ -124,23 +221,63 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	 * @param handler	the handler to run.
 	 */
 	protected void onFindAll(AsyncResult<List<JsonObject>> res, Handler<AsyncResult<List<T>>> handler) {
+		onFindAll(res, new CsInitializeOptions(), handler);
+	}
+	
+	/**
+	 * Same as {@link #onFindAll(AsyncResult, Handler)}, with the options listed in parameters.
+	 */
+	protected void onFindAll(AsyncResult<List<JsonObject>> res, CsInitializeOptions options, Handler<AsyncResult<List<T>>> handler) {
 		if(res.succeeded()) {
-			try {
-				initializeModels(res.result(), res2 -> {
-					if(res2.failed()) {
-						handler.handle(Future.failedFuture(res2.cause()));
-					} else {
-						handler.handle(Future.succeededFuture(res2.result()));
-					}
-				});
-			} catch (Exception e) {
-				handler.handle(Future.failedFuture(e));
-			}
+			CsModelCodec lazyCodec = getLazyCodec();
+			initializeModels(res.result(), (model, document) -> model.setStoredDocument(document, lazyCodec), options, afterFindAll(handler));
+		} else {
+			handler.handle(Future.failedFuture(res.cause()));
+		}
+	}
+	
+	/**
+	 * Transforms the async result of type List<RawBsonDocument> into async result of type List<T> and calls the handler passed in the parameters.
+	 * 
+	 * @param res		the async result to transform.
+	 * @param options	the options with which the documents are transformed.
+	 * @param handler	the handler to run.
+	 */
+	private void onFindAllBson(AsyncResult<List<RawBsonDocument>> res, CsInitializeOptions options, Handler<AsyncResult<List<T>>> handler) {
+		if(res.succeeded()) {
+			CsModelCodec codec = getCodec();
+			boolean lazy = getLazyCodec() != null;
+			initializeModels(res.result(), (model, document) -> model.setStoredDocument(document, codec, lazy), options, afterFindAll(handler));
 		} else {
 			handler.handle(Future.failedFuture(res.cause()));
 		}
 	}
 	
+	/**
+	 * Wraps the handler of the found models so the @AfterFindAll methods and hooks run with the whole
+	 * list before it (once, after the @AfterFind methods of each model). They are not run if nothing
+	 * has been found. As the @AfterFind methods, they can not cancel the find: only their failures fail
+	 * the handler, and a <code>false</code> result is ignored.
+	 * 
+	 * @param handler	the handler of the found models.
+	 * @return			the handler of the initialized models.
+	 */
+	private Handler<AsyncResult<List<T>>> afterFindAll(Handler<AsyncResult<List<T>>> handler) {
+		return res -> {
+			if(res.failed() || res.result().isEmpty()) {
+				handler.handle(res);
+				return;
+			}
+			
+			callOnAfterFindAll(res.result(), res2 -> {
+				if(res2.failed())
+					handler.handle(Future.failedFuture(res2.cause()));
+				else
+					handler.handle(res);
+			});
+		};
+	}
+	
 	/**
 	 * Transform the async result of type JsonObject into async result of type T and calls the handler passed in the parameters.
 	 * 
@@ -153,6 +290,12 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 				handler.handle(Future.succeededFuture());
 			} else {
 				try {
+					CsModelCodec lazyCodec = getLazyCodec();
+					if(lazyCodec != null) {
+						initializeModel(model -> model.setStoredDocument(res.result(), lazyCodec), handler);
+						return;
+					}
+					
 					initializeModel(res.result(), res2 -> {
 						if(res2.failed()) {
 							handler.handle(Future.failedFuture(res2.cause()));
@@ -169,20 +312,59 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 		}
 	}
 	
+	/**
+	 * Transform the async result of type RawBsonDocument into async result of type T and calls the handler passed in the parameters.
+	 * 
+	 * @param res		the async result to transform.
+	 * @param handler	the handler to run.
+	 */
+	private void onFindBson(AsyncResult<RawBsonDocument> res, Handler<AsyncResult<T>> handler) {
+		if(res.succeeded()) {
+			if(res.result() == null) {
+				handler.handle(Future.succeededFuture());
+			} else {
+				try {
+					CsModelCodec codec = getCodec();
+					boolean lazy = getLazyCodec() != null;
+					initializeModel(model -> model.setStoredDocument(res.result(), codec, lazy), handler);
+				} catch(Exception e) {
+					handler.handle(Future.failedFuture(e));
+				}
+			}
+		} else {
+			handler.handle(Future.failedFuture(res.cause()));
+		}
+	}
+	
 	/**
 	 * Retrieves and transforms a DB query, with options.
 	 * 
 	 * @see MongoClient#findWithOptions
 	 */
 	public void findAll(JsonObject query, FindOptions options, Handler<AsyncResult<List<T>>> handler) {
+		findAll(query, options, new CsInitializeOptions(), handler);
+	}
+	
+	/**
+	 * Same as {@link #findAll(JsonObject, FindOptions, Handler)}, transforming the found documents with
+	 * the options listed in parameters (as the execution policy of this call).
+	 * 
+	 * @param initializeOptions	the options with which the documents are transformed into models.
+	 */
+	public void findAll(JsonObject query, FindOptions options, CsInitializeOptions initializeOptions, Handler<AsyncResult<List<T>>> handler) {
 		try {
-			if(options != null)
+			CsMongoClient bsonClient = getBsonClient();
+			if(bsonClient != null)
+				bsonClient.findBson(getCollectionName(), query, options, res -> {
+					onFindAllBson(res, initializeOptions, handler);
+				});
+			else if(options != null)
 				getMongoClient().findWithOptions(getCollectionName(), query, options, res -> {
-					onFindAll(res, handler); 
+					onFindAll(res, initializeOptions, handler); 
 				});
 			else
 				getMongoClient().find(getCollectionName(), query, res -> {
-					onFindAll(res, handler);
+					onFindAll(res, initializeOptions, handler);
 				});
 		} catch(Exception e) {
 			handler.handle(Future.failedFuture(e));
@@ -199,12 +381,39 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	}
 	
 	/**
-	 * Retrieves and transform a DB query, with a criteria.
+	 * Retrieves and transform a DB query, with a criteria. The relations of the paths of the criteria
+	 * (see {@link CsCriteria#setWith(String...)}) are populated in the found models.
 	 * 
 	 * @see #findAll(JsonObject, FindOptions, Handler)
+	 * @see #populate(List, List, Handler)
 	 */
 	public void findAll(CsCriteria criteria, Handler<AsyncResult<List<T>>> handler) {
-		findAll(criteria.getQuery(), criteria.getOptions(), handler);
+		if(criteria.getWith().isEmpty()) {
+			findAll(criteria.getQuery(), criteria.getOptions(), handler);
+			return;
+		}
+		
+		findAll(criteria.getQuery(), criteria.getOptions(), res -> {
+			if(res.failed())
+				handler.handle(res);
+			else
+				populate(res.result(), criteria.getWith(), handler);
+		});
+	}
+	
+	/**
+	 * Populates the relations (the fields annotated with @BelongsTo, @ReferencesMany or @HasMany) of
+	 * the models listed in parameters. Each path is a relation of the models or a path of relations
+	 * separated by dots (<code>author.company</code>). The related models of each relation are read
+	 * with one $in query for all the models, and the relations of a level are read at the same time,
+	 * so the number of requests does not depend on the number of models.
+	 * 
+	 * @param models	the models to populate.
+	 * @param paths		the relations to populate.
+	 * @param handler	the handler of the populated models (the same list).
+	 */
+	public void populate(List<T> models, List<String> paths, Handler<AsyncResult<List<T>>> handler) {
+		CsPopulate.populate(models, modelType, paths, handler);
 	}
 	
 	/**
@@ -214,6 +423,35 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 		findAll(new JsonObject(), handler);
 	}
 	
+	/**
+	 * Finds the models that match the query as a stream, reading them from a server cursor in batches
+	 * of the size listed in parameters. Unlike findAll, it only keeps a batch in memory, so it can read
+	 * any number of models. The cursor is opened when the handler of the stream is set.
+	 * 
+	 * @param query		the query.
+	 * @param options	the options (can be <code>null</code>).
+	 * @param batchSize	the number of documents read in each request.
+	 * @return			the stream of models.
+	 * @see CsFindStream
+	 */
+	public CsFindStream<T> findStream(JsonObject query, FindOptions options, int batchSize) {
+		return new CsFindStream<T>(this, query, options, batchSize);
+	}
+	
+	/**
+	 * @see #findStream(JsonObject, FindOptions, int)
+	 */
+	public CsFindStream<T> findStream(CsCriteria criteria, int batchSize) {
+		return findStream(criteria.getQuery(), criteria.getOptions(), batchSize);
+	}
+	
+	/**
+	 * @see #findStream(JsonObject, FindOptions, int)
+	 */
+	public CsFindStream<T> findStream(CsCriteria criteria) {
+		return findStream(criteria, CsFindStream.DEFAULT_BATCH_SIZE);
+	}
+	
 	/**
 	 * Returns a list of the model with the IDs listed in the parameters.
 	 * 
@@ -245,9 +483,15 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	 */
 	public void find(JsonObject query, Handler<AsyncResult<T>> handler) {
 		try {
-			getMongoClient().findOne(getCollectionName(), query, null, res -> {
-				onFind(res, handler);
-			});
+			CsMongoClient bsonClient = getBsonClient();
+			if(bsonClient != null)
+				bsonClient.findOneBson(getCollectionName(), query, null, res -> {
+					onFindBson(res, handler);
+				});
+			else
+				getMongoClient().findOne(getCollectionName(), query, null, res -> {
+					onFind(res, handler);
+				});
 		} catch(Exception e) {
 			handler.handle(Future.failedFuture(e));
 		}
@@ -259,6 +503,19 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 		options.setSkip(0);
 		
 		try {
+			CsMongoClient bsonClient = getBsonClient();
+			if(bsonClient != null) {
+				bsonClient.findBson(getCollectionName(), criteria.getQuery(), options, res -> {
+					if(res.failed()) {
+						handler.handle(Future.failedFuture(res.cause()));
+						return;
+					}
+					
+					onFindBson(Future.succeededFuture(res.result().isEmpty() ? null : res.result().get(0)), handler);
+				});
+				return;
+			}
+			
 			getMongoClient().findWithOptions(getCollectionName(), criteria.getQuery(), options, res -> {
 				if(res.failed()) {
 					handler.handle(Future.failedFuture(res.cause()));
@@ -306,6 +563,218 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	}
 	
 	
+	// DB FIND AND MODIFY METHODS -------
+	
+	/**
+	 * Updates the first document that matches the query and transforms it into a model, with only one
+	 * request. The model is the document before the update, or after it if the options are
+	 * returning the new document. The find methods and hooks of the model are run.
+	 *
+	 * @param query		the query to match.
+	 * @param update	the update, with operators like $set or $inc.
+	 * @param options	the options of the update.
+	 * @param handler	the handler of the model or <code>null</code> if no document matches.
+	 * @see MongoClient#findOneAndUpdateWithOptions
+	 */
+	public void findOneAndUpdate(JsonObject query, JsonObject update, UpdateOptions options, Handler<AsyncResult<T>> handler) {
+		try {
+			getMongoClient().findOneAndUpdateWithOptions(getCollectionName(), query, update, new FindOptions(), options, res -> {
+				onFind(res, handler);
+			});
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	/**
+	 * Updates the first document that matches the query and returns the model after the update.
+	 *
+	 * @see #findOneAndUpdate(JsonObject, JsonObject, UpdateOptions, Handler)
+	 */
+	public void findOneAndUpdate(JsonObject query, JsonObject update, Handler<AsyncResult<T>> handler) {
+		findOneAndUpdate(query, update, new UpdateOptions().setReturningNewDocument(true), handler);
+	}
+	
+	/**
+	 * Replaces the first document that matches the query with the model listed in parameters and
+	 * transforms the document (before or after the replace, as the options say) into a model, with
+	 * only one request.
+	 * <p>
+	 * The model is validated and runs its save methods and hooks, as {@link #save(Handler)} does, and
+	 * takes the _id of the replaced document. The returned model runs its find methods and hooks.
+	 *
+	 * @param query		the query to match.
+	 * @param model		the model that replaces the document.
+	 * @param options	the options of the replace.
+	 * @param handler	the handler of the model or <code>null</code> if no document matches, the model
+	 * 					is not valid or its before save hooks cancel the replace.
+	 * @see MongoClient#findOneAndReplaceWithOptions
+	 */
+	public void findOneAndReplace(JsonObject query, T model, UpdateOptions options, Handler<AsyncResult<T>> handler) {
+		prepareSave(model, res -> {
+			if(res.failed() || !res.result()) {
+				handler.handle(res.failed() ? Future.failedFuture(res.cause()) : Future.succeededFuture());
+				return;
+			}
+			
+			try {
+				JsonObject document = model.getAttributesToSave();
+				document.remove("_id");
+				
+				getMongoClient().findOneAndReplaceWithOptions(getCollectionName(), query, document, new FindOptions(), options, res2 -> {
+					onFind(res2, res3 -> {
+						if(res3.failed() || res3.result() == null) {
+							handler.handle(res3);
+							return;
+						}
+						
+						model._id = res3.result()._id;
+						onSaved(model, res3.result(), handler);
+					});
+				});
+			} catch(Exception e) {
+				handler.handle(Future.failedFuture(e));
+			}
+		});
+	}
+	
+	/**
+	 * Replaces the first document that matches the query and returns the model before the replace.
+	 *
+	 * @see #findOneAndReplace(JsonObject, CsActiveRecord, UpdateOptions, Handler)
+	 */
+	public void findOneAndReplace(JsonObject query, T model, Handler<AsyncResult<T>> handler) {
+		findOneAndReplace(query, model, new UpdateOptions(), handler);
+	}
+	
+	/**
+	 * Deletes the first document that matches the query and transforms it into a model, with only one
+	 * request. The model runs its find methods and hooks and then its after delete methods and hooks.
+	 * The before delete methods and hooks are not run, because the document is not known before it is
+	 * deleted: use {@link #deleteAfterFind(JsonObject, Handler)} when they must be able to cancel the delete.
+	 *
+	 * @param query		the query to match.
+	 * @param handler	the handler of the deleted model or <code>null</code> if no document matches.
+	 * @see MongoClient#findOneAndDelete
+	 */
+	public void findOneAndDelete(JsonObject query, Handler<AsyncResult<T>> handler) {
+		try {
+			getMongoClient().findOneAndDelete(getCollectionName(), query, res -> {
+				onFind(res, res2 -> {
+					if(res2.failed() || res2.result() == null) {
+						handler.handle(res2);
+						return;
+					}
+					
+					onDeleted(res2.result(), null, res3 -> {
+						if(res3.failed())
+							handler.handle(Future.failedFuture(res3.cause()));
+						else
+							handler.handle(Future.succeededFuture(res2.result()));
+					});
+				});
+			});
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	/**
+	 * Finds the first document that matches the query or, if there is none, creates it with the
+	 * attributes of the model listed in parameters, with only one request (an upsert), so two
+	 * concurrent calls can not create two documents.
+	 * <p>
+	 * The model is validated and runs its before save methods and hooks before the request. If the
+	 * document is created, the model stops being a new record and runs its after save methods and
+	 * hooks. The returned model is the found or created document and runs its find methods and hooks.
+	 *
+	 * @param query		the query to match. Its equality conditions are saved in the created document.
+	 * @param model		the model to create.
+	 * @param handler	the handler of the model or <code>null</code> if the model is not valid or its
+	 * 					before save hooks cancel the creation.
+	 */
+	public void findOrCreate(JsonObject query, T model, Handler<AsyncResult<T>> handler) {
+		prepareSave(model, res -> {
+			if(res.failed() || !res.result()) {
+				handler.handle(res.failed() ? Future.failedFuture(res.cause()) : Future.succeededFuture());
+				return;
+			}
+			
+			boolean generatedId = model._id == null;
+			if(generatedId)
+				model._id = new ObjectId();
+			ObjectId id = model._id;
+			
+			JsonObject update;
+			try {
+				update = new JsonObject().put("$setOnInsert", model.getAttributesToSave());
+			} catch(Exception e) {
+				if(generatedId)
+					model._id = null;
+				handler.handle(Future.failedFuture(e));
+				return;
+			}
+			
+			findOneAndUpdate(query, update, new UpdateOptions().setUpsert(true).setReturningNewDocument(true), res2 -> {
+				boolean created = res2.succeeded() && res2.result() != null && id.equals(res2.result()._id);
+				if(!created) {
+					if(generatedId)
+						model._id = null;
+					handler.handle(res2);
+					return;
+				}
+				
+				onSaved(model, res2.result(), handler);
+			});
+		});
+	}
+	
+	/**
+	 * Validates the model and runs its before save methods and hooks.
+	 *
+	 * @param model		the model.
+	 * @param handler	the handler of the result: if the model can be saved.
+	 */
+	private void prepareSave(T model, Handler<AsyncResult<Boolean>> handler) {
+		model.validate(res -> {
+			if(res.failed() || !res.result()) {
+				handler.handle(res);
+				return;
+			}
+			
+			try {
+				model.callOnBeforeSave(handler);
+			} catch(Exception e) {
+				handler.handle(Future.failedFuture(e));
+			}
+		});
+	}
+	
+	/**
+	 * Marks the model as saved, runs its after save methods and hooks and then returns the result.
+	 * The stored document of the model is discarded, so its next save writes the whole document.
+	 *
+	 * @param model		the saved model.
+	 * @param result	the model returned to the handler.
+	 * @param handler	the handler of the result.
+	 */
+	private void onSaved(T model, T result, Handler<AsyncResult<T>> handler) {
+		model.isNewRecord = false;
+		model.onAttributesSaved(null);
+		
+		try {
+			model.callOnAfterSave(res -> {
+				if(res.failed())
+					handler.handle(Future.failedFuture(res.cause()));
+				else
+					handler.handle(Future.succeededFuture(result));
+			});
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	
 	// DB COUNT METHODS -------
 	
 	/**
@@ -403,12 +872,81 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	
 	// DB SAVE METHODS -------
 	
-	private JsonObject getAttributesToSave() throws JsonProcessingException {
+	/**
+	 * Gives the next value of their sequences to the attributes annotated with @Sequence that do not
+	 * have a value (if the model is a new record) and then calls the before save methods and hooks.
+	 */
+	@Override
+	protected void callOnBeforeSave(Handler<AsyncResult<Boolean>> handler) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		List<Field> fields = getMetadata().getSequenceFields();
+		if(!isNewRecord || fields.isEmpty()) {
+			super.callOnBeforeSave(handler);
+			return;
+		}
+		
+		CsFutureHelper.helper().doInItemsVoid(fields, this::assignSequence, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			try {
+				super.callOnBeforeSave(handler);
+			} catch(Exception e) {
+				handler.handle(Future.failedFuture(e));
+			}
+		});
+	}
+	
+	/**
+	 * Sets the next value of its sequence to the attribute listed in parameters, if it does not have a value.
+	 */
+	private void assignSequence(Field field, Future<Void> f) {
+		try {
+			Object value = field.get(this);
+			if(value != null && ((Number) value).longValue() != 0) {
+				f.complete();
+				return;
+			}
+			
+			Sequence ann = field.getAnnotation(Sequence.class);
+			String name = ann.name().isEmpty() ? getCollectionName() + "." + field.getName() : ann.name();
+			CsSequenceOptions options = new CsSequenceOptions()
+					.setBlockSize(ann.blockSize())
+					.setMongoClient(getMetadata().getMongoClient());
+			
+			CsSequence.sequence(name, options).next(res -> {
+				if(res.failed()) {
+					f.fail(res.cause());
+					return;
+				}
+				
+				try {
+					field.set(this, res.result());
+					f.complete();
+				} catch(Exception e) {
+					f.fail(e);
+				}
+			});
+		} catch(Exception e) {
+			f.fail(e);
+		}
+	}
+	
+	/**
+	 * @return	if the attribute listed in parameters is not saved in the current scenario.
+	 */
+	boolean isNotSaved(String attribute) {
+		return getMetadata().getNotSaveFields().contains(attribute) && getMetadata().getScenario(getScenario()).isSafe(attribute);
+	}
+	
+	JsonObject getAttributesToSave() throws JsonProcessingException {
 		JsonObject result = getAttributes(null, false, true);
+		CsScenarioMetadata scenarioMetadata = getMetadata().getScenario(getScenario());
 		
-		for(Field f : getFields(true, getScenario())) {
-			if(f.isAnnotationPresent(NotSave.class)) {
-				result.remove(f.getName());
+		for(String attribute : getMetadata().getNotSaveFields()) {
+			if(scenarioMetadata.isSafe(attribute)) {
+				result.remove(attribute);
 			}
 		}
 		
@@ -416,7 +954,78 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	}
 	
 	/**
-	 * Saves the current model and fires the "on before save" and "on after save" events.
+	 * Saves the model as a JSON object. If the model has its stored document, only the paths that have
+	 * changed are updated (nothing is written if none has changed), otherwise the whole document is saved.
+	 */
+	private void saveJson(Handler<AsyncResult<String>> handler) throws JsonProcessingException, CsModelNotAnnotatedException, CsClientNotInitializedException {
+		JsonObject document = getAttributesToSave();
+		Handler<AsyncResult<String>> savedHandler = res -> {
+			if(res.succeeded())
+				storedDocument = document;
+			
+			handler.handle(res);
+		};
+		
+		if(isNewRecord || storedDocument == null || _id == null) {
+			getMongoClient().save(getCollectionName(), document, savedHandler);
+			return;
+		}
+		
+		JsonObject update = CsDocumentChanges.update(modelType, storedDocument, document);
+		if(update.isEmpty()) {
+			savedHandler.handle(Future.succeededFuture());
+			return;
+		}
+		
+		getMongoClient().updateCollection(getCollectionName(), getIdQuery(), update, res -> {
+			if(res.failed())
+				savedHandler.handle(Future.failedFuture(res.cause()));
+			else
+				savedHandler.handle(Future.succeededFuture());
+		});
+	}
+	
+	/**
+	 * Saves the model as a BSON document, as {@link #saveJson(Handler)} does.
+	 */
+	private void saveBson(CsMongoClient bsonClient, Handler<AsyncResult<String>> handler) throws CsModelNotAnnotatedException {
+		RawBsonDocument document = getCodec().encode(this, false, attribute -> !isNotSaved(attribute));
+		Handler<AsyncResult<String>> savedHandler = res -> {
+			if(res.succeeded())
+				storedBsonDocument = document;
+			
+			handler.handle(res);
+		};
+		
+		if(isNewRecord || storedBsonDocument == null || _id == null) {
+			bsonClient.saveBson(getCollectionName(), document, savedHandler);
+			return;
+		}
+		
+		BsonDocument update = CsDocumentChanges.update(modelType, storedBsonDocument, document);
+		if(update.isEmpty()) {
+			savedHandler.handle(Future.succeededFuture());
+			return;
+		}
+		
+		bsonClient.updateBson(getCollectionName(), getIdQuery(), update, res -> {
+			if(res.failed())
+				savedHandler.handle(Future.failedFuture(res.cause()));
+			else
+				savedHandler.handle(Future.succeededFuture());
+		});
+	}
+	
+	/**
+	 * @return	the query of the document of the model.
+	 */
+	private JsonObject getIdQuery() {
+		return new JsonObject().put("_id", new JsonObject().put("$oid", _id.toString()));
+	}
+	
+	/**
+	 * Saves the current model and fires the "on before save" and "on after save" events. The models that
+	 * have been found or saved before only write the paths that have changed since then.
 	 * 
 	 * @param handler	handler to be executed after the query.
 	 */
@@ -433,9 +1042,7 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 							} else {
 								if(hookRes.result()) {
 									try {
-										JsonObject document = getAttributesToSave();
-										
-										getMongoClient().save(getCollectionName(), document, res -> {
+										Handler<AsyncResult<String>> saveHandler = res -> {
 											if(res.failed()) {
 												handler.handle(Future.failedFuture(res.cause()));
 											} else {
@@ -462,7 +1069,13 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 													handler.handle(Future.failedFuture(e));
 												}	
 											}
-										});
+										};
+										
+										CsMongoClient bsonClient = getBsonClient();
+										if(bsonClient != null)
+											saveBson(bsonClient, saveHandler);
+										else
+											saveJson(saveHandler);
 									} catch (Exception e) {
 										handler.handle(Future.failedFuture(e));
 									}
@@ -481,6 +1094,74 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 		});
 	}
 	
+	/**
+	 * Saves all the models listed in parameters as {@link #save(Handler)} saves each one (validating them
+	 * and running the save methods and hooks), but writing them in batches of many models per request.
+	 * The new models get their ObjectId before they are written. The handler fails only if the models
+	 * can not be saved in bulk: what happened with each model is in the result.
+	 * 
+	 * @param models	the models.
+	 * @param options	the options (the size of the batches, if they are ordered...).
+	 * @param handler	the handler of the result.
+	 */
+	public void saveAll(List<T> models, CsSaveAllOptions options, Handler<AsyncResult<CsSaveAllResult<T>>> handler) {
+		try {
+			MongoClient client = getMongoClient();
+			if(!(client instanceof CsMongoClient)) {
+				handler.handle(Future.failedFuture(new IllegalStateException("The mongo client of the model " + modelType.getName() + " can not write in bulk")));
+				return;
+			}
+			
+			CsExecutionPolicy policy = options.getExecutionPolicy() != null ? options.getExecutionPolicy() : getExecutionPolicy();
+			new CsSaveAll<T>((CsMongoClient) client, getCollectionName(), getBsonClient() != null, options, policy, models).run(handler);
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	/**
+	 * Saves all the models with the default options.
+	 * 
+	 * @see #saveAll(List, CsSaveAllOptions, Handler)
+	 */
+	public void saveAll(List<T> models, Handler<AsyncResult<CsSaveAllResult<T>>> handler) {
+		saveAll(models, new CsSaveAllOptions(), handler);
+	}
+	
+	/**
+	 * Creates a bulk write on the collection of the model, to run many writes in only one request.
+	 * 
+	 * @return	the bulk write, without operations.
+	 */
+	public CsBulkWrite bulkWrite() {
+		return new CsBulkWrite(this);
+	}
+	
+	/**
+	 * Creates a write behind buffer on the collection of the model, to coalesce the frequent updates of
+	 * the same documents and write them later in only one request.
+	 * 
+	 * @param vertx		the running vertx (the buffer is flushed when the current verticle is undeployed).
+	 * @param options	the options of the buffer.
+	 * @return			the buffer.
+	 */
+	public CsWriteBehindBuffer writeBehind(Vertx vertx, CsWriteBehindOptions options) {
+		return new CsWriteBehindBuffer(vertx, this, options);
+	}
+	
+	/**
+	 * Updates the stored document after saving only some attributes, so the next save compares the
+	 * model with the values that have been written.
+	 * 
+	 * @param values	the saved values or <code>null</code> if they are not known (the next save
+	 * 					writes the whole document).
+	 */
+	void onAttributesSaved(JsonObject values) {
+		storedBsonDocument = null;
+		if(storedDocument != null)
+			storedDocument = values != null ? storedDocument.copy().mergeIn(values) : null;
+	}
+	
 	/**
 	 * Saves only the attributes listed in the parameters. Returns failure to the handler if the model is a new record.
 	 * 
@@ -493,7 +1174,12 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 					.put("_id", new JsonObject()
 							.put("$oid", _id.toString()));
 			
-			saveAttributes(attributes, query, handler);
+			saveAttributes(attributes, query, res -> {
+				if(res.succeeded())
+					onAttributesSaved(null);
+				
+				handler.handle(res);
+			});
 		} else {
 			handler.handle(Future.failedFuture(new CsCanNotSaveAttributesOfNewRecords()));
 		}
@@ -502,6 +1188,15 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 	public void saveAttributes(List<String> attributes, JsonObject query, Handler<AsyncResult<Void>> handler) {
 		if(!isNewRecord) {
 			try {
+				CsMongoClient bsonClient = getBsonClient();
+				if(bsonClient != null) {
+					hydrate(attributes);
+					BsonDocument update = new BsonDocument("$set", getCodec().encode(this, true, attribute -> attributes == null || attributes.contains(attribute)));
+					
+					bsonClient.updateBson(getCollectionName(), query, update, handler);
+					return;
+				}
+				
 				JsonObject update = new JsonObject().put("$set", getAttributes(attributes));
 				
 				getMongoClient().updateCollection(getCollectionName(), query, update, res -> {
@@ -651,7 +1346,47 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 		deleteAfterFind(query, null, handler);
 	}
 	
+	/**
+	 * Deletes the first document that matches the query and runs the delete methods and hooks of its
+	 * model. If the model has no before delete methods or hooks (nothing can cancel the delete), the
+	 * document is found and deleted with only one request.
+	 *
+	 * @param query		the query to match.
+	 * @param scenario	the scenario of the model or <code>null</code>.
+	 * @param handler	the handler of the result of the delete hooks (<code>true</code> if no document matches).
+	 */
 	public void deleteAfterFind(JsonObject query, String scenario, Handler<AsyncResult<Boolean>> handler) {
+		boolean cancellable;
+		try {
+			cancellable = modelType.getConstructor().newInstance().hasBeforeDeleteHooks();
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+			return;
+		}
+		
+		if(!cancellable) {
+			try {
+				getMongoClient().findOneAndDelete(getCollectionName(), query, res -> {
+					onFind(res, res2 -> {
+						if(res2.failed()) {
+							handler.handle(Future.failedFuture(res2.cause()));
+							return;
+						}
+						
+						if(res2.result() == null) {
+							handler.handle(Future.succeededFuture(true));
+							return;
+						}
+						
+						onDeleted(res2.result(), scenario, handler);
+					});
+				});
+			} catch(Exception e) {
+				handler.handle(Future.failedFuture(e));
+			}
+			return;
+		}
+		
 		find(query, res -> {
 			if(res.failed()) {
 				handler.handle(Future.failedFuture(res.cause()));
@@ -677,75 +1412,58 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 		deleteAfterFindByPk(id, null, handler);
 	}
 	
+	/**
+	 * @see #deleteAfterFind(JsonObject, String, Handler)
+	 */
 	public void deleteAfterFindByPk(String id, String scenario, Handler<AsyncResult<Boolean>> handler) {
-		findByPk(id, res -> {
-			if(res.failed()) {
-				handler.handle(Future.failedFuture(res.cause()));
-				return;
-			}
-			
-			T model = res.result();
-			
-			if(model == null) {
-				handler.handle(Future.succeededFuture(true));
-				return;
-			}
-			
-			if(scenario != null) {
-				model.setScenario(scenario);
-			}
-			
-			model.delete(handler);
-		});
+		deleteAfterFind(new JsonObject().put("_id", id), scenario, handler);
 	}
 	
 	/**
-	 * Find all the models and then remove one by one each model. Thus, all the delete hooks 
-	 * are executed. If we use the remove function of mongo client, the delete hooks aren't executed.
+	 * Sets the scenario of the deleted model and runs its after delete methods and hooks.
 	 * 
-	 * @param query	the query for to match.
+	 * @param model		the deleted model.
+	 * @param scenario	the scenario of the model or <code>null</code>.
+	 * @param handler	the handler of the result of the hooks.
+	 */
+	private void onDeleted(T model, String scenario, Handler<AsyncResult<Boolean>> handler) {
+		if(scenario != null) {
+			model.setScenario(scenario);
+		}
+		
+		try {
+			model.callOnAfterDelete(handler);
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	/**
+	 * Finds all the models that match the query and deletes them, running the delete methods and hooks
+	 * of each one (the remove function of the mongo client does not run them). The models are read and
+	 * deleted in batches, one batch after another: the models of each batch run their before delete
+	 * hooks, the approved ones are removed with only one request and then they run their after delete
+	 * hooks. Only one batch is in memory at a time.
+	 * 
+	 * @param query		the query for to match.
+	 * @param scenario	the scenario of the models or <code>null</code>.
+	 * @param options	the options (the size of the batches, the read fields...).
 	 * @param handler	the handler executed after delete the documents. Returns a list of
-	 * 					not deleted documents ID.
+	 * 					not deleted models.
+	 */
+	public void deleteAllAfterFindAll(JsonObject query, String scenario, CsDeleteAllOptions options, Handler<AsyncResult<List<T>>> handler) {
+		try {
+			new CsDeleteAll<T>(modelType.cast(this), getMongoClient(), getCollectionName(), query, scenario, options).run(handler);
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	/**
+	 * @see #deleteAllAfterFindAll(JsonObject, String, CsDeleteAllOptions, Handler)
 	 */
-	@SuppressWarnings("rawtypes")
 	public void deleteAllAfterFindAll(JsonObject query, String scenario, Handler<AsyncResult<List<T>>> handler) {
-		findAll(query, res -> {
-			if(res.failed()) {
-				handler.handle(Future.failedFuture(res.cause()));
-				return;
-			}
-			
-			List<T> models = res.result();
-			List<T> notDeleted = new ArrayList<T>();
-			
-			if(models.size() > 0) {
-				List<Future> futures = new LinkedList<Future>();
-				for(T model : models) {
-					Future<Boolean> future = Future.future();
-					futures.add(future);
-					if(scenario != null)
-						model.setScenario(scenario);
-					model.delete(future.completer());
-				}
-				
-				CompositeFuture compositeFuture = CompositeFuture.all(futures);
-				compositeFuture.setHandler(finalRes -> {
-					if(finalRes.failed()) {
-						handler.handle(Future.failedFuture(finalRes.cause()));
-					} else {
-						for(int i = 0; i < futures.size(); i++) {
-							Boolean r = compositeFuture.resultAt(i);
-							if(!r)
-								notDeleted.add(models.get(i));
-						}
-						
-						handler.handle(Future.succeededFuture(notDeleted));
-					}
-				});
-			} else {
-				handler.handle(Future.succeededFuture(notDeleted));
-			}
-		});
+		deleteAllAfterFindAll(query, scenario, new CsDeleteAllOptions(), handler);
 	}
 	
 	public void deleteAllAfterFindAll(JsonObject query, Handler<AsyncResult<List<T>>> handler) {
@@ -870,7 +1588,13 @@ public abstract class CsActiveRecord<T extends CsActiveRecord<T>> extends CsActi
 		return pageSize != null ? pageSize : 10;
 	}
 	
+	/**
+	 * @return	the default sort of the search. If it has not been set, it is sorted by _id.
+	 */
 	public JsonObject getSearchDefaultSort() {
+		if(searchDefaultSort == null)
+			searchDefaultSort = new JsonObject().put("_id", 1);
+		
 		return searchDefaultSort;
 	}
 	
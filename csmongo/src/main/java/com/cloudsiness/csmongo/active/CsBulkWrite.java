@@ -0,0 +1,459 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+
+import com.cloudsiness.csmongo.active.exceptions.CsCanNotSaveAttributesOfNewRecords;
+import com.cloudsiness.csmongo.factory.CsMongoClient;
+import com.cloudsiness.csmongo.helpers.pojo.CsDocumentChanges;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.impl.JsonObjectBsonAdapter;
+
+/**
+ * Accumulates writes on the collection of a model (saves, inserts, updates, upserts, replaces and deletes)
+ * and runs all of them in only one request when it is executed. It is created with
+ * {@link CsActiveRecord#bulkWrite()}.
+ * <p>
+ * The queries and updates are JSON objects, as in the other methods of the models. The documents of
+ * the models are taken when their operations are added. The writes do not validate the models nor
+ * run their save hooks, as {@link CsActiveRecord#saveAttributes(List, Handler)}.
+ * <p>
+ * Example:
+ * <pre>
+ * model.bulkWrite()
+ *     .saveAttributes(model, Arrays.asList("position"))
+ *     .updateMany(new JsonObject().put("position", new JsonObject().put("$gt", 3)), new JsonObject().put("$inc", new JsonObject().put("position", -1)))
+ *     .execute(res -&gt; { ... });
+ * </pre>
+ */
+public class CsBulkWrite {
+	
+	/**
+	 * The model whose collection and client are used.
+	 */
+	private final CsActiveRecord<?> model;
+	
+	private final List<Operation> operations;
+	
+	private boolean ordered;
+	
+	/**
+	 * The first error found adding the operations.
+	 */
+	private Exception error;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsBulkWrite(CsActiveRecord<?> model) {
+		this.model = model;
+		this.operations = new ArrayList<Operation>();
+		this.ordered = true;
+	}
+	
+	
+	// MODEL OPERATIONS -------
+	
+	/**
+	 * Inserts the model. If it does not have _id, an ObjectId is generated for it (and removed if the
+	 * model is not written).
+	 */
+	public CsBulkWrite insert(CsActiveRecord<?> record) {
+		Runnable onFailed = onFailed(record);
+		JsonObject document = document(record);
+		if(document != null)
+			add(new Operation(Type.INSERT, null, document, false, () -> onSaved(record, document), onFailed));
+		
+		return this;
+	}
+	
+	/**
+	 * Replaces the document of the model (inserting it if it does not exist). If it does not have _id,
+	 * an ObjectId is generated for it (and removed if the model is not written).
+	 */
+	public CsBulkWrite replace(CsActiveRecord<?> record) {
+		Runnable onFailed = onFailed(record);
+		JsonObject document = document(record);
+		if(document != null)
+			add(new Operation(Type.REPLACE, idQuery(record), document, true, () -> onSaved(record, document), onFailed));
+		
+		return this;
+	}
+	
+	/**
+	 * Saves the model as {@link CsActiveRecord#save(Handler)} writes it (without validating it nor
+	 * running its hooks): the models without _id are inserted (with a generated ObjectId, that is
+	 * removed if the model is not written), the found or saved models update only the paths that have
+	 * changed (nothing if none has changed) and the others are replaced (or inserted).
+	 */
+	public CsBulkWrite save(CsActiveRecord<?> record) {
+		boolean insert = record._id == null;
+		Runnable onFailed = onFailed(record);
+		JsonObject document = document(record);
+		if(document == null)
+			return this;
+		
+		if(insert) {
+			add(new Operation(Type.INSERT, null, document, false, () -> onSaved(record, document), onFailed));
+		} else if(!record.isNewRecord && record.storedDocument != null) {
+			JsonObject changes = CsDocumentChanges.update(record.modelType, record.storedDocument, document);
+			if(!changes.isEmpty())
+				add(new Operation(Type.UPDATE_ONE, idQuery(record), changes, false, () -> onSaved(record, document)));
+		} else {
+			add(new Operation(Type.REPLACE, idQuery(record), document, true, () -> onSaved(record, document)));
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Deletes the document of the model (without running its hooks).
+	 */
+	public CsBulkWrite delete(CsActiveRecord<?> record) {
+		if(record._id == null) {
+			if(error == null)
+				error = new IllegalArgumentException("The model " + record.modelType.getName() + " has no _id");
+			
+			return this;
+		}
+		
+		return add(new Operation(Type.DELETE_ONE, idQuery(record), null, false, () -> {
+			record.storedDocument = null;
+			record.storedBsonDocument = null;
+		}));
+	}
+	
+	/**
+	 * Sets the attributes listed in parameters in the document of the model, as
+	 * {@link CsActiveRecord#saveAttributes(List, Handler)}. The model can not be a new record.
+	 */
+	public CsBulkWrite saveAttributes(CsActiveRecord<?> record, List<String> attributes) {
+		if(record.isNewRecord()) {
+			if(error == null)
+				error = new CsCanNotSaveAttributesOfNewRecords();
+			
+			return this;
+		}
+		
+		try {
+			JsonObject values = record.getAttributes(attributes);
+			add(new Operation(Type.UPDATE_ONE, idQuery(record), new JsonObject().put("$set", values), false, () -> record.onAttributesSaved(values)));
+		} catch(Exception e) {
+			if(error == null)
+				error = e;
+		}
+		
+		return this;
+	}
+	
+	
+	// QUERY OPERATIONS -------
+	
+	/**
+	 * Inserts the document.
+	 */
+	public CsBulkWrite insertOne(JsonObject document) {
+		return add(new Operation(Type.INSERT, null, document, false, null));
+	}
+	
+	/**
+	 * Updates the first document that matches the query.
+	 *
+	 * @param update	the update (for example, {$set: {...}}).
+	 */
+	public CsBulkWrite updateOne(JsonObject query, JsonObject update) {
+		return add(new Operation(Type.UPDATE_ONE, query, update, false, null));
+	}
+	
+	/**
+	 * Updates all the documents that match the query.
+	 *
+	 * @param update	the update (for example, {$set: {...}}).
+	 */
+	public CsBulkWrite updateMany(JsonObject query, JsonObject update) {
+		return add(new Operation(Type.UPDATE_MANY, query, update, false, null));
+	}
+	
+	/**
+	 * Updates the first document that matches the query or inserts a new one if none matches.
+	 *
+	 * @param update	the update (for example, {$set: {...}}).
+	 */
+	public CsBulkWrite upsert(JsonObject query, JsonObject update) {
+		return add(new Operation(Type.UPDATE_ONE, query, update, true, null));
+	}
+	
+	/**
+	 * Replaces the first document that matches the query.
+	 *
+	 * @param upsert	if the document is inserted when none matches.
+	 */
+	public CsBulkWrite replaceOne(JsonObject query, JsonObject document, boolean upsert) {
+		return add(new Operation(Type.REPLACE, query, document, upsert, null));
+	}
+	
+	/**
+	 * Deletes the first document that matches the query.
+	 */
+	public CsBulkWrite deleteOne(JsonObject query) {
+		return add(new Operation(Type.DELETE_ONE, query, null, false, null));
+	}
+	
+	/**
+	 * Deletes all the documents that match the query.
+	 */
+	public CsBulkWrite deleteMany(JsonObject query) {
+		return add(new Operation(Type.DELETE_MANY, query, null, false, null));
+	}
+	
+	
+	// EXECUTION -------
+	
+	/**
+	 * @param ordered	if the operations are run in order, stopping in the first one that fails (by
+	 * 					default). Otherwise, the errors do not stop the other operations.
+	 */
+	public CsBulkWrite setOrdered(boolean ordered) {
+		this.ordered = ordered;
+		
+		return this;
+	}
+	
+	public boolean isOrdered() {
+		return ordered;
+	}
+	
+	/**
+	 * @return	the number of operations.
+	 */
+	public int size() {
+		return operations.size();
+	}
+	
+	/**
+	 * Runs all the operations in only one request. If some operation fails, the handler fails with a
+	 * MongoBulkWriteException that has the errors of the operations (with their positions) and the
+	 * result of the others. Nothing is written if there are no operations.
+	 *
+	 * @param handler	the handler of the result.
+	 */
+	public void execute(Handler<AsyncResult<CsBulkWriteResult>> handler) {
+		if(error != null) {
+			onWritten(error);
+			handler.handle(Future.failedFuture(error));
+			return;
+		}
+		
+		if(operations.isEmpty()) {
+			handler.handle(Future.succeededFuture(new CsBulkWriteResult()));
+			return;
+		}
+		
+		try {
+			MongoClient client = model.getMongoClient();
+			if(!(client instanceof CsMongoClient)) {
+				IllegalStateException e = new IllegalStateException("The mongo client of the model " + model.modelType.getName() + " can not write in bulk");
+				onWritten(e);
+				handler.handle(Future.failedFuture(e));
+				return;
+			}
+			
+			CsMongoClient bulkClient = (CsMongoClient) client;
+			List<WriteModel<JsonObject>> writes = new ArrayList<WriteModel<JsonObject>>(operations.size());
+			for(Operation operation : operations) {
+				writes.add(operation.toWriteModel(bulkClient));
+			}
+			
+			bulkClient.bulkWrite(model.getCollectionName(), JsonObject.class, writes, ordered, res -> {
+				onWritten(res.cause());
+				if(res.succeeded())
+					handler.handle(Future.succeededFuture(new CsBulkWriteResult(res.result())));
+				else
+					handler.handle(Future.failedFuture(res.cause()));
+			});
+		} catch(Exception e) {
+			onWritten(e);
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	/**
+	 * @return	the first error found adding the operations (<code>null</code> if none) and forgets it,
+	 * 			so the failed operations do not fail the execution.
+	 */
+	Exception takeError() {
+		Exception result = error;
+		error = null;
+		
+		return result;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private CsBulkWrite add(Operation operation) {
+		operations.add(operation);
+		
+		return this;
+	}
+	
+	/**
+	 * @return	the document that the model saves (after giving it an _id) or <code>null</code> if it
+	 * 			can not be converted.
+	 */
+	private JsonObject document(CsActiveRecord<?> record) {
+		boolean generated = record._id == null;
+		try {
+			if(generated)
+				record._id = new ObjectId();
+			
+			return record.getAttributesToSave();
+		} catch(Exception e) {
+			if(generated)
+				record._id = null;
+			if(error == null)
+				error = e;
+			
+			return null;
+		}
+	}
+	
+	/**
+	 * @return	the action that removes the _id that {@link #document(CsActiveRecord)} gives to the model
+	 * 			if it is not written (<code>null</code> if the model already has an _id).
+	 */
+	private Runnable onFailed(CsActiveRecord<?> record) {
+		if(record._id != null)
+			return null;
+		
+		return () -> record._id = null;
+	}
+	
+	private JsonObject idQuery(CsActiveRecord<?> record) {
+		return new JsonObject().put("_id", new JsonObject().put("$oid", record._id.toString()));
+	}
+	
+	private void onSaved(CsActiveRecord<?> record, JsonObject document) {
+		record.isNewRecord = false;
+		record.storedDocument = document;
+		record.storedBsonDocument = null;
+	}
+	
+	/**
+	 * Runs the actions of the operations over their models, as they have been written or not.
+	 */
+	private void onWritten(Throwable cause) {
+		boolean[] written = written(cause);
+		for(int i = 0; i < written.length; i++) {
+			Runnable action = written[i] ? operations.get(i).onWritten : operations.get(i).onFailed;
+			if(action != null)
+				action.run();
+		}
+	}
+	
+	/**
+	 * @param cause	the error of the execution (<code>null</code> if it has succeeded).
+	 * @return		which operations have been written: all the operations before the first error if
+	 * 				they are ordered or all but the failed ones otherwise (none if the error is not of
+	 * 				the writes).
+	 */
+	boolean[] written(Throwable cause) {
+		boolean[] result = new boolean[operations.size()];
+		if(cause != null && !(cause instanceof MongoBulkWriteException))
+			return result;
+		
+		int firstError = result.length;
+		boolean[] failed = new boolean[result.length];
+		if(cause != null) {
+			for(BulkWriteError e : ((MongoBulkWriteException) cause).getWriteErrors()) {
+				failed[e.getIndex()] = true;
+				firstError = Math.min(firstError, e.getIndex());
+			}
+		}
+		
+		for(int i = 0; i < result.length; i++) {
+			result[i] = !failed[i] && !(ordered && i > firstError);
+		}
+		
+		return result;
+	}
+	
+	
+	// CLASSES HELPERS -------
+	
+	private enum Type { INSERT, UPDATE_ONE, UPDATE_MANY, REPLACE, DELETE_ONE, DELETE_MANY }
+	
+	private static class Operation {
+		
+		private final Type type;
+		
+		private final JsonObject query;
+		
+		/**
+		 * The inserted or replacing document or the update.
+		 */
+		private final JsonObject document;
+		
+		private final boolean upsert;
+		
+		/**
+		 * The action run over the model of the operation after writing it (or <code>null</code>).
+		 */
+		private final Runnable onWritten;
+		
+		/**
+		 * The action run over the model of the operation if it is not written (or <code>null</code>).
+		 */
+		private final Runnable onFailed;
+		
+		
+		private Operation(Type type, JsonObject query, JsonObject document, boolean upsert, Runnable onWritten, Runnable onFailed) {
+			this.type = type;
+			this.query = query;
+			this.document = document;
+			this.upsert = upsert;
+			this.onWritten = onWritten;
+			this.onFailed = onFailed;
+		}
+		
+		private Operation(Type type, JsonObject query, JsonObject document, boolean upsert, Runnable onWritten) {
+			this(type, query, document, upsert, onWritten, null);
+		}
+		
+		private WriteModel<JsonObject> toWriteModel(CsMongoClient client) {
+			switch(type) {
+				case INSERT:
+					return new InsertOneModel<JsonObject>(document);
+				case UPDATE_ONE:
+					return new UpdateOneModel<JsonObject>(client.filter(query), new JsonObjectBsonAdapter(document), new UpdateOptions().upsert(upsert));
+				case UPDATE_MANY:
+					return new UpdateManyModel<JsonObject>(client.filter(query), new JsonObjectBsonAdapter(document), new UpdateOptions().upsert(upsert));
+				case REPLACE:
+					return new ReplaceOneModel<JsonObject>(client.filter(query), document, new UpdateOptions().upsert(upsert));
+				case DELETE_ONE:
+					return new DeleteOneModel<JsonObject>(client.filter(query));
+				default:
+					return new DeleteManyModel<JsonObject>(client.filter(query));
+			}
+		}
+		
+	}
+	
+}
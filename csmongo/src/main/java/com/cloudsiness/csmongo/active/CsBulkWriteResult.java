@@ -0,0 +1,94 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bson.BsonValue;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+
+/**
+ * The result of {@link CsBulkWrite#execute(io.vertx.core.Handler)}: the number of documents changed
+ * by all the operations.
+ */
+public class CsBulkWriteResult {
+	
+	private final int insertedCount;
+	
+	private final int matchedCount;
+	
+	private final int modifiedCount;
+	
+	private final int deletedCount;
+	
+	private final Map<Integer, BsonValue> upsertedIds;
+	
+	
+	CsBulkWriteResult(BulkWriteResult result) {
+		this.insertedCount = result.getInsertedCount();
+		this.matchedCount = result.getMatchedCount();
+		this.modifiedCount = result.isModifiedCountAvailable() ? result.getModifiedCount() : 0;
+		this.deletedCount = result.getDeletedCount();
+		this.upsertedIds = new LinkedHashMap<Integer, BsonValue>();
+		for(BulkWriteUpsert upsert : result.getUpserts()) {
+			upsertedIds.put(upsert.getIndex(), upsert.getId());
+		}
+	}
+	
+	CsBulkWriteResult() {
+		this.insertedCount = 0;
+		this.matchedCount = 0;
+		this.modifiedCount = 0;
+		this.deletedCount = 0;
+		this.upsertedIds = new LinkedHashMap<Integer, BsonValue>();
+	}
+	
+	
+	// GETTERS -------
+	
+	/**
+	 * @return	the number of inserted documents.
+	 */
+	public int getInsertedCount() {
+		return insertedCount;
+	}
+	
+	/**
+	 * @return	the number of documents matched by the updates and replaces.
+	 */
+	public int getMatchedCount() {
+		return matchedCount;
+	}
+	
+	/**
+	 * @return	the number of documents changed by the updates and replaces (the matched documents that
+	 * 			already had the new values are not modified).
+	 */
+	public int getModifiedCount() {
+		return modifiedCount;
+	}
+	
+	/**
+	 * @return	the number of deleted documents.
+	 */
+	public int getDeletedCount() {
+		return deletedCount;
+	}
+	
+	/**
+	 * @return	the number of documents inserted by the upserts.
+	 */
+	public int getUpsertedCount() {
+		return upsertedIds.size();
+	}
+	
+	/**
+	 * @return	the _id of the documents inserted by the upserts, by the position of their operation.
+	 */
+	public Map<Integer, BsonValue> getUpsertedIds() {
+		return Collections.unmodifiableMap(upsertedIds);
+	}
+	
+}
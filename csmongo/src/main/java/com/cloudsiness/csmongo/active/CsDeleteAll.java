@@ -0,0 +1,201 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+
+import com.cloudsiness.csmongo.helpers.CsFutureHelper;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+
+/**
+ * Deletes the models that match a query as {@link CsActiveRecord#delete(Handler)} deletes each one,
+ * but in batches, one batch after another, so only one batch is in memory at a time:
+ * <ol>
+ * <li>The next batch of models is read, sorted by _id and starting after the last _id of the
+ * previous batch (so the models whose delete has been cancelled are not read again).</li>
+ * <li>The models run their before delete methods and hooks, some of them at the same time.</li>
+ * <li>The approved models are removed with only one request.</li>
+ * <li>The removed models run their after delete methods and hooks.</li>
+ * </ol>
+ *
+ * @param <T>	the type of the models.
+ */
+class CsDeleteAll<T extends CsActiveRecord<T>> {
+	
+	/**
+	 * The model that reads the batches.
+	 */
+	private final T finder;
+	
+	private final MongoClient client;
+	
+	private final String collection;
+	
+	private final JsonObject query;
+	
+	private final String scenario;
+	
+	private final CsDeleteAllOptions options;
+	
+	/**
+	 * The models whose delete has been cancelled by their hooks.
+	 */
+	private final List<T> notDeleted;
+	
+	private ObjectId lastId;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsDeleteAll(T finder, MongoClient client, String collection, JsonObject query, String scenario, CsDeleteAllOptions options) {
+		this.finder = finder;
+		this.client = client;
+		this.collection = collection;
+		this.query = query;
+		this.scenario = scenario;
+		this.options = options;
+		this.notDeleted = new ArrayList<T>();
+	}
+	
+	
+	// RUN -------
+	
+	/**
+	 * Deletes the batches one after another.
+	 *
+	 * @param handler	the handler of the models that have not been deleted. It fails with the first
+	 * 					error, and the next batches are not deleted.
+	 */
+	void run(Handler<AsyncResult<List<T>>> handler) {
+		FindOptions findOptions = new FindOptions()
+				.setSort(new JsonObject().put("_id", 1))
+				.setLimit(options.getBatchSize());
+		
+		if(options.getFields() != null) {
+			JsonObject fields = options.getFields().copy();
+			fields.remove("_id");
+			findOptions.setFields(fields);
+		}
+		
+		finder.findAll(batchQuery(), findOptions, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			List<T> models = res.result();
+			if(models.isEmpty()) {
+				handler.handle(Future.succeededFuture(notDeleted));
+				return;
+			}
+			
+			lastId = models.get(models.size() - 1)._id;
+			
+			deleteBatch(models, res2 -> {
+				if(res2.failed())
+					handler.handle(Future.failedFuture(res2.cause()));
+				else if(models.size() < options.getBatchSize())
+					handler.handle(Future.succeededFuture(notDeleted));
+				else
+					run(handler);
+			});
+		});
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * @return	the query of the next batch.
+	 */
+	private JsonObject batchQuery() {
+		if(lastId == null)
+			return query;
+		
+		JsonObject after = new JsonObject().put("_id", new JsonObject()
+				.put("$gt", new JsonObject().put("$oid", lastId.toString())));
+		
+		if(query.isEmpty())
+			return after;
+		
+		return new JsonObject().put("$and", new JsonArray().add(query).add(after));
+	}
+	
+	private void deleteBatch(List<T> models, Handler<AsyncResult<Void>> handler) {
+		List<T> approved = new ArrayList<T>();
+		
+		CsFutureHelper.helper().doInItemsVoid(models, options.getParallelism(), (model, f) -> {
+			if(scenario != null)
+				model.setScenario(scenario);
+			
+			try {
+				model.callOnBeforeDelete(res -> {
+					if(res.failed()) {
+						f.fail(res.cause());
+						return;
+					}
+					
+					if(res.result())
+						approved.add(model);
+					else
+						notDeleted.add(model);
+					f.complete();
+				});
+			} catch(Exception e) {
+				f.fail(e);
+			}
+		}, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			if(approved.isEmpty()) {
+				handler.handle(Future.succeededFuture());
+				return;
+			}
+			
+			JsonArray ids = new JsonArray();
+			for(T model : approved) {
+				ids.add(new JsonObject().put("$oid", model._id.toString()));
+			}
+			
+			client.removeDocuments(collection, new JsonObject().put("_id", new JsonObject().put("$in", ids)), res2 -> {
+				if(res2.failed()) {
+					handler.handle(Future.failedFuture(res2.cause()));
+					return;
+				}
+				
+				afterDelete(approved, handler);
+			});
+		});
+	}
+	
+	private void afterDelete(List<T> models, Handler<AsyncResult<Void>> handler) {
+		CsFutureHelper.helper().doInItemsVoid(models, options.getParallelism(), (model, f) -> {
+			try {
+				model.callOnAfterDelete(res -> {
+					if(res.failed()) {
+						f.fail(res.cause());
+						return;
+					}
+					
+					if(!res.result())
+						notDeleted.add(model);
+					f.complete();
+				});
+			} catch(Exception e) {
+				f.fail(e);
+			}
+		}, handler);
+	}
+	
+}
@@ -0,0 +1,74 @@
+package com.cloudsiness.csmongo.active;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The options of {@link CsActiveRecord#deleteAllAfterFindAll(JsonObject, String, CsDeleteAllOptions, io.vertx.core.Handler)}.
+ */
+public class CsDeleteAllOptions {
+	
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	public static final int DEFAULT_PARALLELISM = 32;
+	
+	
+	private int batchSize;
+	
+	private int parallelism;
+	
+	private JsonObject fields;
+	
+	
+	public CsDeleteAllOptions() {
+		this.batchSize = DEFAULT_BATCH_SIZE;
+		this.parallelism = DEFAULT_PARALLELISM;
+	}
+	
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	/**
+	 * @param batchSize	the number of models read and deleted in each batch.
+	 */
+	public CsDeleteAllOptions setBatchSize(int batchSize) {
+		if(batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be greater than 0");
+		
+		this.batchSize = batchSize;
+		
+		return this;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism	the maximum number of models that run their hooks at the same time.
+	 */
+	public CsDeleteAllOptions setParallelism(int parallelism) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be greater than 0");
+		
+		this.parallelism = parallelism;
+		
+		return this;
+	}
+	
+	public JsonObject getFields() {
+		return fields;
+	}
+	
+	/**
+	 * @param fields	the projection of the read documents: only the fields that the delete methods and
+	 * 					hooks need (by default, the whole documents are read). The _id is always read.
+	 */
+	public CsDeleteAllOptions setFields(JsonObject fields) {
+		this.fields = fields;
+		
+		return this;
+	}
+	
+}
@@ -0,0 +1,155 @@
+package com.cloudsiness.csmongo.active;
+
+import io.vertx.core.WorkerExecutor;
+
+/**
+ * Decides where the models are converted from and to documents (hydrated when they are found and
+ * serialized when they are saved). The lists with fewer documents than the threshold are converted
+ * in the event loop, and the longer ones in a worker pool, in chunks, so a long conversion does not
+ * block the other requests. The results, and the find and save methods and hooks, are run in the
+ * context of the caller anyway.
+ * <p>
+ * The policy of a model is given by the offloadThreshold of its {@link com.cloudsiness.csmongo.active.annotations.CsModel}
+ * annotation (or the default threshold), and it can be changed for each call in the options of
+ * {@link CsActiveRecord#findAll(io.vertx.core.json.JsonObject, io.vertx.ext.mongo.FindOptions, CsInitializeOptions, io.vertx.core.Handler)}
+ * and {@link CsActiveRecord#saveAll(java.util.List, CsSaveAllOptions, io.vertx.core.Handler)}.
+ * The work that has been offloaded is given by {@link #getMetrics()}.
+ */
+public class CsExecutionPolicy {
+	
+	/**
+	 * The threshold that never offloads the conversions.
+	 */
+	public static final int NEVER = -1;
+	
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	
+	/**
+	 * The policy of the models that do not set one.
+	 */
+	private static volatile int defaultThreshold = NEVER;
+	
+	private static volatile int defaultChunkSize = DEFAULT_CHUNK_SIZE;
+	
+	private static volatile WorkerExecutor defaultWorkerExecutor;
+	
+	
+	private int threshold;
+	
+	private int chunkSize;
+	
+	private WorkerExecutor workerExecutor;
+	
+	
+	public CsExecutionPolicy() {
+		this.threshold = defaultThreshold;
+		this.chunkSize = defaultChunkSize;
+		this.workerExecutor = defaultWorkerExecutor;
+	}
+	
+	
+	// DEFAULTS -------
+	
+	public static int getDefaultThreshold() {
+		return defaultThreshold;
+	}
+	
+	/**
+	 * @param threshold	the threshold of the models that do not set one.
+	 */
+	public static void setDefaultThreshold(int threshold) {
+		if(threshold < NEVER)
+			throw new IllegalArgumentException("The threshold must be 0 or greater (or NEVER)");
+		
+		defaultThreshold = threshold;
+	}
+	
+	public static int getDefaultChunkSize() {
+		return defaultChunkSize;
+	}
+	
+	public static void setDefaultChunkSize(int chunkSize) {
+		if(chunkSize < 1)
+			throw new IllegalArgumentException("The chunk size must be greater than 0");
+		
+		defaultChunkSize = chunkSize;
+	}
+	
+	public static WorkerExecutor getDefaultWorkerExecutor() {
+		return defaultWorkerExecutor;
+	}
+	
+	/**
+	 * @param workerExecutor	the pool of the policies that do not set one (<code>null</code> for the
+	 * 							worker pool of Vert.x).
+	 */
+	public static void setDefaultWorkerExecutor(WorkerExecutor workerExecutor) {
+		defaultWorkerExecutor = workerExecutor;
+	}
+	
+	/**
+	 * @return	the work offloaded by all the policies since the application started.
+	 */
+	public static CsOffloadMetrics getMetrics() {
+		return CsOffload.metrics();
+	}
+	
+	
+	// GETTERS AND SETTERS -------
+	
+	public int getThreshold() {
+		return threshold;
+	}
+	
+	/**
+	 * @param threshold	the number of documents from which a list is converted in the worker pool
+	 * 					(0 always offloads, NEVER never does it).
+	 */
+	public CsExecutionPolicy setThreshold(int threshold) {
+		if(threshold < NEVER)
+			throw new IllegalArgumentException("The threshold must be 0 or greater (or NEVER)");
+		
+		this.threshold = threshold;
+		
+		return this;
+	}
+	
+	public int getChunkSize() {
+		return chunkSize;
+	}
+	
+	/**
+	 * @param chunkSize	the number of documents converted in each task of the worker pool.
+	 */
+	public CsExecutionPolicy setChunkSize(int chunkSize) {
+		if(chunkSize < 1)
+			throw new IllegalArgumentException("The chunk size must be greater than 0");
+		
+		this.chunkSize = chunkSize;
+		
+		return this;
+	}
+	
+	public WorkerExecutor getWorkerExecutor() {
+		return workerExecutor;
+	}
+	
+	/**
+	 * @param workerExecutor	the pool in which the conversions run (<code>null</code> for the worker
+	 * 							pool of Vert.x). A dedicated pool keeps them from delaying the other
+	 * 							blocking tasks of the application.
+	 */
+	public CsExecutionPolicy setWorkerExecutor(WorkerExecutor workerExecutor) {
+		this.workerExecutor = workerExecutor;
+		
+		return this;
+	}
+	
+	/**
+	 * @return	if a list with the size listed in parameters is converted in the worker pool.
+	 */
+	public boolean offloads(int size) {
+		return threshold != NEVER && size >= threshold && size > 0;
+	}
+	
+}
@@ -0,0 +1,304 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.bson.RawBsonDocument;
+
+import com.cloudsiness.csmongo.active.exceptions.CsModelNotAnnotatedException;
+import com.cloudsiness.csmongo.factory.CsCursor;
+import com.cloudsiness.csmongo.factory.CsMongoClient;
+import com.cloudsiness.csmongo.helpers.pojo.CsModelCodec;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+
+/**
+ * The models found by a query, read from a server cursor one batch at a time. It is created with
+ * {@link CsActiveRecord#findStream(JsonObject, FindOptions, int)}.
+ * <p>
+ * The cursor is opened when the handler is set. A batch is only requested when the models of the
+ * previous one have been given to the handler and the stream is not paused, so only one batch is kept
+ * in memory. The find methods and hooks of each model run before it is given to the handler, in the
+ * order of the query. The stream can be pumped to any write stream (an HTTP response, a file...):
+ * <pre>
+ * Pump.pump(new Model().findStream(criteria), writeStream).start();
+ * </pre>
+ * The cursor is closed at the end, when an error is found and when the handler is removed or
+ * {@link #close()} is called.
+ */
+public class CsFindStream<T extends CsActiveRecord<T>> implements ReadStream<T> {
+	
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	
+	private final CsActiveRecord<T> model;
+	
+	private final JsonObject query;
+	
+	private final FindOptions options;
+	
+	private final int batchSize;
+	
+	/**
+	 * The documents of the current batch that have not been given yet.
+	 */
+	private final Deque<Object> batch;
+	
+	private CsCursor<Object> cursor;
+	
+	/**
+	 * Sets the attributes of a model with a document of the cursor.
+	 */
+	private BiConsumer<T, Object> fill;
+	
+	private Handler<T> handler;
+	
+	private Handler<Throwable> exceptionHandler;
+	
+	private Handler<Void> endHandler;
+	
+	private boolean paused;
+	
+	private boolean opening;
+	
+	private boolean reading;
+	
+	private boolean initializing;
+	
+	private boolean emitting;
+	
+	private boolean exhausted;
+	
+	private boolean closed;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsFindStream(CsActiveRecord<T> model, JsonObject query, FindOptions options, int batchSize) {
+		if(batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be greater than 0");
+		
+		this.model = model;
+		this.query = query;
+		this.options = options;
+		this.batchSize = batchSize;
+		this.batch = new ArrayDeque<Object>(batchSize);
+	}
+	
+	
+	// READ STREAM METHODS -------
+	
+	@Override
+	public CsFindStream<T> exceptionHandler(Handler<Throwable> handler) {
+		this.exceptionHandler = handler;
+		
+		return this;
+	}
+	
+	@Override
+	public CsFindStream<T> handler(Handler<T> handler) {
+		this.handler = handler;
+		
+		if(handler == null)
+			close();
+		else if(cursor == null)
+			open();
+		else
+			emit();
+		
+		return this;
+	}
+	
+	@Override
+	public CsFindStream<T> pause() {
+		paused = true;
+		
+		return this;
+	}
+	
+	@Override
+	public CsFindStream<T> resume() {
+		paused = false;
+		emit();
+		
+		return this;
+	}
+	
+	@Override
+	public CsFindStream<T> endHandler(Handler<Void> endHandler) {
+		this.endHandler = endHandler;
+		
+		return this;
+	}
+	
+	/**
+	 * Stops the stream and closes the cursor, without running the end handler.
+	 */
+	public void close() {
+		closed = true;
+		batch.clear();
+		
+		if(cursor != null)
+			cursor.close();
+	}
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Opens the cursor, reading BSON documents if the models are read with their codec.
+	 */
+	private void open() {
+		if(opening || closed)
+			return;
+		
+		opening = true;
+		
+		try {
+			CsMongoClient bsonClient = model.getBsonClient();
+			if(bsonClient != null) {
+				CsModelCodec codec = model.getCodec();
+				boolean lazy = model.getLazyCodec() != null;
+				open(bsonClient, RawBsonDocument.class, (result, document) -> result.setStoredDocument(document, codec, lazy));
+				return;
+			}
+			
+			MongoClient client = model.getMongoClient();
+			if(!(client instanceof CsMongoClient)) {
+				fail(new IllegalStateException("The mongo client of the model " + model.modelType.getName() + " can not open cursors"));
+				return;
+			}
+			
+			CsModelCodec lazyCodec = model.getLazyCodec();
+			open((CsMongoClient) client, JsonObject.class, (result, document) -> result.setStoredDocument(document, lazyCodec));
+		} catch(Exception e) {
+			fail(e);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <D> void open(CsMongoClient client, Class<D> documentClass, BiConsumer<T, D> fill) throws CsModelNotAnnotatedException {
+		this.fill = (BiConsumer<T, Object>) fill;
+		
+		client.findBatches(model.getCollectionName(), documentClass, query, options, batchSize, res -> {
+			if(res.failed()) {
+				fail(res.cause());
+				return;
+			}
+			
+			cursor = (CsCursor<Object>) res.result();
+			if(closed)
+				cursor.close();
+			else
+				emit();
+		});
+	}
+	
+	/**
+	 * Gives the documents of the current batch to the handler while the stream is not paused, and
+	 * reads the next batch when it is used up. The models that are initialized at once are given in a
+	 * loop, so a long batch does not grow the stack.
+	 */
+	private void emit() {
+		if(emitting)
+			return;
+		
+		emitting = true;
+		
+		while(!paused && !closed && !initializing && handler != null && cursor != null) {
+			Object document = batch.poll();
+			if(document == null) {
+				read();
+				break;
+			}
+			
+			initializing = true;
+			initialize(document, res -> {
+				initializing = false;
+				
+				if(res.failed()) {
+					fail(res.cause());
+					return;
+				}
+				
+				if(!closed && handler != null)
+					handler.handle(res.result());
+				
+				emit();
+			});
+		}
+		
+		emitting = false;
+	}
+	
+	private void read() {
+		if(reading || closed)
+			return;
+		
+		if(exhausted) {
+			end();
+			return;
+		}
+		
+		reading = true;
+		cursor.next(res -> {
+			reading = false;
+			
+			if(res.failed()) {
+				fail(res.cause());
+				return;
+			}
+			
+			List<Object> documents = res.result();
+			if(documents == null || documents.isEmpty())
+				exhausted = true;
+			else
+				batch.addAll(documents);
+			
+			if(exhausted && batch.isEmpty())
+				end();
+			else
+				emit();
+		});
+	}
+	
+	private void initialize(Object document, Handler<AsyncResult<T>> handler) {
+		try {
+			model.initializeModel(result -> fill.accept(result, document), handler);
+		} catch(Exception e) {
+			fail(e);
+		}
+	}
+	
+	private void end() {
+		if(closed)
+			return;
+		
+		close();
+		
+		if(endHandler != null)
+			endHandler.handle(null);
+	}
+	
+	private void fail(Throwable cause) {
+		if(closed)
+			return;
+		
+		close();
+		
+		if(exceptionHandler != null)
+			exceptionHandler.handle(cause);
+	}
+	
+}
@@ -0,0 +1,179 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import com.cloudsiness.csmongo.active.exceptions.CsModelsNotInitialized;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * Transforms a list of documents into models, as {@link CsActiveBase#initializeModels(List, BiConsumer, CsInitializeOptions, Handler)}.
+ * <p>
+ * The models are started in a loop (so the models whose hooks finish at once do not grow the stack),
+ * with a limit of models whose hooks are running at the same time, and each model is kept in the
+ * position of its document, so the sort of the query is kept. After starting some models, the next
+ * ones are started in a later turn of the event loop.
+ * <p>
+ * If the execution policy offloads the list and the models have not find methods nor hooks, the models
+ * are created and filled in the worker pool instead, and given in the context of the caller. The
+ * models with find methods or hooks are always initialized in the event loop, as their hooks can use
+ * it.
+ */
+class CsInitializeModels<T extends CsActiveBase<T>, D> {
+	
+	private final CsActiveBase<T> prototype;
+	
+	private final List<D> documents;
+	
+	private final BiConsumer<T, D> fill;
+	
+	private final CsInitializeOptions options;
+	
+	private final Handler<AsyncResult<List<T>>> handler;
+	
+	private final List<T> results;
+	
+	/**
+	 * The context in which the next models are started after a yield (<code>null</code> if it is
+	 * not run in a Vert.x context).
+	 */
+	private final Context context;
+	
+	private int next;
+	
+	private int running;
+	
+	private int finished;
+	
+	/**
+	 * The models started since the last yield.
+	 */
+	private int started;
+	
+	private boolean starting;
+	
+	private boolean yielding;
+	
+	private boolean done;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsInitializeModels(CsActiveBase<T> prototype, List<D> documents, BiConsumer<T, D> fill, CsInitializeOptions options, Handler<AsyncResult<List<T>>> handler) {
+		this.prototype = prototype;
+		this.documents = documents;
+		this.fill = fill;
+		this.options = options;
+		this.handler = handler;
+		this.results = new ArrayList<T>(Collections.<T>nCopies(documents.size(), null));
+		this.context = Vertx.currentContext();
+	}
+	
+	
+	// RUN -------
+	
+	void run() {
+		if(documents.isEmpty()) {
+			finish(Future.succeededFuture(results));
+			return;
+		}
+		
+		CsExecutionPolicy policy = options.getExecutionPolicy() != null ? options.getExecutionPolicy() : prototype.getExecutionPolicy();
+		if(context != null && policy.offloads(documents.size()) && !prototype.hasFindHooks()) {
+			CsOffload.map(context, policy, documents, this::createModel, this::finish);
+			return;
+		}
+		
+		CsOffload.countInline(documents.size());
+		startNext();
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private void startNext() {
+		starting = true;
+		
+		while(!done && !yielding && running < options.getParallelism() && next < documents.size()) {
+			if(started >= options.getYieldEvery() && context != null) {
+				started = 0;
+				yielding = true;
+				context.runOnContext(v -> {
+					yielding = false;
+					startNext();
+				});
+				break;
+			}
+			
+			int index = next++;
+			D document = documents.get(index);
+			running++;
+			started++;
+			
+			try {
+				prototype.initializeModel(result -> fill.accept(result, document), res -> onModel(index, res));
+			} catch(IllegalAccessException | IllegalArgumentException | InvocationTargetException | InstantiationException
+					| NoSuchMethodException | SecurityException e) {
+				finish(Future.failedFuture(new CsModelsNotInitialized()));
+			}
+		}
+		
+		starting = false;
+	}
+	
+	/**
+	 * Creates and fills the model of a document in the worker pool, as the fast path of
+	 * {@link CsActiveBase#initializeModel(java.util.function.Consumer, Handler)}.
+	 */
+	private T createModel(D document) throws Exception {
+		T result;
+		try {
+			result = prototype.modelType.getConstructor().newInstance();
+		} catch(IllegalAccessException | IllegalArgumentException | InvocationTargetException | InstantiationException
+				| NoSuchMethodException | SecurityException e) {
+			throw new CsModelsNotInitialized();
+		}
+		
+		fill.accept(result, document);
+		result.isNewRecord = false;
+		
+		return result;
+	}
+	
+	private void onModel(int index, AsyncResult<T> res) {
+		running--;
+		
+		if(done)
+			return;
+		
+		if(res.failed()) {
+			finish(Future.failedFuture(res.cause()));
+			return;
+		}
+		
+		results.set(index, res.result());
+		finished++;
+		
+		if(finished == documents.size())
+			finish(Future.succeededFuture(results));
+		else if(!starting)
+			startNext();
+	}
+	
+	private void finish(AsyncResult<List<T>> result) {
+		if(done)
+			return;
+		
+		done = true;
+		handler.handle(result);
+	}
+	
+}
@@ -0,0 +1,112 @@
+package com.cloudsiness.csmongo.active;
+
+/**
+ * The options with which the found documents are transformed into models: the number of models whose
+ * find methods and hooks run at the same time, and every how many models the event loop is released
+ * so a long result does not block the other requests. An execution policy can be set to convert the
+ * documents of this find in a different place than the policy of the model says.
+ */
+public class CsInitializeOptions {
+	
+	public static final int DEFAULT_PARALLELISM = 16;
+	
+	public static final int DEFAULT_YIELD_EVERY = 500;
+	
+	/**
+	 * The options of the finds that do not set them.
+	 */
+	private static volatile int defaultParallelism = DEFAULT_PARALLELISM;
+	
+	private static volatile int defaultYieldEvery = DEFAULT_YIELD_EVERY;
+	
+	
+	private int parallelism;
+	
+	private int yieldEvery;
+	
+	private CsExecutionPolicy executionPolicy;
+	
+	
+	public CsInitializeOptions() {
+		this.parallelism = defaultParallelism;
+		this.yieldEvery = defaultYieldEvery;
+	}
+	
+	
+	public static int getDefaultParallelism() {
+		return defaultParallelism;
+	}
+	
+	/**
+	 * @param parallelism	the parallelism of the finds that do not set one.
+	 */
+	public static void setDefaultParallelism(int parallelism) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be greater than 0");
+		
+		defaultParallelism = parallelism;
+	}
+	
+	public static int getDefaultYieldEvery() {
+		return defaultYieldEvery;
+	}
+	
+	/**
+	 * @param yieldEvery	the number of models between yields of the finds that do not set one.
+	 */
+	public static void setDefaultYieldEvery(int yieldEvery) {
+		if(yieldEvery < 1)
+			throw new IllegalArgumentException("The number of models between yields must be greater than 0");
+		
+		defaultYieldEvery = yieldEvery;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism	the maximum number of models whose find methods and hooks run at the same
+	 * 						time (1 runs them one after another).
+	 */
+	public CsInitializeOptions setParallelism(int parallelism) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be greater than 0");
+		
+		this.parallelism = parallelism;
+		
+		return this;
+	}
+	
+	public int getYieldEvery() {
+		return yieldEvery;
+	}
+	
+	/**
+	 * @param yieldEvery	the number of models started before the rest are started in a later turn
+	 * 						of the event loop.
+	 */
+	public CsInitializeOptions setYieldEvery(int yieldEvery) {
+		if(yieldEvery < 1)
+			throw new IllegalArgumentException("The number of models between yields must be greater than 0");
+		
+		this.yieldEvery = yieldEvery;
+		
+		return this;
+	}
+	
+	public CsExecutionPolicy getExecutionPolicy() {
+		return executionPolicy;
+	}
+	
+	/**
+	 * @param executionPolicy	the policy with which the documents are converted into models
+	 * 							(<code>null</code> uses the policy of the model).
+	 */
+	public CsInitializeOptions setExecutionPolicy(CsExecutionPolicy executionPolicy) {
+		this.executionPolicy = executionPolicy;
+		
+		return this;
+	}
+	
+}
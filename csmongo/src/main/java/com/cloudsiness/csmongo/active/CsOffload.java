@@ -0,0 +1,151 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * Runs the conversion of each item of a list as the {@link CsExecutionPolicy} listed in parameters
+ * decides: in the event loop or in the worker pool, in chunks. The results are given in the order of
+ * the items and in the context of the caller.
+ */
+class CsOffload {
+	
+	private static final AtomicLong inlineDocuments = new AtomicLong();
+	
+	private static final AtomicLong offloadedDocuments = new AtomicLong();
+	
+	private static final AtomicLong offloadedChunks = new AtomicLong();
+	
+	private static final AtomicLong offloadedTime = new AtomicLong();
+	
+	
+	private CsOffload() {
+	}
+	
+	
+	/**
+	 * The conversion of an item. It must not use the state of the event loop, as it can run in a
+	 * worker thread.
+	 */
+	@FunctionalInterface
+	interface Work<I, R> {
+		R apply(I item) throws Exception;
+	}
+	
+	
+	// MAP -------
+	
+	/**
+	 * Converts each item of the list with the work listed in parameters. If a conversion fails, the
+	 * handler gets the first error.
+	 *
+	 * @param context	the context of the caller (<code>null</code> if it is not run in a Vert.x
+	 * 					context, and then the items are converted at once).
+	 * @param policy	decides if the items are converted in the worker pool.
+	 * @param items		the items to convert.
+	 * @param work		the conversion of an item.
+	 * @param handler	the handler of the converted items, in the order of the items.
+	 */
+	static <I, R> void map(Context context, CsExecutionPolicy policy, List<I> items, Work<I, R> work, Handler<AsyncResult<List<R>>> handler) {
+		if(context == null || !policy.offloads(items.size())) {
+			List<R> results;
+			try {
+				results = convert(items, work);
+			} catch(Exception e) {
+				handler.handle(Future.failedFuture(e));
+				return;
+			}
+			
+			countInline(items.size());
+			handler.handle(Future.succeededFuture(results));
+			return;
+		}
+		
+		int chunks = (items.size() + policy.getChunkSize() - 1) / policy.getChunkSize();
+		List<List<R>> converted = new ArrayList<List<R>>(Collections.<List<R>>nCopies(chunks, null));
+		int[] finished = { 0 };
+		boolean[] failed = { false };
+		
+		for(int i = 0; i < chunks; i++) {
+			int chunk = i;
+			List<I> chunkItems = items.subList(chunk * policy.getChunkSize(), Math.min((chunk + 1) * policy.getChunkSize(), items.size()));
+			
+			Handler<Future<List<R>>> blocking = f -> {
+				long start = System.nanoTime();
+				try {
+					f.complete(convert(chunkItems, work));
+				} catch(Exception e) {
+					f.fail(e);
+				} finally {
+					offloadedTime.addAndGet(System.nanoTime() - start);
+				}
+			};
+			
+			Handler<AsyncResult<List<R>>> onChunk = res -> {
+				if(failed[0])
+					return;
+				
+				if(res.failed()) {
+					failed[0] = true;
+					handler.handle(Future.failedFuture(res.cause()));
+					return;
+				}
+				
+				converted.set(chunk, res.result());
+				offloadedDocuments.addAndGet(chunkItems.size());
+				offloadedChunks.incrementAndGet();
+				
+				if(++finished[0] == chunks) {
+					List<R> results = new ArrayList<R>(items.size());
+					for(List<R> chunkResults : converted) {
+						results.addAll(chunkResults);
+					}
+					
+					handler.handle(Future.succeededFuture(results));
+				}
+			};
+			
+			if(policy.getWorkerExecutor() != null)
+				policy.getWorkerExecutor().executeBlocking(blocking, false, onChunk);
+			else
+				context.executeBlocking(blocking, false, onChunk);
+		}
+	}
+	
+	/**
+	 * Counts the documents listed in parameters as converted in the event loop, by the lists that are
+	 * not converted through {@link #map}.
+	 */
+	static void countInline(int documents) {
+		inlineDocuments.addAndGet(documents);
+	}
+	
+	/**
+	 * @return	a snapshot of the counters.
+	 */
+	static CsOffloadMetrics metrics() {
+		return new CsOffloadMetrics(inlineDocuments.get(), offloadedDocuments.get(), offloadedChunks.get(),
+				TimeUnit.NANOSECONDS.toMillis(offloadedTime.get()));
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private static <I, R> List<R> convert(List<I> items, Work<I, R> work) throws Exception {
+		List<R> results = new ArrayList<R>(items.size());
+		for(I item : items) {
+			results.add(work.apply(item));
+		}
+		
+		return results;
+	}
+	
+}
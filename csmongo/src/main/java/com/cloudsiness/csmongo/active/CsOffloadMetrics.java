@@ -0,0 +1,84 @@
+package com.cloudsiness.csmongo.active;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The conversions of documents (hydrations and serializations) run by the execution policies since
+ * the application started.
+ *
+ * @see CsExecutionPolicy#getMetrics()
+ */
+public class CsOffloadMetrics {
+	
+	private final long inlineDocuments;
+	
+	private final long offloadedDocuments;
+	
+	private final long offloadedChunks;
+	
+	private final long offloadedTime;
+	
+	
+	CsOffloadMetrics(long inlineDocuments, long offloadedDocuments, long offloadedChunks, long offloadedTime) {
+		this.inlineDocuments = inlineDocuments;
+		this.offloadedDocuments = offloadedDocuments;
+		this.offloadedChunks = offloadedChunks;
+		this.offloadedTime = offloadedTime;
+	}
+	
+	
+	// GETTERS -------
+	
+	/**
+	 * @return	the number of documents converted in the event loop.
+	 */
+	public long getInlineDocuments() {
+		return inlineDocuments;
+	}
+	
+	/**
+	 * @return	the number of documents converted in the worker pool.
+	 */
+	public long getOffloadedDocuments() {
+		return offloadedDocuments;
+	}
+	
+	/**
+	 * @return	the number of tasks run in the worker pool.
+	 */
+	public long getOffloadedChunks() {
+		return offloadedChunks;
+	}
+	
+	/**
+	 * @return	the milliseconds that the tasks took in the worker pool (the time that the event loop
+	 * 			would have been blocked).
+	 */
+	public long getOffloadedTime() {
+		return offloadedTime;
+	}
+	
+	/**
+	 * @return	the part of the documents converted in the worker pool (from 0 to 1).
+	 */
+	public double getOffloadedRatio() {
+		long total = inlineDocuments + offloadedDocuments;
+		
+		return total == 0 ? 0 : (double) offloadedDocuments / total;
+	}
+	
+	public JsonObject toJson() {
+		return new JsonObject()
+				.put("inlineDocuments", inlineDocuments)
+				.put("offloadedDocuments", offloadedDocuments)
+				.put("offloadedChunks", offloadedChunks)
+				.put("offloadedTime", offloadedTime)
+				.put("offloadedRatio", getOffloadedRatio());
+	}
+	
+	@Override
+	public String toString() {
+		return toJson().encode();
+	}
+	
+}
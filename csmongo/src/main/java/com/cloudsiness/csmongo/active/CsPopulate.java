@@ -0,0 +1,242 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.cloudsiness.csmongo.active.metadata.CsModelMetadata;
+import com.cloudsiness.csmongo.active.metadata.CsRelation;
+import com.cloudsiness.csmongo.helpers.CsFutureHelper;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Populates the relations of a list of models, as {@link CsActiveRecord#populate(List, List, Handler)}.
+ * <p>
+ * The paths are read as a tree (<code>author</code>, <code>author.company</code> and
+ * <code>comments</code> populate the authors and the comments, and then the companies of all the
+ * authors). Each relation reads all the related models of the list with one $in query, and the
+ * relations of a level are read at the same time, so the related models are read with one request per
+ * relation and level, whatever the number of models.
+ */
+class CsPopulate {
+	
+	private CsPopulate() {
+	}
+	
+	
+	// POPULATE -------
+	
+	static <T extends CsActiveRecord<T>> void populate(List<T> models, Class<?> modelType, Collection<String> paths, Handler<AsyncResult<List<T>>> handler) {
+		Node root = new Node();
+		for(String path : paths) {
+			Node node = root;
+			for(String name : path.split("\\.")) {
+				node = node.children.computeIfAbsent(name, n -> new Node());
+			}
+		}
+		
+		populate(models, modelType, root, res -> {
+			if(res.failed())
+				handler.handle(Future.failedFuture(res.cause()));
+			else
+				handler.handle(Future.succeededFuture(models));
+		});
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Populates the relations of the node in the models, and then the relations of the children in
+	 * the related models.
+	 */
+	private static void populate(List<? extends CsActiveRecord<?>> models, Class<?> modelType, Node node, Handler<AsyncResult<Void>> handler) {
+		if(models.isEmpty() || node.children.isEmpty()) {
+			handler.handle(Future.succeededFuture());
+			return;
+		}
+		
+		CsModelMetadata metadata = CsModelMetadata.of(modelType);
+		List<CsRelation> relations = new ArrayList<CsRelation>();
+		for(String name : node.children.keySet()) {
+			CsRelation relation = metadata.getRelation(name);
+			if(relation == null) {
+				handler.handle(Future.failedFuture(new IllegalArgumentException("The model " + modelType.getName() + " has not the relation " + name)));
+				return;
+			}
+			
+			relations.add(relation);
+		}
+		
+		CsFutureHelper.helper().doInItemsVoid(relations, (relation, f) -> {
+			load(models, relation, res -> {
+				if(res.failed()) {
+					f.fail(res.cause());
+					return;
+				}
+				
+				populate(res.result(), relation.getRelatedType(), node.children.get(relation.getName()), f.completer());
+			});
+		}, handler);
+	}
+	
+	/**
+	 * Reads the related models of the relation listed in parameters with one query and sets them in
+	 * the models.
+	 *
+	 * @param handler	the handler of the read related models.
+	 */
+	private static void load(List<? extends CsActiveRecord<?>> models, CsRelation relation, Handler<AsyncResult<List<CsActiveRecord<?>>>> handler) {
+		Set<String> ids = new LinkedHashSet<String>();
+		for(CsActiveRecord<?> model : models) {
+			if(relation.getKind() == CsRelation.Kind.HAS_MANY) {
+				if(model._id != null)
+					ids.add(model._id.toHexString());
+			} else {
+				for(String id : ids(model.getAttributeValue(relation.getKey()))) {
+					ids.add(id);
+				}
+			}
+		}
+		
+		if(ids.isEmpty()) {
+			for(CsActiveRecord<?> model : models) {
+				relation.set(model, relation.getKind() == CsRelation.Kind.BELONGS_TO ? null : new ArrayList<Object>());
+			}
+			
+			handler.handle(Future.succeededFuture(new ArrayList<CsActiveRecord<?>>()));
+			return;
+		}
+		
+		// The foreign keys are queried as ObjectIds unless the attribute is a string
+		String key = "_id";
+		boolean objectIds = true;
+		if(relation.getKind() == CsRelation.Kind.HAS_MANY) {
+			Field foreignKey = CsModelMetadata.of(relation.getRelatedType()).getField(relation.getKey());
+			key = relation.getKey();
+			objectIds = foreignKey == null || !String.class.equals(foreignKey.getType());
+		}
+		
+		JsonArray values = new JsonArray();
+		for(String id : ids) {
+			values.add(objectIds ? new JsonObject().put("$oid", id) : id);
+		}
+		
+		find(relation.getRelatedType(), new JsonObject().put(key, new JsonObject().put("$in", values)), res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			if(relation.getKind() == CsRelation.Kind.HAS_MANY)
+				setHasMany(models, relation, res.result());
+			else
+				setReferences(models, relation, res.result());
+			
+			handler.handle(Future.succeededFuture(res.result()));
+		});
+	}
+	
+	/**
+	 * Sets the related models of a BELONGS_TO or REFERENCES_MANY relation, by their _id.
+	 */
+	private static void setReferences(List<? extends CsActiveRecord<?>> models, CsRelation relation, List<CsActiveRecord<?>> related) {
+		Map<String, CsActiveRecord<?>> byId = new HashMap<String, CsActiveRecord<?>>();
+		for(CsActiveRecord<?> model : related) {
+			if(model._id != null)
+				byId.put(model._id.toHexString(), model);
+		}
+		
+		for(CsActiveRecord<?> model : models) {
+			List<String> ids = ids(model.getAttributeValue(relation.getKey()));
+			if(relation.getKind() == CsRelation.Kind.BELONGS_TO) {
+				relation.set(model, ids.isEmpty() ? null : byId.get(ids.get(0)));
+			} else {
+				List<CsActiveRecord<?>> value = new ArrayList<CsActiveRecord<?>>(ids.size());
+				for(String id : ids) {
+					CsActiveRecord<?> referenced = byId.get(id);
+					if(referenced != null)
+						value.add(referenced);
+				}
+				
+				relation.set(model, value);
+			}
+		}
+	}
+	
+	/**
+	 * Sets the related models of a HAS_MANY relation, grouped by their foreign key.
+	 */
+	private static void setHasMany(List<? extends CsActiveRecord<?>> models, CsRelation relation, List<CsActiveRecord<?>> related) {
+		Map<String, List<CsActiveRecord<?>>> byForeignKey = new HashMap<String, List<CsActiveRecord<?>>>();
+		for(CsActiveRecord<?> model : related) {
+			for(String id : ids(model.getAttributeValue(relation.getKey()))) {
+				byForeignKey.computeIfAbsent(id, k -> new ArrayList<CsActiveRecord<?>>()).add(model);
+			}
+		}
+		
+		for(CsActiveRecord<?> model : models) {
+			List<CsActiveRecord<?>> value = model._id != null ? byForeignKey.get(model._id.toHexString()) : null;
+			relation.set(model, value != null ? new ArrayList<CsActiveRecord<?>>(value) : new ArrayList<CsActiveRecord<?>>());
+		}
+	}
+	
+	/**
+	 * @param value	the value of an attribute with an id or a list of ids (ObjectIds, their hex strings
+	 * 				or their extended JSON).
+	 * @return		the hex strings of the ids.
+	 */
+	private static List<String> ids(Object value) {
+		List<String> ids = new ArrayList<String>();
+		if(value instanceof Collection) {
+			for(Object item : (Collection<?>) value) {
+				ids.addAll(ids(item));
+			}
+		} else if(value instanceof JsonArray) {
+			for(Object item : (JsonArray) value) {
+				ids.addAll(ids(item));
+			}
+		} else if(value instanceof JsonObject) {
+			String id = ((JsonObject) value).getString("$oid");
+			if(id != null)
+				ids.add(id);
+		} else if(value != null) {
+			ids.add(value.toString());
+		}
+		
+		return ids;
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void find(Class<?> type, JsonObject query, Handler<AsyncResult<List<CsActiveRecord<?>>>> handler) {
+		try {
+			((CsActiveRecord) type.getConstructor().newInstance()).findAll(query, (Handler) handler);
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	
+	// CLASSES HELPERS -------
+	
+	/**
+	 * A relation of a path and the relations of its related models.
+	 */
+	private static class Node {
+		
+		private final Map<String, Node> children = new LinkedHashMap<String, Node>();
+		
+	}
+	
+}
@@ -0,0 +1,377 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+
+import com.cloudsiness.csmongo.active.CsSaveAllResult.Status;
+import com.cloudsiness.csmongo.factory.CsMongoClient;
+import com.cloudsiness.csmongo.helpers.CsFutureHelper;
+import com.cloudsiness.csmongo.helpers.pojo.CsDocumentChanges;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.impl.JsonObjectBsonAdapter;
+
+/**
+ * Saves a list of models as {@link CsActiveRecord#save(Handler)} saves each one, but writing them in
+ * batches of many models per request:
+ * <ol>
+ * <li>The models are validated and run their before save methods and hooks, some of them at the same
+ * time.</li>
+ * <li>The write of each model is prepared, in the event loop or in the worker pool as the execution
+ * policy decides. The new models get an ObjectId generated here, so they are inserted without waiting
+ * for the database to give it (it is removed from the models that are not written).</li>
+ * <li>The writes are sent in batches with {@link CsMongoClient#bulkWrite}, one batch after another.</li>
+ * <li>The written models run their after save methods and hooks.</li>
+ * </ol>
+ *
+ * @param <T>	the type of the models.
+ */
+class CsSaveAll<T extends CsActiveRecord<T>> {
+	
+	private final CsMongoClient client;
+	
+	private final String collection;
+	
+	/**
+	 * If the models are written as BSON documents.
+	 */
+	private final boolean bson;
+	
+	private final CsSaveAllOptions options;
+	
+	/**
+	 * Decides where the writes are prepared.
+	 */
+	private final CsExecutionPolicy policy;
+	
+	private final List<T> models;
+	
+	private final CsSaveAllResult<T> result;
+	
+	/**
+	 * The write of each model (<code>null</code> if it has nothing to write).
+	 */
+	private final WriteModel<?>[] writes;
+	
+	/**
+	 * The document that each model writes, that will be its stored document.
+	 */
+	private final Object[] documents;
+	
+	/**
+	 * If each model has been written (or it did not have anything to write).
+	 */
+	private final boolean[] written;
+	
+	/**
+	 * If each model has got its _id here, so it is removed if the model is not written.
+	 */
+	private final boolean[] generated;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsSaveAll(CsMongoClient client, String collection, boolean bson, CsSaveAllOptions options, CsExecutionPolicy policy, List<T> models) {
+		this.client = client;
+		this.collection = collection;
+		this.bson = bson;
+		this.options = options;
+		this.policy = policy;
+		this.models = models;
+		this.result = new CsSaveAllResult<T>(models);
+		this.writes = new WriteModel<?>[models.size()];
+		this.documents = new Object[models.size()];
+		this.written = new boolean[models.size()];
+		this.generated = new boolean[models.size()];
+	}
+	
+	
+	// RUN -------
+	
+	void run(Handler<AsyncResult<CsSaveAllResult<T>>> handler) {
+		List<Integer> indexes = new ArrayList<Integer>(models.size());
+		for(int i = 0; i < models.size(); i++) {
+			indexes.add(i);
+		}
+		
+		CsFutureHelper.helper().doInItemsVoid(indexes, options.getParallelism(), this::prepare, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			List<Integer> ready = new ArrayList<Integer>();
+			for(int i : indexes) {
+				if(result.getStatus(i) == null)
+					ready.add(i);
+			}
+			
+			CsOffload.map(Vertx.currentContext(), policy, ready, this::prepareWrite, res2 -> {
+				if(res2.failed()) {
+					removeGeneratedIds();
+					handler.handle(Future.failedFuture(res2.cause()));
+					return;
+				}
+				
+				List<Integer> pending = new ArrayList<Integer>();
+				for(int i = 0; i < ready.size(); i++) {
+					int index = ready.get(i);
+					Exception error = res2.result().get(i);
+					if(error != null)
+						result.fail(index, error);
+					else if(writes[index] != null)
+						pending.add(index);
+					else
+						written[index] = true;
+				}
+				
+				writeBatch(pending, 0, res3 -> {
+					removeGeneratedIds();
+					
+					List<Integer> saved = new ArrayList<Integer>();
+					for(int i : indexes) {
+						if(written[i])
+							saved.add(i);
+					}
+					
+					CsFutureHelper.helper().doInItemsVoid(saved, options.getParallelism(), this::afterSave, res4 -> {
+						if(res4.failed())
+							handler.handle(Future.failedFuture(res4.cause()));
+						else
+							handler.handle(Future.succeededFuture(result));
+					});
+				});
+			});
+		});
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Validates the model and runs its before save methods and hooks. The future is always completed:
+	 * the problems of the model are saved in the result, and the models without problems are left
+	 * without status.
+	 */
+	private void prepare(int index, Future<Void> f) {
+		T model = models.get(index);
+		
+		model.validate(res -> {
+			if(res.failed()) {
+				result.fail(index, res.cause());
+				f.complete();
+			} else if(!res.result()) {
+				result.set(index, Status.NOT_VALID);
+				f.complete();
+			} else {
+				try {
+					model.callOnBeforeSave(res2 -> {
+						if(res2.failed()) {
+							result.fail(index, res2.cause());
+						} else if(!res2.result()) {
+							result.set(index, Status.CANCELLED);
+						}
+						
+						f.complete();
+					});
+				} catch(Exception e) {
+					result.fail(index, e);
+					f.complete();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Prepares the write of the model in the position listed in parameters. It can run in a worker
+	 * thread, so it only touches the model and its position in the arrays.
+	 *
+	 * @return	the error of the model or <code>null</code> if its write has been prepared.
+	 */
+	private Exception prepareWrite(int index) {
+		try {
+			prepareWrite(index, models.get(index));
+		} catch(Exception e) {
+			return e;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Prepares the write of the model as save writes it: the models without _id are inserted, the found
+	 * or saved models update only the paths that have changed and the others are replaced (or inserted).
+	 */
+	private void prepareWrite(int index, T model) throws Exception {
+		boolean insert = model._id == null;
+		if(insert) {
+			model._id = new ObjectId();
+			generated[index] = true;
+		}
+		
+		boolean update = !model.isNewRecord && (bson ? model.storedBsonDocument != null : model.storedDocument != null);
+		
+		if(bson) {
+			RawBsonDocument document = model.getCodec().encode(model, false, attribute -> !model.isNotSaved(attribute));
+			BsonDocument filter = new BsonDocument("_id", new BsonObjectId(model._id));
+			documents[index] = document;
+			
+			if(insert) {
+				writes[index] = new InsertOneModel<RawBsonDocument>(document);
+			} else if(update) {
+				BsonDocument changes = CsDocumentChanges.update(model.modelType, model.storedBsonDocument, document);
+				writes[index] = changes.isEmpty() ? null : new UpdateOneModel<RawBsonDocument>(filter, changes);
+			} else {
+				writes[index] = new ReplaceOneModel<RawBsonDocument>(filter, document, new UpdateOptions().upsert(true));
+			}
+		} else {
+			JsonObject document = model.getAttributesToSave();
+			JsonObjectBsonAdapter filter = new JsonObjectBsonAdapter(new JsonObject().put("_id", new JsonObject().put("$oid", model._id.toHexString())));
+			documents[index] = document;
+			
+			if(insert) {
+				writes[index] = new InsertOneModel<JsonObject>(document);
+			} else if(update) {
+				JsonObject changes = CsDocumentChanges.update(model.modelType, model.storedDocument, document);
+				writes[index] = changes.isEmpty() ? null : new UpdateOneModel<JsonObject>(filter, new JsonObjectBsonAdapter(changes));
+			} else {
+				writes[index] = new ReplaceOneModel<JsonObject>(filter, document, new UpdateOptions().upsert(true));
+			}
+		}
+	}
+	
+	/**
+	 * Writes the batch that starts in the position listed in parameters and the next ones.
+	 *
+	 * @param pending	the positions of the models that have something to write.
+	 * @param from		the first position (in pending) of the batch.
+	 * @param handler	the handler run when all the batches have been written.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void writeBatch(List<Integer> pending, int from, Handler<AsyncResult<Void>> handler) {
+		if(from >= pending.size()) {
+			handler.handle(Future.succeededFuture());
+			return;
+		}
+		
+		List<Integer> batch = pending.subList(from, Math.min(from + options.getBatchSize(), pending.size()));
+		List<WriteModel> batchWrites = new ArrayList<WriteModel>(batch.size());
+		for(int i : batch) {
+			batchWrites.add(writes[i]);
+		}
+		
+		Class documentClass = bson ? RawBsonDocument.class : JsonObject.class;
+		client.bulkWrite(collection, documentClass, (List) batchWrites, options.isOrdered(), res -> {
+			boolean stop = res.failed() ? onBatchFailed(batch, res.cause()) : false;
+			if(res.succeeded()) {
+				for(int i : batch) {
+					onWritten(i);
+				}
+			}
+			
+			if(stop) {
+				for(int i : pending.subList(from + batch.size(), pending.size())) {
+					result.fail(i, new MongoException("The model has not been written because a previous write failed"));
+				}
+				
+				handler.handle(Future.succeededFuture());
+			} else {
+				writeBatch(pending, from + batch.size(), handler);
+			}
+		});
+	}
+	
+	/**
+	 * Saves the errors of the writes of the batch.
+	 *
+	 * @return	if the next batches must not be written.
+	 */
+	private boolean onBatchFailed(List<Integer> batch, Throwable cause) {
+		if(!(cause instanceof MongoBulkWriteException)) {
+			for(int i : batch) {
+				result.fail(i, cause);
+			}
+			
+			return options.isOrdered();
+		}
+		
+		MongoException[] errors = new MongoException[batch.size()];
+		int firstError = batch.size();
+		for(BulkWriteError error : ((MongoBulkWriteException) cause).getWriteErrors()) {
+			errors[error.getIndex()] = new MongoException(error.getCode(), error.getMessage());
+			firstError = Math.min(firstError, error.getIndex());
+		}
+		
+		for(int i = 0; i < batch.size(); i++) {
+			if(errors[i] != null)
+				result.fail(batch.get(i), errors[i]);
+			else if(options.isOrdered() && i > firstError)
+				result.fail(batch.get(i), new MongoException("The model has not been written because a previous write failed"));
+			else
+				onWritten(batch.get(i));
+		}
+		
+		return options.isOrdered();
+	}
+	
+	/**
+	 * Removes the _id generated for the models that have not been written.
+	 */
+	private void removeGeneratedIds() {
+		for(int i = 0; i < models.size(); i++) {
+			if(generated[i] && !written[i])
+				models.get(i)._id = null;
+		}
+	}
+	
+	private void onWritten(int index) {
+		T model = models.get(index);
+		if(bson)
+			model.storedBsonDocument = (RawBsonDocument) documents[index];
+		else
+			model.storedDocument = (JsonObject) documents[index];
+		
+		written[index] = true;
+	}
+	
+	/**
+	 * Runs the after save methods and hooks of the written model. The future is always completed.
+	 */
+	private void afterSave(int index, Future<Void> f) {
+		T model = models.get(index);
+		
+		try {
+			model.callOnAfterSave(res -> {
+				if(res.failed()) {
+					result.fail(index, res.cause());
+				} else {
+					model.isNewRecord = false;
+					result.set(index, res.result() ? Status.SAVED : Status.CANCELLED);
+				}
+				
+				f.complete();
+			});
+		} catch(Exception e) {
+			result.fail(index, e);
+			f.complete();
+		}
+	}
+	
+}
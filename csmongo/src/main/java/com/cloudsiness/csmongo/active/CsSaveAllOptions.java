@@ -0,0 +1,89 @@
+package com.cloudsiness.csmongo.active;
+
+/**
+ * The options of {@link CsActiveRecord#saveAll(java.util.List, CsSaveAllOptions, io.vertx.core.Handler)}.
+ */
+public class CsSaveAllOptions {
+	
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	public static final int DEFAULT_PARALLELISM = 32;
+	
+	
+	private int batchSize;
+	
+	private boolean ordered;
+	
+	private int parallelism;
+	
+	private CsExecutionPolicy executionPolicy;
+	
+	
+	public CsSaveAllOptions() {
+		this.batchSize = DEFAULT_BATCH_SIZE;
+		this.ordered = false;
+		this.parallelism = DEFAULT_PARALLELISM;
+	}
+	
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	/**
+	 * @param batchSize	the number of models written in each request.
+	 */
+	public CsSaveAllOptions setBatchSize(int batchSize) {
+		if(batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be greater than 0");
+		
+		this.batchSize = batchSize;
+		
+		return this;
+	}
+	
+	public boolean isOrdered() {
+		return ordered;
+	}
+	
+	/**
+	 * @param ordered	if the models are written in order, stopping in the first one that can not be
+	 * 					written (by default, the writes are unordered and the errors do not stop them).
+	 */
+	public CsSaveAllOptions setOrdered(boolean ordered) {
+		this.ordered = ordered;
+		
+		return this;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism	the maximum number of models that are validated and run their hooks at the same time.
+	 */
+	public CsSaveAllOptions setParallelism(int parallelism) {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be greater than 0");
+		
+		this.parallelism = parallelism;
+		
+		return this;
+	}
+	
+	public CsExecutionPolicy getExecutionPolicy() {
+		return executionPolicy;
+	}
+	
+	/**
+	 * @param executionPolicy	the policy with which the models are converted into documents
+	 * 							(<code>null</code> uses the policy of the model).
+	 */
+	public CsSaveAllOptions setExecutionPolicy(CsExecutionPolicy executionPolicy) {
+		this.executionPolicy = executionPolicy;
+		
+		return this;
+	}
+	
+}
@@ -0,0 +1,127 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of {@link CsActiveRecord#saveAll(java.util.List, CsSaveAllOptions, io.vertx.core.Handler)}:
+ * what happened with each model, in the order of the saved list.
+ *
+ * @param <T>	the type of the models.
+ */
+public class CsSaveAllResult<T extends CsActiveRecord<T>> {
+	
+	/**
+	 * What happened with a model.
+	 */
+	public enum Status {
+		/**
+		 * The model has been saved.
+		 */
+		SAVED,
+		
+		/**
+		 * The model has errors of validation (see {@link CsActiveForm#getErrors()}).
+		 */
+		NOT_VALID,
+		
+		/**
+		 * A before save method or hook returned <code>false</code>, so the model has not been written,
+		 * or an after save method or hook returned <code>false</code> (the model has been written).
+		 */
+		CANCELLED,
+		
+		/**
+		 * The model could not be written or a method or hook failed (see {@link CsSaveAllResult#getError(int)}).
+		 */
+		FAILED
+	}
+	
+	
+	private final List<T> models;
+	
+	private final Status[] statuses;
+	
+	private final Throwable[] errors;
+	
+	
+	CsSaveAllResult(List<T> models) {
+		this.models = models;
+		this.statuses = new Status[models.size()];
+		this.errors = new Throwable[models.size()];
+	}
+	
+	
+	// GETTERS -------
+	
+	/**
+	 * @return	the saved models, in the order that they were listed.
+	 */
+	public List<T> getModels() {
+		return models;
+	}
+	
+	/**
+	 * @param index	the position of the model.
+	 * @return		what happened with the model.
+	 */
+	public Status getStatus(int index) {
+		return statuses[index];
+	}
+	
+	/**
+	 * @param index	the position of the model.
+	 * @return		the error of a failed model or <code>null</code>.
+	 */
+	public Throwable getError(int index) {
+		return errors[index];
+	}
+	
+	/**
+	 * @return	if all the models have been saved.
+	 */
+	public boolean succeeded() {
+		return count(Status.SAVED) == statuses.length;
+	}
+	
+	/**
+	 * @param status	the status.
+	 * @return			the number of models with the status.
+	 */
+	public int count(Status status) {
+		int result = 0;
+		for(Status s : statuses) {
+			if(s == status)
+				result++;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @param status	the status.
+	 * @return			the models with the status.
+	 */
+	public List<T> getModels(Status status) {
+		List<T> result = new ArrayList<T>();
+		for(int i = 0; i < statuses.length; i++) {
+			if(statuses[i] == status)
+				result.add(models.get(i));
+		}
+		
+		return result;
+	}
+	
+	
+	// SETTERS -------
+	
+	void set(int index, Status status) {
+		statuses[index] = status;
+	}
+	
+	void fail(int index, Throwable error) {
+		statuses[index] = Status.FAILED;
+		errors[index] = error;
+	}
+	
+}
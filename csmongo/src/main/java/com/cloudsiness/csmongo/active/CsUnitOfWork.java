@@ -0,0 +1,294 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cloudsiness.csmongo.helpers.CsBoundedRunOptions;
+import com.cloudsiness.csmongo.helpers.CsFutureHelper;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * Groups the saves and deletes of many models and writes them together when it is committed, with
+ * one bulk write for each collection (all of them at the same time), instead of one request for each
+ * model.
+ * <p>
+ * The models are validated and run their before save (or before delete) methods and hooks when they
+ * are enlisted, and their documents are taken then. They run their after save (or after delete)
+ * methods and hooks when their writes have been acknowledged. The writes of each collection are
+ * ordered: if a write fails, the next ones of its collection are not written.
+ * <p>
+ * Example:
+ * <pre>
+ * CsUnitOfWork work = new CsUnitOfWork();
+ * work.save(order, res -&gt; {
+ *     work.delete(cart, res2 -&gt; {
+ *         work.commit(res3 -&gt; { ... });
+ *     });
+ * });
+ * </pre>
+ */
+public class CsUnitOfWork {
+	
+	/**
+	 * The writes, by the mongo client and the collection of their models.
+	 */
+	private final Map<String, Group> groups;
+	
+	private boolean committed;
+	
+	
+	// CONSTRUCTORS -------
+	
+	public CsUnitOfWork() {
+		this.groups = new LinkedHashMap<String, Group>();
+	}
+	
+	
+	// ENLISTMENT -------
+	
+	/**
+	 * Validates the model and runs its before save methods and hooks. If it is valid and they do not
+	 * cancel the save, the model will be saved (as {@link CsActiveRecord#save(Handler)} saves it) when
+	 * the unit of work is committed.
+	 *
+	 * @param model		the model.
+	 * @param handler	the handler of the result: if the model has been enlisted. It fails if the
+	 * 					document of the model can not be taken.
+	 */
+	public void save(CsActiveRecord<?> model, Handler<AsyncResult<Boolean>> handler) {
+		if(committed) {
+			handler.handle(Future.failedFuture(new IllegalStateException("The unit of work has been committed")));
+			return;
+		}
+		
+		model.validate(res -> {
+			if(res.failed() || !res.result()) {
+				handler.handle(res);
+				return;
+			}
+			
+			try {
+				model.callOnBeforeSave(res2 -> {
+					Exception error = res2.succeeded() && res2.result() ? enlist(model, Kind.SAVE) : null;
+					if(error != null)
+						handler.handle(Future.failedFuture(error));
+					else
+						handler.handle(res2);
+				});
+			} catch(Exception e) {
+				handler.handle(Future.failedFuture(e));
+			}
+		});
+	}
+	
+	/**
+	 * Runs the before delete methods and hooks of the model. If they do not cancel the delete, the
+	 * model will be deleted when the unit of work is committed.
+	 *
+	 * @param model		the model.
+	 * @param handler	the handler of the result: if the model has been enlisted. It fails if the
+	 * 					model has no _id.
+	 */
+	public void delete(CsActiveRecord<?> model, Handler<AsyncResult<Boolean>> handler) {
+		if(committed) {
+			handler.handle(Future.failedFuture(new IllegalStateException("The unit of work has been committed")));
+			return;
+		}
+		
+		try {
+			model.callOnBeforeDelete(res -> {
+				Exception error = res.succeeded() && res.result() ? enlist(model, Kind.DELETE) : null;
+				if(error != null)
+					handler.handle(Future.failedFuture(error));
+				else
+					handler.handle(res);
+			});
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+	
+	/**
+	 * @return	the number of enlisted models.
+	 */
+	public int size() {
+		int result = 0;
+		for(Group group : groups.values()) {
+			result += group.entries.size();
+		}
+		
+		return result;
+	}
+	
+	
+	// COMMIT -------
+	
+	/**
+	 * Writes the enlisted models, with one bulk write for each collection, and runs their after save
+	 * and after delete methods and hooks. The handler fails if some write or hook has failed (with the
+	 * first error); the models of the other collections are written anyway.
+	 *
+	 * @param handler	the handler run when all the writes and hooks have finished.
+	 */
+	@SuppressWarnings("rawtypes")
+	public void commit(Handler<AsyncResult<Void>> handler) {
+		if(committed) {
+			handler.handle(Future.failedFuture(new IllegalStateException("The unit of work has been committed")));
+			return;
+		}
+		committed = true;
+		
+		List<Future> futures = new ArrayList<Future>();
+		for(Group group : groups.values()) {
+			Future<Void> f = Future.future();
+			group.commit(f);
+			futures.add(f);
+		}
+		
+		CompositeFuture.join(futures).setHandler(res -> {
+			if(res.failed())
+				handler.handle(Future.failedFuture(res.cause()));
+			else
+				handler.handle(Future.succeededFuture());
+		});
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * @return	the error that has not let enlist the model (<code>null</code> if it has been enlisted).
+	 */
+	private Exception enlist(CsActiveRecord<?> model, Kind kind) {
+		String key;
+		try {
+			key = model.getMetadata().getMongoClient() + "/" + model.getCollectionName();
+		} catch(Exception e) {
+			key = model.modelType.getName();
+		}
+		
+		Group group = groups.get(key);
+		if(group == null) {
+			group = new Group(model.bulkWrite());
+			groups.put(key, group);
+		}
+		
+		return group.add(model, kind);
+	}
+	
+	
+	// CLASSES HELPERS -------
+	
+	private enum Kind { SAVE, DELETE }
+	
+	private static class Entry {
+		
+		private final CsActiveRecord<?> model;
+		
+		private final Kind kind;
+		
+		/**
+		 * The position of the operation of the model in the bulk write or -1 if the model has nothing
+		 * to write.
+		 */
+		private final int index;
+		
+		
+		private Entry(CsActiveRecord<?> model, Kind kind, int index) {
+			this.model = model;
+			this.kind = kind;
+			this.index = index;
+		}
+		
+	}
+	
+	/**
+	 * The writes of a collection.
+	 */
+	private static class Group {
+		
+		private final CsBulkWrite bulk;
+		
+		private final List<Entry> entries;
+		
+		
+		private Group(CsBulkWrite bulk) {
+			this.bulk = bulk;
+			this.entries = new ArrayList<Entry>();
+		}
+		
+		/**
+		 * @return	the error found adding the operation of the model (then the model is not enlisted)
+		 * 			or <code>null</code>.
+		 */
+		private Exception add(CsActiveRecord<?> model, Kind kind) {
+			int size = bulk.size();
+			if(kind == Kind.SAVE)
+				bulk.save(model);
+			else
+				bulk.delete(model);
+			
+			Exception error = bulk.takeError();
+			if(error == null)
+				entries.add(new Entry(model, kind, bulk.size() > size ? size : -1));
+			
+			return error;
+		}
+		
+		/**
+		 * Writes the models of the collection and runs the after hooks of the written ones. The models
+		 * with nothing to write run them only if all the writes have succeeded.
+		 */
+		private void commit(Future<Void> f) {
+			bulk.execute(res -> {
+				boolean[] written = bulk.written(res.cause());
+				
+				List<Entry> hooks = new ArrayList<Entry>();
+				for(Entry entry : entries) {
+					if(entry.index < 0 ? res.succeeded() : written[entry.index])
+						hooks.add(entry);
+				}
+				
+				CsBoundedRunOptions options = new CsBoundedRunOptions().setFailFast(false);
+				CsFutureHelper.helper().doInItemsVoid(hooks, options, this::afterWrite, res2 -> {
+					if(res.failed())
+						f.fail(res.cause());
+					else if(res2.failed())
+						f.fail(res2.cause().getCause());
+					else
+						f.complete();
+				});
+			});
+		}
+		
+		private void afterWrite(Entry entry, Future<Void> f) {
+			try {
+				Handler<AsyncResult<Boolean>> handler = res -> {
+					if(res.failed()) {
+						f.fail(res.cause());
+						return;
+					}
+					
+					if(entry.kind == Kind.SAVE)
+						entry.model.isNewRecord = false;
+					f.complete();
+				};
+				
+				if(entry.kind == Kind.SAVE)
+					entry.model.callOnAfterSave(handler);
+				else
+					entry.model.callOnAfterDelete(handler);
+			} catch(Exception e) {
+				f.fail(e);
+			}
+		}
+		
+	}
+	
+}
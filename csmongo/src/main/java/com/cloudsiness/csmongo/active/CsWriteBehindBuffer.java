@@ -0,0 +1,529 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+
+import com.cloudsiness.csmongo.active.exceptions.CsCanNotSaveAttributesOfNewRecords;
+import com.cloudsiness.csmongo.active.exceptions.CsWriteBehindBufferFull;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Closeable;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Buffers the updates ($set and $inc) of the documents of a collection and writes them later, all
+ * together in only one bulk write. The updates of the same document are coalesced into one: the last
+ * value set to an attribute wins and the increments are added. It is created with
+ * {@link CsActiveRecord#writeBehind(Vertx, CsWriteBehindOptions)}.
+ * <p>
+ * The buffer is flushed when the window of the options ends (a Vert.x timer started by the first
+ * update after a flush), when the number of pending documents reaches the flush size, when
+ * {@link #flush(Handler)} is called and when the buffer is closed. It is closed (so flushed) when the
+ * verticle that created it is undeployed. Only one bulk write is running at the same time, so the
+ * updates of a document are written in order.
+ * <p>
+ * The number of documents with pending updates is bounded: when the buffer is full
+ * ({@link #writeQueueFull()}), the updates of new documents fail with CsWriteBehindBufferFull until
+ * the running flush finishes ({@link #drainHandler(Handler)}). The updates of the documents that are
+ * already pending are always accepted.
+ * <p>
+ * An update of a path that is inside (or contains) a pending path of its document, for example a
+ * $inc of <code>a.b</code> after a $set of <code>a</code>, can not be coalesced into the same update,
+ * so it waits for the pending update to be flushed and it is written in the next bulk write. The same
+ * happens to a $inc of a path whose pending $set value is not a number. Once an update of a document
+ * waits, the next updates of the document wait too, so they are written in order.
+ * <p>
+ * The handler of each update is run when the update has been written. The buffer is not thread safe:
+ * it must be used in the context that created it, as the models.
+ */
+public class CsWriteBehindBuffer implements Closeable {
+	
+	private final Vertx vertx;
+	
+	/**
+	 * The context that created the buffer, which closes it.
+	 */
+	private final Context context;
+	
+	/**
+	 * The model whose collection and client are used.
+	 */
+	private final CsActiveRecord<?> model;
+	
+	private final CsWriteBehindOptions options;
+	
+	/**
+	 * The pending updates, by the _id of their documents.
+	 */
+	private Map<ObjectId, Pending> pending;
+	
+	/**
+	 * The updates whose paths conflict with the pending updates of their documents. They are added
+	 * again when the pending updates are flushed (<code>null</code> if there is not any).
+	 */
+	private List<Runnable> conflicting;
+	
+	/**
+	 * The _ids of the documents of the conflicting updates, whose next updates wait too.
+	 */
+	private Set<ObjectId> conflictingIds;
+	
+	/**
+	 * The number of documents that are being written.
+	 */
+	private int flushing;
+	
+	private long timerId;
+	
+	/**
+	 * The handlers of the flush that runs when the running one finishes (<code>null</code> if there
+	 * is not any waiting flush).
+	 */
+	private List<Handler<AsyncResult<Void>>> nextFlush;
+	
+	private Handler<Void> drainHandler;
+	
+	private boolean closed;
+	
+	
+	// METRICS -------
+	
+	private long updates;
+	
+	private long writes;
+	
+	private long flushes;
+	
+	private long failedFlushes;
+	
+	private long lastFlushLatency;
+	
+	private long maxFlushLatency;
+	
+	private long totalFlushLatency;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsWriteBehindBuffer(Vertx vertx, CsActiveRecord<?> model, CsWriteBehindOptions options) {
+		this.vertx = vertx;
+		this.model = model;
+		this.options = options;
+		this.pending = new LinkedHashMap<ObjectId, Pending>();
+		this.timerId = -1;
+		
+		this.context = vertx.getOrCreateContext();
+		this.context.addCloseHook(this);
+	}
+	
+	
+	// UPDATES -------
+	
+	/**
+	 * Buffers the update of the attributes listed in parameters of the model, as
+	 * {@link CsActiveRecord#saveAttributes(List, Handler)}. The values are taken now.
+	 *
+	 * @param model			the model (it can not be a new record).
+	 * @param attributes	the attributes.
+	 * @param handler		the handler run when the attributes have been written.
+	 */
+	public void saveAttributes(CsActiveRecord<?> model, List<String> attributes, Handler<AsyncResult<Void>> handler) {
+		if(model.isNewRecord()) {
+			handler.handle(Future.failedFuture(new CsCanNotSaveAttributesOfNewRecords()));
+			return;
+		}
+		
+		JsonObject values;
+		try {
+			values = model.getAttributes(attributes);
+		} catch(Exception e) {
+			handler.handle(Future.failedFuture(e));
+			return;
+		}
+		
+		update(model._id, values, null, () -> model.onAttributesSaved(values), handler);
+	}
+	
+	/**
+	 * Buffers the update of the values of a document ($set).
+	 *
+	 * @param id		the _id of the document.
+	 * @param values	the values, by the paths of their attributes.
+	 * @param handler	the handler run when the values have been written.
+	 */
+	public void set(ObjectId id, JsonObject values, Handler<AsyncResult<Void>> handler) {
+		update(id, values, null, null, handler);
+	}
+	
+	/**
+	 * Buffers the increment of an attribute of a document ($inc).
+	 *
+	 * @param id		the _id of the document.
+	 * @param attribute	the path of the attribute.
+	 * @param amount	the amount added (negative to decrement).
+	 * @param handler	the handler run when the increment has been written.
+	 */
+	public void increment(ObjectId id, String attribute, Number amount, Handler<AsyncResult<Void>> handler) {
+		update(id, null, new JsonObject().put(attribute, amount), null, handler);
+	}
+	
+	
+	// FLUSH -------
+	
+	/**
+	 * Writes all the pending updates now.
+	 *
+	 * @param handler	the handler run when the updates have been written (it fails if some update has failed).
+	 */
+	public void flush(Handler<AsyncResult<Void>> handler) {
+		List<Handler<AsyncResult<Void>>> handlers = new ArrayList<Handler<AsyncResult<Void>>>();
+		handlers.add(handler);
+		
+		flush(handlers);
+	}
+	
+	/**
+	 * Flushes the buffer and rejects the next updates. It is called when the verticle that created the
+	 * buffer is undeployed.
+	 */
+	@Override
+	public void close(Handler<AsyncResult<Void>> handler) {
+		closed = true;
+		context.removeCloseHook(this);
+		
+		flush(handler);
+	}
+	
+	/**
+	 * @return	if the updates of new documents are rejected, because there are too many pending documents.
+	 */
+	public boolean writeQueueFull() {
+		return pending.size() + flushing >= options.getMaxPending();
+	}
+	
+	/**
+	 * @param handler	the handler run once when the buffer is not full anymore.
+	 */
+	public CsWriteBehindBuffer drainHandler(Handler<Void> handler) {
+		this.drainHandler = handler;
+		
+		return this;
+	}
+	
+	/**
+	 * @return	the number of documents with updates waiting to be flushed.
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+	
+	public CsWriteBehindMetrics getMetrics() {
+		return new CsWriteBehindMetrics(updates, writes, flushes, failedFlushes, lastFlushLatency, maxFlushLatency, totalFlushLatency);
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private void update(ObjectId id, JsonObject set, JsonObject inc, Runnable onWritten, Handler<AsyncResult<Void>> handler) {
+		if(closed) {
+			handler.handle(Future.failedFuture(new IllegalStateException("The write behind buffer is closed")));
+			return;
+		}
+		
+		if(id == null) {
+			handler.handle(Future.failedFuture(new IllegalArgumentException("The document has no _id")));
+			return;
+		}
+		
+		add(id, set, inc, onWritten, handler);
+	}
+	
+	/**
+	 * Adds the update to the pending updates of its document, or waits for the next flush if its paths
+	 * conflict with them or an earlier update of the document is waiting.
+	 */
+	private void add(ObjectId id, JsonObject set, JsonObject inc, Runnable onWritten, Handler<AsyncResult<Void>> handler) {
+		Pending p = pending.get(id);
+		if(p != null && ((conflictingIds != null && conflictingIds.contains(id)) || p.conflicts(set, inc))) {
+			if(conflicting == null) {
+				conflicting = new ArrayList<Runnable>();
+				conflictingIds = new HashSet<ObjectId>();
+			}
+			conflicting.add(() -> add(id, set, inc, onWritten, handler));
+			conflictingIds.add(id);
+			
+			flush(new ArrayList<Handler<AsyncResult<Void>>>());
+			return;
+		}
+		
+		if(p == null) {
+			if(writeQueueFull()) {
+				handler.handle(Future.failedFuture(new CsWriteBehindBufferFull("There are " + options.getMaxPending() + " documents waiting to be written")));
+				return;
+			}
+			
+			p = new Pending(id);
+			pending.put(id, p);
+		}
+		
+		p.merge(set, inc);
+		p.handlers.add(handler);
+		if(onWritten != null)
+			p.onWritten.add(onWritten);
+		updates++;
+		
+		if(pending.size() >= options.getFlushSize())
+			flush(new ArrayList<Handler<AsyncResult<Void>>>());
+		else if(timerId < 0)
+			timerId = vertx.setTimer(options.getWindow(), t -> {
+				timerId = -1;
+				flush(new ArrayList<Handler<AsyncResult<Void>>>());
+			});
+	}
+	
+	/**
+	 * Writes the pending updates, after the running flush if there is one.
+	 */
+	private void flush(List<Handler<AsyncResult<Void>>> handlers) {
+		if(timerId >= 0) {
+			vertx.cancelTimer(timerId);
+			timerId = -1;
+		}
+		
+		if(flushing > 0) {
+			if(nextFlush == null)
+				nextFlush = new ArrayList<Handler<AsyncResult<Void>>>();
+			nextFlush.addAll(handlers);
+			return;
+		}
+		
+		if(pending.isEmpty()) {
+			for(Handler<AsyncResult<Void>> handler : handlers) {
+				handler.handle(Future.succeededFuture());
+			}
+			return;
+		}
+		
+		List<Pending> batch = new ArrayList<Pending>(pending.values());
+		pending = new LinkedHashMap<ObjectId, Pending>();
+		flushing = batch.size();
+		
+		CsBulkWrite bulk = model.bulkWrite().setOrdered(false);
+		for(Pending p : batch) {
+			bulk.updateOne(new JsonObject().put("_id", new JsonObject().put("$oid", p.id.toHexString())), p.toUpdate());
+		}
+		
+		if(conflicting != null) {
+			List<Runnable> waiting = conflicting;
+			conflicting = null;
+			conflictingIds = null;
+			for(Runnable update : waiting) {
+				update.run();
+			}
+		}
+		
+		long start = System.nanoTime();
+		bulk.execute(res -> {
+			long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			flushes++;
+			writes += batch.size();
+			lastFlushLatency = latency;
+			maxFlushLatency = Math.max(maxFlushLatency, latency);
+			totalFlushLatency += latency;
+			if(res.failed())
+				failedFlushes++;
+			
+			onFlushed(batch, res.cause());
+			for(Handler<AsyncResult<Void>> handler : handlers) {
+				handler.handle(res.failed() ? Future.failedFuture(res.cause()) : Future.succeededFuture());
+			}
+			
+			flushing = 0;
+			if(drainHandler != null && !writeQueueFull()) {
+				Handler<Void> drain = drainHandler;
+				drainHandler = null;
+				drain.handle(null);
+			}
+			
+			if(nextFlush != null) {
+				List<Handler<AsyncResult<Void>>> next = nextFlush;
+				nextFlush = null;
+				flush(next);
+			} else if(pending.size() >= options.getFlushSize()) {
+				flush(new ArrayList<Handler<AsyncResult<Void>>>());
+			} else if(!pending.isEmpty() && timerId < 0) {
+				timerId = vertx.setTimer(options.getWindow(), t -> {
+					timerId = -1;
+					flush(new ArrayList<Handler<AsyncResult<Void>>>());
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Runs the handlers of the flushed updates. If the bulk write has failed, only the updates with
+	 * errors fail (the bulk write is unordered), unless the whole bulk write has failed.
+	 */
+	private void onFlushed(List<Pending> batch, Throwable cause) {
+		Throwable[] errors = new Throwable[batch.size()];
+		if(cause instanceof MongoBulkWriteException) {
+			for(BulkWriteError error : ((MongoBulkWriteException) cause).getWriteErrors()) {
+				errors[error.getIndex()] = new MongoException(error.getCode(), error.getMessage());
+			}
+		} else if(cause != null) {
+			for(int i = 0; i < errors.length; i++) {
+				errors[i] = cause;
+			}
+		}
+		
+		for(int i = 0; i < batch.size(); i++) {
+			Pending p = batch.get(i);
+			if(errors[i] == null) {
+				for(Runnable onWritten : p.onWritten) {
+					onWritten.run();
+				}
+			}
+			
+			for(Handler<AsyncResult<Void>> handler : p.handlers) {
+				handler.handle(errors[i] == null ? Future.succeededFuture() : Future.failedFuture(errors[i]));
+			}
+		}
+	}
+	
+	
+	// CLASSES HELPERS -------
+	
+	/**
+	 * The coalesced updates of a document.
+	 */
+	private static class Pending {
+		
+		private final ObjectId id;
+		
+		private final JsonObject set;
+		
+		private final JsonObject inc;
+		
+		private final List<Handler<AsyncResult<Void>>> handlers;
+		
+		private final List<Runnable> onWritten;
+		
+		
+		private Pending(ObjectId id) {
+			this.id = id;
+			this.set = new JsonObject();
+			this.inc = new JsonObject();
+			this.handlers = new ArrayList<Handler<AsyncResult<Void>>>();
+			this.onWritten = new ArrayList<Runnable>(1);
+		}
+		
+		/**
+		 * Adds the update: the set values replace the previous values and increments of their attributes
+		 * and the increments are added to the previous ones (or to the set value).
+		 */
+		private void merge(JsonObject set, JsonObject inc) {
+			if(set != null) {
+				for(Map.Entry<String, Object> entry : set) {
+					this.inc.remove(entry.getKey());
+					this.set.put(entry.getKey(), entry.getValue());
+				}
+			}
+			
+			if(inc != null) {
+				for(Map.Entry<String, Object> entry : inc) {
+					String attribute = entry.getKey();
+					Number amount = (Number) entry.getValue();
+					Object value = this.set.getValue(attribute);
+					
+					if(value instanceof Number)
+						this.set.put(attribute, add((Number) value, amount));
+					else
+						this.inc.put(attribute, add((Number) this.inc.getValue(attribute), amount));
+				}
+			}
+		}
+		
+		/**
+		 * @return	if some path of the update is inside a pending path or contains it (the same paths
+		 * 			are coalesced), or if some increment is of a path whose pending set value is not a
+		 * 			number.
+		 */
+		private boolean conflicts(JsonObject set, JsonObject inc) {
+			if(set != null) {
+				for(String path : set.fieldNames()) {
+					if(conflicts(this.set, path) || conflicts(this.inc, path))
+						return true;
+				}
+			}
+			
+			if(inc != null) {
+				for(String path : inc.fieldNames()) {
+					if(conflicts(this.set, path) || conflicts(this.inc, path))
+						return true;
+					if(this.set.containsKey(path) && !(this.set.getValue(path) instanceof Number))
+						return true;
+				}
+			}
+			
+			return false;
+		}
+		
+		private static boolean conflicts(JsonObject pending, String path) {
+			for(String pendingPath : pending.fieldNames()) {
+				if(path.startsWith(pendingPath + ".") || pendingPath.startsWith(path + "."))
+					return true;
+			}
+			
+			return false;
+		}
+		
+		private JsonObject toUpdate() {
+			JsonObject update = new JsonObject();
+			if(!set.isEmpty())
+				update.put("$set", set);
+			if(!inc.isEmpty())
+				update.put("$inc", inc);
+			
+			return update;
+		}
+		
+		private static Number add(Number a, Number b) {
+			if(a == null)
+				return b;
+			
+			if(isDecimal(a) || isDecimal(b))
+				return a.doubleValue() + b.doubleValue();
+			
+			// The Int32 attributes are kept as Int32 unless the sum overflows
+			if(a instanceof Integer && b instanceof Integer) {
+				try {
+					return Math.addExact(a.intValue(), b.intValue());
+				} catch(ArithmeticException e) {
+					return a.longValue() + b.longValue();
+				}
+			}
+			
+			return a.longValue() + b.longValue();
+		}
+		
+		private static boolean isDecimal(Number n) {
+			return n instanceof Double || n instanceof Float;
+		}
+		
+	}
+	
+}
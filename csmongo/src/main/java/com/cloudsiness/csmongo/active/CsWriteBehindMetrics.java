@@ -0,0 +1,111 @@
+package com.cloudsiness.csmongo.active;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The metrics of a {@link CsWriteBehindBuffer} since it was created.
+ */
+public class CsWriteBehindMetrics {
+	
+	private final long updates;
+	
+	private final long writes;
+	
+	private final long flushes;
+	
+	private final long failedFlushes;
+	
+	private final long lastFlushLatency;
+	
+	private final long maxFlushLatency;
+	
+	private final long totalFlushLatency;
+	
+	
+	CsWriteBehindMetrics(long updates, long writes, long flushes, long failedFlushes, long lastFlushLatency, long maxFlushLatency, long totalFlushLatency) {
+		this.updates = updates;
+		this.writes = writes;
+		this.flushes = flushes;
+		this.failedFlushes = failedFlushes;
+		this.lastFlushLatency = lastFlushLatency;
+		this.maxFlushLatency = maxFlushLatency;
+		this.totalFlushLatency = totalFlushLatency;
+	}
+	
+	
+	// GETTERS -------
+	
+	/**
+	 * @return	the number of updates received by the buffer.
+	 */
+	public long getUpdates() {
+		return updates;
+	}
+	
+	/**
+	 * @return	the number of document updates written (each one has all the coalesced updates of a document).
+	 */
+	public long getWrites() {
+		return writes;
+	}
+	
+	/**
+	 * @return	the number of bulk writes.
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+	
+	/**
+	 * @return	the number of bulk writes that failed (completely or some of their updates).
+	 */
+	public long getFailedFlushes() {
+		return failedFlushes;
+	}
+	
+	/**
+	 * @return	the number of received updates for each written update (1 if nothing has been coalesced).
+	 */
+	public double getCoalescingRatio() {
+		return writes == 0 ? 1 : (double) updates / writes;
+	}
+	
+	/**
+	 * @return	the milliseconds that the last bulk write took.
+	 */
+	public long getLastFlushLatency() {
+		return lastFlushLatency;
+	}
+	
+	/**
+	 * @return	the maximum milliseconds that a bulk write took.
+	 */
+	public long getMaxFlushLatency() {
+		return maxFlushLatency;
+	}
+	
+	/**
+	 * @return	the average milliseconds that the bulk writes took.
+	 */
+	public double getAverageFlushLatency() {
+		return flushes == 0 ? 0 : (double) totalFlushLatency / flushes;
+	}
+	
+	public JsonObject toJson() {
+		return new JsonObject()
+				.put("updates", updates)
+				.put("writes", writes)
+				.put("flushes", flushes)
+				.put("failedFlushes", failedFlushes)
+				.put("coalescingRatio", getCoalescingRatio())
+				.put("lastFlushLatency", lastFlushLatency)
+				.put("maxFlushLatency", maxFlushLatency)
+				.put("averageFlushLatency", getAverageFlushLatency());
+	}
+	
+	@Override
+	public String toString() {
+		return toJson().encode();
+	}
+	
+}
@@ -0,0 +1,80 @@
+package com.cloudsiness.csmongo.active;
+
+/**
+ * The options of a {@link CsWriteBehindBuffer}.
+ */
+public class CsWriteBehindOptions {
+	
+	public static final long DEFAULT_WINDOW = 100;
+	
+	public static final int DEFAULT_FLUSH_SIZE = 500;
+	
+	public static final int DEFAULT_MAX_PENDING = 10000;
+	
+	
+	private long window;
+	
+	private int flushSize;
+	
+	private int maxPending;
+	
+	
+	public CsWriteBehindOptions() {
+		this.window = DEFAULT_WINDOW;
+		this.flushSize = DEFAULT_FLUSH_SIZE;
+		this.maxPending = DEFAULT_MAX_PENDING;
+	}
+	
+	
+	public long getWindow() {
+		return window;
+	}
+	
+	/**
+	 * @param window	the milliseconds that the updates wait to be coalesced with others, since the
+	 * 					first update after a flush.
+	 */
+	public CsWriteBehindOptions setWindow(long window) {
+		if(window < 1)
+			throw new IllegalArgumentException("The window must be greater than 0");
+		
+		this.window = window;
+		
+		return this;
+	}
+	
+	public int getFlushSize() {
+		return flushSize;
+	}
+	
+	/**
+	 * @param flushSize	the number of pending documents that flushes the buffer before the end of the window.
+	 */
+	public CsWriteBehindOptions setFlushSize(int flushSize) {
+		if(flushSize < 1)
+			throw new IllegalArgumentException("The flush size must be greater than 0");
+		
+		this.flushSize = flushSize;
+		
+		return this;
+	}
+	
+	public int getMaxPending() {
+		return maxPending;
+	}
+	
+	/**
+	 * @param maxPending	the maximum number of documents with pending updates (the pending ones and
+	 * 						the ones that are being flushed). The updates of other documents are rejected
+	 * 						while the buffer is full.
+	 */
+	public CsWriteBehindOptions setMaxPending(int maxPending) {
+		if(maxPending < 1)
+			throw new IllegalArgumentException("The maximum of pending documents must be greater than 0");
+		
+		this.maxPending = maxPending;
+		
+		return this;
+	}
+	
+}
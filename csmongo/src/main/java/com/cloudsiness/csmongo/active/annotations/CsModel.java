@@ -13,4 +13,42 @@ import java.lang.annotation.ElementType;
 public @interface CsModel {
 	String collectionName();
 	String mongoClient() default CsMongoFactory.MAIN;
+	
+	/**
+	 * If the models of the class are converted to JSON objects (and the JSON objects to models) with
+	 * a codec built for the class instead of with Jackson.
+	 * 
+	 * @see com.cloudsiness.csmongo.helpers.pojo.CsModelCodec
+	 */
+	boolean codec() default false;
+	
+	/**
+	 * If the models of the class are read from and saved as BSON documents directly, without JSON
+	 * objects between them and the database. The models use the codec built for the class (if they can
+	 * not, they use JSON objects).
+	 * 
+	 * @see com.cloudsiness.csmongo.helpers.pojo.CsModelCodec
+	 * @see com.cloudsiness.csmongo.factory.CsMongoClient
+	 */
+	boolean bson() default false;
+	
+	/**
+	 * If the found models are hydrated lazily: they keep their stored document and each attribute is
+	 * decoded the first time that it is got or set through the methods of the model (as
+	 * getAttributeValue). The attributes that are left are decoded when the model is validated or
+	 * saved. The public attributes are not set until they are decoded, so they must not be read
+	 * directly before calling hydrate(). The models use the codec built for the class (if they can
+	 * not, they are hydrated when they are found).
+	 * 
+	 * @see com.cloudsiness.csmongo.active.CsActiveForm#hydrate()
+	 */
+	boolean lazy() default false;
+	
+	/**
+	 * The number of documents from which the found and saved lists of models are converted in the
+	 * worker pool instead of in the event loop (-1 uses the default threshold).
+	 * 
+	 * @see com.cloudsiness.csmongo.active.CsExecutionPolicy
+	 */
+	int offloadThreshold() default -1;
 }
@@ -0,0 +1,32 @@
+package com.cloudsiness.csmongo.active.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.cloudsiness.csmongo.sequence.CsSequenceOptions;
+
+/**
+ * The attributes (of type long or Long) with this annotation get the next value of a sequence when
+ * a new model is saved, before its before save methods and hooks run, if they do not have a value
+ * (<code>null</code> or 0).
+ *
+ * @see com.cloudsiness.csmongo.sequence.CsSequence
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Sequence {
+	
+	/**
+	 * The name of the sequence. By default, the name of the collection and the attribute
+	 * ("collection.attribute").
+	 */
+	String name() default "";
+	
+	/**
+	 * The number of values reserved with each request to the database.
+	 */
+	int blockSize() default CsSequenceOptions.DEFAULT_BLOCK_SIZE;
+	
+}
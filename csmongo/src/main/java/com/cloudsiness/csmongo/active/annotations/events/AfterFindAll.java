@@ -0,0 +1,21 @@
+package com.cloudsiness.csmongo.active.annotations.events;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method run once with the whole list of models found by findAll, after the @AfterFind methods
+ * of each model. The method has the parameters <code>(List&lt;T&gt; models, Handler&lt;AsyncResult&lt;Boolean&gt;&gt; handler)</code>
+ * and it is run on the model on which findAll was called (or statically), so it can load the related
+ * documents of all the models with one query.
+ * <p>
+ * As the @AfterFind methods, it can not cancel the find: a <code>false</code> result is ignored and
+ * findAll gives the models. A failed handler fails findAll.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AfterFindAll {
+	
+}
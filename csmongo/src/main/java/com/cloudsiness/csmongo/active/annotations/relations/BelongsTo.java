@@ -0,0 +1,30 @@
+package com.cloudsiness.csmongo.active.annotations.relations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Marks a field that holds the model referenced by the id kept in another attribute (an ObjectId or
+ * its hex string), as <code>@BelongsTo(attribute="authorId") public Author author;</code>. The field
+ * is not an attribute of the model: it is not saved nor read from the documents, it is only set when
+ * the relation is populated.
+ * 
+ * @see com.cloudsiness.csmongo.active.CsActiveRecord#populate(java.util.List, java.util.List, io.vertx.core.Handler)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@JacksonAnnotationsInside
+@JsonIgnore
+public @interface BelongsTo {
+	
+	/**
+	 * The attribute of the model with the id of the referenced model.
+	 */
+	String attribute();
+	
+}
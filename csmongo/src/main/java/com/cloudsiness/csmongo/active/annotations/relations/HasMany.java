@@ -0,0 +1,27 @@
+package com.cloudsiness.csmongo.active.annotations.relations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Marks a list field that holds the models that reference this model by a foreign key, as
+ * <code>@HasMany(foreignKey="postId") public List&lt;Comment&gt; comments;</code>. The models without
+ * related models get an empty list. As {@link BelongsTo}, the field is not an attribute of the model.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@JacksonAnnotationsInside
+@JsonIgnore
+public @interface HasMany {
+	
+	/**
+	 * The attribute of the related models with the id of this model (an ObjectId or its hex string).
+	 */
+	String foreignKey();
+	
+}
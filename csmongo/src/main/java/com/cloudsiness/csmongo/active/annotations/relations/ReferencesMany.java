@@ -0,0 +1,28 @@
+package com.cloudsiness.csmongo.active.annotations.relations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Marks a list field that holds the models referenced by the list of ids kept in another attribute,
+ * as <code>@ReferencesMany(attribute="tagIds") public List&lt;Tag&gt; tags;</code>. The models are
+ * kept in the order of the ids (the ids of removed models are skipped). As {@link BelongsTo}, the
+ * field is not an attribute of the model.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@JacksonAnnotationsInside
+@JsonIgnore
+public @interface ReferencesMany {
+	
+	/**
+	 * The attribute of the model with the list of ids of the referenced models.
+	 */
+	String attribute();
+	
+}
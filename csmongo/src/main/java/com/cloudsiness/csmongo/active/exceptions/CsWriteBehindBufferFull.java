@@ -0,0 +1,14 @@
+package com.cloudsiness.csmongo.active.exceptions;
+
+public class CsWriteBehindBufferFull extends Exception {
+	
+	private static final long serialVersionUID = 6170436624514837193L;
+	
+	public CsWriteBehindBufferFull() {
+		
+	}
+	
+	public CsWriteBehindBufferFull(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,14 @@
+package com.cloudsiness.csmongo.active.hooks;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+/**
+ * Invokes a method of a model annotated with an event annotation (@BeforeSave, @AfterFind...).
+ */
+@FunctionalInterface
+public interface CsHookInvoker {
+	
+	public void invoke(Object model, Handler<AsyncResult<Boolean>> handler) throws Exception;
+	
+}
@@ -0,0 +1,15 @@
+package com.cloudsiness.csmongo.active.hooks;
+
+import java.util.List;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+/**
+ * A hook of an event of a whole list of models (as the models found by findAll).
+ */
+public interface CsListHookHandler<T> {
+	
+	public void handle(List<T> models, Handler<AsyncResult<Boolean>> result);
+	
+}
@@ -0,0 +1,16 @@
+package com.cloudsiness.csmongo.active.hooks;
+
+import java.util.List;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+/**
+ * Invokes a method of a model annotated with an event annotation of a list of models (@AfterFindAll).
+ */
+@FunctionalInterface
+public interface CsListHookInvoker {
+	
+	public void invoke(Object model, List<?> models, Handler<AsyncResult<Boolean>> handler) throws Exception;
+	
+}
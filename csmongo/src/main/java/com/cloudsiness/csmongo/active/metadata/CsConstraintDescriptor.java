@@ -0,0 +1,49 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import java.lang.annotation.Annotation;
+
+import com.cloudsiness.csmongo.active.validators.CsConstraintValidator;
+
+/**
+ * Describes a constraint annotation (an annotation annotated with @CsConstraint) used in an attribute 
+ * or in a model class: the type of the annotation, the scenarios in which it is available and the 
+ * classes that validate it.
+ */
+public class CsConstraintDescriptor {
+	
+	private final Class<? extends Annotation> annotationType;
+	
+	private final String[] scenarios;
+	
+	private final Class<? extends CsConstraintValidator<?>>[] validatedBy;
+	
+	
+	@SafeVarargs
+	public CsConstraintDescriptor(Class<? extends Annotation> annotationType, String[] scenarios, Class<? extends CsConstraintValidator<?>>... validatedBy) {
+		this.annotationType = annotationType;
+		this.scenarios = scenarios;
+		this.validatedBy = validatedBy;
+	}
+	
+	
+	/**
+	 * @param scenario	the scenario to check.
+	 * @return			<code>true</code> if the constraint is available in the scenario listed in the parameters.
+	 */
+	public boolean isInScenario(String scenario) {
+		return CsModelMetadata.isInScenario(scenarios, scenario);
+	}
+	
+	public Class<? extends Annotation> getAnnotationType() {
+		return annotationType;
+	}
+	
+	public String[] getScenarios() {
+		return scenarios;
+	}
+	
+	public Class<? extends CsConstraintValidator<?>>[] getValidatedBy() {
+		return validatedBy;
+	}
+	
+}
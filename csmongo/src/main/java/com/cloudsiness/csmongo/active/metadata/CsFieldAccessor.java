@@ -0,0 +1,110 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes an attribute of a model through method handles instead of {@link Field#get(Object)}
+ * and {@link Field#set(Object, Object)}. The handles are resolved once per attribute, when the
+ * metadata of the model is built.
+ */
+public class CsFieldAccessor {
+	
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+	
+	
+	private final Field field;
+	
+	/**
+	 * Getter of type (Object)Object.
+	 */
+	private final MethodHandle getter;
+	
+	/**
+	 * Setter of type (Object, Object)void.
+	 */
+	private final MethodHandle setter;
+	
+	
+	/**
+	 * @param exactGetter	the getter with the exact type of the attribute (the owner is erased to Object).
+	 * @param exactSetter	the setter with the exact type of the attribute (the owner is erased to Object).
+	 */
+	private CsFieldAccessor(Field field, MethodHandle exactGetter, MethodHandle exactSetter) {
+		this.field = field;
+		this.getter = exactGetter.asType(GETTER_TYPE);
+		this.setter = exactSetter.asType(SETTER_TYPE);
+	}
+	
+	/**
+	 * Creates the accessor of the field listed in parameters.
+	 *
+	 * @param field	a public and not final field.
+	 * @return		the accessor or <code>null</code> if the field can not be accessed through method handles.
+	 */
+	public static CsFieldAccessor create(Field field) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Class<?> type = field.getType();
+			MethodHandle getter = lookup.unreflectGetter(field)
+					.asType(MethodType.methodType(type, Object.class));
+			MethodHandle setter = lookup.unreflectSetter(field)
+					.asType(MethodType.methodType(void.class, Object.class, type));
+			
+			return new CsFieldAccessor(field, getter, setter);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+	
+	
+	// GENERIC ACCESS -------
+	
+	public Object get(Object model) throws IllegalAccessException {
+		try {
+			return (Object) getter.invokeExact(model);
+		} catch (WrongMethodTypeException | ClassCastException e) {
+			return field.get(model);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Sets the value of the attribute. If the value needs a conversion that the method handle can not do
+	 * (for example, an Integer to a long attribute), the reflection is used.
+	 */
+	public void set(Object model, Object value) throws IllegalAccessException {
+		try {
+			setter.invokeExact(model, value);
+		} catch (ClassCastException | NullPointerException e) {
+			field.set(model, value);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	
+	// GETTERS -------
+	
+	public Field getField() {
+		return field;
+	}
+	
+	public String getName() {
+		return field.getName();
+	}
+	
+	public Class<?> getType() {
+		return field.getType();
+	}
+	
+}
@@ -0,0 +1,67 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.cloudsiness.csmongo.active.hooks.CsHookInvoker;
+
+/**
+ * Data of a model generated at build time by the csmongo-processor annotation processor. When the class
+ * <code>[model class name]_CsDescriptor</code> exists, {@link CsModelMetadata} reads the model from it 
+ * instead of scanning the annotations of the model.
+ */
+public interface CsModelDescriptor {
+	
+	/**
+	 * Suffix of the name of the generated descriptor classes.
+	 */
+	public static final String SUFFIX = "_CsDescriptor";
+	
+	/**
+	 * @return	the collection name of the CsModel annotation or <code>null</code> if the model is not annotated.
+	 */
+	public String getCollectionName();
+	
+	/**
+	 * @return	the mongo client of the CsModel annotation or <code>null</code> if the model is not annotated.
+	 */
+	public String getMongoClient();
+	
+	/**
+	 * @return	the names of the public fields (attributes) of the model, the fields of the subclasses first.
+	 */
+	public List<String> getAttributes();
+	
+	/**
+	 * @return	the attributes annotated with @NotSave.
+	 */
+	public Set<String> getNotSaveAttributes();
+	
+	/**
+	 * @return	the attributes annotated with @Searchable.
+	 */
+	public Set<String> getSearchableAttributes();
+	
+	/**
+	 * @return	the attributes annotated with @Safe and the scenarios of the annotation.
+	 */
+	public Map<String, String[]> getSafeAttributes();
+	
+	/**
+	 * @return	the constraints annotated in the model class.
+	 */
+	public List<CsConstraintDescriptor> getModelConstraints();
+	
+	/**
+	 * @return	the constraints of each attribute. The attributes without constraints can be omitted.
+	 */
+	public Map<String, List<CsConstraintDescriptor>> getAttributesConstraints();
+	
+	/**
+	 * @return	the invokers of the methods annotated with each event annotation.
+	 */
+	public Map<Class<? extends Annotation>, List<CsHookInvoker>> getHooks();
+	
+}
@@ -0,0 +1,654 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.NotSave;
+import com.cloudsiness.csmongo.active.annotations.Safe;
+import com.cloudsiness.csmongo.active.annotations.Searchable;
+import com.cloudsiness.csmongo.active.annotations.Sequence;
+import com.cloudsiness.csmongo.active.exceptions.CsConstraintAnnotationWithoutScenarios;
+import com.cloudsiness.csmongo.active.hooks.CsHookInvoker;
+import com.cloudsiness.csmongo.active.hooks.CsListHookInvoker;
+import com.cloudsiness.csmongo.active.validators.CsConstraint;
+import com.cloudsiness.csmongo.active.validators.CsConstraintValidator;
+import com.cloudsiness.csmongo.active.validators.CsValidator;
+
+import io.vertx.core.Handler;
+
+/**
+ * Reflection data of a model class. It is built only once per class and shared by all the
+ * instances of the model, so the active forms and records do not have to walk the class
+ * hierarchy on each validation, set or save.
+ * <p>
+ * If a {@link CsModelDescriptor} has been generated for the model at build time, the data is read 
+ * from it. Otherwise, the annotations of the model are scanned.
+ * <p>
+ * The data that depends on the scenario is built the first time that the scenario is used.
+ */
+public class CsModelMetadata {
+	
+	/**
+	 * Key used in the scenarios cache for the <code>null</code> scenario.
+	 */
+	private static final Object NULL_SCENARIO = new Object();
+	
+	/**
+	 * Type of the method handles of the event methods: (model, handler).
+	 */
+	private static final MethodType HOOK_TYPE = MethodType.methodType(void.class, Object.class, Handler.class);
+	
+	/**
+	 * Type of the method handles of the event methods of lists: (model, models, handler).
+	 */
+	private static final MethodType LIST_HOOK_TYPE = MethodType.methodType(void.class, Object.class, List.class, Handler.class);
+	
+	/**
+	 * The metadata of all the models used until now.
+	 */
+	private static final Map<Class<?>, CsModelMetadata> registry = new ConcurrentHashMap<Class<?>, CsModelMetadata>();
+	
+	/**
+	 * The scenarios of each constraint or safe annotation.
+	 */
+	private static final Map<Annotation, String[]> annotationsScenarios = new ConcurrentHashMap<Annotation, String[]>();
+	
+	
+	// ATTRIBUTES -------
+	
+	private final Class<?> modelType;
+	
+	/**
+	 * The descriptor generated at build time or <code>null</code> if the model has not descriptor.
+	 */
+	private final CsModelDescriptor descriptor;
+	
+	private final String collectionName;
+	
+	private final String mongoClient;
+	
+	/**
+	 * The public fields (attributes) of the model.
+	 */
+	private final List<Field> fields;
+	
+	private final Map<String, Field> fieldsByName;
+	
+	/**
+	 * The accessors of the attributes, indexed by name.
+	 */
+	private final Map<String, CsFieldAccessor> accessors;
+	
+	/**
+	 * The attributes annotated with @NotSave.
+	 */
+	private final Set<String> notSaveFields;
+	
+	/**
+	 * The attributes annotated with @Searchable.
+	 */
+	private final List<Field> searchableFields;
+	
+	/**
+	 * The attributes annotated with @Sequence.
+	 */
+	private final List<Field> sequenceFields;
+	
+	/**
+	 * The fields annotated with a relation annotation, by name. They are not attributes of the model.
+	 */
+	private final Map<String, CsRelation> relations;
+	
+	/**
+	 * The attributes annotated with @Safe and the scenarios of the annotation.
+	 */
+	private final Map<String, String[]> safeScenarios;
+	
+	private final List<CsConstraintDescriptor> modelConstraints;
+	
+	private final Map<String, List<CsConstraintDescriptor>> fieldsConstraints;
+	
+	private final Map<Object, CsScenarioMetadata> scenarios;
+	
+	private final Map<Class<? extends Annotation>, List<Method>> annotatedMethods;
+	
+	private final Map<Class<? extends Annotation>, List<CsHookInvoker>> hooks;
+	
+	private final Map<Class<? extends Annotation>, List<CsListHookInvoker>> listHooks;
+	
+	
+	// CONSTRUCTORS -------
+	
+	private CsModelMetadata(Class<?> modelType) {
+		this.modelType = modelType;
+		this.descriptor = loadDescriptor(modelType);
+		
+		List<Field> fields = new ArrayList<Field>();
+		Map<String, Field> fieldsByName = new HashMap<String, Field>();
+		Map<String, CsFieldAccessor> accessors = new HashMap<String, CsFieldAccessor>();
+		Set<String> notSaveFields = new LinkedHashSet<String>();
+		List<Field> searchableFields = new ArrayList<Field>();
+		List<Field> sequenceFields = new ArrayList<Field>();
+		Map<String, String[]> safeScenarios = new HashMap<String, String[]>();
+		Map<String, List<CsConstraintDescriptor>> fieldsConstraints = new HashMap<String, List<CsConstraintDescriptor>>();
+		
+		if(descriptor != null) {
+			this.collectionName = descriptor.getCollectionName();
+			this.mongoClient = descriptor.getMongoClient();
+			
+			for(String name : descriptor.getAttributes()) {
+				try {
+					fields.add(modelType.getField(name));
+				} catch (NoSuchFieldException | SecurityException e) {
+					throw new IllegalStateException("The descriptor of " + modelType.getName() + " is outdated: " + name, e);
+				}
+			}
+			
+			notSaveFields.addAll(descriptor.getNotSaveAttributes());
+			safeScenarios.putAll(descriptor.getSafeAttributes());
+			fieldsConstraints.putAll(descriptor.getAttributesConstraints());
+			this.modelConstraints = descriptor.getModelConstraints();
+		} else {
+			CsModel ann = modelType.getAnnotation(CsModel.class);
+			this.collectionName = ann != null ? ann.collectionName() : null;
+			this.mongoClient = ann != null ? ann.mongoClient() : null;
+			
+			for(Class<?> type = modelType; type != null; type = type.getSuperclass()) {
+				for(Field f : type.getDeclaredFields()) {
+					if((f.getModifiers() & Modifier.fieldModifiers()) == Modifier.PUBLIC && !CsRelation.isRelation(f)) {
+						fields.add(f);
+						
+						if(f.isAnnotationPresent(NotSave.class))
+							notSaveFields.add(f.getName());
+						if(f.isAnnotationPresent(Safe.class))
+							safeScenarios.putIfAbsent(f.getName(), getScenariosOrEmpty(f.getAnnotation(Safe.class)));
+						
+						List<CsConstraintDescriptor> constraints = scanConstraints(f);
+						if(!constraints.isEmpty())
+							fieldsConstraints.putIfAbsent(f.getName(), constraints);
+					}
+				}
+			}
+			
+			this.modelConstraints = scanConstraints(modelType);
+		}
+		
+		Set<String> searchableNames = descriptor != null ? descriptor.getSearchableAttributes() : null;
+		for(Field f : fields) {
+			if(!fieldsByName.containsKey(f.getName())) {
+				fieldsByName.put(f.getName(), f);
+				
+				CsFieldAccessor accessor = CsFieldAccessor.create(f);
+				if(accessor != null)
+					accessors.put(f.getName(), accessor);
+				
+				if(f.isAnnotationPresent(Sequence.class))
+					sequenceFields.add(f);
+			}
+			
+			if(searchableNames != null ? searchableNames.contains(f.getName()) : f.isAnnotationPresent(Searchable.class))
+				searchableFields.add(f);
+		}
+		
+		this.fields = Collections.unmodifiableList(fields);
+		this.fieldsByName = fieldsByName;
+		this.accessors = accessors;
+		this.notSaveFields = Collections.unmodifiableSet(notSaveFields);
+		this.searchableFields = Collections.unmodifiableList(searchableFields);
+		this.sequenceFields = Collections.unmodifiableList(sequenceFields);
+		this.relations = scanRelations(modelType);
+		this.safeScenarios = safeScenarios;
+		this.fieldsConstraints = fieldsConstraints;
+		
+		this.scenarios = new ConcurrentHashMap<Object, CsScenarioMetadata>();
+		this.annotatedMethods = new ConcurrentHashMap<Class<? extends Annotation>, List<Method>>();
+		this.hooks = new ConcurrentHashMap<Class<? extends Annotation>, List<CsHookInvoker>>();
+		this.listHooks = new ConcurrentHashMap<Class<? extends Annotation>, List<CsListHookInvoker>>();
+		
+		if(descriptor != null) {
+			for(Map.Entry<Class<? extends Annotation>, List<CsHookInvoker>> entry : descriptor.getHooks().entrySet())
+				this.hooks.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<CsHookInvoker>(entry.getValue())));
+		}
+	}
+	
+	/**
+	 * Gets the metadata of the model class listed in parameters, building it if it is the first time
+	 * that the class is used.
+	 * 
+	 * @param modelType	the class of the model.
+	 * @return			the metadata of the model.
+	 */
+	public static CsModelMetadata of(Class<?> modelType) {
+		CsModelMetadata metadata = registry.get(modelType);
+		if(metadata == null)
+			metadata = registry.computeIfAbsent(modelType, CsModelMetadata::new);
+		
+		return metadata;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Reads the relations of the public fields of the model. They are always read with reflection, as
+	 * the descriptors only have the attributes.
+	 */
+	private static Map<String, CsRelation> scanRelations(Class<?> modelType) {
+		Map<String, CsRelation> relations = new LinkedHashMap<String, CsRelation>();
+		for(Field f : modelType.getFields()) {
+			CsRelation relation = Modifier.isStatic(f.getModifiers()) ? null : CsRelation.of(f);
+			if(relation != null)
+				relations.putIfAbsent(f.getName(), relation);
+		}
+		
+		return Collections.unmodifiableMap(relations);
+	}
+	
+	/**
+	 * Instantiates the descriptor generated for the model, if any.
+	 * 
+	 * @param modelType	the class of the model.
+	 * @return			the descriptor or <code>null</code> if it has not been generated.
+	 */
+	private static CsModelDescriptor loadDescriptor(Class<?> modelType) {
+		try {
+			Class<?> descriptorClass = Class.forName(modelType.getName() + CsModelDescriptor.SUFFIX, true, modelType.getClassLoader());
+			if(!CsModelDescriptor.class.isAssignableFrom(descriptorClass))
+				return null;
+			
+			return (CsModelDescriptor) descriptorClass.getConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			throw new IllegalStateException("The descriptor of " + modelType.getName() + " can not be instantiated.", e);
+		}
+	}
+	
+	/**
+	 * Reads the constraint annotations of the element (a field or the model class).
+	 */
+	private static List<CsConstraintDescriptor> scanConstraints(AnnotatedElement element) {
+		List<CsConstraintDescriptor> result = new ArrayList<CsConstraintDescriptor>();
+		
+		for(Annotation ann : element.getAnnotations()) {
+			CsConstraint constraint = ann.annotationType().getAnnotation(CsConstraint.class);
+			if(constraint != null)
+				result.add(new CsConstraintDescriptor(ann.annotationType(), getScenariosOrEmpty(ann), constraint.validatedBy()));
+		}
+		
+		return result;
+	}
+	
+	private static String[] getScenariosOrEmpty(Annotation ann) {
+		try {
+			return getScenarios(ann);
+		} catch (CsConstraintAnnotationWithoutScenarios e) {
+			e.printStackTrace();
+			return new String[0];
+		}
+	}
+	
+	/**
+	 * Invokes the method scenarios() to know in which scenarios are the annotation available.
+	 * The result is cached per annotation instance.
+	 * 
+	 * @param ann	the annotation for to looking for the scenarios.
+	 * @return		a list of the available scenarios.
+	 * @throws CsConstraintAnnotationWithoutScenarios	if the annotation has no method scenarios().
+	 */
+	public static String[] getScenarios(Annotation ann) throws CsConstraintAnnotationWithoutScenarios {
+		String[] result = annotationsScenarios.get(ann);
+		
+		if(result == null) {
+			try {
+				Method m = ann.annotationType().getMethod("scenarios");
+				result = (String[]) m.invoke(ann);
+			} catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+				throw new CsConstraintAnnotationWithoutScenarios(ann.annotationType().getName());
+			}
+			
+			annotationsScenarios.put(ann, result);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * If the annotation has no method scenarios(), then returns <code>false</code>.
+	 * 
+	 * @param ann		the annotation to know if is in the scenario.
+	 * @param scenario	the scenario to check.
+	 * @return			<code>true</code> if the annotation is available in the scenario listed in the parameters.
+	 */
+	public static boolean isAnnotationInScenario(Annotation ann, String scenario) {
+		try {
+			return isInScenario(getScenarios(ann), scenario);
+		} catch (CsConstraintAnnotationWithoutScenarios e) {
+			e.printStackTrace();
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @param scenarios	the scenarios of an annotation.
+	 * @param scenario	the scenario to check.
+	 * @return			<code>true</code> if the scenario or the main scenario are in the scenarios.
+	 */
+	public static boolean isInScenario(String[] scenarios, String scenario) {
+		for(String s : scenarios) {
+			if(s.equals(scenario) || s.equals(CsActiveForm.MAIN_SCENARIO))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Creates an invoker of the event method listed in parameters through a method handle, resolved
+	 * only once. If the method can not be invoked through a method handle (for example, if it has not
+	 * a Handler parameter), it is invoked with reflection, so the error is reported when the event happens.
+	 * 
+	 * @param m	the method annotated with an event annotation.
+	 * @return	the invoker of the method.
+	 */
+	static CsHookInvoker createInvoker(Method m) {
+		try {
+			m.setAccessible(true);
+			
+			MethodHandle handle = MethodHandles.lookup().unreflect(m);
+			if(Modifier.isStatic(m.getModifiers()))
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			MethodHandle invoker = handle.asType(HOOK_TYPE);
+			
+			return (model, handler) -> {
+				try {
+					invoker.invokeExact(model, handler);
+				} catch (Exception | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new InvocationTargetException(e);
+				}
+			};
+		} catch (IllegalAccessException | RuntimeException e) {
+			return (model, handler) -> m.invoke(model, handler);
+		}
+	}
+	
+	/**
+	 * Same as {@link #createInvoker(Method)} for a method of an event of a list of models, that has
+	 * the parameters (List, Handler).
+	 * 
+	 * @param m	the method annotated with an event annotation of a list.
+	 * @return	the invoker of the method.
+	 */
+	static CsListHookInvoker createListInvoker(Method m) {
+		try {
+			m.setAccessible(true);
+			
+			MethodHandle handle = MethodHandles.lookup().unreflect(m);
+			if(Modifier.isStatic(m.getModifiers()))
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			MethodHandle invoker = handle.asType(LIST_HOOK_TYPE);
+			
+			return (model, models, handler) -> {
+				try {
+					invoker.invokeExact(model, models, handler);
+				} catch (Exception | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new InvocationTargetException(e);
+				}
+			};
+		} catch (IllegalAccessException | RuntimeException e) {
+			return (model, models, handler) -> m.invoke(model, models, handler);
+		}
+	}
+	
+	/**
+	 * Builds the validators annotated in the element (a field or the model class) that are
+	 * available in the scenario listed in parameters.
+	 * 
+	 * @param element	the field or the class for to looking for validators.
+	 * @param scenario	the scenario that the validators must include.
+	 * @return			a list of validators for the attribute/model in the scenario.
+	 */
+	public static List<CsValidator> buildValidators(AnnotatedElement element, String scenario) {
+		return buildValidators(element, scanConstraints(element), scenario);
+	}
+	
+	/**
+	 * Builds the validators of the constraints listed in parameters that are available in the scenario.
+	 * 
+	 * @param element		the field or the class annotated with the constraints.
+	 * @param constraints	the constraints of the element.
+	 * @param scenario		the scenario that the validators must include.
+	 * @return				a list of validators for the attribute/model in the scenario.
+	 */
+	static List<CsValidator> buildValidators(AnnotatedElement element, List<CsConstraintDescriptor> constraints, String scenario) {
+		List<CsValidator> validators = new ArrayList<CsValidator>();
+		
+		for(CsConstraintDescriptor constraint : constraints) {
+			if(constraint.isInScenario(scenario)) {
+				Annotation ann = element.getAnnotation(constraint.getAnnotationType());
+				for(Class<? extends CsConstraintValidator<?>> c : constraint.getValidatedBy())
+					validators.add(CsValidator.create(c, ann, scenario));
+			}
+		}
+		
+		return validators;
+	}
+	
+	
+	// GETTERS -------
+	
+	public Class<?> getModelType() {
+		return modelType;
+	}
+	
+	/**
+	 * @return	<code>true</code> if the data has been read from a descriptor generated at build time.
+	 */
+	public boolean hasDescriptor() {
+		return descriptor != null;
+	}
+	
+	public CsModel getModelAnnotation() {
+		return modelType.getAnnotation(CsModel.class);
+	}
+	
+	/**
+	 * @return	the name of the collection of the model or <code>null</code> if it is not annotated with CsModel.
+	 */
+	public String getCollectionName() {
+		return collectionName;
+	}
+	
+	/**
+	 * @return	the key of the mongo client of the model or <code>null</code> if it is not annotated with CsModel.
+	 */
+	public String getMongoClient() {
+		return mongoClient;
+	}
+	
+	/**
+	 * @return	an unmodifiable list with all the public fields (attributes of the model).
+	 */
+	public List<Field> getFields() {
+		return fields;
+	}
+	
+	/**
+	 * @param name	the name of the attribute.
+	 * @return		the public field with the name listed in parameters or <code>null</code> if it does not exist.
+	 */
+	public Field getField(String name) {
+		return fieldsByName.get(name);
+	}
+	
+	/**
+	 * @param name	the name of the attribute.
+	 * @return		the accessor of the attribute or <code>null</code> if it is not an attribute of the model.
+	 */
+	public CsFieldAccessor getAccessor(String name) {
+		return accessors.get(name);
+	}
+	
+	public Set<String> getNotSaveFields() {
+		return notSaveFields;
+	}
+	
+	public List<Field> getSearchableFields() {
+		return searchableFields;
+	}
+	
+	/**
+	 * @return	an unmodifiable list with the attributes annotated with @Sequence.
+	 */
+	public List<Field> getSequenceFields() {
+		return sequenceFields;
+	}
+	
+	/**
+	 * @param name	the name of the relation field.
+	 * @return		the relation or <code>null</code> if the model has not a relation with the name.
+	 */
+	public CsRelation getRelation(String name) {
+		return relations.get(name);
+	}
+	
+	/**
+	 * @return	an unmodifiable map with the relations of the model by name.
+	 */
+	public Map<String, CsRelation> getRelations() {
+		return relations;
+	}
+	
+	/**
+	 * @param attribute	the name of the attribute.
+	 * @return			the scenarios of the @Safe annotation of the attribute or <code>null</code> if it is not annotated.
+	 */
+	String[] getSafeScenarios(String attribute) {
+		return safeScenarios.get(attribute);
+	}
+	
+	List<CsConstraintDescriptor> getModelConstraints() {
+		return modelConstraints;
+	}
+	
+	List<CsConstraintDescriptor> getConstraints(String attribute) {
+		List<CsConstraintDescriptor> result = fieldsConstraints.get(attribute);
+		
+		return result != null ? result : Collections.<CsConstraintDescriptor>emptyList();
+	}
+	
+	/**
+	 * Gets the metadata of the scenario listed in parameters, building it if it is the first time
+	 * that the scenario is used with this model.
+	 * 
+	 * @param scenario	the scenario (can be <code>null</code>).
+	 * @return			the metadata of the scenario.
+	 */
+	public CsScenarioMetadata getScenario(String scenario) {
+		Object key = scenario != null ? scenario : NULL_SCENARIO;
+		CsScenarioMetadata result = scenarios.get(key);
+		if(result == null)
+			result = scenarios.computeIfAbsent(key, k -> new CsScenarioMetadata(this, scenario));
+		
+		return result;
+	}
+	
+	/**
+	 * Get all the public methods of the model that have the annotation listed in parameters.
+	 * 
+	 * @param annotation	the annotation that the methods should have.
+	 * @return				an unmodifiable list of the methods with the listed annotation.
+	 */
+	public List<Method> getMethodsAnnotatedWith(Class<? extends Annotation> annotation) {
+		List<Method> result = annotatedMethods.get(annotation);
+		
+		if(result == null) {
+			result = annotatedMethods.computeIfAbsent(annotation, a -> {
+				List<Method> methods = new ArrayList<Method>();
+				
+				for(Method m : modelType.getMethods()) {
+					if(m.isAnnotationPresent(a)) {
+						methods.add(m);
+					}
+				}
+				
+				return Collections.unmodifiableList(methods);
+			});
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Gets the invokers of the methods of the model annotated with the event annotation listed in parameters.
+	 * 
+	 * @param annotation	the event annotation.
+	 * @return				an unmodifiable list of invokers.
+	 */
+	public List<CsHookInvoker> getHookInvokers(Class<? extends Annotation> annotation) {
+		List<CsHookInvoker> result = hooks.get(annotation);
+		
+		if(result == null) {
+			result = hooks.computeIfAbsent(annotation, a -> {
+				if(descriptor != null)
+					return Collections.<CsHookInvoker>emptyList();
+				
+				List<CsHookInvoker> invokers = new ArrayList<CsHookInvoker>();
+				for(Method m : getMethodsAnnotatedWith(a))
+					invokers.add(createInvoker(m));
+				
+				return Collections.unmodifiableList(invokers);
+			});
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Gets the invokers of the methods of the model annotated with the event annotation of a list of
+	 * models listed in parameters. They are always read from the methods of the model, as the
+	 * descriptors only have the events of a model.
+	 * 
+	 * @param annotation	the event annotation.
+	 * @return				an unmodifiable list of invokers.
+	 */
+	public List<CsListHookInvoker> getListHookInvokers(Class<? extends Annotation> annotation) {
+		List<CsListHookInvoker> result = listHooks.get(annotation);
+		
+		if(result == null) {
+			result = listHooks.computeIfAbsent(annotation, a -> {
+				List<CsListHookInvoker> invokers = new ArrayList<CsListHookInvoker>();
+				for(Method m : getMethodsAnnotatedWith(a))
+					invokers.add(createListInvoker(m));
+				
+				return Collections.unmodifiableList(invokers);
+			});
+		}
+		
+		return result;
+	}
+	
+}
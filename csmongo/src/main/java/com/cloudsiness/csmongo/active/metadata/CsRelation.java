@@ -0,0 +1,141 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.cloudsiness.csmongo.active.CsActiveRecord;
+import com.cloudsiness.csmongo.active.annotations.relations.BelongsTo;
+import com.cloudsiness.csmongo.active.annotations.relations.HasMany;
+import com.cloudsiness.csmongo.active.annotations.relations.ReferencesMany;
+
+/**
+ * A field of a model annotated with a relation annotation (@BelongsTo, @ReferencesMany or @HasMany):
+ * the kind of the relation, the type of the related models and the attribute that links them.
+ */
+public class CsRelation {
+	
+	public enum Kind {
+		
+		/**
+		 * The model keeps the id of one related model.
+		 */
+		BELONGS_TO,
+		
+		/**
+		 * The model keeps a list of ids of related models.
+		 */
+		REFERENCES_MANY,
+		
+		/**
+		 * The related models keep the id of the model.
+		 */
+		HAS_MANY
+		
+	}
+	
+	
+	private final Field field;
+	
+	private final Kind kind;
+	
+	private final Class<?> relatedType;
+	
+	/**
+	 * The attribute of the model with the ids (BELONGS_TO and REFERENCES_MANY) or the foreign key of
+	 * the related models (HAS_MANY).
+	 */
+	private final String key;
+	
+	
+	// CONSTRUCTORS -------
+	
+	private CsRelation(Field field, Kind kind, Class<?> relatedType, String key) {
+		this.field = field;
+		this.kind = kind;
+		this.relatedType = relatedType;
+		this.key = key;
+	}
+	
+	/**
+	 * Reads the relation of the field listed in parameters.
+	 *
+	 * @param f	a field of a model.
+	 * @return	the relation or <code>null</code> if the field has not a relation annotation.
+	 * @throws IllegalStateException	if the type of the field can not hold the related models.
+	 */
+	static CsRelation of(Field f) {
+		CsRelation relation;
+		if(f.isAnnotationPresent(BelongsTo.class))
+			relation = new CsRelation(f, Kind.BELONGS_TO, f.getType(), f.getAnnotation(BelongsTo.class).attribute());
+		else if(f.isAnnotationPresent(ReferencesMany.class))
+			relation = new CsRelation(f, Kind.REFERENCES_MANY, getElementType(f), f.getAnnotation(ReferencesMany.class).attribute());
+		else if(f.isAnnotationPresent(HasMany.class))
+			relation = new CsRelation(f, Kind.HAS_MANY, getElementType(f), f.getAnnotation(HasMany.class).foreignKey());
+		else
+			return null;
+		
+		if(relation.relatedType == null || !CsActiveRecord.class.isAssignableFrom(relation.relatedType))
+			throw new IllegalStateException("The relation " + f.getName() + " of " + f.getDeclaringClass().getName() + " must hold CsActiveRecord models");
+		
+		return relation;
+	}
+	
+	/**
+	 * @return	if the field listed in parameters has a relation annotation.
+	 */
+	static boolean isRelation(Field f) {
+		return f.isAnnotationPresent(BelongsTo.class) || f.isAnnotationPresent(ReferencesMany.class) || f.isAnnotationPresent(HasMany.class);
+	}
+	
+	
+	// GETTERS -------
+	
+	public String getName() {
+		return field.getName();
+	}
+	
+	public Field getField() {
+		return field;
+	}
+	
+	public Kind getKind() {
+		return kind;
+	}
+	
+	public Class<?> getRelatedType() {
+		return relatedType;
+	}
+	
+	public String getKey() {
+		return key;
+	}
+	
+	/**
+	 * Sets the related models (a model or a list of models) of the model listed in parameters.
+	 */
+	public void set(Object model, Object value) {
+		try {
+			field.set(model, value);
+		} catch (IllegalArgumentException | IllegalAccessException e) {
+			throw new IllegalStateException("The relation " + getName() + " can not be set", e);
+		}
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * @return	the type of the elements of a List field or <code>null</code> if it is not a List of a class.
+	 */
+	private static Class<?> getElementType(Field f) {
+		if(!List.class.equals(f.getType()) || !(f.getGenericType() instanceof ParameterizedType))
+			return null;
+		
+		Type element = ((ParameterizedType) f.getGenericType()).getActualTypeArguments()[0];
+		
+		return element instanceof Class ? (Class<?>) element : null;
+	}
+	
+}
@@ -0,0 +1,119 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.cloudsiness.csmongo.active.validators.CsValidator;
+import com.cloudsiness.csmongo.active.validators.required.Required;
+
+/**
+ * Reflection data of a model class that depends on the validation scenario: the safe attributes,
+ * the validators of the model and the validators of each attribute.
+ */
+public class CsScenarioMetadata {
+	
+	private final String scenario;
+	
+	/**
+	 * The validators annotated in the model class.
+	 */
+	private final List<CsValidator> modelValidators;
+	
+	/**
+	 * The validators of each attribute.
+	 */
+	private final Map<Field, List<CsValidator>> fieldsValidators;
+	
+	/**
+	 * The attributes that have the @Safe annotation or some validator annotation in the scenario.
+	 */
+	private final List<Field> safeFields;
+	
+	private final Set<String> safeFieldNames;
+	
+	/**
+	 * The safe attributes annotated with @Required in the scenario.
+	 */
+	private final List<String> requiredFields;
+	
+	
+	CsScenarioMetadata(CsModelMetadata metadata, String scenario) {
+		this.scenario = scenario;
+		this.modelValidators = Collections.unmodifiableList(
+				CsModelMetadata.buildValidators(metadata.getModelType(), metadata.getModelConstraints(), scenario));
+		
+		Map<Field, List<CsValidator>> fieldsValidators = new LinkedHashMap<Field, List<CsValidator>>();
+		List<Field> safeFields = new ArrayList<Field>();
+		Set<String> safeFieldNames = new HashSet<String>();
+		List<String> requiredFields = new ArrayList<String>();
+		
+		for(Field f : metadata.getFields()) {
+			List<CsConstraintDescriptor> constraints = metadata.getConstraints(f.getName());
+			List<CsValidator> validators = CsModelMetadata.buildValidators(f, constraints, scenario);
+			fieldsValidators.put(f, validators.isEmpty() ? Collections.<CsValidator>emptyList() : Collections.unmodifiableList(validators));
+			
+			String[] safeScenarios = metadata.getSafeScenarios(f.getName());
+			if(!validators.isEmpty() || (safeScenarios != null && CsModelMetadata.isInScenario(safeScenarios, scenario))) {
+				safeFields.add(f);
+				safeFieldNames.add(f.getName());
+				
+				for(CsConstraintDescriptor constraint : constraints) {
+					if(constraint.getAnnotationType() == Required.class && constraint.isInScenario(scenario)) {
+						requiredFields.add(f.getName());
+						break;
+					}
+				}
+			}
+		}
+		
+		this.fieldsValidators = Collections.unmodifiableMap(fieldsValidators);
+		this.safeFields = Collections.unmodifiableList(safeFields);
+		this.safeFieldNames = safeFieldNames;
+		this.requiredFields = Collections.unmodifiableList(requiredFields);
+	}
+	
+	
+	public String getScenario() {
+		return scenario;
+	}
+	
+	public List<CsValidator> getModelValidators() {
+		return modelValidators;
+	}
+	
+	public Map<Field, List<CsValidator>> getFieldsValidators() {
+		return fieldsValidators;
+	}
+	
+	/**
+	 * @param f	the field for to looking for validators.
+	 * @return	the validators of the field in the scenario. If the field is not an attribute of
+	 * 			the model, its annotations are read.
+	 */
+	public List<CsValidator> getValidators(Field f) {
+		List<CsValidator> result = fieldsValidators.get(f);
+		if(result != null)
+			return result;
+		
+		return CsModelMetadata.buildValidators(f, scenario);
+	}
+	
+	public List<Field> getSafeFields() {
+		return safeFields;
+	}
+	
+	public boolean isSafe(String attribute) {
+		return safeFieldNames.contains(attribute);
+	}
+	
+	public List<String> getRequiredFields() {
+		return requiredFields;
+	}
+	
+}
@@ -1,5 +1,9 @@
 package com.cloudsiness.csmongo.criteria;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.FindOptions;
 
@@ -9,14 +13,21 @@ public class CsCriteria {
 	
 	private FindOptions options;
 	
+	/**
+	 * The paths of the relations populated in the found models.
+	 */
+	private List<String> with;
+	
 	public CsCriteria() {
 		query = new JsonObject();
 		options = new FindOptions();
+		with = new ArrayList<String>();
 	}
 	
 	public CsCriteria(JsonObject query, FindOptions options) {
 		this.query = query;
 		this.options = options;
+		this.with = new ArrayList<String>();
 	}
 	
 	public CsCriteria addCondition(String key, Object value) {
@@ -114,4 +125,26 @@ public class CsCriteria {
 	public FindOptions getOptions() {
 		return options;
 	}
+	
+	/**
+	 * Sets the relations that are populated in the found models (eager loading), as <code>"author",
+	 * "author.company"</code>.
+	 * 
+	 * @see com.cloudsiness.csmongo.active.CsActiveRecord#populate(List, List, io.vertx.core.Handler)
+	 */
+	public CsCriteria setWith(String... paths) {
+		this.with = new ArrayList<String>(Arrays.asList(paths));
+		
+		return this;
+	}
+	
+	public CsCriteria addWith(String path) {
+		with.add(path);
+		
+		return this;
+	}
+	
+	public List<String> getWith() {
+		return with;
+	}
 }
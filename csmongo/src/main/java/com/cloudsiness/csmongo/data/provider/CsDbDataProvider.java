@@ -147,6 +147,17 @@ public class CsDbDataProvider<T extends CsActiveRecord<T>> implements CsDataProv
 		return this;
 	}
 
+	/**
+	 * Sets the relations that are populated in the models of each page.
+	 * 
+	 * @see CsCriteria#setWith(String...)
+	 */
+	public CsDbDataProvider<T> setWith(String... paths) {
+		criteria.setWith(paths);
+		
+		return this;
+	}
+
 	@Override
 	public CsDataProvider<T> setCurrentPage(int currentPage) {
 		pagination.setCurrentPage(currentPage);
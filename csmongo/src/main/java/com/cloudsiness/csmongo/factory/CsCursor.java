@@ -0,0 +1,71 @@
+package com.cloudsiness.csmongo.factory;
+
+import java.util.List;
+
+import com.mongodb.async.AsyncBatchCursor;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * A server cursor opened with {@link CsMongoClient#findBatches}. The documents are read in batches,
+ * and a batch is only requested to the server when {@link #next(Handler)} is called, so the reader
+ * decides when it reads more documents. The handlers are run in the context in which the cursor was
+ * opened.
+ *
+ * @param <D>	the class of the documents (JsonObject or RawBsonDocument).
+ */
+public class CsCursor<D> {
+	
+	private final AsyncBatchCursor<D> cursor;
+	
+	private final Context context;
+	
+	
+	// CONSTRUCTORS -------
+	
+	/**
+	 * @param cursor	the cursor of the driver.
+	 * @param context	the context in which the handlers are run.
+	 */
+	public CsCursor(AsyncBatchCursor<D> cursor, Context context) {
+		this.cursor = cursor;
+		this.context = context;
+	}
+	
+	
+	// METHODS -------
+	
+	/**
+	 * Reads the next batch of documents.
+	 *
+	 * @param handler	the handler of the batch, or of <code>null</code> if there are not more documents.
+	 */
+	public void next(Handler<AsyncResult<List<D>>> handler) {
+		if(cursor.isClosed()) {
+			handler.handle(Future.succeededFuture());
+			return;
+		}
+		
+		cursor.next((result, error) -> context.runOnContext(v -> {
+			if(error != null)
+				handler.handle(Future.failedFuture(error));
+			else
+				handler.handle(Future.succeededFuture(result));
+		}));
+	}
+	
+	/**
+	 * Closes the cursor in the server. It must be called if the documents are not read until the end.
+	 */
+	public void close() {
+		cursor.close();
+	}
+	
+	public boolean isClosed() {
+		return cursor.isClosed();
+	}
+	
+}
@@ -0,0 +1,267 @@
+package com.cloudsiness.csmongo.factory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.async.client.FindIterable;
+import com.mongodb.async.client.MongoCollection;
+import com.mongodb.async.client.MongoDatabase;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.impl.JsonObjectBsonAdapter;
+import io.vertx.ext.mongo.impl.MongoClientImpl;
+import io.vertx.ext.mongo.impl.config.MongoClientOptionsParser;
+
+/**
+ * The mongo client created by {@link CsMongoFactory}. Besides the methods of the vert.x mongo client,
+ * it has methods that read the documents as BSON documents and save BSON documents, so the models
+ * can be read and saved without converting the documents to JSON objects, and a method that runs many
+ * writes in only one request.
+ * <p>
+ * The queries, sorts and projections are JSON objects, converted as the vert.x mongo client converts
+ * them. The handlers are run in the context of the caller, as the vert.x mongo client runs them.
+ */
+public class CsMongoClient extends MongoClientImpl {
+	
+	/**
+	 * The size of the _id field of a BSON document: the type, the name and the ObjectId.
+	 */
+	private static final int ID_FIELD_SIZE = 1 + 4 + 12;
+	
+	private final Vertx vertx;
+	
+	private final MongoDatabase database;
+	
+	
+	// CONSTRUCTORS -------
+	
+	/**
+	 * @param vertx				the running vertx.
+	 * @param config			the configuration of the vert.x mongo client.
+	 * @param dataSourceName	the name of the pool with which the client is shared.
+	 */
+	public CsMongoClient(Vertx vertx, JsonObject config, String dataSourceName) {
+		super(vertx, config, dataSourceName);
+		
+		this.vertx = vertx;
+		this.database = mongo.getDatabase(new MongoClientOptionsParser(config).database());
+	}
+	
+	
+	// BSON METHODS -------
+	
+	/**
+	 * Finds the documents that match the query, without converting them to JSON objects.
+	 *
+	 * @param collection	the name of the collection.
+	 * @param query			the query.
+	 * @param options		the options (can be <code>null</code>).
+	 * @param handler		the handler of the found documents.
+	 */
+	public void findBson(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<RawBsonDocument>>> handler) {
+		FindIterable<RawBsonDocument> find = getRawCollection(collection).find(filter(query));
+		
+		if(options != null) {
+			if(options.getLimit() != -1)
+				find.limit(options.getLimit());
+			if(options.getSkip() > 0)
+				find.skip(options.getSkip());
+			if(options.getSort() != null)
+				find.sort(new JsonObjectBsonAdapter(options.getSort()));
+			if(options.getFields() != null)
+				find.projection(new JsonObjectBsonAdapter(options.getFields()));
+		}
+		
+		find.into(new ArrayList<RawBsonDocument>(), callback(handler));
+	}
+	
+	/**
+	 * Opens a cursor over the documents that match the query, which reads them in batches when the
+	 * caller asks for them, instead of reading all of them at once.
+	 *
+	 * @param collection	the name of the collection.
+	 * @param documentClass	the class of the documents (JsonObject or RawBsonDocument).
+	 * @param query			the query.
+	 * @param options		the options (can be <code>null</code>).
+	 * @param batchSize		the number of documents of each batch.
+	 * @param handler		the handler of the cursor.
+	 */
+	public <D> void findBatches(String collection, Class<D> documentClass, JsonObject query, FindOptions options, int batchSize, Handler<AsyncResult<CsCursor<D>>> handler) {
+		FindIterable<D> find = database.getCollection(collection, documentClass).find(filter(query));
+		
+		if(options != null) {
+			if(options.getLimit() != -1)
+				find.limit(options.getLimit());
+			if(options.getSkip() > 0)
+				find.skip(options.getSkip());
+			if(options.getSort() != null)
+				find.sort(new JsonObjectBsonAdapter(options.getSort()));
+			if(options.getFields() != null)
+				find.projection(new JsonObjectBsonAdapter(options.getFields()));
+		}
+		
+		Context context = vertx.getOrCreateContext();
+		find.batchSize(batchSize).batchCursor(callback(res -> {
+			if(res.failed())
+				handler.handle(Future.failedFuture(res.cause()));
+			else
+				handler.handle(Future.succeededFuture(new CsCursor<D>(res.result(), context)));
+		}));
+	}
+	
+	/**
+	 * Finds the first document that matches the query, without converting it to a JSON object.
+	 *
+	 * @param collection	the name of the collection.
+	 * @param query			the query.
+	 * @param fields		the fields of the document that are returned (can be <code>null</code>).
+	 * @param handler		the handler of the found document (<code>null</code> if there is not any).
+	 */
+	public void findOneBson(String collection, JsonObject query, JsonObject fields, Handler<AsyncResult<RawBsonDocument>> handler) {
+		FindIterable<RawBsonDocument> find = getRawCollection(collection).find(filter(query));
+		
+		if(fields != null)
+			find.projection(new JsonObjectBsonAdapter(fields));
+		
+		find.first(callback(handler));
+	}
+	
+	/**
+	 * Saves the document as the vert.x mongo client saves the JSON objects: the document is inserted
+	 * if it has not _id and it is replaced (or inserted) if it has _id.
+	 *
+	 * @param collection	the name of the collection.
+	 * @param document		the document.
+	 * @param handler		the handler of the ID of the inserted document (<code>null</code> if it had _id).
+	 */
+	public void saveBson(String collection, RawBsonDocument document, Handler<AsyncResult<String>> handler) {
+		MongoCollection<RawBsonDocument> coll = getRawCollection(collection);
+		BsonValue id = document.get("_id");
+		
+		if(id == null) {
+			ObjectId newId = new ObjectId();
+			
+			coll.insertOne(withId(document, newId), callback(res -> {
+				if(res.failed())
+					handler.handle(Future.failedFuture(res.cause()));
+				else
+					handler.handle(Future.succeededFuture(newId.toHexString()));
+			}));
+		} else {
+			coll.replaceOne(new BsonDocument("_id", id), document, new UpdateOptions().upsert(true), callback(res -> {
+				if(res.failed())
+					handler.handle(Future.failedFuture(res.cause()));
+				else
+					handler.handle(Future.succeededFuture());
+			}));
+		}
+	}
+	
+	/**
+	 * Updates the first document that matches the query.
+	 *
+	 * @param collection	the name of the collection.
+	 * @param query			the query.
+	 * @param update		the update (for example, {$set: {...}}).
+	 * @param handler		the handler run after the update.
+	 */
+	public void updateBson(String collection, JsonObject query, BsonDocument update, Handler<AsyncResult<Void>> handler) {
+		database.getCollection(collection, BsonDocument.class).updateOne(filter(query), update, callback(res -> {
+			if(res.failed())
+				handler.handle(Future.failedFuture(res.cause()));
+			else
+				handler.handle(Future.succeededFuture());
+		}));
+	}
+	
+	
+	/**
+	 * Runs the writes listed in parameters in only one request (the driver splits it if it is too big).
+	 * If some write fails, the handler fails with a MongoBulkWriteException that has the errors of the
+	 * writes (with their positions in the list) and the result of the other writes.
+	 *
+	 * @param collection	the name of the collection.
+	 * @param documentClass	the class of the documents of the writes (JsonObject or RawBsonDocument).
+	 * @param writes		the writes.
+	 * @param ordered		if the writes are run in order, stopping in the first one that fails.
+	 * @param handler		the handler of the result.
+	 */
+	public <D> void bulkWrite(String collection, Class<D> documentClass, List<? extends WriteModel<? extends D>> writes, boolean ordered, Handler<AsyncResult<BulkWriteResult>> handler) {
+		database.getCollection(collection, documentClass).bulkWrite(writes, new BulkWriteOptions().ordered(ordered), callback(handler));
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private MongoCollection<RawBsonDocument> getRawCollection(String collection) {
+		return database.getCollection(collection, RawBsonDocument.class);
+	}
+	
+	/**
+	 * Adds the _id to the document as its first field, copying the bytes of the document.
+	 */
+	private static RawBsonDocument withId(RawBsonDocument document, ObjectId id) {
+		ByteBuffer source = document.getByteBuffer().asNIO();
+		int size = source.remaining() + ID_FIELD_SIZE;
+		
+		ByteBuffer result = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		result.putInt(size);
+		result.put((byte) BsonType.OBJECT_ID.getValue());
+		result.put(new byte[] { '_', 'i', 'd', 0 });
+		result.put(id.toByteArray());
+		source.position(source.position() + 4);
+		result.put(source);
+		
+		return new RawBsonDocument(result.array());
+	}
+	
+	/**
+	 * Converts the query as the vert.x mongo client does: if the client uses ObjectIds, an _id that is
+	 * a valid ObjectId string is an ObjectId.
+	 */
+	public Bson filter(JsonObject query) {
+		if(query == null)
+			query = new JsonObject();
+		
+		Object id = query.getValue("_id");
+		if(useObjectId && id instanceof String && ObjectId.isValid((String) id))
+			query = query.copy().put("_id", new JsonObject().put("$oid", id));
+		
+		return new JsonObjectBsonAdapter(query);
+	}
+	
+	/**
+	 * @return	a callback that runs the handler in the current context.
+	 */
+	private <R> SingleResultCallback<R> callback(Handler<AsyncResult<R>> handler) {
+		Context context = vertx.getOrCreateContext();
+		
+		return (result, error) -> context.runOnContext(v -> {
+			if(error != null)
+				handler.handle(Future.failedFuture(error));
+			else
+				handler.handle(Future.succeededFuture(result));
+		});
+	}
+	
+}
@@ -2,6 +2,7 @@ package com.cloudsiness.csmongo.factory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import com.cloudsiness.csmongo.factory.exceptions.CsClientNotInitializedException;
 
@@ -11,6 +12,8 @@ import io.vertx.ext.mongo.MongoClient;
 
 /**
  * Initializes and saves the mongo clients. Allow the access to all the mongo clients from anywhere statically.
+ * The clients are instances of {@link CsMongoClient}, created as the vert.x mongo clients are created
+ * (shared or not shared).
  * 
  * @author 	Rogelio R. Orts Cansino
  * @version 0.1
@@ -52,9 +55,9 @@ public class CsMongoFactory {
 		if(authSource != null)
 			mongoConfig.put("authSource", authSource);
 		if(pool != null)
-			client = MongoClient.createShared(vertx, mongoConfig, pool);
+			client = new CsMongoClient(vertx, mongoConfig, pool);
 		else
-			client = MongoClient.createNonShared(vertx, mongoConfig);
+			client = new CsMongoClient(vertx, mongoConfig, UUID.randomUUID().toString());
 		
 		clients.put(key, client);
 	}
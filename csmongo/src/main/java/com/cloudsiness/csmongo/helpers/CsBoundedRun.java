@@ -0,0 +1,147 @@
+package com.cloudsiness.csmongo.helpers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+import com.cloudsiness.csmongo.helpers.exceptions.CsItemsFailed;
+import com.cloudsiness.csmongo.helpers.functions.Consumer2;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * Runs a function for some items with a limit of items running at the same time: the function is run
+ * for the next item when it finishes for a previous one. The items are taken from their iterator only
+ * when they are going to run, so an iterator that produces them is not read faster than they finish.
+ * The items are started in a loop (not recursively), so the functions that finish at once do not grow
+ * the stack.
+ *
+ * @param <T>	the type of the items.
+ * @param <R>	the type of the results of the function.
+ * @see CsFutureHelper#doInItems(Iterable, CsBoundedRunOptions, Consumer2, Handler)
+ */
+public class CsBoundedRun<T, R> {
+	
+	private final Iterator<T> items;
+	private final CsBoundedRunOptions options;
+	private final Consumer2<T, Future<R>> function;
+	private final Handler<AsyncResult<List<R>>> handler;
+	
+	private final List<R> results;
+	
+	/**
+	 * The errors of the items, when the run collects all of them.
+	 */
+	private final TreeMap<Integer, Throwable> causes;
+	
+	private int next;
+	private int running;
+	private boolean starting;
+	private boolean finished;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsBoundedRun(Iterator<T> items, CsBoundedRunOptions options, Consumer2<T, Future<R>> function, Handler<AsyncResult<List<R>>> handler) {
+		this.items = items;
+		this.options = options;
+		this.function = function;
+		this.handler = handler;
+		this.results = new ArrayList<R>();
+		this.causes = new TreeMap<Integer, Throwable>();
+	}
+	
+	
+	// CONTROL -------
+	
+	/**
+	 * Stops the run: the function is not run for the next items and the handler fails with a
+	 * CancellationException. The functions that are running are not stopped, but their results are
+	 * discarded. It does nothing if the run has finished.
+	 */
+	public void cancel() {
+		finish(Future.failedFuture(new CancellationException("The run has been cancelled")));
+	}
+	
+	/**
+	 * @return	if the handler has been run (the run has finished, failed or been cancelled).
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+	
+	/**
+	 * @return	the number of items for which the function is running.
+	 */
+	public int getRunning() {
+		return running;
+	}
+	
+	
+	// RUN -------
+	
+	void runNext() {
+		starting = true;
+		while(!finished && running < options.getLimit() && items.hasNext()) {
+			T item = items.next();
+			int index = next++;
+			running++;
+			
+			if(options.isOrdered())
+				results.add(null);
+			
+			Future<R> f = Future.future();
+			f.setHandler(res -> onItemFinished(index, res));
+			
+			try {
+				function.accept(item, f);
+			} catch(Exception e) {
+				f.tryFail(e);
+			}
+		}
+		starting = false;
+		
+		if(!finished && running == 0 && !items.hasNext()) {
+			if(causes.isEmpty())
+				finish(Future.succeededFuture(results));
+			else
+				finish(Future.failedFuture(new CsItemsFailed(causes, results)));
+		}
+	}
+	
+	private void onItemFinished(int index, AsyncResult<R> res) {
+		running--;
+		
+		if(finished)
+			return;
+		
+		if(res.failed()) {
+			if(options.isFailFast()) {
+				finish(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			causes.put(index, res.cause());
+		} else if(options.isOrdered()) {
+			results.set(index, res.result());
+		} else {
+			results.add(res.result());
+		}
+		
+		if(!starting)
+			runNext();
+	}
+	
+	private void finish(AsyncResult<List<R>> result) {
+		if(finished)
+			return;
+		
+		finished = true;
+		handler.handle(result);
+	}
+	
+}
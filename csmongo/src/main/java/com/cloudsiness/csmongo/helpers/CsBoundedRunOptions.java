@@ -0,0 +1,98 @@
+package com.cloudsiness.csmongo.helpers;
+
+/**
+ * The options of {@link CsFutureHelper#doInItems(Iterable, CsBoundedRunOptions, com.cloudsiness.csmongo.helpers.functions.Consumer2, io.vertx.core.Handler)}.
+ */
+public class CsBoundedRunOptions {
+	
+	public static final int DEFAULT_LIMIT = 32;
+	
+	/**
+	 * The limit of the runs that do not set one, as the internal runs of the library (the
+	 * validators of the models, their hooks...).
+	 */
+	private static volatile int defaultLimit = DEFAULT_LIMIT;
+	
+	
+	private int limit;
+	
+	private boolean ordered;
+	
+	private boolean failFast;
+	
+	
+	public CsBoundedRunOptions() {
+		this.limit = defaultLimit;
+		this.ordered = true;
+		this.failFast = true;
+	}
+	
+	/**
+	 * Copies the options.
+	 */
+	public CsBoundedRunOptions(CsBoundedRunOptions other) {
+		this.limit = other.limit;
+		this.ordered = other.ordered;
+		this.failFast = other.failFast;
+	}
+	
+	
+	public static int getDefaultLimit() {
+		return defaultLimit;
+	}
+	
+	/**
+	 * @param limit	the limit of the runs that do not set one.
+	 */
+	public static void setDefaultLimit(int limit) {
+		if(limit < 1)
+			throw new IllegalArgumentException("The limit must be greater than 0");
+		
+		defaultLimit = limit;
+	}
+	
+	public int getLimit() {
+		return limit;
+	}
+	
+	/**
+	 * @param limit	the maximum number of items for which the function is running at the same time.
+	 */
+	public CsBoundedRunOptions setLimit(int limit) {
+		if(limit < 1)
+			throw new IllegalArgumentException("The limit must be greater than 0");
+		
+		this.limit = limit;
+		
+		return this;
+	}
+	
+	public boolean isOrdered() {
+		return ordered;
+	}
+	
+	/**
+	 * @param ordered	if the results are in the order of their items (by default) or in the order in
+	 * 					which the function finishes.
+	 */
+	public CsBoundedRunOptions setOrdered(boolean ordered) {
+		this.ordered = ordered;
+		
+		return this;
+	}
+	
+	public boolean isFailFast() {
+		return failFast;
+	}
+	
+	/**
+	 * @param failFast	if the run stops with the first error (by default) or it runs the function for
+	 * 					all the items and then fails with {@link com.cloudsiness.csmongo.helpers.exceptions.CsItemsFailed}.
+	 */
+	public CsBoundedRunOptions setFailFast(boolean failFast) {
+		this.failFast = failFast;
+		
+		return this;
+	}
+	
+}
@@ -1,6 +1,7 @@
 package com.cloudsiness.csmongo.helpers;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import com.cloudsiness.csmongo.helpers.functions.Consumer2;
@@ -11,51 +12,88 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 
 public class CsFutureHelper {
-
+	
 	public static CsFutureHelper helper() {
 		return new CsFutureHelper();
 	}
 	
-	@SuppressWarnings("rawtypes")
+	/**
+	 * Runs the function for all the items, with at most {@link CsBoundedRunOptions#getDefaultLimit()}
+	 * items at the same time.
+	 * 
+	 * @param iterable	the items.
+	 * @param function	the function, that completes or fails the future listed with the item.
+	 * @param handler	the handler of the result: <code>true</code> if the function has not completed
+	 * 					any future with <code>false</code>. It fails with the first error.
+	 */
 	public <T> void doInItems(Iterable<T> iterable, Consumer2<T, Future<Boolean>> function, Handler<AsyncResult<Boolean>> handler) {
-		List<Future> futures = new ArrayList<Future>();
-		
-		if(iterable != null) {
-			for(T item : iterable) {
-				Future<Boolean> f = Future.future();
-				futures.add(f);
-				
-				function.accept(item, f);
+		doInItems(iterable, new CsBoundedRunOptions().setOrdered(false), function, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
 			}
-		}
-		
-		if(futures.isEmpty()) {
-			handler.handle(Future.succeededFuture(true));
-			return;
-		}
-		
-		CompositeFuture.all(futures).setHandler(CsFutureHelper.helper().fromBooleanToComposite(futures, handler));
+			
+			handler.handle(Future.succeededFuture(!res.result().contains(Boolean.FALSE)));
+		});
 	}
 	
-	@SuppressWarnings("rawtypes")
+	/**
+	 * Runs the function for all the items, with at most {@link CsBoundedRunOptions#getDefaultLimit()}
+	 * items at the same time. The handler fails with the first error.
+	 * 
+	 * @see #doInItems(Iterable, CsBoundedRunOptions, Consumer2, Handler)
+	 */
 	public <T> void doInItemsVoid(Iterable<T> iterable, Consumer2<T, Future<Void>> function, Handler<AsyncResult<Void>> handler) {
-		List<Future> futures = new ArrayList<Future>();
-		
-		if(iterable != null) {
-			for(T item : iterable) {
-				Future<Void> f = Future.future();
-				futures.add(f);
-				
-				function.accept(item, f);
+		doInItemsVoid(iterable, new CsBoundedRunOptions(), function, handler);
+	}
+	
+	/**
+	 * Same as {@link #doInItemsVoid(Iterable, Consumer2, Handler)}, but the function is running for
+	 * at most <code>limit</code> items at the same time. When the function fails for an item, the next
+	 * items are not run and the handler fails with the same cause.
+	 * 
+	 * @param items		the items.
+	 * @param limit		the maximum number of items for which the function is running at the same time.
+	 * @param function	the function, that completes or fails the future listed with the item.
+	 * @param handler	the handler run when the function has finished for all the items.
+	 */
+	public <T> void doInItemsVoid(List<T> items, int limit, Consumer2<T, Future<Void>> function, Handler<AsyncResult<Void>> handler) {
+		doInItemsVoid(items, new CsBoundedRunOptions().setLimit(limit), function, handler);
+	}
+	
+	/**
+	 * Same as {@link #doInItems(Iterable, CsBoundedRunOptions, Consumer2, Handler)}, for functions
+	 * without results.
+	 */
+	public <T> CsBoundedRun<T, Void> doInItemsVoid(Iterable<T> items, CsBoundedRunOptions options, Consumer2<T, Future<Void>> function, Handler<AsyncResult<Void>> handler) {
+		return doInItems(items, new CsBoundedRunOptions(options).setOrdered(false), function, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
 			}
-		}
-		
-		if(futures.isEmpty()) {
+			
 			handler.handle(Future.succeededFuture());
-			return;
-		}
+		});
+	}
+	
+	/**
+	 * Runs the function for the items with at most {@link CsBoundedRunOptions#getLimit()} items at the
+	 * same time, and collects the results. The returned run can be cancelled.
+	 * 
+	 * @param items		the items (<code>null</code> is the same as no items).
+	 * @param options	the options: the limit, if the results are ordered and if the run stops with
+	 * 					the first error.
+	 * @param function	the function, that completes or fails the future listed with the item.
+	 * @param handler	the handler of the results.
+	 * @return			the run.
+	 */
+	public <T, R> CsBoundedRun<T, R> doInItems(Iterable<T> items, CsBoundedRunOptions options, Consumer2<T, Future<R>> function, Handler<AsyncResult<List<R>>> handler) {
+		Iterator<T> iterator = items != null ? items.iterator() : Collections.<T>emptyIterator();
+		
+		CsBoundedRun<T, R> run = new CsBoundedRun<T, R>(iterator, options, function, handler);
+		run.runNext();
 		
-		CompositeFuture.all(futures).setHandler(CsFutureHelper.helper().fromVoidToComposite(handler));
+		return run;
 	}
 	
 	@SuppressWarnings({ "unchecked", "rawtypes" })
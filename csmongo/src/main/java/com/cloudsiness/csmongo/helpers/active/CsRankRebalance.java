@@ -0,0 +1,232 @@
+package com.cloudsiness.csmongo.helpers.active;
+
+import java.util.List;
+
+import com.cloudsiness.csmongo.active.CsActiveRecord;
+import com.cloudsiness.csmongo.active.CsBulkWrite;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+
+/**
+ * Rewrites the rank keys of a list as {@link CsRankedActiveRecordHelper#rebalance(JsonObject, Handler)}
+ * does, in batches, one batch after another, so only one batch is in memory at a time. The batches
+ * are read sorted by key and _id, starting after the last model of the previous batch, in two passes:
+ * <ol>
+ * <li>From the first model to the last one, each model gets its new key after a prefix of zeros
+ * longer than the zeros at the start of the first key, so the written models are sorted before the
+ * models that have not been read yet and are not read again.</li>
+ * <li>From the last model to the first one, the prefix is removed, so the written models are sorted
+ * after the models that have not been read yet.</li>
+ * </ol>
+ * The list keeps its order after each batch, so a failed rebalance can be run again.
+ */
+class CsRankRebalance {
+	
+	/**
+	 * The number of models read and written in each request.
+	 */
+	static final int BATCH_SIZE = 1000;
+	
+	
+	private final CsActiveRecord<?> finder;
+	
+	private final String attribute;
+	
+	private final JsonObject query;
+	
+	/**
+	 * The number of models of the list when the rebalance started.
+	 */
+	private final long count;
+	
+	private String prefix;
+	
+	private long index;
+	
+	private String lastKey;
+	
+	private String lastRank;
+	
+	private String lastId;
+	
+	
+	// CONSTRUCTORS -------
+	
+	CsRankRebalance(CsActiveRecord<?> finder, String attribute, JsonObject query, long count) {
+		this.finder = finder;
+		this.attribute = attribute;
+		this.query = query;
+		this.count = count;
+	}
+	
+	
+	// RUN -------
+	
+	/**
+	 * Runs the two passes.
+	 *
+	 * @param handler	the handler. It fails with the first error, and the next batches are not
+	 * 					written.
+	 */
+	void run(Handler<AsyncResult<Void>> handler) {
+		finder.findAll(batchQuery(null, "$gt"), findOptions(1), res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			List<? extends CsActiveRecord<?>> models = res.result();
+			if(models.isEmpty()) {
+				if(prefix == null) {
+					handler.handle(Future.succeededFuture());
+				} else {
+					lastRank = null;
+					lastId = null;
+					strip(handler);
+				}
+				return;
+			}
+			
+			if(prefix == null)
+				prefix = zeros(leadingZeros(models.get(0).getAttributeValue(attribute)) + 1);
+			
+			CsBulkWrite bulk = finder.bulkWrite().setOrdered(false);
+			for(CsActiveRecord<?> model : models) {
+				lastKey = index < count ? CsRankedActiveRecordHelper.spacedKey(index, count) : CsRankedActiveRecordHelper.keyBetween(lastKey, null);
+				index++;
+				
+				bulk.updateOne(idQuery(model), new JsonObject().put("$set", new JsonObject().put(attribute, prefix + lastKey)));
+			}
+			
+			writeBatch(models, bulk, false, handler);
+		});
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Removes the prefix of the keys, from the last model to the first one.
+	 */
+	private void strip(Handler<AsyncResult<Void>> handler) {
+		JsonObject prefixed = new JsonObject().put(attribute, new JsonObject()
+				.put("$gte", prefix)
+				.put("$lt", zeros(prefix.length() - 1) + CsRankedActiveRecordHelper.DIGITS.charAt(1)));
+		
+		finder.findAll(batchQuery(prefixed, "$lt"), findOptions(-1), res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			List<? extends CsActiveRecord<?>> models = res.result();
+			if(models.isEmpty()) {
+				handler.handle(Future.succeededFuture());
+				return;
+			}
+			
+			CsBulkWrite bulk = finder.bulkWrite().setOrdered(false);
+			for(CsActiveRecord<?> model : models) {
+				String rank = model.getAttributeValue(attribute);
+				bulk.updateOne(idQuery(model), new JsonObject().put("$set", new JsonObject().put(attribute, rank.substring(prefix.length()))));
+			}
+			
+			writeBatch(models, bulk, true, handler);
+		});
+	}
+	
+	/**
+	 * Writes the batch, and reads the next one if the batch is full. After the last batch of the
+	 * first pass, the second pass starts from the last model.
+	 */
+	private void writeBatch(List<? extends CsActiveRecord<?>> models, CsBulkWrite bulk, boolean stripping, Handler<AsyncResult<Void>> handler) {
+		CsActiveRecord<?> last = models.get(models.size() - 1);
+		lastRank = last.getAttributeValue(attribute);
+		lastId = last._id.toString();
+		
+		bulk.execute(res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			if(models.size() == BATCH_SIZE) {
+				if(stripping)
+					strip(handler);
+				else
+					run(handler);
+				return;
+			}
+			
+			lastRank = null;
+			lastId = null;
+			if(stripping)
+				handler.handle(Future.succeededFuture());
+			else
+				strip(handler);
+		});
+	}
+	
+	/**
+	 * @param condition	a condition added to the query (<code>null</code> if none).
+	 * @param operator	$gt to read the models after the last model, or $lt to read the models before it.
+	 * @return			the query of the next batch.
+	 */
+	private JsonObject batchQuery(JsonObject condition, String operator) {
+		JsonArray conditions = new JsonArray();
+		if(!query.isEmpty())
+			conditions.add(query);
+		if(condition != null)
+			conditions.add(condition);
+		
+		if(lastId != null) {
+			conditions.add(new JsonObject().put("$or", new JsonArray()
+					.add(new JsonObject().put(attribute, new JsonObject().put(operator, lastRank)))
+					.add(new JsonObject()
+							.put(attribute, lastRank)
+							.put("_id", new JsonObject().put(operator, new JsonObject().put("$oid", lastId))))));
+		}
+		
+		if(conditions.size() == 0)
+			return new JsonObject();
+		if(conditions.size() == 1)
+			return conditions.getJsonObject(0);
+		
+		return new JsonObject().put("$and", conditions);
+	}
+	
+	private FindOptions findOptions(int order) {
+		return new FindOptions()
+				.setSort(new JsonObject().put(attribute, order).put("_id", order))
+				.setFields(new JsonObject().put(attribute, 1))
+				.setLimit(BATCH_SIZE);
+	}
+	
+	private static JsonObject idQuery(CsActiveRecord<?> model) {
+		return new JsonObject().put("_id", new JsonObject().put("$oid", model._id.toString()));
+	}
+	
+	private static int leadingZeros(String key) {
+		int n = 0;
+		while(key != null && n < key.length() && key.charAt(n) == CsRankedActiveRecordHelper.DIGITS.charAt(0)) {
+			n++;
+		}
+		
+		return n;
+	}
+	
+	private static String zeros(int n) {
+		StringBuilder zeros = new StringBuilder();
+		for(int i = 0; i < n; i++) {
+			zeros.append(CsRankedActiveRecordHelper.DIGITS.charAt(0));
+		}
+		
+		return zeros.toString();
+	}
+	
+}
@@ -0,0 +1,535 @@
+package com.cloudsiness.csmongo.helpers.active;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.cloudsiness.csmongo.active.CsActiveRecord;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.mongo.FindOptions;
+
+/**
+ * Keeps the models of a list sorted with rank keys: strings that are compared as text, with a key
+ * between any two keys. It is an alternative to {@link CsSortedActiveRecordHelper} for long lists:
+ * moving or deleting a model only writes that model, because the other models keep their keys.
+ * <p>
+ * The keys get longer when many models are moved between the same two models. When a moved model
+ * gets a key longer than the max length, the keys of the list are rewritten in the background
+ * ({@link #rebalance(JsonObject, Handler)}), and a failed rebalance is logged. The dense positions
+ * (0, 1, 2...) that the pagination of the views needs are given by
+ * {@link #getPosition(JsonObject, Handler)} and {@link #findPage(JsonObject, int, int, Handler)}.
+ * <p>
+ * The attribute must be a String, and the collection must compare it without collation (the default).
+ * Two models moved at the same time between the same two models can get the same key; they are
+ * sorted by _id, and a move between them fails and rebalances the list.
+ */
+public class CsRankedActiveRecordHelper {
+	
+	/**
+	 * The digits of the keys, in the order in which MongoDB compares them.
+	 */
+	static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+	
+	/**
+	 * The number of digits used to append (and prepend) keys, so the keys of the models added at
+	 * the end of a list do not get longer.
+	 */
+	static final int WIDTH = 4;
+	
+	public static final int DEFAULT_MAX_LENGTH = 16;
+	
+	private static final Logger logger = LoggerFactory.getLogger(CsRankedActiveRecordHelper.class);
+	
+	
+	private CsActiveRecord<?> activeRecord;
+	
+	private String attribute;
+	
+	private int maxLength;
+	
+	
+	// CONSTRUCTORS -------
+	
+	public CsRankedActiveRecordHelper(CsActiveRecord<?> activeRecord, String attribute) {
+		this.activeRecord = activeRecord;
+		this.attribute = attribute;
+		this.maxLength = DEFAULT_MAX_LENGTH;
+	}
+	
+	public CsRankedActiveRecordHelper(CsActiveRecord<?> activeRecord) {
+		this(activeRecord, "rank");
+	}
+	
+	public static CsRankedActiveRecordHelper helper(CsActiveRecord<?> activeRecord) {
+		return new CsRankedActiveRecordHelper(activeRecord);
+	}
+	
+	public static CsRankedActiveRecordHelper helper(CsActiveRecord<?> activeRecord, String attribute) {
+		return new CsRankedActiveRecordHelper(activeRecord, attribute);
+	}
+	
+	
+	public int getMaxLength() {
+		return maxLength;
+	}
+	
+	/**
+	 * @param maxLength	the length of the keys from which the list is rebalanced.
+	 */
+	public CsRankedActiveRecordHelper setMaxLength(int maxLength) {
+		if(maxLength <= WIDTH)
+			throw new IllegalArgumentException("The max length must be greater than " + WIDTH);
+		
+		this.maxLength = maxLength;
+		
+		return this;
+	}
+	
+	
+	// SAVE AND DELETE -------
+	
+	public void beforeSave(Handler<AsyncResult<Boolean>> handler) {
+		beforeSave(new JsonObject(), handler);
+	}
+	
+	/**
+	 * Gives the model (if it does not have a key) a key after the last model of the list.
+	 */
+	public void beforeSave(JsonObject query, Handler<AsyncResult<Boolean>> handler) {
+		if(getRank() != null) {
+			handler.handle(Future.succeededFuture(true));
+			return;
+		}
+		
+		neighbours(query, null, -1, 1, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			activeRecord.setAttribute(attribute, keyBetween(rank(res.result(), 0), null));
+			
+			handler.handle(Future.succeededFuture(true));
+		});
+	}
+	
+	public void afterDelete(Handler<AsyncResult<Boolean>> handler) {
+		afterDelete(new JsonObject(), handler);
+	}
+	
+	/**
+	 * Does nothing: the other models keep their keys. It is kept so the models can change from
+	 * {@link CsSortedActiveRecordHelper} without changing their hooks.
+	 */
+	public void afterDelete(JsonObject query, Handler<AsyncResult<Boolean>> handler) {
+		handler.handle(Future.succeededFuture(true));
+	}
+	
+	
+	// MOVES -------
+	
+	public void up(Handler<AsyncResult<Void>> handler) {
+		up(new JsonObject(), handler);
+	}
+	
+	/**
+	 * Moves the model after the next model of the list.
+	 */
+	public void up(JsonObject query, Handler<AsyncResult<Void>> handler) {
+		neighbours(query, "$gt", 1, 2, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			if(res.result().isEmpty()) {
+				handler.handle(Future.succeededFuture());
+				return;
+			}
+			
+			move(query, rank(res.result(), 0), rank(res.result(), 1), handler);
+		});
+	}
+	
+	public void down(Handler<AsyncResult<Void>> handler) {
+		down(new JsonObject(), handler);
+	}
+	
+	/**
+	 * Moves the model before the previous model of the list.
+	 */
+	public void down(JsonObject query, Handler<AsyncResult<Void>> handler) {
+		neighbours(query, "$lt", -1, 2, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			if(res.result().isEmpty()) {
+				handler.handle(Future.succeededFuture());
+				return;
+			}
+			
+			move(query, rank(res.result(), 1), rank(res.result(), 0), handler);
+		});
+	}
+	
+	public void changePosition(long newPosition, Handler<AsyncResult<Void>> handler) {
+		changePosition(new JsonObject(), newPosition, handler);
+	}
+	
+	/**
+	 * Moves the model to a dense position of the list (0 is the first one). It reads the two models
+	 * between which it is moved and only writes the model. Nothing is done if the position is
+	 * negative or after the end of the list.
+	 */
+	public void changePosition(JsonObject query, long newPosition, Handler<AsyncResult<Void>> handler) {
+		if(newPosition < 0) {
+			handler.handle(Future.succeededFuture());
+			return;
+		}
+		
+		FindOptions options = findOptions(1)
+				.setSkip((int) Math.max(newPosition - 1, 0))
+				.setLimit(newPosition == 0 ? 1 : 2);
+		JsonObject otherQuery = query.copy()
+				.put("_id", new JsonObject()
+						.put("$ne", new JsonObject()
+								.put("$oid", activeRecord._id.toString())));
+		
+		activeRecord.findAll(otherQuery, options, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			List<? extends CsActiveRecord<?>> others = res.result();
+			if(newPosition == 0)
+				move(query, null, rank(others, 0), handler);
+			else if(!others.isEmpty())
+				move(query, rank(others, 0), rank(others, 1), handler);
+			else
+				handler.handle(Future.succeededFuture());
+		});
+	}
+	
+	/**
+	 * Moves the model between two keys, without reading the list. The views that know the keys of
+	 * the models around the new place (when a model is dragged, for example) should use it.
+	 *
+	 * @param previous	the key of the previous model or <code>null</code> for the first place.
+	 * @param next		the key of the next model or <code>null</code> for the last place.
+	 */
+	public void moveBetween(JsonObject query, String previous, String next, Handler<AsyncResult<Void>> handler) {
+		try {
+			keyBetween(previous, next);
+		} catch(IllegalArgumentException e) {
+			handler.handle(Future.failedFuture(e));
+			return;
+		}
+		
+		move(query, previous, next, handler);
+	}
+	
+	
+	// POSITIONS -------
+	
+	public void getPosition(Handler<AsyncResult<Long>> handler) {
+		getPosition(new JsonObject(), handler);
+	}
+	
+	/**
+	 * Gives the dense position of the model (the number of models before it).
+	 */
+	public void getPosition(JsonObject query, Handler<AsyncResult<Long>> handler) {
+		JsonObject beforeQuery = query.copy()
+				.put(attribute, new JsonObject()
+						.put("$lt", getRank()));
+		
+		activeRecord.count(beforeQuery, handler);
+	}
+	
+	/**
+	 * Finds a page of the sorted list. The dense position of each model is skip plus its index in
+	 * the result.
+	 *
+	 * @param query		the query of the list.
+	 * @param skip		the position of the first model.
+	 * @param limit		the number of models.
+	 * @param handler	the handler of the models.
+	 */
+	public void findPage(JsonObject query, int skip, int limit, Handler<AsyncResult<? extends List<? extends CsActiveRecord<?>>>> handler) {
+		FindOptions options = new FindOptions()
+				.setSort(new JsonObject().put(attribute, 1).put("_id", 1))
+				.setSkip(skip)
+				.setLimit(limit);
+		
+		activeRecord.findAll(query, options, res -> handler.handle(res));
+	}
+	
+	
+	// REBALANCE -------
+	
+	public void rebalance(Handler<AsyncResult<Void>> handler) {
+		rebalance(new JsonObject(), handler);
+	}
+	
+	/**
+	 * Rewrites the keys of the list so they are evenly spaced and short again, keeping the order. It
+	 * reads and writes the models in batches sorted by key ({@link CsRankRebalance}), so only one
+	 * batch is in memory at a time. The models moved while it runs can be sorted again in their old
+	 * places.
+	 */
+	public void rebalance(JsonObject query, Handler<AsyncResult<Void>> handler) {
+		activeRecord.count(query, res -> {
+			if(res.failed()) {
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			new CsRankRebalance(activeRecord, attribute, query, res.result()).run(handler);
+		});
+	}
+	
+	
+	// KEYS -------
+	
+	/**
+	 * Gives a key between two keys.
+	 *
+	 * @param previous	the previous key or <code>null</code> for a key before next.
+	 * @param next		the next key or <code>null</code> for a key after previous.
+	 * @return			the key.
+	 * @throws IllegalArgumentException	if previous is not less than next or some key is not valid.
+	 */
+	static String keyBetween(String previous, String next) {
+		validate(previous);
+		validate(next);
+		if(previous != null && next != null && previous.compareTo(next) >= 0)
+			throw new IllegalArgumentException("The key " + previous + " is not less than " + next);
+		
+		if(previous == null && next == null)
+			return midpoint("", null);
+		
+		if(next == null)
+			return increment(previous);
+		
+		if(previous == null)
+			return decrement(next);
+		
+		return midpoint(previous, next);
+	}
+	
+	/**
+	 * Gives n evenly spaced keys, with a free digit between each two of them.
+	 */
+	static List<String> spacedKeys(int n) {
+		String[] keys = new String[n];
+		for(int i = 0; i < n; i++) {
+			keys[i] = spacedKey(i, n);
+		}
+		
+		return Arrays.asList(keys);
+	}
+	
+	/**
+	 * Gives the key in the position index of n evenly spaced keys ({@link #spacedKeys(int)}).
+	 */
+	static String spacedKey(long index, long n) {
+		int width = WIDTH;
+		while(width < 10 && pow(width) / (n + 1) < DIGITS.length()) {
+			width++;
+		}
+		
+		return strip(encode(pow(width) / (n + 1) * (index + 1), width));
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private String getRank() {
+		return activeRecord.getAttributeValue(attribute);
+	}
+	
+	private FindOptions findOptions(int order) {
+		return new FindOptions()
+				.setSort(new JsonObject().put(attribute, order).put("_id", order))
+				.setFields(new JsonObject().put(attribute, 1));
+	}
+	
+	/**
+	 * Finds the keys of the models before ($lt) or after ($gt) the model, or of all the models if
+	 * operator is <code>null</code>.
+	 */
+	private void neighbours(JsonObject query, String operator, int order, int limit, Handler<AsyncResult<? extends List<? extends CsActiveRecord<?>>>> handler) {
+		JsonObject neighboursQuery = query.copy();
+		if(operator != null)
+			neighboursQuery.put(attribute, new JsonObject().put(operator, getRank()));
+		
+		activeRecord.findAll(neighboursQuery, findOptions(order).setLimit(limit), res -> handler.handle(res));
+	}
+	
+	private String rank(List<? extends CsActiveRecord<?>> models, int index) {
+		return index < models.size() ? models.get(index).getAttributeValue(attribute) : null;
+	}
+	
+	/**
+	 * Saves the model with a key between previous and next, and rebalances the list in the
+	 * background if the key is too long. The failures of the rebalance are logged, because the move
+	 * has already been saved.
+	 * <p>
+	 * If previous and next are the same key (two models moved at the same time), there is no key
+	 * between them: the model is not moved and the handler fails after the list is rebalanced, so
+	 * the move can be tried again.
+	 */
+	private void move(JsonObject query, String previous, String next, Handler<AsyncResult<Void>> handler) {
+		String rank = getRank();
+		String newRank;
+		try {
+			newRank = keyBetween(previous, next);
+		} catch(IllegalArgumentException e) {
+			if(previous == null || !previous.equals(next)) {
+				handler.handle(Future.failedFuture(e));
+				return;
+			}
+			
+			rebalance(query, res -> {
+				if(res.failed())
+					logger.error("The rebalance of the " + attribute + " keys has failed", res.cause());
+				
+				handler.handle(Future.failedFuture(e));
+			});
+			return;
+		}
+		
+		activeRecord.setAttribute(attribute, newRank);
+		
+		activeRecord.saveAttributes(Arrays.asList(attribute), res -> {
+			if(res.failed()) {
+				activeRecord.setAttribute(attribute, rank);
+				handler.handle(Future.failedFuture(res.cause()));
+				return;
+			}
+			
+			if(newRank.length() > maxLength) {
+				rebalance(query, res2 -> {
+					if(res2.failed())
+						logger.error("The rebalance of the " + attribute + " keys has failed", res2.cause());
+				});
+			}
+			
+			handler.handle(Future.succeededFuture());
+		});
+	}
+	
+	private static void validate(String key) {
+		if(key == null)
+			return;
+		
+		if(key.isEmpty() || key.charAt(key.length() - 1) == DIGITS.charAt(0))
+			throw new IllegalArgumentException("The key '" + key + "' is empty or ends with " + DIGITS.charAt(0));
+		
+		for(int i = 0; i < key.length(); i++) {
+			if(DIGITS.indexOf(key.charAt(i)) < 0)
+				throw new IllegalArgumentException("The key '" + key + "' has characters that are not digits");
+		}
+	}
+	
+	/**
+	 * Gives a key between a and b, where a can be empty (the start) and b <code>null</code> (the
+	 * end). The digits after a are taken as 0.
+	 */
+	private static String midpoint(String a, String b) {
+		if(b != null) {
+			int n = 0;
+			while(n < b.length() && digit(a, n) == DIGITS.indexOf(b.charAt(n))) {
+				n++;
+			}
+			
+			if(n > 0)
+				return b.substring(0, n) + midpoint(a.length() > n ? a.substring(n) : "", b.substring(n));
+		}
+		
+		int digitA = digit(a, 0);
+		int digitB = b != null ? DIGITS.indexOf(b.charAt(0)) : DIGITS.length();
+		if(digitB - digitA > 1)
+			return String.valueOf(DIGITS.charAt((digitA + digitB + 1) / 2));
+		
+		if(b != null && b.length() > 1)
+			return b.substring(0, 1);
+		
+		return DIGITS.charAt(digitA) + midpoint(a.length() > 1 ? a.substring(1) : "", null);
+	}
+	
+	/**
+	 * Gives the next key of WIDTH digits after a, so appending does not make the keys longer.
+	 */
+	private static String increment(String a) {
+		long value = decode(a) + 1;
+		if(value >= pow(WIDTH))
+			return midpoint(a, null);
+		
+		return strip(encode(value, WIDTH));
+	}
+	
+	/**
+	 * Gives the previous key of WIDTH digits before b, so prepending does not make the keys longer.
+	 */
+	private static String decrement(String b) {
+		long value = decode(b) - 1;
+		if(value <= 0)
+			return midpoint("", b);
+		
+		return strip(encode(value, WIDTH));
+	}
+	
+	/**
+	 * @return	the value of the first WIDTH digits of the key.
+	 */
+	private static long decode(String key) {
+		long value = 0;
+		for(int i = 0; i < WIDTH; i++) {
+			value = value * DIGITS.length() + digit(key, i);
+		}
+		
+		return value;
+	}
+	
+	private static String encode(long value, int width) {
+		char[] digits = new char[width];
+		for(int i = width - 1; i >= 0; i--) {
+			digits[i] = DIGITS.charAt((int) (value % DIGITS.length()));
+			value /= DIGITS.length();
+		}
+		
+		return new String(digits);
+	}
+	
+	private static int digit(String key, int index) {
+		return index < key.length() ? DIGITS.indexOf(key.charAt(index)) : 0;
+	}
+	
+	private static long pow(int width) {
+		long result = 1;
+		for(int i = 0; i < width; i++) {
+			result *= DIGITS.length();
+		}
+		
+		return result;
+	}
+	
+	private static String strip(String key) {
+		int end = key.length();
+		while(end > 0 && key.charAt(end - 1) == DIGITS.charAt(0)) {
+			end--;
+		}
+		
+		return key.substring(0, end);
+	}
+	
+}
@@ -3,9 +3,10 @@ package com.cloudsiness.csmongo.helpers.active;
 import java.util.Arrays;
 
 import com.cloudsiness.csmongo.active.CsActiveRecord;
+import com.cloudsiness.csmongo.active.CsBulkWrite;
+import com.mongodb.MongoBulkWriteException;
 
 import io.vertx.core.AsyncResult;
-import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
@@ -124,39 +125,35 @@ public class CsSortedActiveRecordHelper {
 				}
 				
 				CsActiveRecord<?> other = findRes.result();
-				
-				Future<Void> f1 = Future.future();
-				Future<Void> f2 = Future.future();
+				CsBulkWrite bulk = activeRecord.bulkWrite();
 				
 				if(other != null) {
 					other.setAttribute(attribute, position);
-					other.saveAttributes(Arrays.asList(attribute), f1.completer());
-				} else {
-					f1.complete();
+					bulk.saveAttributes(other, Arrays.asList(attribute));
 				}
 				
-				activeRecord.saveAttributes(Arrays.asList(attribute), f2.completer());
+				bulk.saveAttributes(activeRecord, Arrays.asList(attribute));
 				
-				CompositeFuture.all(f1, f2).setHandler(res -> {
-					if(f1.failed() && f2.failed()) {
-						handler.handle(Future.failedFuture(res.cause()));
-					} else if(f1.failed() && !f2.failed()) {
-						handler.handle(Future.failedFuture(f1.cause()));
+				bulk.execute(res -> {
+					if(res.failed()) {
+						activeRecord.setAttribute(attribute, position);
 						if(other != null) {
 							other.setAttribute(attribute, newPosition);
-							other.saveAttributes(Arrays.asList(attribute), res2 -> {});
+							
+							// The writes are ordered: if only the model failed, the other one has been written
+							if(res.cause() instanceof MongoBulkWriteException && ((MongoBulkWriteException) res.cause()).getWriteErrors().get(0).getIndex() > 0)
+								other.saveAttributes(Arrays.asList(attribute), res2 -> {});
 						}
-					} else if(!f1.failed() && f2.failed()) {
-						handler.handle(Future.failedFuture(f2.cause()));
-						activeRecord.setAttribute(attribute, position);
-						activeRecord.saveAttributes(Arrays.asList(attribute), res2 -> {});
-					} else {
-						handler.handle(Future.succeededFuture());
+						
+						handler.handle(Future.failedFuture(res.cause()));
+						return;
 					}
+					
+					handler.handle(Future.succeededFuture());
 				});
 			});
 		});
 	}
 	
-
+	
 }
@@ -0,0 +1,43 @@
+package com.cloudsiness.csmongo.helpers.exceptions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * The function has failed for some items of a run that collects all the errors. The cause of the
+ * exception is the error of the first failed item.
+ */
+public class CsItemsFailed extends Exception {
+	
+	private static final long serialVersionUID = -2291850273468507381L;
+	
+	private final SortedMap<Integer, Throwable> causes;
+	
+	private final List<?> results;
+	
+	
+	public CsItemsFailed(SortedMap<Integer, Throwable> causes, List<?> results) {
+		super(causes.size() + " items have failed", causes.get(causes.firstKey()));
+		
+		this.causes = Collections.unmodifiableSortedMap(causes);
+		this.results = Collections.unmodifiableList(results);
+	}
+	
+	
+	/**
+	 * @return	the errors, by the position of their items.
+	 */
+	public SortedMap<Integer, Throwable> getCauses() {
+		return causes;
+	}
+	
+	/**
+	 * @return	the results of the items that have not failed (with <code>null</code> in the positions of
+	 * 			the failed items if the results are ordered).
+	 */
+	public List<?> getResults() {
+		return results;
+	}
+	
+}
@@ -0,0 +1,59 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.impl.codec.json.JsonObjectCodec;
+
+/**
+ * Reads and writes BSON values as the mongo client does with the JSON objects: the documents are read
+ * as JsonObject, the arrays as JsonArray, the ObjectIds as {"$oid": id} and the dates as
+ * {"$date": date}. It is used for the values that the model codecs do not read or write natively.
+ */
+class CsBsonJson extends JsonObjectCodec {
+	
+	private static final CsBsonJson instance = new CsBsonJson();
+	
+	private static final DecoderContext decoderContext = DecoderContext.builder().build();
+	
+	private static final EncoderContext encoderContext = EncoderContext.builder().build();
+	
+	
+	private CsBsonJson() {
+		super(new JsonObject().put("useObjectId", true));
+	}
+	
+	
+	/**
+	 * @param reader	the reader, with a current value.
+	 * @return			the current value read as the mongo client reads it.
+	 */
+	static Object read(BsonReader reader) {
+		return instance.readValue(reader, decoderContext);
+	}
+	
+	/**
+	 * @param writer	the writer, after the name of the value.
+	 * @param value		a JSON value (maps and lists included).
+	 */
+	@SuppressWarnings("unchecked")
+	static void write(BsonWriter writer, Object value) {
+		if(value instanceof Map)
+			value = new JsonObject((Map<String, Object>) value);
+		else if(value instanceof List)
+			value = new JsonArray((List<Object>) value);
+		
+		if(value == null)
+			writer.writeNull();
+		else
+			instance.writeValue(writer, null, value, encoderContext);
+	}
+	
+}
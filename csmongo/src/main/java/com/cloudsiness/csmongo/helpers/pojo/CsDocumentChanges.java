@@ -0,0 +1,206 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.metadata.CsModelMetadata;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Builds the update that changes a stored document into the document that a model would save, with
+ * only the paths that are different: the attributes that are new or have changed are set ($set) and
+ * the attributes that the model does not save anymore are removed ($unset), as if the document was
+ * replaced. The attributes that are other models (classes that extend CsActiveForm) are compared
+ * attribute by attribute, so only their changed attributes are set (for example, "address.city").
+ * The _id is never changed.
+ */
+public class CsDocumentChanges {
+	
+	private static final String ID = "_id";
+	
+	
+	private CsDocumentChanges() {
+		
+	}
+	
+	
+	// UPDATES -------
+	
+	/**
+	 * @param modelType	the class of the model.
+	 * @param stored	the stored document (as the mongo client reads it).
+	 * @param current	the document that the model would save.
+	 * @return			the update ({"$set": {...}, "$unset": {...}}), empty if nothing has changed.
+	 */
+	public static JsonObject update(Class<?> modelType, JsonObject stored, JsonObject current) {
+		JsonObject set = new JsonObject();
+		JsonObject unset = new JsonObject();
+		changes(modelType, "", stored.getMap(), current.getMap(), set, unset);
+		
+		JsonObject result = new JsonObject();
+		if(!set.isEmpty())
+			result.put("$set", set);
+		if(!unset.isEmpty())
+			result.put("$unset", unset);
+		
+		return result;
+	}
+	
+	/**
+	 * @param modelType	the class of the model.
+	 * @param stored	the stored BSON document.
+	 * @param current	the BSON document that the model would save.
+	 * @return			the update ({"$set": {...}, "$unset": {...}}), empty if nothing has changed.
+	 */
+	public static BsonDocument update(Class<?> modelType, BsonDocument stored, BsonDocument current) {
+		BsonDocument set = new BsonDocument();
+		BsonDocument unset = new BsonDocument();
+		changes(modelType, "", stored, current, set, unset);
+		
+		BsonDocument result = new BsonDocument();
+		if(!set.isEmpty())
+			result.append("$set", set);
+		if(!unset.isEmpty())
+			result.append("$unset", unset);
+		
+		return result;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private static void changes(Class<?> modelType, String prefix, Map<String, Object> stored, Map<String, Object> current, JsonObject set, JsonObject unset) {
+		for(Map.Entry<String, Object> entry : current.entrySet()) {
+			String name = entry.getKey();
+			if(prefix.isEmpty() && name.equals(ID))
+				continue;
+			
+			Object before = stored.get(name);
+			Object after = entry.getValue();
+			if(stored.containsKey(name) && same(before, after))
+				continue;
+			
+			Class<?> formType = formType(modelType, name);
+			Map<String, Object> beforeMap = asMap(before);
+			Map<String, Object> afterMap = asMap(after);
+			if(formType != null && beforeMap != null && afterMap != null)
+				changes(formType, prefix + name + ".", beforeMap, afterMap, set, unset);
+			else
+				set.put(prefix + name, after);
+		}
+		
+		for(String name : stored.keySet()) {
+			if(!current.containsKey(name) && !(prefix.isEmpty() && name.equals(ID)))
+				unset.put(prefix + name, "");
+		}
+	}
+	
+	private static void changes(Class<?> modelType, String prefix, BsonDocument stored, BsonDocument current, BsonDocument set, BsonDocument unset) {
+		for(Map.Entry<String, BsonValue> entry : current.entrySet()) {
+			String name = entry.getKey();
+			if(prefix.isEmpty() && name.equals(ID))
+				continue;
+			
+			BsonValue before = stored.get(name);
+			BsonValue after = entry.getValue();
+			if(after.equals(before))
+				continue;
+			
+			Class<?> formType = formType(modelType, name);
+			if(formType != null && before != null && before.isDocument() && after.isDocument())
+				changes(formType, prefix + name + ".", before.asDocument(), after.asDocument(), set, unset);
+			else
+				set.append(prefix + name, after);
+		}
+		
+		for(String name : stored.keySet()) {
+			if(!current.containsKey(name) && !(prefix.isEmpty() && name.equals(ID)))
+				unset.append(prefix + name, new BsonString(""));
+		}
+	}
+	
+	/**
+	 * @return	the class of the attribute if it is another model or <code>null</code> otherwise.
+	 */
+	private static Class<?> formType(Class<?> modelType, String name) {
+		Field f = CsModelMetadata.of(modelType).getField(name);
+		
+		return f != null && CsActiveForm.class.isAssignableFrom(f.getType()) ? f.getType() : null;
+	}
+	
+	/**
+	 * Compares two JSON values. The integers are equal if they have the same value, whatever their
+	 * classes (the mongo client reads as Integer the Long values that fit in an int).
+	 */
+	private static boolean same(Object a, Object b) {
+		if(a == null || b == null)
+			return a == b;
+		
+		if(a instanceof Number && b instanceof Number) {
+			boolean decimalA = a instanceof Double || a instanceof Float;
+			boolean decimalB = b instanceof Double || b instanceof Float;
+			if(decimalA != decimalB)
+				return false;
+			
+			return decimalA ? ((Number) a).doubleValue() == ((Number) b).doubleValue() : ((Number) a).longValue() == ((Number) b).longValue();
+		}
+		
+		Map<String, Object> mapA = asMap(a);
+		Map<String, Object> mapB = asMap(b);
+		if(mapA != null || mapB != null) {
+			if(mapA == null || mapB == null || mapA.size() != mapB.size())
+				return false;
+			
+			for(Map.Entry<String, Object> entry : mapA.entrySet()) {
+				if(!mapB.containsKey(entry.getKey()) || !same(entry.getValue(), mapB.get(entry.getKey())))
+					return false;
+			}
+			
+			return true;
+		}
+		
+		List<?> listA = asList(a);
+		List<?> listB = asList(b);
+		if(listA != null || listB != null) {
+			if(listA == null || listB == null || listA.size() != listB.size())
+				return false;
+			
+			for(int i = 0; i < listA.size(); i++) {
+				if(!same(listA.get(i), listB.get(i)))
+					return false;
+			}
+			
+			return true;
+		}
+		
+		return a.equals(b);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> asMap(Object value) {
+		if(value instanceof JsonObject)
+			return ((JsonObject) value).getMap();
+		if(value instanceof Map)
+			return (Map<String, Object>) value;
+		
+		return null;
+	}
+	
+	private static List<?> asList(Object value) {
+		if(value instanceof JsonArray)
+			return ((JsonArray) value).getList();
+		if(value instanceof List)
+			return (List<?>) value;
+		
+		return null;
+	}
+	
+}
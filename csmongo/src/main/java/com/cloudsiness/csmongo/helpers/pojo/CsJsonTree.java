@@ -0,0 +1,275 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Converts the vert.x JSON structures to Jackson tokens and the Jackson tokens to vert.x JSON
+ * structures without encoding them as text.
+ * <p>
+ * The values read are the same that would be read by parsing the JSON text: objects as
+ * {@link LinkedHashMap}, arrays as {@link ArrayList}, integers as Integer, Long or BigInteger
+ * (the smallest that fits) and decimals as Double.
+ */
+public class CsJsonTree {
+	
+	private CsJsonTree() {
+		
+	}
+	
+	
+	// WRITE -------
+	
+	/**
+	 * @param body	the JSON object.
+	 * @return		a buffer with the tokens of the JSON object.
+	 * @throws IOException
+	 */
+	public static TokenBuffer toTokens(JsonObject body) throws IOException {
+		TokenBuffer buffer = new TokenBuffer(null, false);
+		write(buffer, body);
+		
+		return buffer;
+	}
+	
+	/**
+	 * Writes the value listed in parameters (a value that can be in a JSON object) in the generator.
+	 *
+	 * @param g		the generator.
+	 * @param value	the value.
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static void write(JsonGenerator g, Object value) throws IOException {
+		if(value == null) {
+			g.writeNull();
+		} else if(value instanceof JsonObject) {
+			writeMap(g, (Map<Object, Object>) (Map<?, ?>) ((JsonObject) value).getMap());
+		} else if(value instanceof Map) {
+			writeMap(g, (Map<Object, Object>) value);
+		} else if(value instanceof JsonArray) {
+			writeList(g, ((JsonArray) value).getList());
+		} else if(value instanceof List) {
+			writeList(g, (List<Object>) value);
+		} else if(value instanceof CharSequence) {
+			g.writeString(value.toString());
+		} else if(value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			g.writeNumber(((Number) value).intValue());
+		} else if(value instanceof Long) {
+			g.writeNumber((Long) value);
+		} else if(value instanceof Double) {
+			g.writeNumber((Double) value);
+		} else if(value instanceof Float) {
+			g.writeNumber((Float) value);
+		} else if(value instanceof BigDecimal) {
+			g.writeNumber((BigDecimal) value);
+		} else if(value instanceof BigInteger) {
+			g.writeNumber((BigInteger) value);
+		} else if(value instanceof Boolean) {
+			g.writeBoolean((Boolean) value);
+		} else if(value instanceof byte[]) {
+			g.writeBinary((byte[]) value);
+		} else if(value instanceof Instant) {
+			g.writeString(DateTimeFormatter.ISO_INSTANT.format((Instant) value));
+		} else {
+			g.writeString(value.toString());
+		}
+	}
+	
+	private static void writeMap(JsonGenerator g, Map<Object, Object> map) throws IOException {
+		g.writeStartObject();
+		for(Map.Entry<Object, Object> entry : map.entrySet()) {
+			g.writeFieldName(String.valueOf(entry.getKey()));
+			write(g, entry.getValue());
+		}
+		g.writeEndObject();
+	}
+	
+	private static void writeList(JsonGenerator g, List<Object> list) throws IOException {
+		g.writeStartArray();
+		for(Object item : list) {
+			write(g, item);
+		}
+		g.writeEndArray();
+	}
+	
+	
+	// COPY -------
+	
+	/**
+	 * Copies the value listed in parameters (a value that can be in a JSON object). The copy is the
+	 * same value that writing the value as tokens and reading the tokens would give.
+	 *
+	 * @param value	the value.
+	 * @return		the copy.
+	 */
+	@SuppressWarnings("unchecked")
+	static Object copy(Object value) {
+		if(value == null)
+			return null;
+		if(value instanceof JsonObject)
+			return copyMap((Map<Object, Object>) (Map<?, ?>) ((JsonObject) value).getMap());
+		if(value instanceof Map)
+			return copyMap((Map<Object, Object>) value);
+		if(value instanceof JsonArray)
+			return copyList(((JsonArray) value).getList());
+		if(value instanceof List)
+			return copyList((List<Object>) value);
+		if(value instanceof CharSequence)
+			return value.toString();
+		if(value instanceof Integer || value instanceof Short || value instanceof Byte)
+			return ((Number) value).intValue();
+		if(value instanceof Long || value instanceof BigInteger)
+			return readInteger((Number) value);
+		if(value instanceof Double || value instanceof Float || value instanceof BigDecimal)
+			return readDecimal((Number) value);
+		if(value instanceof Boolean)
+			return value;
+		if(value instanceof byte[])
+			return Base64Variants.getDefaultVariant().encode((byte[]) value);
+		if(value instanceof Instant)
+			return DateTimeFormatter.ISO_INSTANT.format((Instant) value);
+		
+		return value.toString();
+	}
+	
+	static Map<String, Object> copyMap(Map<Object, Object> map) {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		for(Map.Entry<Object, Object> entry : map.entrySet()) {
+			result.put(String.valueOf(entry.getKey()), copy(entry.getValue()));
+		}
+		
+		return result;
+	}
+	
+	static List<Object> copyList(List<Object> list) {
+		List<Object> result = new ArrayList<Object>(list.size());
+		for(Object item : list) {
+			result.add(copy(item));
+		}
+		
+		return result;
+	}
+	
+	
+	// READ -------
+	
+	/**
+	 * Reads the value of the current token of the parser (moving to the first token if the parser has
+	 * not current token). When the value is an object or an array, the parser ends in its end token.
+	 *
+	 * @param p	the parser.
+	 * @return	the value.
+	 * @throws IOException
+	 */
+	public static Object read(JsonParser p) throws IOException {
+		JsonToken token = p.getCurrentToken();
+		if(token == null)
+			token = p.nextToken();
+		if(token == null)
+			return null;
+		
+		switch(token) {
+			case START_OBJECT:
+			case FIELD_NAME:
+				return readMap(p);
+			case START_ARRAY:
+				return readList(p);
+			case VALUE_STRING:
+				return p.getText();
+			case VALUE_NUMBER_INT:
+				return readInteger(p.getNumberValue());
+			case VALUE_NUMBER_FLOAT:
+				return readDecimal(p.getNumberValue());
+			case VALUE_TRUE:
+				return Boolean.TRUE;
+			case VALUE_FALSE:
+				return Boolean.FALSE;
+			case VALUE_EMBEDDED_OBJECT:
+				return readEmbedded(p.getEmbeddedObject());
+			default:
+				return null;
+		}
+	}
+	
+	private static Map<String, Object> readMap(JsonParser p) throws IOException {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		
+		JsonToken token = p.getCurrentToken() == JsonToken.FIELD_NAME ? JsonToken.FIELD_NAME : p.nextToken();
+		while(token == JsonToken.FIELD_NAME) {
+			String name = p.getCurrentName();
+			p.nextToken();
+			result.put(name, read(p));
+			token = p.nextToken();
+		}
+		
+		return result;
+	}
+	
+	private static List<Object> readList(JsonParser p) throws IOException {
+		List<Object> result = new ArrayList<Object>();
+		
+		while(p.nextToken() != JsonToken.END_ARRAY) {
+			result.add(read(p));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Integers are read as the smallest type that fits, as when the number is parsed from text.
+	 */
+	static Number readInteger(Number n) {
+		if(n instanceof BigInteger) {
+			if(((BigInteger) n).bitLength() >= 64)
+				return n;
+			n = ((BigInteger) n).longValue();
+		}
+		
+		long value = n.longValue();
+		if((int) value == value)
+			return (int) value;
+		
+		return value;
+	}
+	
+	/**
+	 * Decimals are read as Double, as when the number is parsed from text. The not finite numbers are
+	 * written as strings in text.
+	 */
+	static Object readDecimal(Number n) {
+		double value = n instanceof Float ? Double.parseDouble(n.toString()) : n.doubleValue();
+		if(Double.isNaN(value) || Double.isInfinite(value))
+			return Double.toString(value);
+		
+		return value;
+	}
+	
+	private static Object readEmbedded(Object value) {
+		if(value instanceof byte[])
+			return Base64Variants.getDefaultVariant().encode((byte[]) value);
+		if(value instanceof RawValue)
+			return Json.decodeValue(String.valueOf(((RawValue) value).rawValue()), Object.class);
+		
+		return value;
+	}
+	
+}
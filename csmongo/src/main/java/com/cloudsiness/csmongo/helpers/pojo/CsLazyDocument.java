@@ -0,0 +1,109 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.bson.RawBsonDocument;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The stored document of a model hydrated lazily. The attributes of the model are decoded from the
+ * document with the codec of the model, one by one the first time that they are needed, so the
+ * attributes that are never used are never converted.
+ * <p>
+ * The document is the JSON object read by the mongo client or the BSON document read by
+ * {@link com.cloudsiness.csmongo.factory.CsMongoClient}. It is not thread safe, as the models.
+ */
+public class CsLazyDocument {
+	
+	private final CsModelCodec codec;
+	
+	private final JsonObject json;
+	
+	private final RawBsonDocument bson;
+	
+	/**
+	 * The attributes that have been decoded.
+	 */
+	private final Set<String> decoded = new HashSet<String>();
+	
+	/**
+	 * The positions of the attributes in the BSON document, found the first time that an attribute is
+	 * decoded.
+	 */
+	private int[] index;
+	
+	
+	// CONSTRUCTORS -------
+	
+	/**
+	 * @param codec		the codec of the model.
+	 * @param document	the JSON object read by the mongo client.
+	 */
+	public CsLazyDocument(CsModelCodec codec, JsonObject document) {
+		this.codec = codec;
+		this.json = document;
+		this.bson = null;
+	}
+	
+	/**
+	 * @param codec		the codec of the model.
+	 * @param document	the stored BSON document.
+	 */
+	public CsLazyDocument(CsModelCodec codec, RawBsonDocument document) {
+		this.codec = codec;
+		this.json = null;
+		this.bson = document;
+	}
+	
+	
+	// DECODING -------
+	
+	/**
+	 * Sets the attribute of the model with its stored value, if it has not been decoded yet. The
+	 * attribute is not set if the document does not have it.
+	 *
+	 * @param model		the model.
+	 * @param attribute	the name of the attribute.
+	 * @throws IllegalArgumentException	if the value can not be converted to the type of the attribute.
+	 */
+	public void decode(Object model, String attribute) {
+		if(!decoded.add(attribute))
+			return;
+		
+		if(json != null) {
+			codec.decode(model, json, attribute);
+		} else {
+			if(index == null)
+				index = codec.index(bson);
+			
+			codec.decode(model, bson, index, attribute);
+		}
+	}
+	
+	/**
+	 * Sets all the attributes of the model that have not been decoded yet.
+	 *
+	 * @param model	the model.
+	 * @throws IllegalArgumentException	if some value can not be converted to the type of its attribute.
+	 */
+	public void decodeAll(Object model) {
+		Predicate<String> attributes = attribute -> !decoded.contains(attribute);
+		
+		if(json != null)
+			codec.decode(model, json, attributes);
+		else
+			codec.decode(model, bson, attributes);
+	}
+	
+	/**
+	 * @param attribute	the name of the attribute.
+	 * @return			if the attribute has been decoded.
+	 */
+	public boolean isDecoded(String attribute) {
+		return decoded.contains(attribute);
+	}
+	
+}
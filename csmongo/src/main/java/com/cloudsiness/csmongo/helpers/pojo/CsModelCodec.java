@@ -0,0 +1,1383 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.ByteBuf;
+import org.bson.RawBsonDocument;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.io.ByteBufferBsonInput;
+import org.bson.types.ObjectId;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.metadata.CsFieldAccessor;
+import com.cloudsiness.csmongo.active.metadata.CsModelMetadata;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Converts the models to JSON objects and the JSON objects to models without Jackson. The codec of a
+ * model class is built only once: it has a converter for the type of each attribute and reads and
+ * writes the attributes through their accessors.
+ * <p>
+ * The JSON objects are the same that the mappers of {@link CsPojoHelper} give: the ObjectIds are
+ * written as strings or as {"$oid": id}, the dates as timestamps and, without the empty values, the
+ * null values, the empty strings, collections and maps and the dates with timestamp 0 are not written.
+ * The values are converted to the type of the attribute as Jackson does (for example, "12" to an
+ * Integer attribute) and the conversions that Jackson does not allow throw an exception.
+ * <p>
+ * A model uses its codec when its class is annotated with <code>@CsModel(codec=true)</code> (or
+ * <code>bson=true</code> or <code>lazy=true</code>), it does not have custom serializers or
+ * deserializers and all its attributes have a supported type: String, the primitive types (except
+ * char) and their wrappers, Date, ObjectId, JsonObject, JsonArray, enums, maps with String keys, lists
+ * and sets of supported types and other models (classes that extend CsActiveForm). Otherwise, the
+ * model uses Jackson.
+ * <p>
+ * The codec also reads the models from BSON documents and writes them as BSON documents, without
+ * JSON objects between them, for the models annotated with <code>@CsModel(bson=true)</code>. The
+ * BSON documents are the same that the mongo client saves for the JSON objects with the ObjectIds
+ * written as {"$oid": id}. The BSON dates are read as Date, but the Date attributes are still written
+ * as timestamps.
+ */
+public class CsModelCodec {
+	
+	private static final Logger logger = LoggerFactory.getLogger(CsModelCodec.class);
+	
+	/**
+	 * The codecs of the classes, the nested models included.
+	 */
+	private static final Map<Class<?>, CsModelCodec> codecs = new ConcurrentHashMap<Class<?>, CsModelCodec>();
+	
+	/**
+	 * If the models of each class use their codec.
+	 */
+	private static final Map<Class<?>, Boolean> enabled = new ConcurrentHashMap<Class<?>, Boolean>();
+	
+	
+	private final Class<?> type;
+	
+	/**
+	 * The constructor without parameters, used to create the nested models. It is <code>null</code> if
+	 * the class does not have it.
+	 */
+	private final MethodHandle constructor;
+	
+	private final Attribute[] attributes;
+	
+	private final Map<String, Attribute> attributesByName;
+	
+	
+	// CONSTRUCTORS -------
+	
+	private CsModelCodec(Class<?> type, Set<Class<?>> visiting) throws UnsupportedTypeException {
+		this.type = type;
+		this.constructor = findConstructor(type);
+		
+		visiting.add(type);
+		
+		CsModelMetadata metadata = CsModelMetadata.of(type);
+		for(Class<?> t = type; t != null; t = t.getSuperclass()) {
+			for(Field f : t.getDeclaredFields()) {
+				int modifiers = f.getModifiers();
+				if(Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && metadata.getField(f.getName()) == null
+						&& metadata.getRelation(f.getName()) == null)
+					throw new UnsupportedTypeException("the attribute " + f.getName() + " of " + type.getName() + " is final or volatile");
+			}
+		}
+		
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		Map<String, Attribute> attributesByName = new HashMap<String, Attribute>();
+		for(Field f : metadata.getFields()) {
+			if(metadata.getField(f.getName()) != f)
+				continue;
+			
+			CsFieldAccessor accessor = metadata.getAccessor(f.getName());
+			if(accessor == null)
+				throw new UnsupportedTypeException("the attribute " + f.getName() + " of " + type.getName() + " can not be accessed");
+			
+			Value value;
+			try {
+				value = valueOf(f.getGenericType(), visiting);
+			} catch (UnsupportedTypeException e) {
+				throw new UnsupportedTypeException("the attribute " + f.getName() + " of " + type.getName() + " has " + e.getMessage());
+			}
+			
+			// The form sets the time of a date after its own value only if the date is declared after it
+			Field date = f.getName().endsWith("_time") ? metadata.getField(f.getName().substring(0, f.getName().length() - 5)) : null;
+			Attribute attribute = new Attribute(attributes.size(), f.getName(), accessor, value, defaultValue(f.getType()),
+					Collection.class.isAssignableFrom(f.getType()) || f.getType().equals(JsonArray.class),
+					date != null && date.getType().isAssignableFrom(Date.class) && metadata.getFields().indexOf(date) > metadata.getFields().indexOf(f));
+			attributes.add(attribute);
+			attributesByName.put(attribute.name, attribute);
+		}
+		
+		this.attributes = attributes.toArray(new Attribute[attributes.size()]);
+		this.attributesByName = attributesByName;
+	}
+	
+	/**
+	 * Gets the codec of the model class listed in parameters, if the models of the class use it.
+	 * The custom modules are requested only the first time that the class is used.
+	 *
+	 * @param type					the model class.
+	 * @param customSerializers		supplies the custom serializers of the model (the supplied module can be <code>null</code>).
+	 * @param customDeserializers	supplies the custom deserializers of the model (the supplied module can be <code>null</code>).
+	 * @return						the codec or <code>null</code> if the models of the class use Jackson.
+	 */
+	public static CsModelCodec forModel(Class<?> type, Supplier<SimpleModule> customSerializers, Supplier<SimpleModule> customDeserializers) {
+		Boolean result = enabled.get(type);
+		
+		if(result == null) {
+			result = enabled.computeIfAbsent(type, k -> isEnabled(k, customSerializers, customDeserializers));
+		}
+		
+		return result ? codecs.get(type) : null;
+	}
+	
+	/**
+	 * Gets the codec of the class listed in parameters, whether it is enabled or not.
+	 *
+	 * @param type	the class.
+	 * @return		the codec.
+	 * @throws IllegalArgumentException	if some attribute of the class has a not supported type.
+	 */
+	public static CsModelCodec of(Class<?> type) {
+		CsModelCodec result = codecs.get(type);
+		
+		if(result == null) {
+			try {
+				result = new CsModelCodec(type, new HashSet<Class<?>>());
+			} catch (UnsupportedTypeException e) {
+				throw new IllegalArgumentException("The class can not be converted without Jackson: " + e.getMessage());
+			}
+			
+			CsModelCodec previous = codecs.putIfAbsent(type, result);
+			if(previous != null)
+				result = previous;
+		}
+		
+		return result;
+	}
+	
+	
+	// CONVERSIONS -------
+	
+	/**
+	 * @param model			the model.
+	 * @param emptyValues	if the empty values are included.
+	 * @param dbObjectId	if the ObjectIds are written as {"$oid": id} (as they are saved) instead of as strings.
+	 * @return				the JSON object with the attributes of the model.
+	 */
+	public JsonObject encode(Object model, boolean emptyValues, boolean dbObjectId) {
+		return new JsonObject(encodeMap(model, emptyValues, dbObjectId));
+	}
+	
+	/**
+	 * Sets the attributes of the model with the values of the JSON object listed in parameters. The
+	 * values that are not of an attribute are ignored.
+	 *
+	 * @param model	the model.
+	 * @param body	the values of the attributes.
+	 * @throws IllegalArgumentException	if some value can not be converted to the type of its attribute.
+	 */
+	public void decode(Object model, JsonObject body) {
+		decodeMap(model, body.getMap());
+	}
+	
+	/**
+	 * Writes the attributes of the model directly as the bytes of a BSON document. The ObjectIds are
+	 * written as ObjectIds.
+	 *
+	 * @param model			the model.
+	 * @param emptyValues	if the empty values are included.
+	 * @param attributes	the attributes that are written or <code>null</code> to write all of them.
+	 * @return				the BSON document with the attributes of the model.
+	 */
+	public RawBsonDocument encode(Object model, boolean emptyValues, Predicate<String> attributes) {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		
+		try(BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+			writeFields(model, writer, emptyValues, attributes);
+		}
+		
+		return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+	}
+	
+	/**
+	 * Sets the attributes of the model with the values of the stored BSON document listed in
+	 * parameters, reading the values directly from the bytes of the document. The values are set as
+	 * {@link CsActiveForm#setAttributes(boolean, JsonObject)} sets the values of a JSON object: the
+	 * empty strings of the collections and JsonArrays are null and the empty times of the dates are
+	 * " 00:00".
+	 *
+	 * @param model		the model.
+	 * @param document	the BSON document.
+	 * @throws IllegalArgumentException	if some value can not be converted to the type of its attribute.
+	 */
+	public void decode(Object model, RawBsonDocument document) {
+		decode(model, document, null);
+	}
+	
+	/**
+	 * Sets only the attributes listed in parameters with the values of the stored BSON document. The
+	 * values of the other attributes are skipped without being converted.
+	 *
+	 * @param model			the model.
+	 * @param document		the BSON document.
+	 * @param attributes	the attributes that are set or <code>null</code> to set all of them.
+	 * @throws IllegalArgumentException	if some value can not be converted to the type of its attribute.
+	 * @see #decode(Object, RawBsonDocument)
+	 */
+	public void decode(Object model, RawBsonDocument document, Predicate<String> attributes) {
+		try(BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+			readFields(model, reader, true, attributes);
+		}
+	}
+	
+	/**
+	 * Finds where the values of the attributes are in the stored BSON document, so each attribute can
+	 * be set with {@link #decode(Object, RawBsonDocument, int[], String)} without reading the document
+	 * from its start.
+	 *
+	 * @param document	the BSON document.
+	 * @return			the positions of the attributes in the bytes of the document (-1 for the
+	 * 					attributes that are not in the document).
+	 */
+	public int[] index(RawBsonDocument document) {
+		int[] result = new int[attributes.length];
+		Arrays.fill(result, -1);
+		
+		ByteBuf buffer = document.getByteBuffer();
+		try(BsonBinaryReader reader = new BsonBinaryReader(new ByteBufferBsonInput(buffer))) {
+			reader.readStartDocument();
+			
+			int position = buffer.position();
+			while(reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+				Attribute attribute = attributesByName.get(reader.readName());
+				if(attribute != null)
+					result[attribute.index] = position;
+				
+				reader.skipValue();
+				position = buffer.position();
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Sets the attribute listed in parameters with its value in the stored BSON document, reading only
+	 * the value of the attribute. The value is set as {@link #decode(Object, RawBsonDocument)} sets it.
+	 *
+	 * @param model		the model.
+	 * @param document	the BSON document.
+	 * @param index		the positions of the attributes in the document, given by {@link #index(RawBsonDocument)}.
+	 * @param attribute	the name of the attribute.
+	 * @throws IllegalArgumentException	if the value can not be converted to the type of the attribute.
+	 */
+	public void decode(Object model, RawBsonDocument document, int[] index, String attribute) {
+		Attribute result = attributesByName.get(attribute);
+		if(result == null || index[result.index] < 0)
+			return;
+		
+		ByteBuf buffer = document.getByteBuffer();
+		try(BsonBinaryReader reader = new BsonBinaryReader(new ByteBufferBsonInput(buffer))) {
+			reader.readStartDocument();
+			buffer.position(index[result.index]);
+			reader.readBsonType();
+			
+			result.set(model, result.readForm(reader));
+		}
+	}
+	
+	/**
+	 * Sets the attribute listed in parameters with its value in the stored JSON object, as
+	 * {@link #decode(Object, JsonObject, Predicate)} sets it.
+	 *
+	 * @param model		the model.
+	 * @param document	the JSON object read by the mongo client.
+	 * @param attribute	the name of the attribute.
+	 * @throws IllegalArgumentException	if the value can not be converted to the type of the attribute.
+	 */
+	public void decode(Object model, JsonObject document, String attribute) {
+		Attribute result = attributesByName.get(attribute);
+		if(result != null && document.containsKey(attribute))
+			result.set(model, result.decodeForm(document.getMap().get(attribute)));
+	}
+	
+	/**
+	 * Sets only the attributes listed in parameters with the values of the stored JSON object, as
+	 * {@link CsActiveForm#setAttributes(boolean, JsonObject)} sets them: the empty strings of the
+	 * collections and JsonArrays are null and the empty times of the dates are " 00:00".
+	 *
+	 * @param model			the model.
+	 * @param document		the JSON object read by the mongo client.
+	 * @param attributes	the attributes that are set.
+	 * @throws IllegalArgumentException	if some value can not be converted to the type of its attribute.
+	 */
+	public void decode(Object model, JsonObject document, Predicate<String> attributes) {
+		Map<String, Object> values = document.getMap();
+		
+		for(Attribute attribute : this.attributes) {
+			if(attributes.test(attribute.name) && values.containsKey(attribute.name))
+				attribute.set(model, attribute.decodeForm(values.get(attribute.name)));
+		}
+	}
+	
+	
+	// GETTERS -------
+	
+	public Class<?> getType() {
+		return type;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private static boolean isEnabled(Class<?> type, Supplier<SimpleModule> customSerializers, Supplier<SimpleModule> customDeserializers) {
+		CsModel ann = type.getAnnotation(CsModel.class);
+		if(ann == null || (!ann.codec() && !ann.bson() && !ann.lazy()))
+			return false;
+		
+		if((customSerializers != null && customSerializers.get() != null) || (customDeserializers != null && customDeserializers.get() != null)) {
+			logger.warn("The model " + type.getName() + " has custom serializers or deserializers, so it does not use its codec.");
+			return false;
+		}
+		
+		try {
+			of(type);
+		} catch (IllegalArgumentException e) {
+			logger.warn("The model " + type.getName() + " does not use its codec. " + e.getMessage());
+			return false;
+		}
+		
+		return true;
+	}
+	
+	private Map<String, Object> encodeMap(Object model, boolean emptyValues, boolean dbObjectId) {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		
+		for(Attribute attribute : attributes) {
+			Object value = attribute.get(model);
+			if(value == null) {
+				if(emptyValues)
+					result.put(attribute.name, null);
+			} else if(emptyValues || !attribute.value.isEmpty(value)) {
+				result.put(attribute.name, attribute.value.encode(value, emptyValues, dbObjectId));
+			}
+		}
+		
+		return result;
+	}
+	
+	private void writeFields(Object model, BsonWriter writer, boolean emptyValues, Predicate<String> names) {
+		writer.writeStartDocument();
+		for(Attribute attribute : attributes) {
+			if(names != null && !names.test(attribute.name))
+				continue;
+			
+			Object value = attribute.get(model);
+			if(value == null) {
+				if(emptyValues) {
+					writer.writeName(attribute.name);
+					writer.writeNull();
+				}
+			} else if(emptyValues || !attribute.value.isEmpty(value)) {
+				writer.writeName(attribute.name);
+				attribute.value.writeBson(writer, value, emptyValues);
+			}
+		}
+		writer.writeEndDocument();
+	}
+	
+	/**
+	 * @param form	if the values are read as CsActiveForm sets them.
+	 * @param names	the attributes that are read or <code>null</code> to read all of them.
+	 */
+	private void readFields(Object model, BsonReader reader, boolean form, Predicate<String> names) {
+		reader.readStartDocument();
+		while(reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			Attribute attribute = attributesByName.get(reader.readName());
+			if(attribute == null || (names != null && !names.test(attribute.name)))
+				reader.skipValue();
+			else
+				attribute.set(model, form ? attribute.readForm(reader) : attribute.value.readBson(reader));
+		}
+		reader.readEndDocument();
+	}
+	
+	private void decodeMap(Object model, Map<?, ?> body) {
+		for(Map.Entry<?, ?> entry : body.entrySet()) {
+			Attribute attribute = attributesByName.get(entry.getKey());
+			if(attribute != null)
+				attribute.set(model, attribute.value.decode(entry.getValue()));
+		}
+	}
+	
+	private Object newInstance() {
+		if(constructor == null)
+			throw new IllegalArgumentException("The class " + type.getName() + " does not have a constructor without parameters");
+		
+		try {
+			return (Object) constructor.invokeExact();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static MethodHandle findConstructor(Class<?> type) {
+		if(Modifier.isAbstract(type.getModifiers()))
+			return null;
+		
+		try {
+			return MethodHandles.lookup().findConstructor(type, MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Object.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		}
+	}
+	
+	private static Object defaultValue(Class<?> type) {
+		if(type == int.class)
+			return 0;
+		if(type == long.class)
+			return 0L;
+		if(type == double.class)
+			return 0d;
+		if(type == float.class)
+			return 0f;
+		if(type == short.class)
+			return (short) 0;
+		if(type == byte.class)
+			return (byte) 0;
+		if(type == boolean.class)
+			return false;
+		
+		return null;
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Value valueOf(Type type, Set<Class<?>> visiting) throws UnsupportedTypeException {
+		Class<?> raw = rawType(type);
+		if(raw == null)
+			throw new UnsupportedTypeException("the type " + type.getTypeName());
+		
+		if(raw == String.class)
+			return Simple.STRING;
+		if(raw == int.class || raw == Integer.class)
+			return Simple.INTEGER;
+		if(raw == long.class || raw == Long.class)
+			return Simple.LONG;
+		if(raw == double.class || raw == Double.class)
+			return Simple.DOUBLE;
+		if(raw == float.class || raw == Float.class)
+			return Simple.FLOAT;
+		if(raw == short.class || raw == Short.class)
+			return Simple.SHORT;
+		if(raw == byte.class || raw == Byte.class)
+			return Simple.BYTE;
+		if(raw == boolean.class || raw == Boolean.class)
+			return Simple.BOOLEAN;
+		if(raw == Date.class)
+			return Simple.DATE;
+		if(raw == ObjectId.class)
+			return Simple.OBJECT_ID;
+		if(raw == JsonObject.class)
+			return Simple.JSON_OBJECT;
+		if(raw == JsonArray.class)
+			return Simple.JSON_ARRAY;
+		if(raw.isEnum())
+			return new EnumValue((Class<? extends Enum>) raw);
+		
+		if(raw == Map.class || raw == HashMap.class || raw == LinkedHashMap.class) {
+			Type[] arguments = typeArguments(type, 2);
+			if(rawType(arguments[0]) != String.class && rawType(arguments[0]) != Object.class)
+				throw new UnsupportedTypeException("a map without String keys");
+			
+			return new MapValue(valueOf(arguments[1], visiting));
+		}
+		
+		if(raw == List.class || raw == ArrayList.class || raw == Collection.class)
+			return new CollectionValue(valueOf(typeArguments(type, 1)[0], visiting), false);
+		if(raw == Set.class || raw == HashSet.class)
+			return new CollectionValue(valueOf(typeArguments(type, 1)[0], visiting), true);
+		
+		if(CsActiveForm.class.isAssignableFrom(raw)) {
+			if(!visiting.contains(raw))
+				new CsModelCodec(raw, visiting);
+			
+			return new FormValue(raw);
+		}
+		
+		throw new UnsupportedTypeException("the type " + type.getTypeName());
+	}
+	
+	private static Class<?> rawType(Type type) {
+		if(type instanceof Class)
+			return (Class<?>) type;
+		if(type instanceof ParameterizedType)
+			return rawType(((ParameterizedType) type).getRawType());
+		
+		return null;
+	}
+	
+	private static Type[] typeArguments(Type type, int count) throws UnsupportedTypeException {
+		if(!(type instanceof ParameterizedType) || ((ParameterizedType) type).getActualTypeArguments().length != count)
+			throw new UnsupportedTypeException("the raw type " + type.getTypeName());
+		
+		return ((ParameterizedType) type).getActualTypeArguments();
+	}
+	
+	private static Map<?, ?> asMap(Object value) {
+		if(value instanceof JsonObject)
+			return ((JsonObject) value).getMap();
+		if(value instanceof Map)
+			return (Map<?, ?>) value;
+		
+		return null;
+	}
+	
+	private static List<?> asList(Object value) {
+		if(value instanceof JsonArray)
+			return ((JsonArray) value).getList();
+		if(value instanceof List)
+			return (List<?>) value;
+		
+		return null;
+	}
+	
+	/**
+	 * @return	the trimmed string or <code>null</code> if it is empty.
+	 */
+	private static String text(Object value) {
+		String result = ((String) value).trim();
+		
+		return result.isEmpty() ? null : result;
+	}
+	
+	private static long integer(Object value, long min, long max, String type) {
+		Number n = (Number) value;
+		if(n instanceof Double || n instanceof Float) {
+			double d = n.doubleValue();
+			if(d < min || d > max)
+				throw new IllegalArgumentException("Numeric value (" + value + ") out of range of " + type);
+			
+			return (long) d;
+		}
+		
+		long result = n.longValue();
+		if(result < min || result > max)
+			throw new IllegalArgumentException("Numeric value (" + value + ") out of range of " + type);
+		
+		return result;
+	}
+	
+	private static void writeItem(BsonWriter writer, Value value, Object item, boolean emptyValues) {
+		if(item == null)
+			writer.writeNull();
+		else
+			value.writeBson(writer, item, emptyValues);
+	}
+	
+	private static IllegalArgumentException mismatch(Object value, String type) {
+		return new IllegalArgumentException("Can not convert " + value.getClass().getSimpleName() + " (" + value + ") to " + type);
+	}
+	
+	
+	/**
+	 * An attribute of the model.
+	 */
+	private static class Attribute {
+		
+		/**
+		 * The position of the attribute in the attributes of the codec.
+		 */
+		private final int index;
+		
+		private final String name;
+		private final CsFieldAccessor accessor;
+		private final Value value;
+		
+		/**
+		 * The value set when the value is null, for the primitive attributes.
+		 */
+		private final Object defaultValue;
+		
+		/**
+		 * If the empty strings are null, for the collections and JsonArrays.
+		 */
+		private final boolean emptyIsNull;
+		
+		/**
+		 * If the attribute is the time of a date (its name is the name of a Date attribute plus _time) whose
+		 * empty values are " 00:00".
+		 */
+		private final boolean time;
+		
+		
+		public Attribute(int index, String name, CsFieldAccessor accessor, Value value, Object defaultValue, boolean emptyIsNull, boolean time) {
+			this.index = index;
+			this.name = name;
+			this.accessor = accessor;
+			this.value = value;
+			this.defaultValue = defaultValue;
+			this.emptyIsNull = emptyIsNull;
+			this.time = time;
+		}
+		
+		
+		public Object get(Object model) {
+			try {
+				return accessor.get(model);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		public void set(Object model, Object value) {
+			try {
+				accessor.set(model, value == null ? defaultValue : value);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		/**
+		 * Converts the JSON value as CsActiveForm sets the attributes.
+		 */
+		public Object decodeForm(Object json) {
+			if(json instanceof String && ((String) json).isEmpty()) {
+				if(emptyIsNull)
+					return null;
+				if(time)
+					return value.decode(" 00:00");
+			}
+			if(time && json == null)
+				return value.decode(" 00:00");
+			
+			return value.decode(json);
+		}
+		
+		/**
+		 * Reads the current value of the reader as CsActiveForm sets the attributes.
+		 */
+		public Object readForm(BsonReader reader) {
+			if(emptyIsNull || time) {
+				BsonType type = reader.getCurrentBsonType();
+				if(type == BsonType.STRING) {
+					String text = reader.readString();
+					if(text.isEmpty())
+						return emptyIsNull ? null : value.decode(" 00:00");
+					
+					return value.decode(text);
+				}
+				if(time && type == BsonType.NULL) {
+					reader.readNull();
+					return value.decode(" 00:00");
+				}
+			}
+			
+			return value.readBson(reader);
+		}
+		
+	}
+	
+	/**
+	 * Converts the values of a type.
+	 */
+	private interface Value {
+		
+		/**
+		 * @param value			a not null value of the type.
+		 * @param emptyValues	if the empty values are included.
+		 * @param dbObjectId	if the ObjectIds are written as {"$oid": id}.
+		 * @return				the JSON value.
+		 */
+		public Object encode(Object value, boolean emptyValues, boolean dbObjectId);
+		
+		/**
+		 * @param value	a not null value of the type.
+		 * @return		if the value is not written without the empty values.
+		 */
+		public boolean isEmpty(Object value);
+		
+		/**
+		 * @param value	a JSON value.
+		 * @return		the value converted to the type.
+		 */
+		public Object decode(Object value);
+		
+		/**
+		 * @param writer		the writer, after the name of the value.
+		 * @param value			a not null value of the type.
+		 * @param emptyValues	if the empty values are included.
+		 */
+		public default void writeBson(BsonWriter writer, Object value, boolean emptyValues) {
+			CsBsonJson.write(writer, encode(value, emptyValues, true));
+		}
+		
+		/**
+		 * @param reader	the reader, with a current value.
+		 * @return			the value converted to the type.
+		 */
+		public default Object readBson(BsonReader reader) {
+			return decode(CsBsonJson.read(reader));
+		}
+		
+	}
+	
+	private enum Simple implements Value {
+		
+		STRING {
+			@Override
+			public boolean isEmpty(Object value) {
+				return ((String) value).isEmpty();
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value == null || value instanceof String)
+					return value;
+				if(value instanceof Number || value instanceof Boolean)
+					return value.toString();
+				
+				throw mismatch(value, "String");
+			}
+		},
+		
+		INTEGER {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return value;
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Integer)
+					return value;
+				if(value instanceof Number)
+					return (int) integer(value, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+				if(value instanceof String)
+					return text(value) == null ? null : Integer.valueOf(text(value));
+				
+				return nullOrMismatch(value, "int");
+			}
+		},
+		
+		LONG {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return CsJsonTree.readInteger((Number) value);
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Long)
+					return value;
+				if(value instanceof Number)
+					return integer(value, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+				if(value instanceof String)
+					return text(value) == null ? null : Long.valueOf(text(value));
+				
+				return nullOrMismatch(value, "long");
+			}
+		},
+		
+		DOUBLE {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return CsJsonTree.readDecimal((Number) value);
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Double)
+					return value;
+				if(value instanceof Number)
+					return ((Number) value).doubleValue();
+				if(value instanceof String)
+					return text(value) == null ? null : Double.valueOf(text(value));
+				
+				return nullOrMismatch(value, "double");
+			}
+		},
+		
+		FLOAT {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return CsJsonTree.readDecimal((Number) value);
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Float)
+					return value;
+				if(value instanceof Number)
+					return ((Number) value).floatValue();
+				if(value instanceof String)
+					return text(value) == null ? null : Float.valueOf(text(value));
+				
+				return nullOrMismatch(value, "float");
+			}
+		},
+		
+		SHORT {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return ((Number) value).intValue();
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Number)
+					return (short) integer(value, Short.MIN_VALUE, Short.MAX_VALUE, "short");
+				if(value instanceof String)
+					return text(value) == null ? null : Short.valueOf(text(value));
+				
+				return nullOrMismatch(value, "short");
+			}
+		},
+		
+		BYTE {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return ((Number) value).intValue();
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Number)
+					return (byte) integer(value, Byte.MIN_VALUE, 255, "byte");
+				if(value instanceof String)
+					return text(value) == null ? null : Byte.valueOf(text(value));
+				
+				return nullOrMismatch(value, "byte");
+			}
+		},
+		
+		BOOLEAN {
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Boolean)
+					return value;
+				if(value instanceof Number)
+					return ((Number) value).intValue() != 0;
+				if(value instanceof String) {
+					String text = text(value);
+					if(text == null)
+						return null;
+					if("true".equals(text))
+						return Boolean.TRUE;
+					if("false".equals(text))
+						return Boolean.FALSE;
+				}
+				
+				return nullOrMismatch(value, "boolean");
+			}
+		},
+		
+		DATE {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return CsJsonTree.readInteger(((Date) value).getTime());
+			}
+			
+			@Override
+			public boolean isEmpty(Object value) {
+				return ((Date) value).getTime() == 0L;
+			}
+			
+			/**
+			 * As DateDeserializer: the timestamps (numbers or strings) and the strings with format
+			 * yyyy-MM-dd. The strings with other formats are null.
+			 */
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof Date)
+					return value;
+				if(value instanceof Number)
+					return new Date(((Number) value).longValue());
+				if(value instanceof String) {
+					String text = text(value);
+					if(text == null)
+						return null;
+					
+					try {
+						return new Date(Long.parseLong(text));
+					} catch (NumberFormatException e) {
+						try {
+							return new SimpleDateFormat("yyyy-MM-dd").parse(text);
+						} catch (ParseException e2) {
+							return null;
+						}
+					}
+				}
+				
+				return nullOrMismatch(value, "Date");
+			}
+		},
+		
+		OBJECT_ID {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				if(!dbObjectId)
+					return value.toString();
+				
+				Map<String, Object> result = new LinkedHashMap<String, Object>();
+				result.put("$oid", value.toString());
+				
+				return result;
+			}
+			
+			@Override
+			public Object decode(Object value) {
+				if(value instanceof ObjectId)
+					return value;
+				
+				Map<?, ?> map = asMap(value);
+				if(map != null) {
+					Object oid = map.get("$oid");
+					return oid == null ? new ObjectId("") : new ObjectId(oid.toString());
+				}
+				if(value instanceof String)
+					return new ObjectId((String) value);
+				
+				return nullOrMismatch(value, "ObjectId");
+			}
+		},
+		
+		JSON_OBJECT {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return CsJsonTree.copy(value);
+			}
+			
+			@Override
+			@SuppressWarnings("unchecked")
+			public Object decode(Object value) {
+				if(asMap(value) != null)
+					return new JsonObject((Map<String, Object>) CsJsonTree.copy(value));
+				if(value instanceof String)
+					return new JsonObject((String) value);
+				
+				return nullOrMismatch(value, "JsonObject");
+			}
+		},
+		
+		JSON_ARRAY {
+			@Override
+			public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+				return CsJsonTree.copy(value);
+			}
+			
+			@Override
+			@SuppressWarnings("unchecked")
+			public Object decode(Object value) {
+				if(asList(value) != null)
+					return new JsonArray((List<Object>) CsJsonTree.copy(value));
+				
+				return nullOrMismatch(value, "JsonArray");
+			}
+		};
+		
+		
+		@Override
+		public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+			return value;
+		}
+		
+		@Override
+		public boolean isEmpty(Object value) {
+			return false;
+		}
+		
+		/**
+		 * The JSON objects and arrays are written as the mongo client writes them.
+		 */
+		@Override
+		public void writeBson(BsonWriter writer, Object value, boolean emptyValues) {
+			Object json = encode(value, emptyValues, true);
+			
+			if(this == OBJECT_ID)
+				writer.writeObjectId((ObjectId) value);
+			else if(json instanceof String)
+				writer.writeString((String) json);
+			else if(json instanceof Integer)
+				writer.writeInt32((Integer) json);
+			else if(json instanceof Long)
+				writer.writeInt64((Long) json);
+			else if(json instanceof Double)
+				writer.writeDouble((Double) json);
+			else if(json instanceof Boolean)
+				writer.writeBoolean((Boolean) json);
+			else
+				CsBsonJson.write(writer, json);
+		}
+		
+		/**
+		 * The scalar values are read directly. The ObjectIds and the dates are read as ObjectId and
+		 * Date only by the attributes of these types; the others read them as the mongo client does.
+		 */
+		@Override
+		public Object readBson(BsonReader reader) {
+			switch(reader.getCurrentBsonType()) {
+				case STRING:
+					return decode(reader.readString());
+				case INT32:
+					return decode(reader.readInt32());
+				case INT64:
+					return decode(reader.readInt64());
+				case DOUBLE:
+					return decode(reader.readDouble());
+				case BOOLEAN:
+					return decode(reader.readBoolean());
+				case NULL:
+					reader.readNull();
+					return null;
+				case OBJECT_ID:
+					if(this == OBJECT_ID)
+						return reader.readObjectId();
+					break;
+				case DATE_TIME:
+					if(this == DATE)
+						return new Date(reader.readDateTime());
+					break;
+				default:
+					break;
+			}
+			
+			return decode(CsBsonJson.read(reader));
+		}
+		
+		private static Object nullOrMismatch(Object value, String type) {
+			if(value == null)
+				return null;
+			
+			throw mismatch(value, type);
+		}
+		
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static class EnumValue implements Value {
+		
+		private final Class<? extends Enum> type;
+		private final Enum[] constants;
+		
+		
+		public EnumValue(Class<? extends Enum> type) {
+			this.type = type;
+			this.constants = type.getEnumConstants();
+		}
+		
+		
+		@Override
+		public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+			return ((Enum) value).name();
+		}
+		
+		@Override
+		public void writeBson(BsonWriter writer, Object value, boolean emptyValues) {
+			writer.writeString(((Enum) value).name());
+		}
+		
+		@Override
+		public boolean isEmpty(Object value) {
+			return false;
+		}
+		
+		@Override
+		public Object decode(Object value) {
+			if(value == null)
+				return null;
+			if(value instanceof String)
+				return Enum.valueOf(type, (String) value);
+			if(value instanceof Integer || value instanceof Long) {
+				long index = ((Number) value).longValue();
+				if(index >= 0 && index < constants.length)
+					return constants[(int) index];
+			}
+			
+			throw mismatch(value, type.getSimpleName());
+		}
+		
+	}
+	
+	private static class MapValue implements Value {
+		
+		private final Value values;
+		
+		
+		public MapValue(Value values) {
+			this.values = values;
+		}
+		
+		
+		@Override
+		public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+			Map<String, Object> result = new LinkedHashMap<String, Object>();
+			for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				Object item = entry.getValue();
+				result.put(String.valueOf(entry.getKey()), item == null ? null : values.encode(item, emptyValues, dbObjectId));
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public boolean isEmpty(Object value) {
+			return ((Map<?, ?>) value).isEmpty();
+		}
+		
+		/**
+		 * As CsMapDeserializer, the arrays are converted to maps whose keys are the indexes.
+		 */
+		@Override
+		public Object decode(Object value) {
+			if(value == null)
+				return null;
+			
+			Map<String, Object> result = new LinkedHashMap<String, Object>();
+			Map<?, ?> map = asMap(value);
+			List<?> list = asList(value);
+			if(map != null) {
+				for(Map.Entry<?, ?> entry : map.entrySet()) {
+					result.put(String.valueOf(entry.getKey()), values.decode(entry.getValue()));
+				}
+			} else if(list != null) {
+				for(int i = 0; i < list.size(); i++) {
+					result.put(String.valueOf(i), values.decode(list.get(i)));
+				}
+			} else {
+				throw mismatch(value, "Map");
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public void writeBson(BsonWriter writer, Object value, boolean emptyValues) {
+			writer.writeStartDocument();
+			for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				writer.writeName(String.valueOf(entry.getKey()));
+				writeItem(writer, values, entry.getValue(), emptyValues);
+			}
+			writer.writeEndDocument();
+		}
+		
+		@Override
+		public Object readBson(BsonReader reader) {
+			BsonType type = reader.getCurrentBsonType();
+			if(type != BsonType.DOCUMENT && type != BsonType.ARRAY)
+				return decode(CsBsonJson.read(reader));
+			
+			Map<String, Object> result = new LinkedHashMap<String, Object>();
+			if(type == BsonType.DOCUMENT) {
+				reader.readStartDocument();
+				while(reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+					result.put(reader.readName(), values.readBson(reader));
+				}
+				reader.readEndDocument();
+			} else {
+				reader.readStartArray();
+				while(reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+					result.put(String.valueOf(result.size()), values.readBson(reader));
+				}
+				reader.readEndArray();
+			}
+			
+			return result;
+		}
+		
+	}
+	
+	private static class CollectionValue implements Value {
+		
+		private final Value items;
+		
+		/**
+		 * If the attribute is a set instead of a list.
+		 */
+		private final boolean set;
+		
+		
+		public CollectionValue(Value items, boolean set) {
+			this.items = items;
+			this.set = set;
+		}
+		
+		
+		@Override
+		public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+			Collection<?> collection = (Collection<?>) value;
+			List<Object> result = new ArrayList<Object>(collection.size());
+			for(Object item : collection) {
+				result.add(item == null ? null : items.encode(item, emptyValues, dbObjectId));
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public boolean isEmpty(Object value) {
+			return ((Collection<?>) value).isEmpty();
+		}
+		
+		@Override
+		public Object decode(Object value) {
+			if(value == null)
+				return null;
+			
+			List<?> list = asList(value);
+			if(list == null)
+				throw mismatch(value, set ? "Set" : "List");
+			
+			Collection<Object> result = set ? new HashSet<Object>() : new ArrayList<Object>(list.size());
+			for(Object item : list) {
+				result.add(items.decode(item));
+			}
+			
+			return result;
+		}
+		
+		@Override
+		public void writeBson(BsonWriter writer, Object value, boolean emptyValues) {
+			writer.writeStartArray();
+			for(Object item : (Collection<?>) value) {
+				writeItem(writer, items, item, emptyValues);
+			}
+			writer.writeEndArray();
+		}
+		
+		@Override
+		public Object readBson(BsonReader reader) {
+			if(reader.getCurrentBsonType() != BsonType.ARRAY)
+				return decode(CsBsonJson.read(reader));
+			
+			Collection<Object> result = set ? new HashSet<Object>() : new ArrayList<Object>();
+			reader.readStartArray();
+			while(reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+				result.add(items.readBson(reader));
+			}
+			reader.readEndArray();
+			
+			return result;
+		}
+		
+	}
+	
+	/**
+	 * Nested models. Their codecs are got the first time that they are needed, because a model can
+	 * have attributes of its own class.
+	 */
+	private static class FormValue implements Value {
+		
+		private final Class<?> type;
+		
+		private volatile CsModelCodec codec;
+		
+		
+		public FormValue(Class<?> type) {
+			this.type = type;
+		}
+		
+		
+		@Override
+		public Object encode(Object value, boolean emptyValues, boolean dbObjectId) {
+			return codec().encodeMap(value, emptyValues, dbObjectId);
+		}
+		
+		@Override
+		public boolean isEmpty(Object value) {
+			return false;
+		}
+		
+		@Override
+		public Object decode(Object value) {
+			if(value == null)
+				return null;
+			
+			Map<?, ?> map = asMap(value);
+			if(map == null)
+				throw mismatch(value, type.getSimpleName());
+			
+			CsModelCodec codec = codec();
+			Object result = codec.newInstance();
+			codec.decodeMap(result, map);
+			
+			return result;
+		}
+		
+		@Override
+		public void writeBson(BsonWriter writer, Object value, boolean emptyValues) {
+			codec().writeFields(value, writer, emptyValues, null);
+		}
+		
+		@Override
+		public Object readBson(BsonReader reader) {
+			if(reader.getCurrentBsonType() != BsonType.DOCUMENT)
+				return decode(CsBsonJson.read(reader));
+			
+			CsModelCodec codec = codec();
+			Object result = codec.newInstance();
+			codec.readFields(result, reader, false, null);
+			
+			return result;
+		}
+		
+		private CsModelCodec codec() {
+			CsModelCodec result = codec;
+			if(result == null) {
+				result = of(type);
+				codec = result;
+			}
+			
+			return result;
+		}
+		
+	}
+	
+	private static class UnsupportedTypeException extends Exception {
+		
+		private static final long serialVersionUID = 1L;
+		
+		
+		public UnsupportedTypeException(String message) {
+			super(message);
+		}
+		
+	}
+	
+}
@@ -1,8 +1,12 @@
 package com.cloudsiness.csmongo.helpers.pojo;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.bson.types.ObjectId;
 
@@ -12,27 +16,218 @@ import com.cloudsiness.csmongo.helpers.serializers.JsonArrayDeserializer;
 import com.cloudsiness.csmongo.helpers.serializers.JsonArraySerializer;
 import com.cloudsiness.csmongo.helpers.serializers.JsonObjectDeserializer;
 import com.cloudsiness.csmongo.helpers.serializers.JsonObjectSerializer;
+import com.cloudsiness.csmongo.helpers.serializers.ObjectIdDbJsonSerializer;
 import com.cloudsiness.csmongo.helpers.serializers.ObjectIdJsonDeserializer;
 import com.cloudsiness.csmongo.helpers.serializers.ObjectIdJsonSerializer;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
+/**
+ * Converts the models to JSON objects and the JSON objects to models.
+ * <p>
+ * The mappers are configured only once and cached: per model class for the readers and writers of
+ * the models (see {@link #reader(Class, Supplier)} and {@link #writer(Class, boolean, boolean, Supplier)})
+ * and per custom module for the static methods that receive one. The {@link ObjectReader} and
+ * {@link ObjectWriter} instances are immutable, so they are shared by all the threads.
+ * <p>
+ * The conversions do not encode the JSON objects as text: the JSON objects are written as Jackson
+ * tokens and the tokens are read as JSON objects (see {@link CsJsonTree}), unless the string round
+ * trip is enabled with {@link #setStringRoundTrip(boolean)}.
+ */
 public class CsPojoHelper {
 	
+	/**
+	 * Mappers without custom module.
+	 */
+	private static final ObjectMapper SERIALIZE_MAPPER = createSerializeMapper(true, false, null);
+	private static final ObjectMapper SERIALIZE_NOT_EMPTY_MAPPER = createSerializeMapper(false, false, null);
+	private static final ObjectMapper DESERIALIZE_MAPPER = createDeserializeMapper(null);
+	
+	/**
+	 * Writers of the models, per model class and options.
+	 */
+	private static final Map<WriterKey, ObjectWriter> writers = new ConcurrentHashMap<WriterKey, ObjectWriter>();
+	
+	/**
+	 * Readers of the models, per model class.
+	 */
+	private static final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+	
+	/**
+	 * Mappers of the custom modules received by the static methods. Weak keys, so the modules created
+	 * in each call do not stay in memory.
+	 */
+	private static final Map<SimpleModule, ObjectMapper> serializeMappers = Collections.synchronizedMap(new WeakHashMap<SimpleModule, ObjectMapper>());
+	private static final Map<SimpleModule, ObjectMapper> serializeNotEmptyMappers = Collections.synchronizedMap(new WeakHashMap<SimpleModule, ObjectMapper>());
+	private static final Map<SimpleModule, ObjectMapper> deserializeMappers = Collections.synchronizedMap(new WeakHashMap<SimpleModule, ObjectMapper>());
+	
+	/**
+	 * If the models are converted through JSON text (the behaviour of the previous versions) instead of
+	 * through Jackson tokens.
+	 */
+	private static volatile boolean stringRoundTrip = false;
+	
+	
+	// CONFIGURATION -------
+	
+	/**
+	 * By default, the JSON objects are bound to the models (and the models to JSON objects) through
+	 * Jackson tokens, without encoding and parsing them as text. This switch restores the text
+	 * conversion of the previous versions.
+	 * 
+	 * @param stringRoundTrip	<code>true</code> to convert the models through JSON text.
+	 */
+	public static void setStringRoundTrip(boolean stringRoundTrip) {
+		CsPojoHelper.stringRoundTrip = stringRoundTrip;
+	}
+	
+	public static boolean isStringRoundTrip() {
+		return stringRoundTrip;
+	}
+	
+	
+	// MODELS -------
+	
+	/**
+	 * Gets the writer of the model class listed in parameters. The custom module is requested only the
+	 * first time that the writer is needed.
+	 *
+	 * @param type			the model class.
+	 * @param emptyValues	if the empty values are included.
+	 * @param dbObjectId	if the ObjectIds are written as {"$oid": id} (as they are saved) instead of as strings.
+	 * @param customModule	supplies the custom serializers of the model (the supplied module can be <code>null</code>).
+	 * @return				the writer.
+	 */
+	public static ObjectWriter writer(Class<?> type, boolean emptyValues, boolean dbObjectId, Supplier<SimpleModule> customModule) {
+		WriterKey key = new WriterKey(type, emptyValues, dbObjectId);
+		ObjectWriter result = writers.get(key);
+		
+		if(result == null) {
+			result = writers.computeIfAbsent(key, k ->
+				createSerializeMapper(emptyValues, dbObjectId, customModule != null ? customModule.get() : null).writerFor(type)
+			);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Gets the reader of the model class listed in parameters. The custom module is requested only the
+	 * first time that the reader is needed.
+	 *
+	 * @param type			the model class.
+	 * @param customModule	supplies the custom deserializers of the model (the supplied module can be <code>null</code>).
+	 * @return				the reader.
+	 */
+	public static ObjectReader reader(Class<?> type, Supplier<SimpleModule> customModule) {
+		ObjectReader result = readers.get(type);
+		
+		if(result == null) {
+			result = readers.computeIfAbsent(type, k ->
+				createDeserializeMapper(customModule != null ? customModule.get() : null).readerFor(type)
+			);
+		}
+		
+		return result;
+	}
+	
+	public static <T> JsonObject serialize(T obj, ObjectWriter writer) throws JsonProcessingException {
+		if(stringRoundTrip)
+			return new JsonObject(writer.writeValueAsString(obj));
+		
+		try {
+			TokenBuffer buffer = new TokenBuffer(null, false);
+			writer.writeValue(buffer, obj);
+			
+			return toJsonObject(buffer);
+		} catch (JsonProcessingException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	public static <T> void deserialize(T obj, JsonObject body, ObjectReader reader) throws JsonProcessingException, IOException {
+		if(stringRoundTrip)
+			reader.withValueToUpdate(obj).readValue(body.encodePrettily());
+		else
+			reader.withValueToUpdate(obj).readValue(CsJsonTree.toTokens(body).asParser(reader));
+	}
+	
+	
+	// STATIC METHODS -------
+	
 	public static <T> JsonObject serialize(T obj, boolean emptyValues) throws JsonProcessingException {
 		return serialize(obj, emptyValues, null);
 	}
-
+	
 	public static <T> JsonObject serialize(T obj, boolean emptyValues, SimpleModule customModule) throws JsonProcessingException {
+		ObjectMapper mapper;
+		if(customModule == null) {
+			mapper = emptyValues ? SERIALIZE_MAPPER : SERIALIZE_NOT_EMPTY_MAPPER;
+		} else {
+			Map<SimpleModule, ObjectMapper> mappers = emptyValues ? serializeMappers : serializeNotEmptyMappers;
+			mapper = mappers.computeIfAbsent(customModule, m -> createSerializeMapper(emptyValues, false, m));
+		}
+		
+		if(stringRoundTrip)
+			return new JsonObject(mapper.writeValueAsString(obj));
+		
+		try {
+			TokenBuffer buffer = new TokenBuffer(null, false);
+			mapper.writeValue(buffer, obj);
+			
+			return toJsonObject(buffer);
+		} catch (JsonProcessingException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	public static <T> void deserialize(T obj, JsonObject body, SimpleModule customModule) throws JsonProcessingException, IOException {
+		ObjectMapper mapper = customModule == null ? DESERIALIZE_MAPPER : deserializeMappers.computeIfAbsent(customModule, CsPojoHelper::createDeserializeMapper);
+		
+		ObjectReader reader = mapper.readerForUpdating(obj);
+		if(stringRoundTrip)
+			reader.readValue(body.encodePrettily());
+		else
+			reader.readValue(CsJsonTree.toTokens(body).asParser(mapper));
+	}
+	
+	public static <T> T deserialize(JsonObject body, Class<T> clazz) throws JsonProcessingException, IOException {
+		ObjectReader reader = DESERIALIZE_MAPPER.readerFor(clazz);
+		T obj = stringRoundTrip ? reader.readValue(body.encodePrettily()) : reader.readValue(CsJsonTree.toTokens(body).asParser(DESERIALIZE_MAPPER));
+		
+		return obj;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	@SuppressWarnings("unchecked")
+	private static JsonObject toJsonObject(TokenBuffer buffer) throws IOException {
+		JsonParser p = buffer.asParser();
+		Object value = CsJsonTree.read(p);
+		if(value == null)
+			return null;
+		
+		return new JsonObject((Map<String, Object>) value);
+	}
+	
+	private static ObjectMapper createSerializeMapper(boolean emptyValues, boolean dbObjectId, SimpleModule customModule) {
 		ObjectMapper mapper = new ObjectMapper();
 		mapper.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
 		mapper.setVisibility(PropertyAccessor.FIELD, Visibility.PUBLIC_ONLY);
@@ -49,10 +244,16 @@ public class CsPojoHelper {
 		if(customModule != null)
 			mapper.registerModule(customModule);
 		
-		return new JsonObject(mapper.writeValueAsString(obj));
+		if(dbObjectId) {
+			SimpleModule dbModule = new SimpleModule();
+			dbModule.addSerializer(ObjectId.class, new ObjectIdDbJsonSerializer());
+			mapper.registerModule(dbModule);
+		}
+		
+		return mapper;
 	}
 	
-	public static <T> void deserialize(T obj, JsonObject body, SimpleModule customModule) throws JsonProcessingException, IOException {
+	private static ObjectMapper createDeserializeMapper(SimpleModule customModule) {
 		ObjectMapper mapper = new ObjectMapper();
 		mapper.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
 		mapper.setVisibility(PropertyAccessor.FIELD, Visibility.PUBLIC_ONLY);
@@ -70,29 +271,42 @@ public class CsPojoHelper {
 		if(customModule != null)
 			mapper.registerModule(customModule);
 		
-		ObjectReader reader = mapper.readerForUpdating(obj);
-		reader.readValue(body.encodePrettily());
+		return mapper;
 	}
 	
-	public static <T> T deserialize(JsonObject body, Class<T> clazz) throws JsonProcessingException, IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
-		mapper.setVisibility(PropertyAccessor.FIELD, Visibility.PUBLIC_ONLY);
+	
+	/**
+	 * Key of the writers cache.
+	 */
+	private static class WriterKey {
 		
-		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		private final Class<?> type;
+		private final boolean emptyValues;
+		private final boolean dbObjectId;
 		
-		SimpleModule module = new SimpleModule();
-		module.addDeserializer(Map.class, new CsMapDeserializer());
-		module.addDeserializer(JsonObject.class, new JsonObjectDeserializer());
-		module.addDeserializer(JsonArray.class, new JsonArrayDeserializer());
-		module.addDeserializer(ObjectId.class, new ObjectIdJsonDeserializer());
-		module.addDeserializer(Date.class, new DateDeserializer());
-		mapper.registerModule(module);
 		
-		ObjectReader reader = mapper.reader();
-		T obj = reader.forType(clazz).readValue(body.encodePrettily());
+		public WriterKey(Class<?> type, boolean emptyValues, boolean dbObjectId) {
+			this.type = type;
+			this.emptyValues = emptyValues;
+			this.dbObjectId = dbObjectId;
+		}
+		
+		
+		@Override
+		public int hashCode() {
+			return type.hashCode() * 4 + (emptyValues ? 2 : 0) + (dbObjectId ? 1 : 0);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof WriterKey))
+				return false;
+			
+			WriterKey other = (WriterKey) obj;
+			
+			return type == other.type && emptyValues == other.emptyValues && dbObjectId == other.dbObjectId;
+		}
 		
-		return obj;
 	}
 	
 }
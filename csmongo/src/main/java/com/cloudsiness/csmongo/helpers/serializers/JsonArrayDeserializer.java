@@ -1,28 +1,31 @@
 package com.cloudsiness.csmongo.helpers.serializers;
 
 import java.io.IOException;
+import java.util.List;
 
+import com.cloudsiness.csmongo.helpers.pojo.CsJsonTree;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 
+import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 
 public class JsonArrayDeserializer extends JsonDeserializer<JsonArray> {
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public JsonArray deserialize(JsonParser j, DeserializationContext s)
 			throws IOException, JsonProcessingException {
 		if(j == null)
 			return null;
 		
-		JsonNode node = j.getCodec().readTree(j);
-		if(node == null)
-			return null;
+		Object value = CsJsonTree.read(j);
+		if(value instanceof List)
+			return new JsonArray((List<Object>) value);
 		
-		return new JsonArray(node.toString());
+		return new JsonArray(Json.encode(value));
 	}
 	
 }
@@ -1,18 +1,20 @@
 package com.cloudsiness.csmongo.helpers.serializers;
 
 import java.io.IOException;
+import java.util.Map;
 
+import com.cloudsiness.csmongo.helpers.pojo.CsJsonTree;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 
 import io.vertx.core.json.JsonObject;
 
 public class JsonObjectDeserializer extends JsonDeserializer<JsonObject> {
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public JsonObject deserialize(JsonParser j, DeserializationContext s)
 			throws IOException, JsonProcessingException {
 		if(j == null)
@@ -22,11 +24,7 @@ public class JsonObjectDeserializer extends JsonDeserializer<JsonObject> {
 		if(jsonString != null)
 			return new JsonObject(jsonString);
 				
-		JsonNode node = j.getCodec().readTree(j);
-		if(node == null)
-			return null;
-		
-		return new JsonObject(node.toString());
+		return new JsonObject((Map<String, Object>) CsJsonTree.read(j));
 	}
 
 }
@@ -0,0 +1,206 @@
+package com.cloudsiness.csmongo.sequence;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+import com.mongodb.MongoException;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.UpdateOptions;
+
+/**
+ * A sequence of unique values (1, 2, 3...) shared by all the verticles and servers that use the same
+ * database. The last reserved value is kept in a document of the counters collection, and each
+ * sequence reserves a block of values with an atomic $inc (the hi/lo algorithm): the next values are
+ * given from memory until the block is used up, and only then a new block is requested. The values
+ * are unique but they have gaps (the values of a block that are not used are lost) and they are not
+ * ordered between verticles.
+ * <p>
+ * Each verticle (each Vert.x context) has its own instance of each sequence, got with
+ * {@link #sequence(String)}, so the values are given without locks. For example, in a @BeforeSave
+ * method:
+ * <pre>
+ * CsSequence.sequence("invoices").next(res -&gt; {
+ *     number = res.result();
+ *     ...
+ * });
+ * </pre>
+ *
+ * @see com.cloudsiness.csmongo.active.annotations.Sequence
+ */
+public class CsSequence {
+	
+	private static final String CONTEXT_KEY = "csmongo.sequence.";
+	
+	/**
+	 * The duplicate key error, returned when two verticles create the counter at the same time.
+	 */
+	private static final int DUPLICATE_KEY = 11000;
+	
+	
+	private final String name;
+	
+	private final CsSequenceOptions options;
+	
+	/**
+	 * The handlers that wait for the next block.
+	 */
+	private final Deque<Handler<AsyncResult<Long>>> waiting;
+	
+	/**
+	 * The next value of the current block.
+	 */
+	private long next;
+	
+	/**
+	 * The last value of the current block.
+	 */
+	private long last;
+	
+	private boolean reserving;
+	
+	private long blocks;
+	
+	
+	// CONSTRUCTORS -------
+	
+	/**
+	 * Creates a sequence that is not shared with the other instances of the verticle. Its methods
+	 * must be called from only one thread.
+	 *
+	 * @param name		the name of the sequence (the _id of its counter).
+	 * @param options	the options.
+	 */
+	public CsSequence(String name, CsSequenceOptions options) {
+		this.name = name;
+		this.options = options;
+		this.waiting = new ArrayDeque<Handler<AsyncResult<Long>>>();
+		this.next = 1;
+		this.last = 0;
+	}
+	
+	/**
+	 * @see #sequence(String, CsSequenceOptions)
+	 */
+	public static CsSequence sequence(String name) {
+		return sequence(name, new CsSequenceOptions());
+	}
+	
+	/**
+	 * Gets the instance of the sequence of the current Vert.x context, creating it (with the options
+	 * listed in parameters) the first time.
+	 *
+	 * @param name		the name of the sequence.
+	 * @param options	the options of the sequence if it is created.
+	 * @return			the sequence.
+	 * @throws IllegalStateException	if it is not called from a Vert.x context.
+	 */
+	public static CsSequence sequence(String name, CsSequenceOptions options) {
+		Context context = Vertx.currentContext();
+		if(context == null)
+			throw new IllegalStateException("The sequence " + name + " must be used from a Vert.x context");
+		
+		String key = CONTEXT_KEY + options.getMongoClient() + "/" + options.getCollection() + "/" + name;
+		CsSequence result = context.get(key);
+		if(result == null) {
+			result = new CsSequence(name, options);
+			context.put(key, result);
+		}
+		
+		return result;
+	}
+	
+	
+	// VALUES -------
+	
+	/**
+	 * Gives the next value of the sequence. It only requests a block to the database if the current
+	 * block has been used up.
+	 *
+	 * @param handler	the handler of the value.
+	 */
+	public void next(Handler<AsyncResult<Long>> handler) {
+		if(next <= last && waiting.isEmpty()) {
+			handler.handle(Future.succeededFuture(next++));
+			return;
+		}
+		
+		waiting.add(handler);
+		if(!reserving)
+			reserve(true);
+	}
+	
+	/**
+	 * @return	the number of blocks reserved by this instance.
+	 */
+	public long getBlocks() {
+		return blocks;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Reserves the next block and gives its values to the waiting handlers.
+	 *
+	 * @param retry	if the request is retried when another instance creates the counter at the same time.
+	 */
+	private void reserve(boolean retry) {
+		reserving = true;
+		
+		MongoClient client;
+		try {
+			client = CsMongoFactory.mongo(options.getMongoClient());
+		} catch(Exception e) {
+			fail(e);
+			return;
+		}
+		
+		JsonObject query = new JsonObject().put("_id", name);
+		JsonObject update = new JsonObject().put("$inc", new JsonObject().put("value", (long) options.getBlockSize()));
+		UpdateOptions updateOptions = new UpdateOptions().setUpsert(true).setReturningNewDocument(true);
+		
+		client.findOneAndUpdateWithOptions(options.getCollection(), query, update, new FindOptions(), updateOptions, res -> {
+			if(res.failed()) {
+				if(retry && res.cause() instanceof MongoException && ((MongoException) res.cause()).getCode() == DUPLICATE_KEY)
+					reserve(false);
+				else
+					fail(res.cause());
+				return;
+			}
+			
+			reserving = false;
+			blocks++;
+			last = res.result().getLong("value");
+			next = last - options.getBlockSize() + 1;
+			
+			while(!waiting.isEmpty() && next <= last) {
+				waiting.poll().handle(Future.succeededFuture(next++));
+			}
+			
+			if(!waiting.isEmpty() && !reserving)
+				reserve(true);
+		});
+	}
+	
+	private void fail(Throwable cause) {
+		reserving = false;
+		
+		while(!waiting.isEmpty()) {
+			waiting.poll().handle(Future.failedFuture(cause));
+		}
+	}
+	
+}
@@ -0,0 +1,71 @@
+package com.cloudsiness.csmongo.sequence;
+
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+/**
+ * The options of a {@link CsSequence}.
+ */
+public class CsSequenceOptions {
+	
+	public static final int DEFAULT_BLOCK_SIZE = 100;
+	
+	public static final String DEFAULT_COLLECTION = "counters";
+	
+	
+	private int blockSize;
+	
+	private String collection;
+	
+	private String mongoClient;
+	
+	
+	public CsSequenceOptions() {
+		this.blockSize = DEFAULT_BLOCK_SIZE;
+		this.collection = DEFAULT_COLLECTION;
+		this.mongoClient = CsMongoFactory.MAIN;
+	}
+	
+	
+	public int getBlockSize() {
+		return blockSize;
+	}
+	
+	/**
+	 * @param blockSize	the number of values reserved with each request to the database.
+	 */
+	public CsSequenceOptions setBlockSize(int blockSize) {
+		if(blockSize < 1)
+			throw new IllegalArgumentException("The block size must be greater than 0");
+		
+		this.blockSize = blockSize;
+		
+		return this;
+	}
+	
+	public String getCollection() {
+		return collection;
+	}
+	
+	/**
+	 * @param collection	the collection of the counters (one document for each sequence).
+	 */
+	public CsSequenceOptions setCollection(String collection) {
+		this.collection = collection;
+		
+		return this;
+	}
+	
+	public String getMongoClient() {
+		return mongoClient;
+	}
+	
+	/**
+	 * @param mongoClient	the name of the mongo client in the factory.
+	 */
+	public CsSequenceOptions setMongoClient(String mongoClient) {
+		this.mongoClient = mongoClient;
+		
+		return this;
+	}
+	
+}
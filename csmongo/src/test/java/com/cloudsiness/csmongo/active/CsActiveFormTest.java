@@ -403,6 +403,29 @@ public class CsActiveFormTest {
 	}
 	
 	
+	// TEST errors
+	
+	@Test
+	public void aNewFormHasNotErrors(TestContext context) {
+		Form form = new Form();
+		
+		context.assertFalse(form.hasErrors());
+		context.assertFalse(form.hasErrors("validatedAttribute"));
+		context.assertNull(form.getErrors("validatedAttribute"));
+		context.assertTrue(form.getErrorsAsList().isEmpty());
+		form.clearErrors();
+	}
+	
+	@Test
+	public void errorsCanBeAddedToANewForm(TestContext context) {
+		Form form = new Form();
+		form.addError("validatedAttribute", "error");
+		
+		context.assertTrue(form.hasErrors());
+		context.assertEquals(form.getErrors("validatedAttribute").size(), 1);
+		context.assertEquals(form.getErrors().size(), 1);
+	}
+	
 	
 	// HELPERS
 	
@@ -0,0 +1,252 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.NotSave;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFindAll;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsAfterFindAllTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private FindClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new FindClient(rule.vertx());
+		Post.afterFindAllCalls = 0;
+		for(int i = 0; i < 100; i++) {
+			client.posts.add(new JsonObject().put("number", i).put("authorId", "author" + (i % 3)));
+		}
+		
+		for(int i = 0; i < 3; i++) {
+			client.authors.add(new JsonObject().put("key", "author" + i).put("name", "Author " + i));
+		}
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST @AfterFindAll
+	
+	@Test
+	public void theRelatedDocumentsOfAPageAreReadWithOneQuery(TestContext context) {
+		Async async = context.async();
+		
+		new Post().findAll(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().size(), 100);
+			context.assertEquals(res.result().get(4).authorName, "Author 1");
+			context.assertEquals(res.result().get(99).authorName, "Author 0");
+			context.assertEquals(client.queries, 2);
+			context.assertEquals(Post.afterFindAllCalls, 1);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theHooksOfEachModelStillRun(TestContext context) {
+		Async async = context.async();
+		
+		new Post().findAll(new JsonObject(), new FindOptions().setLimit(10), res -> {
+			context.assertEquals(res.result().size(), 10);
+			context.assertTrue(res.result().stream().allMatch(post -> post.afterFindCalled));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theRegisteredHooksGetTheWholeList(TestContext context) {
+		Async async = context.async();
+		List<Integer> sizes = new ArrayList<Integer>();
+		Post prototype = new Post();
+		prototype.registerListHook(CsActiveBase.ON_AFTER_FIND_ALL, (models, handler) -> {
+			sizes.add(models.size());
+			handler.handle(Future.succeededFuture(true));
+		});
+		
+		prototype.findAll(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(sizes.size(), 1);
+			context.assertEquals(sizes.get(0), 100);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void aFailedHookFailsTheFind(TestContext context) {
+		Async async = context.async();
+		Post prototype = new Post();
+		prototype.registerListHook(CsActiveBase.ON_AFTER_FIND_ALL, (models, handler) -> {
+			handler.handle(Future.failedFuture(new IllegalStateException("no authors")));
+		});
+		
+		prototype.findAll(res -> {
+			context.assertTrue(res.failed());
+			context.assertEquals(res.cause().getMessage(), "no authors");
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void aFalseHookDoesNotCancelTheFind(TestContext context) {
+		Async async = context.async();
+		Post prototype = new Post();
+		prototype.registerListHook(CsActiveBase.ON_AFTER_FIND_ALL, (models, handler) -> {
+			handler.handle(Future.succeededFuture(false));
+		});
+		
+		prototype.findAll(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().size(), 100);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theHooksDoNotRunIfNothingIsFound(TestContext context) {
+		Async async = context.async();
+		client.posts.clear();
+		
+		new Post().findAll(res -> {
+			context.assertTrue(res.result().isEmpty());
+			context.assertEquals(client.queries, 1);
+			context.assertEquals(Post.afterFindAllCalls, 0);
+			async.complete();
+		});
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void onlyTheEventsOfListsAcceptListHooks() {
+		new Post().registerListHook(CsActiveBase.ON_AFTER_FIND, (models, handler) -> {});
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="posts")
+	public static class Post extends CsActiveRecord<Post> {
+		public Integer number;
+		
+		public String authorId;
+		
+		@NotSave
+		public String authorName;
+		
+		private boolean afterFindCalled;
+		
+		private static int afterFindAllCalls;
+		
+		@AfterFind
+		public void afterFind(Handler<AsyncResult<Boolean>> handler) {
+			afterFindCalled = true;
+			handler.handle(Future.succeededFuture(true));
+		}
+		
+		@AfterFindAll
+		public void afterFindAll(List<Post> posts, Handler<AsyncResult<Boolean>> handler) {
+			afterFindAllCalls++;
+			
+			List<String> ids = posts.stream().map(post -> post.authorId).distinct().collect(Collectors.toList());
+			new Author().findAll(new JsonObject().put("key", new JsonObject().put("$in", new JsonArray(ids))), res -> {
+				if(res.failed()) {
+					handler.handle(Future.failedFuture(res.cause()));
+					return;
+				}
+				
+				Map<String, String> names = new HashMap<String, String>();
+				for(Author author : res.result()) {
+					names.put(author.key, author.name);
+				}
+				
+				for(Post post : posts) {
+					post.authorName = names.get(post.authorId);
+				}
+				
+				handler.handle(Future.succeededFuture(true));
+			});
+		}
+	}
+	
+	@CsModel(collectionName="authors")
+	public static class Author extends CsActiveRecord<Author> {
+		public String key;
+		
+		public String name;
+	}
+	
+	/**
+	 * A client that does not connect to the database: it gives the posts or the authors and counts the
+	 * queries.
+	 */
+	private static class FindClient extends BulkMongoClient {
+		
+		private final List<JsonObject> posts = new ArrayList<JsonObject>();
+		
+		private final List<JsonObject> authors = new ArrayList<JsonObject>();
+		
+		private int queries;
+		
+		
+		private FindClient(Vertx vertx) {
+			super(vertx);
+		}
+		
+		
+		@Override
+		public MongoClient find(String collection, JsonObject query, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			return findWithOptions(collection, query, new FindOptions(), resultHandler);
+		}
+		
+		@Override
+		public MongoClient findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			queries++;
+			
+			List<JsonObject> documents = collection.equals("posts") ? posts : authors;
+			JsonArray keys = query.containsKey("key") ? query.getJsonObject("key").getJsonArray("$in") : null;
+			List<JsonObject> result = documents.stream()
+					.filter(d -> keys == null || keys.contains(d.getString("key")))
+					.limit(options.getLimit() >= 0 ? options.getLimit() : Long.MAX_VALUE)
+					.map(JsonObject::copy)
+					.collect(Collectors.toList());
+			
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,185 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.bson.BsonObjectId;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.exceptions.CsCanNotSaveAttributesOfNewRecords;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.active.helpers.TestModel;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.UpdateOneModel;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsBulkWriteTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private BulkMongoClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new BulkMongoClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST execute
+	
+	@Test
+	public void theOperationsAreWrittenInOnlyOneRequest(TestContext context) {
+		Async async = context.async();
+		TestModel found = storedModel();
+		JsonObject query = new JsonObject().put("attribute1", "a");
+		
+		new TestModel().bulkWrite()
+				.insert(new TestModel("a", "b"))
+				.saveAttributes(found, Arrays.asList("attribute1"))
+				.updateMany(query, new JsonObject().put("$inc", new JsonObject().put("position", 1)))
+				.upsert(query, new JsonObject().put("$set", query))
+				.replaceOne(query, query, false)
+				.deleteOne(query)
+				.deleteMany(query)
+				.execute(res -> {
+					context.assertTrue(res.succeeded());
+					context.assertEquals(client.getBatches(), Arrays.asList(7));
+					context.assertEquals(client.getOrdered(), Arrays.asList(true));
+					context.assertEquals(types(), Arrays.asList("InsertOneModel", "UpdateOneModel", "UpdateManyModel", "UpdateOneModel", "ReplaceOneModel", "DeleteOneModel", "DeleteManyModel"));
+					context.assertTrue(((UpdateOneModel<?>) client.getWrites().get(3)).getOptions().isUpsert());
+					async.complete();
+				});
+	}
+	
+	@Test
+	public void theResultHasTheCountsOfTheWrites(TestContext context) {
+		Async async = context.async();
+		ObjectId upsertedId = new ObjectId();
+		client.setResult(BulkWriteResult.acknowledged(1, 3, 4, 2, Arrays.asList(new BulkWriteUpsert(1, new BsonObjectId(upsertedId)))));
+		
+		new TestModel().bulkWrite()
+				.setOrdered(false)
+				.deleteOne(new JsonObject())
+				.upsert(new JsonObject(), new JsonObject().put("$set", new JsonObject().put("a", 1)))
+				.execute(res -> {
+					context.assertEquals(client.getOrdered(), Arrays.asList(false));
+					context.assertEquals(res.result().getInsertedCount(), 1);
+					context.assertEquals(res.result().getMatchedCount(), 3);
+					context.assertEquals(res.result().getDeletedCount(), 4);
+					context.assertEquals(res.result().getModifiedCount(), 2);
+					context.assertEquals(res.result().getUpsertedCount(), 1);
+					context.assertEquals(res.result().getUpsertedIds().get(1), new BsonObjectId(upsertedId));
+					async.complete();
+				});
+	}
+	
+	@Test
+	public void theEmptyBulkWritesDoNotWrite(TestContext context) {
+		Async async = context.async();
+		
+		new TestModel().bulkWrite().execute(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().getMatchedCount(), 0);
+			context.assertTrue(client.getBatches().isEmpty());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theInsertedModelsAreNotNewRecords(TestContext context) {
+		Async async = context.async();
+		TestModel model = new TestModel("a", "b");
+		
+		new TestModel().bulkWrite().insert(model).execute(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertNotNull(model._id);
+			context.assertFalse(model.isNewRecord());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsAfterTheFailedWriteAreNotSaved(TestContext context) {
+		Async async = context.async();
+		TestModel first = new TestModel("a", "b");
+		TestModel second = new TestModel("c", "d");
+		TestModel third = new TestModel("e", "f");
+		client.setFailedIndex(1);
+		
+		new TestModel().bulkWrite().insert(first).insert(second).insert(third).execute(res -> {
+			context.assertTrue(res.failed());
+			context.assertFalse(first.isNewRecord());
+			context.assertTrue(second.isNewRecord());
+			context.assertTrue(third.isNewRecord());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsThatAreNotInsertedDoNotKeepTheirGeneratedIds(TestContext context) {
+		Async async = context.async();
+		TestModel first = new TestModel("a", "b");
+		TestModel second = new TestModel("c", "d");
+		TestModel third = new TestModel("e", "f");
+		client.setFailedIndex(1);
+		
+		new TestModel().bulkWrite().insert(first).save(second).replace(third).execute(res -> {
+			context.assertTrue(res.failed());
+			context.assertNotNull(first._id);
+			context.assertNull(second._id);
+			context.assertNull(third._id);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theAttributesOfNewRecordsCanNotBeSaved(TestContext context) {
+		Async async = context.async();
+		
+		new TestModel().bulkWrite().saveAttributes(new TestModel(), Arrays.asList("attribute1")).execute(res -> {
+			context.assertTrue(res.cause() instanceof CsCanNotSaveAttributesOfNewRecords);
+			context.assertTrue(client.getBatches().isEmpty());
+			async.complete();
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	private TestModel storedModel() {
+		TestModel model = new TestModel("a", "b");
+		model._id = new ObjectId();
+		model.isNewRecord = false;
+		
+		return model;
+	}
+	
+	private List<String> types() {
+		return client.getWrites().stream().map(w -> w.getClass().getSimpleName()).collect(Collectors.toList());
+	}
+	
+}
@@ -0,0 +1,174 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.events.BeforeDelete;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsDeleteAllTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private DeleteClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new DeleteClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST deleteAllAfterFindAll
+	
+	@Test
+	public void theModelsAreDeletedInBatches(TestContext context) {
+		Async async = context.async();
+		client.add("a", "b", "c", "d", "e");
+		
+		new DeletedModel().deleteAllAfterFindAll(new JsonObject(), null, new CsDeleteAllOptions().setBatchSize(2), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertTrue(res.result().isEmpty());
+			context.assertEquals(client.reads, 3);
+			context.assertEquals(client.removes, Arrays.asList(2, 2, 1));
+			context.assertTrue(client.documents.isEmpty());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theCancelledModelsAreNotDeletedNorReadAgain(TestContext context) {
+		Async async = context.async();
+		client.add("keep", "a", "keep", "keep", "b");
+		
+		new DeletedModel().deleteAllAfterFindAll(new JsonObject(), null, new CsDeleteAllOptions().setBatchSize(2), res -> {
+			context.assertEquals(res.result().size(), 3);
+			context.assertEquals(client.reads, 3);
+			context.assertEquals(client.removes, Arrays.asList(1, 1));
+			context.assertEquals(names(), Arrays.asList("keep", "keep", "keep"));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theFieldsAreReadWithTheirId(TestContext context) {
+		Async async = context.async();
+		client.add("a");
+		
+		new DeletedModel().deleteAllAfterFindAll(new JsonObject(), "delete", new CsDeleteAllOptions().setFields(new JsonObject().put("name", 1).put("_id", 0)), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.fields, new JsonObject().put("name", 1));
+			context.assertEquals(client.removes, Arrays.asList(1));
+			async.complete();
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	private List<String> names() {
+		return client.documents.stream().map(d -> d.getString("name")).collect(Collectors.toList());
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="deleted")
+	public static class DeletedModel extends CsActiveRecord<DeletedModel> {
+		public String name;
+		
+		@BeforeDelete
+		public void beforeDelete(Handler<AsyncResult<Boolean>> handler) {
+			handler.handle(Future.succeededFuture(!"keep".equals(name)));
+		}
+	}
+	
+	/**
+	 * A client that does not connect to the database: it reads and removes the documents of a list,
+	 * sorted by _id.
+	 */
+	private static class DeleteClient extends BulkMongoClient {
+		
+		private final List<JsonObject> documents = new ArrayList<JsonObject>();
+		
+		private final List<Integer> removes = new ArrayList<Integer>();
+		
+		private int reads;
+		
+		private JsonObject fields;
+		
+		
+		private DeleteClient(Vertx vertx) {
+			super(vertx);
+		}
+		
+		
+		private void add(String... names) {
+			for(String name : names) {
+				documents.add(new JsonObject().put("_id", new JsonObject().put("$oid", new ObjectId().toString())).put("name", name));
+			}
+		}
+		
+		@Override
+		public MongoClient findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			reads++;
+			fields = options.getFields();
+			
+			String after = query.isEmpty() ? null : query.getJsonObject("_id").getJsonObject("$gt").getString("$oid");
+			List<JsonObject> result = documents.stream()
+					.filter(d -> after == null || d.getJsonObject("_id").getString("$oid").compareTo(after) > 0)
+					.limit(options.getLimit())
+					.map(JsonObject::copy)
+					.collect(Collectors.toList());
+			
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		@Override
+		public MongoClient removeDocuments(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> resultHandler) {
+			JsonArray ids = query.getJsonObject("_id").getJsonArray("$in");
+			removes.add(ids.size());
+			documents.removeIf(d -> ids.contains(d.getJsonObject("_id")));
+			
+			resultHandler.handle(Future.succeededFuture(new MongoClientDeleteResult(ids.size())));
+			return this;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,178 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsDirtySaveTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private SaveClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new SaveClient(rule.vertx());
+		for(int i = 0; i < 3; i++) {
+			client.documents.add(new JsonObject()
+					.put("_id", new JsonObject().put("$oid", new ObjectId().toHexString()))
+					.put("name", "name" + i)
+					.put("city", "city" + i));
+		}
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST save
+	
+	@Test
+	public void theFoundModelsOnlyUpdateTheChangedPaths(TestContext context) {
+		Async async = context.async();
+		
+		new Person().find(new JsonObject(), res -> {
+			Person person = res.result();
+			person.name = "changed";
+			person.save(res2 -> {
+				context.assertTrue(res2.succeeded());
+				context.assertTrue(client.saved.isEmpty());
+				context.assertEquals(client.updates.size(), 1);
+				context.assertEquals(client.updates.get(0), new JsonObject().put("$set", new JsonObject().put("name", "changed")));
+				async.complete();
+			});
+		});
+	}
+	
+	@Test
+	public void theModelsOfAListOnlyUpdateTheChangedPaths(TestContext context) {
+		Async async = context.async();
+		
+		new Person().findAll(res -> {
+			Person person = res.result().get(1);
+			person.name = "changed";
+			person.city = null;
+			person.save(res2 -> {
+				context.assertTrue(res2.succeeded());
+				context.assertTrue(client.saved.isEmpty());
+				context.assertEquals(client.updates.size(), 1);
+				context.assertEquals(client.updates.get(0), new JsonObject()
+						.put("$set", new JsonObject().put("name", "changed"))
+						.put("$unset", new JsonObject().put("city", "")));
+				async.complete();
+			});
+		});
+	}
+	
+	@Test
+	public void theUnchangedModelsOfAListAreNotWritten(TestContext context) {
+		Async async = context.async();
+		
+		new Person().findAll(new JsonObject(), new FindOptions().setLimit(2), res -> {
+			res.result().get(0).save(res2 -> {
+				context.assertTrue(res2.succeeded());
+				context.assertTrue(client.saved.isEmpty());
+				context.assertTrue(client.updates.isEmpty());
+				async.complete();
+			});
+		});
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="people")
+	public static class Person extends CsActiveRecord<Person> {
+		public String name;
+		
+		public String city;
+	}
+	
+	/**
+	 * A client that does not connect to the database: it gives the documents and keeps the saved
+	 * documents and the updates.
+	 */
+	private static class SaveClient extends BulkMongoClient {
+		
+		private final List<JsonObject> documents = new ArrayList<JsonObject>();
+		
+		private final List<JsonObject> saved = new ArrayList<JsonObject>();
+		
+		private final List<JsonObject> updates = new ArrayList<JsonObject>();
+		
+		
+		private SaveClient(Vertx vertx) {
+			super(vertx);
+		}
+		
+		
+		@Override
+		public MongoClient find(String collection, JsonObject query, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			return findWithOptions(collection, query, new FindOptions(), resultHandler);
+		}
+		
+		@Override
+		public MongoClient findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			List<JsonObject> result = documents.stream()
+					.limit(options.getLimit() >= 0 ? options.getLimit() : Long.MAX_VALUE)
+					.map(JsonObject::copy)
+					.collect(Collectors.toList());
+			
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		@Override
+		public MongoClient findOne(String collection, JsonObject query, JsonObject fields, Handler<AsyncResult<JsonObject>> resultHandler) {
+			resultHandler.handle(Future.succeededFuture(documents.get(0).copy()));
+			return this;
+		}
+		
+		@Override
+		public MongoClient save(String collection, JsonObject document, Handler<AsyncResult<String>> resultHandler) {
+			saved.add(document);
+			resultHandler.handle(Future.succeededFuture());
+			return this;
+		}
+		
+		@Override
+		public MongoClient updateCollection(String collection, JsonObject query, JsonObject update, Handler<AsyncResult<MongoClientUpdateResult>> resultHandler) {
+			updates.add(update);
+			resultHandler.handle(Future.succeededFuture(new MongoClientUpdateResult(1, null, 1)));
+			return this;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,287 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.active.helpers.TestModel;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientDeleteResult;
+import io.vertx.ext.mongo.UpdateOptions;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsFindAndModifyTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private FindAndModifyClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new FindAndModifyClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST findOneAndUpdate
+	
+	@Test
+	public void theUpdatedDocumentIsReturnedAsAModel(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		client.result = document(id, "a", "b");
+		JsonObject update = new JsonObject().put("$set", new JsonObject().put("attribute1", "a"));
+		
+		new TestModel().findOneAndUpdate(new JsonObject().put("safeAttribute", "b"), update, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.calls, Arrays.asList("findOneAndUpdate"));
+			context.assertTrue(client.options.isReturningNewDocument());
+			context.assertEquals(res.result()._id, id);
+			context.assertEquals(res.result().attribute1, "a");
+			context.assertFalse(res.result().isNewRecord());
+			context.assertTrue(res.result().isAfterFindCalled());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theNotMatchedUpdatesReturnNull(TestContext context) {
+		Async async = context.async();
+		
+		new TestModel().findOneAndUpdate(new JsonObject(), new JsonObject().put("$inc", new JsonObject().put("a", 1)), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertNull(res.result());
+			async.complete();
+		});
+	}
+	
+	
+	// TEST findOneAndReplace
+	
+	@Test
+	public void theReplacingModelRunsItsSaveHooksAndTakesTheId(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		client.result = document(id, "old", "b");
+		TestModel model = new TestModel("new", "b");
+		
+		new TestModel().findOneAndReplace(new JsonObject().put("safeAttribute", "b"), model, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().attribute1, "old");
+			context.assertFalse(client.document.containsKey("_id"));
+			context.assertEquals(client.document.getString("attribute1"), "new");
+			context.assertTrue(model.isBeforeSaveCalled());
+			context.assertTrue(model.isAfterSaveCalled());
+			context.assertEquals(model._id, id);
+			context.assertFalse(model.isNewRecord());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theNotValidModelsDoNotReplace(TestContext context) {
+		Async async = context.async();
+		TestModel model = new TestModel("new", null);
+		
+		new TestModel().findOneAndReplace(new JsonObject(), model, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertNull(res.result());
+			context.assertTrue(client.calls.isEmpty());
+			context.assertFalse(model.isBeforeSaveCalled());
+			async.complete();
+		});
+	}
+	
+	
+	// TEST findOneAndDelete
+	
+	@Test
+	public void theDeletedModelRunsItsAfterDeleteHooks(TestContext context) {
+		Async async = context.async();
+		client.result = document(new ObjectId(), "a", "b");
+		
+		new TestModel().findOneAndDelete(new JsonObject().put("attribute1", "a"), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.calls, Arrays.asList("findOneAndDelete"));
+			context.assertTrue(res.result().isAfterFindCalled());
+			context.assertFalse(res.result().isBeforeDeleteCalled());
+			context.assertTrue(res.result().isAfterDeleteCalled());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsWithoutBeforeDeleteHooksAreDeletedWithOnlyOneRequest(TestContext context) {
+		Async async = context.async();
+		client.result = new JsonObject().put("_id", new JsonObject().put("$oid", new ObjectId().toString())).put("name", "a");
+		
+		new PlainModel().deleteAfterFind(new JsonObject().put("name", "a"), res -> {
+			context.assertTrue(res.result());
+			context.assertEquals(client.calls, Arrays.asList("findOneAndDelete"));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsWithBeforeDeleteHooksAreFoundBeforeBeingDeleted(TestContext context) {
+		Async async = context.async();
+		client.result = document(new ObjectId(), "a", "b");
+		
+		new TestModel().deleteAfterFind(new JsonObject().put("attribute1", "a"), res -> {
+			context.assertTrue(res.result());
+			context.assertEquals(client.calls, Arrays.asList("findOne", "removeDocument"));
+			async.complete();
+		});
+	}
+	
+	
+	// TEST findOrCreate
+	
+	@Test
+	public void theNotFoundModelIsCreated(TestContext context) {
+		Async async = context.async();
+		TestModel model = new TestModel("a", "b");
+		
+		new TestModel().findOrCreate(new JsonObject().put("attribute1", "a"), model, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertTrue(client.options.isUpsert());
+			context.assertTrue(client.options.isReturningNewDocument());
+			context.assertTrue(client.document.containsKey("$setOnInsert"));
+			context.assertEquals(res.result()._id, model._id);
+			context.assertFalse(model.isNewRecord());
+			context.assertTrue(model.isAfterSaveCalled());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theFoundModelIsNotCreated(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		client.result = document(id, "a", "stored");
+		TestModel model = new TestModel("a", "b");
+		
+		new TestModel().findOrCreate(new JsonObject().put("attribute1", "a"), model, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result()._id, id);
+			context.assertEquals(res.result().safeAttribute, "stored");
+			context.assertNull(model._id);
+			context.assertTrue(model.isNewRecord());
+			context.assertFalse(model.isAfterSaveCalled());
+			async.complete();
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	private JsonObject document(ObjectId id, String attribute1, String safeAttribute) {
+		return new JsonObject()
+				.put("_id", new JsonObject().put("$oid", id.toString()))
+				.put("attribute1", attribute1)
+				.put("safeAttribute", safeAttribute);
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="plain")
+	public static class PlainModel extends CsActiveRecord<PlainModel> {
+		public String name;
+	}
+	
+	/**
+	 * A client that does not connect to the database: it saves the calls and returns the document
+	 * result (or the inserted document of the upserts).
+	 */
+	private static class FindAndModifyClient extends BulkMongoClient {
+		
+		private final List<String> calls = new ArrayList<String>();
+		
+		private JsonObject result;
+		
+		private JsonObject document;
+		
+		private UpdateOptions options;
+		
+		
+		private FindAndModifyClient(Vertx vertx) {
+			super(vertx);
+		}
+		
+		
+		@Override
+		public MongoClient findOne(String collection, JsonObject query, JsonObject fields, Handler<AsyncResult<JsonObject>> resultHandler) {
+			calls.add("findOne");
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		@Override
+		public MongoClient findOneAndUpdateWithOptions(String collection, JsonObject query, JsonObject update, FindOptions findOptions, UpdateOptions updateOptions, Handler<AsyncResult<JsonObject>> resultHandler) {
+			calls.add("findOneAndUpdate");
+			this.document = update;
+			this.options = updateOptions;
+			
+			if(result == null && updateOptions.isUpsert())
+				resultHandler.handle(Future.succeededFuture(update.getJsonObject("$setOnInsert").copy()));
+			else
+				resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		@Override
+		public MongoClient findOneAndReplaceWithOptions(String collection, JsonObject query, JsonObject replace, FindOptions findOptions, UpdateOptions updateOptions, Handler<AsyncResult<JsonObject>> resultHandler) {
+			calls.add("findOneAndReplace");
+			this.document = replace;
+			this.options = updateOptions;
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		@Override
+		public MongoClient findOneAndDelete(String collection, JsonObject query, Handler<AsyncResult<JsonObject>> resultHandler) {
+			calls.add("findOneAndDelete");
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		@Override
+		public MongoClient removeDocument(String collection, JsonObject query, Handler<AsyncResult<MongoClientDeleteResult>> resultHandler) {
+			calls.add("removeDocument");
+			resultHandler.handle(Future.succeededFuture(new MongoClientDeleteResult(1)));
+			return this;
+		}
+		
+	}
+	
+}
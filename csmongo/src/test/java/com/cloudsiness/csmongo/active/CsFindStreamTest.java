@@ -0,0 +1,245 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.criteria.CsCriteria;
+import com.cloudsiness.csmongo.factory.CsCursor;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+import com.mongodb.async.AsyncBatchCursor;
+import com.mongodb.async.SingleResultCallback;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsFindStreamTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private CursorClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new CursorClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST findStream
+	
+	@Test
+	public void theModelsAreGivenInOrderReadingOneBatchAtATime(TestContext context) {
+		Async async = context.async();
+		client.add(10);
+		List<String> names = new ArrayList<String>();
+		
+		new StreamedModel().findStream(new CsCriteria(), 3)
+				.exceptionHandler(context::fail)
+				.handler(model -> {
+					names.add(model.name);
+					context.assertTrue(model.found);
+					context.assertFalse(model.isNewRecord());
+					context.assertEquals(client.batches, (names.size() + 2) / 3);
+				})
+				.endHandler(v -> {
+					context.assertEquals(names, client.names());
+					context.assertTrue(client.cursor.isClosed());
+					async.complete();
+				});
+	}
+	
+	@Test
+	public void thePausedStreamsDoNotReadTheNextBatch(TestContext context) {
+		Async async = context.async();
+		client.add(4);
+		List<String> names = new ArrayList<String>();
+		
+		CsFindStream<StreamedModel> stream = new StreamedModel().findStream(new CsCriteria(), 2);
+		stream.handler(model -> {
+			names.add(model.name);
+			stream.pause();
+			
+			rule.vertx().setTimer(20, t -> {
+				context.assertEquals(client.batches, (names.size() + 1) / 2);
+				stream.resume();
+			});
+		}).endHandler(v -> {
+			context.assertEquals(names.size(), 4);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theClosedStreamsCloseTheCursor(TestContext context) {
+		Async async = context.async();
+		client.add(10);
+		List<String> names = new ArrayList<String>();
+		
+		CsFindStream<StreamedModel> stream = new StreamedModel().findStream(new CsCriteria(), 3);
+		stream.endHandler(v -> context.fail()).handler(model -> {
+			names.add(model.name);
+			if(names.size() == 2)
+				stream.close();
+		});
+		
+		rule.vertx().setTimer(50, t -> {
+			context.assertEquals(names.size(), 2);
+			context.assertEquals(client.batches, 1);
+			context.assertTrue(client.cursor.isClosed());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theErrorsOfTheCursorGoToTheExceptionHandler(TestContext context) {
+		Async async = context.async();
+		client.add(5);
+		client.failedBatch = 2;
+		
+		new StreamedModel().findStream(new CsCriteria(), 3)
+				.handler(model -> {})
+				.endHandler(v -> context.fail())
+				.exceptionHandler(e -> {
+					context.assertEquals(e.getMessage(), "cursor error");
+					context.assertTrue(client.cursor.isClosed());
+					async.complete();
+				});
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="streamed")
+	public static class StreamedModel extends CsActiveRecord<StreamedModel> {
+		public String name;
+		
+		public boolean found;
+		
+		@AfterFind
+		public void afterFind(Handler<AsyncResult<Boolean>> handler) {
+			found = true;
+			handler.handle(Future.succeededFuture(true));
+		}
+	}
+	
+	/**
+	 * A client that does not connect to the database: its cursors give the documents of a list in
+	 * batches, later, and count the requested batches.
+	 */
+	private static class CursorClient extends BulkMongoClient {
+		
+		private final List<JsonObject> documents = new ArrayList<JsonObject>();
+		
+		private final Vertx vertx;
+		
+		private ListCursor cursor;
+		
+		private int batches;
+		
+		private int failedBatch;
+		
+		
+		private CursorClient(Vertx vertx) {
+			super(vertx);
+			this.vertx = vertx;
+		}
+		
+		
+		private void add(int count) {
+			for(int i = 0; i < count; i++) {
+				documents.add(new JsonObject().put("name", "model " + i));
+			}
+		}
+		
+		private List<String> names() {
+			return documents.stream().map(d -> d.getString("name")).collect(Collectors.toList());
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public <D> void findBatches(String collection, Class<D> documentClass, JsonObject query, FindOptions options, int batchSize, Handler<AsyncResult<CsCursor<D>>> handler) {
+			cursor = new ListCursor(batchSize);
+			vertx.runOnContext(v -> handler.handle(Future.succeededFuture(new CsCursor<D>((AsyncBatchCursor<D>) cursor, vertx.getOrCreateContext()))));
+		}
+		
+		private class ListCursor implements AsyncBatchCursor<JsonObject> {
+			
+			private int batchSize;
+			
+			private int next;
+			
+			private boolean closed;
+			
+			
+			private ListCursor(int batchSize) {
+				this.batchSize = batchSize;
+			}
+			
+			
+			@Override
+			public void next(SingleResultCallback<List<JsonObject>> callback) {
+				batches++;
+				
+				if(batches == failedBatch) {
+					callback.onResult(null, new RuntimeException("cursor error"));
+					return;
+				}
+				
+				List<JsonObject> batch = documents.subList(Math.min(next, documents.size()), Math.min(next + batchSize, documents.size()));
+				next += batchSize;
+				callback.onResult(batch.isEmpty() ? null : new ArrayList<JsonObject>(batch), null);
+			}
+			
+			@Override
+			public void setBatchSize(int batchSize) {
+				this.batchSize = batchSize;
+			}
+			
+			@Override
+			public int getBatchSize() {
+				return batchSize;
+			}
+			
+			@Override
+			public boolean isClosed() {
+				return closed;
+			}
+			
+			@Override
+			public void close() {
+				closed = true;
+			}
+			
+		}
+		
+	}
+	
+}
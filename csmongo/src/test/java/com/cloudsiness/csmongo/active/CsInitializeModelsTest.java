@@ -0,0 +1,137 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsInitializeModelsTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	@Before
+	public void setUp() {
+		HookedModel.running = 0;
+		HookedModel.maxRunning = 0;
+	}
+	
+	
+	// TEST initializeModels
+	
+	@Test
+	public void theModelsKeepTheOrderOfTheDocuments(TestContext context) {
+		Async async = context.async();
+		List<JsonObject> documents = documents(20);
+		
+		new HookedModel().initializeModels(documents, (model, document) -> model.setAttributes(false, document), new CsInitializeOptions().setParallelism(4), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(numbers(res.result()), numbers(20));
+			context.assertEquals(HookedModel.maxRunning, 4);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theHooksRunOneAfterAnotherWithoutParallelism(TestContext context) {
+		Async async = context.async();
+		
+		new HookedModel().initializeModels(documents(5), (model, document) -> model.setAttributes(false, document), new CsInitializeOptions().setParallelism(1), res -> {
+			context.assertEquals(numbers(res.result()), numbers(5));
+			context.assertEquals(HookedModel.maxRunning, 1);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theLongListsReleaseTheEventLoop(TestContext context) {
+		Async async = context.async();
+		List<Integer> initializedWhenOtherTaskRan = new ArrayList<Integer>();
+		List<JsonObject> documents = documents(100000);
+		
+		new PlainModel().initializeModels(documents, (model, document) -> model.setAttributes(false, document), new CsInitializeOptions().setYieldEvery(1000), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().size(), 100000);
+			context.assertEquals(res.result().get(99999).number, 99999);
+			context.assertEquals(initializedWhenOtherTaskRan.size(), 1);
+			async.complete();
+		});
+		
+		Vertx.currentContext().runOnContext(v -> initializedWhenOtherTaskRan.add(1));
+	}
+	
+	
+	// HELPER METHODS
+	
+	private List<JsonObject> documents(int count) {
+		List<JsonObject> documents = new ArrayList<JsonObject>();
+		for(int i = 0; i < count; i++) {
+			documents.add(new JsonObject().put("number", i));
+		}
+		
+		return documents;
+	}
+	
+	private List<Integer> numbers(List<HookedModel> models) {
+		return models.stream().map(model -> model.number).collect(Collectors.toList());
+	}
+	
+	private List<Integer> numbers(int count) {
+		List<Integer> numbers = new ArrayList<Integer>();
+		for(int i = 0; i < count; i++) {
+			numbers.add(i);
+		}
+		
+		return numbers;
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="plain")
+	public static class PlainModel extends CsActiveRecord<PlainModel> {
+		public Integer number;
+	}
+	
+	/**
+	 * A model whose after find hook finishes later, sooner for the last models.
+	 */
+	@CsModel(collectionName="hooked")
+	public static class HookedModel extends CsActiveRecord<HookedModel> {
+		public Integer number;
+		
+		private static int running;
+		
+		private static int maxRunning;
+		
+		@AfterFind
+		public void afterFind(Handler<AsyncResult<Boolean>> handler) {
+			running++;
+			maxRunning = Math.max(maxRunning, running);
+			
+			Vertx.currentContext().owner().setTimer(30 - number, t -> {
+				running--;
+				handler.handle(Future.succeededFuture(true));
+			});
+		}
+	}
+	
+}
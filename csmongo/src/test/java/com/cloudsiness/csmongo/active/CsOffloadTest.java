@@ -0,0 +1,179 @@
+package com.cloudsiness.csmongo.active;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsOffloadTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	
+	// TEST map
+	
+	@Test
+	public void theOffloadedItemsArriveInOrderOnTheContextOfTheCaller(TestContext context) {
+		Async async = context.async();
+		Context caller = Vertx.currentContext();
+		WorkerExecutor executor = rule.vertx().createSharedWorkerExecutor("cs-offload-test");
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		CsOffloadMetrics before = CsExecutionPolicy.getMetrics();
+		CsExecutionPolicy policy = new CsExecutionPolicy().setThreshold(10).setChunkSize(7).setWorkerExecutor(executor);
+		
+		CsOffload.map(caller, policy, numbers(100), number -> {
+			threads.add(Thread.currentThread().getName());
+			return number * 2;
+		}, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(Vertx.currentContext(), caller);
+			context.assertEquals(res.result().size(), 100);
+			for(int i = 0; i < 100; i++) {
+				context.assertEquals(res.result().get(i), i * 2);
+			}
+			
+			context.assertTrue(threads.stream().allMatch(thread -> thread.startsWith("cs-offload-test")));
+			
+			CsOffloadMetrics after = CsExecutionPolicy.getMetrics();
+			context.assertEquals(after.getOffloadedDocuments() - before.getOffloadedDocuments(), 100L);
+			context.assertEquals(after.getOffloadedChunks() - before.getOffloadedChunks(), 15L);
+			executor.close();
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theShortListsAreConvertedAtOnce(TestContext context) {
+		CsOffloadMetrics before = CsExecutionPolicy.getMetrics();
+		List<Integer> converted = new ArrayList<Integer>();
+		
+		CsOffload.map(Vertx.currentContext(), new CsExecutionPolicy().setThreshold(10), numbers(9), number -> number + 1, res -> {
+			converted.addAll(res.result());
+		});
+		
+		context.assertEquals(converted.size(), 9);
+		context.assertEquals(CsExecutionPolicy.getMetrics().getInlineDocuments() - before.getInlineDocuments(), 9L);
+		context.assertEquals(CsExecutionPolicy.getMetrics().getOffloadedDocuments(), before.getOffloadedDocuments());
+	}
+	
+	@Test
+	public void anErrorOfAnOffloadedItemFailsTheList(TestContext context) {
+		Async async = context.async();
+		
+		CsOffload.map(Vertx.currentContext(), new CsExecutionPolicy().setThreshold(0).setChunkSize(10), numbers(50), number -> {
+			if(number == 33)
+				throw new IllegalStateException("33");
+			
+			return number;
+		}, res -> {
+			context.assertTrue(res.failed());
+			context.assertEquals(res.cause().getMessage(), "33");
+			async.complete();
+		});
+	}
+	
+	
+	// TEST initializeModels
+	
+	@Test
+	public void theModelsWithoutHooksAreCreatedInTheWorkerPool(TestContext context) {
+		Async async = context.async();
+		Context caller = Vertx.currentContext();
+		CsOffloadMetrics before = CsExecutionPolicy.getMetrics();
+		CsInitializeOptions options = new CsInitializeOptions().setExecutionPolicy(new CsExecutionPolicy().setThreshold(100).setChunkSize(100));
+		
+		new PlainModel().initializeModels(documents(1000), options, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(Vertx.currentContext(), caller);
+			context.assertEquals(res.result().size(), 1000);
+			context.assertEquals(res.result().get(999).number, 999);
+			context.assertFalse(res.result().get(0).isNewRecord());
+			context.assertEquals(CsExecutionPolicy.getMetrics().getOffloadedChunks() - before.getOffloadedChunks(), 10L);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsWithHooksAreInitializedInTheEventLoop(TestContext context) {
+		Async async = context.async();
+		CsOffloadMetrics before = CsExecutionPolicy.getMetrics();
+		
+		new HookedModel().initializeModels(documents(20), new CsInitializeOptions(), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertTrue(res.result().stream().allMatch(model -> model.foundInEventLoop));
+			context.assertEquals(CsExecutionPolicy.getMetrics().getOffloadedDocuments(), before.getOffloadedDocuments());
+			context.assertEquals(CsExecutionPolicy.getMetrics().getInlineDocuments() - before.getInlineDocuments(), 20L);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theThresholdOfTheAnnotationIsThePolicyOfTheModel(TestContext context) {
+		context.assertEquals(new HookedModel().getExecutionPolicy().getThreshold(), 0);
+		context.assertEquals(new PlainModel().getExecutionPolicy().getThreshold(), CsExecutionPolicy.getDefaultThreshold());
+	}
+	
+	
+	// HELPER METHODS
+	
+	private List<Integer> numbers(int count) {
+		List<Integer> numbers = new ArrayList<Integer>();
+		for(int i = 0; i < count; i++) {
+			numbers.add(i);
+		}
+		
+		return numbers;
+	}
+	
+	private List<JsonObject> documents(int count) {
+		List<JsonObject> documents = new ArrayList<JsonObject>();
+		for(int i = 0; i < count; i++) {
+			documents.add(new JsonObject().put("number", i));
+		}
+		
+		return documents;
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="plain")
+	public static class PlainModel extends CsActiveRecord<PlainModel> {
+		public Integer number;
+	}
+	
+	@CsModel(collectionName="hooked", offloadThreshold=0)
+	public static class HookedModel extends CsActiveRecord<HookedModel> {
+		public Integer number;
+		
+		private boolean foundInEventLoop;
+		
+		@AfterFind
+		public void afterFind(Handler<AsyncResult<Boolean>> handler) {
+			foundInEventLoop = Context.isOnEventLoopThread();
+			handler.handle(Future.succeededFuture(true));
+		}
+	}
+	
+}
@@ -0,0 +1,303 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.relations.BelongsTo;
+import com.cloudsiness.csmongo.active.annotations.relations.HasMany;
+import com.cloudsiness.csmongo.active.annotations.relations.ReferencesMany;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.criteria.CsCriteria;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsPopulateTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private RelationsClient client;
+	
+	private List<String> companies;
+	
+	private List<String> authors;
+	
+	private List<String> tags;
+	
+	private List<String> posts;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new RelationsClient(rule.vertx());
+		
+		companies = client.add("companies", new JsonObject().put("name", "c0"), new JsonObject().put("name", "c1"));
+		authors = client.add("authors",
+				new JsonObject().put("name", "a0").put("companyId", oid(companies.get(0))),
+				new JsonObject().put("name", "a1").put("companyId", oid(companies.get(1))),
+				new JsonObject().put("name", "a2").put("companyId", oid(companies.get(0))));
+		tags = client.add("tags", new JsonObject().put("name", "t0"), new JsonObject().put("name", "t1"), new JsonObject().put("name", "t2"));
+		
+		JsonObject[] postDocuments = new JsonObject[30];
+		for(int i = 0; i < postDocuments.length; i++) {
+			postDocuments[i] = new JsonObject().put("number", i)
+					.put("authorId", oid(authors.get(i % 3)))
+					.put("tagIds", new JsonArray().add(oid(tags.get((i + 1) % 3))).add(oid(tags.get(i % 3))));
+		}
+		posts = client.add("posts", postDocuments);
+		
+		client.add("comments",
+				new JsonObject().put("text", "first").put("postId", oid(posts.get(0))),
+				new JsonObject().put("text", "second").put("postId", oid(posts.get(0))),
+				new JsonObject().put("text", "other").put("postId", oid(posts.get(5))));
+		
+		client.queries.clear();
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST populate
+	
+	@Test
+	public void theReferencedModelsAreReadWithOneQuery(TestContext context) {
+		Async async = context.async();
+		
+		new Post().findAll(new CsCriteria().setWith("author"), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().size(), 30);
+			context.assertEquals(res.result().get(0).author.name, "a0");
+			context.assertEquals(res.result().get(4).author.name, "a1");
+			context.assertTrue(res.result().get(3).author == res.result().get(6).author);
+			context.assertEquals(client.queries, Arrays.asList("posts", "authors"));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theNestedRelationsAreReadWithOneQueryPerLevel(TestContext context) {
+		Async async = context.async();
+		
+		new Post().findAll(new CsCriteria().setWith("author.company", "tags", "comments"), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().get(1).author.company.name, "c1");
+			context.assertEquals(res.result().get(2).author.company.name, "c0");
+			context.assertEquals(client.queries.size(), 5);
+			context.assertEquals(new HashSet<String>(client.queries), new HashSet<String>(Arrays.asList("posts", "authors", "companies", "tags", "comments")));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theReferencedListsKeepTheOrderOfTheIds(TestContext context) {
+		Async async = context.async();
+		
+		new Post().findAll(new CsCriteria().setWith("tags"), res -> {
+			context.assertEquals(names(res.result().get(0).tags), Arrays.asList("t1", "t0"));
+			context.assertEquals(names(res.result().get(2).tags), Arrays.asList("t0", "t2"));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theReverseRelationsAreGroupedByForeignKey(TestContext context) {
+		Async async = context.async();
+		
+		new Post().findAll(new CsCriteria().setWith("comments"), res -> {
+			context.assertEquals(res.result().get(0).comments.stream().map(comment -> comment.text).collect(Collectors.toList()), Arrays.asList("first", "second"));
+			context.assertEquals(res.result().get(5).comments.size(), 1);
+			context.assertTrue(res.result().get(1).comments.isEmpty());
+			context.assertEquals(client.queries, Arrays.asList("posts", "comments"));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theRelationsAreNotAttributes(TestContext context) throws Exception {
+		Async async = context.async();
+		
+		new Post().findAll(new CsCriteria().setWith("author", "tags"), res -> {
+			try {
+				JsonObject saved = res.result().get(0).getAttributesToSave();
+				context.assertFalse(saved.containsKey("author"));
+				context.assertFalse(saved.containsKey("tags"));
+				context.assertEquals(saved.getInteger("number"), 0);
+				context.assertFalse(new Post().getFields().stream().anyMatch(field -> field.getName().equals("author")));
+				async.complete();
+			} catch(Exception e) {
+				context.fail(e);
+			}
+		});
+	}
+	
+	@Test
+	public void anUnknownRelationFailsThePopulate(TestContext context) {
+		Async async = context.async();
+		
+		new Post().findAll(new CsCriteria().setWith("author.publisher"), res -> {
+			context.assertTrue(res.failed());
+			context.assertTrue(res.cause() instanceof IllegalArgumentException);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsWithoutReferencesDoNotQuery(TestContext context) {
+		Async async = context.async();
+		Post post = new Post();
+		
+		post.populate(new ArrayList<Post>(Arrays.asList(post)), Arrays.asList("author", "tags"), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertNull(post.author);
+			context.assertTrue(post.tags.isEmpty());
+			context.assertTrue(client.queries.isEmpty());
+			async.complete();
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	private static JsonObject oid(String id) {
+		return new JsonObject().put("$oid", id);
+	}
+	
+	private static List<String> names(List<Tag> tags) {
+		return tags.stream().map(tag -> tag.name).collect(Collectors.toList());
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="companies")
+	public static class Company extends CsActiveRecord<Company> {
+		public String name;
+	}
+	
+	@CsModel(collectionName="authors")
+	public static class Author extends CsActiveRecord<Author> {
+		public String name;
+		
+		public ObjectId companyId;
+		
+		@BelongsTo(attribute="companyId")
+		public Company company;
+	}
+	
+	@CsModel(collectionName="tags")
+	public static class Tag extends CsActiveRecord<Tag> {
+		public String name;
+	}
+	
+	@CsModel(collectionName="comments")
+	public static class Comment extends CsActiveRecord<Comment> {
+		public String text;
+		
+		public ObjectId postId;
+	}
+	
+	@CsModel(collectionName="posts")
+	public static class Post extends CsActiveRecord<Post> {
+		public Integer number;
+		
+		public ObjectId authorId;
+		
+		public List<ObjectId> tagIds;
+		
+		@BelongsTo(attribute="authorId")
+		public Author author;
+		
+		@ReferencesMany(attribute="tagIds")
+		public List<Tag> tags;
+		
+		@HasMany(foreignKey="postId")
+		public List<Comment> comments;
+	}
+	
+	/**
+	 * A client that does not connect to the database: it keeps the documents of each collection,
+	 * supports the $in queries and saves the collection of each query.
+	 */
+	private static class RelationsClient extends BulkMongoClient {
+		
+		private final Map<String, List<JsonObject>> collections = new HashMap<String, List<JsonObject>>();
+		
+		private final List<String> queries = new ArrayList<String>();
+		
+		
+		private RelationsClient(Vertx vertx) {
+			super(vertx);
+		}
+		
+		
+		private List<String> add(String collection, JsonObject... documents) {
+			List<String> ids = new ArrayList<String>();
+			for(JsonObject document : documents) {
+				String id = new ObjectId().toHexString();
+				collections.computeIfAbsent(collection, c -> new ArrayList<JsonObject>()).add(document.put("_id", oid(id)));
+				ids.add(id);
+			}
+			
+			return ids;
+		}
+		
+		@Override
+		public MongoClient find(String collection, JsonObject query, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			return findWithOptions(collection, query, new FindOptions(), resultHandler);
+		}
+		
+		@Override
+		public MongoClient findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			queries.add(collection);
+			
+			List<JsonObject> result = collections.getOrDefault(collection, new ArrayList<JsonObject>()).stream()
+					.filter(d -> matches(d, query))
+					.map(JsonObject::copy)
+					.collect(Collectors.toList());
+			
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		private boolean matches(JsonObject document, JsonObject query) {
+			for(String key : query.fieldNames()) {
+				JsonArray values = query.getJsonObject(key).getJsonArray("$in");
+				if(!values.contains(document.getValue(key)))
+					return false;
+			}
+			
+			return true;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,197 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.CsSaveAllResult.Status;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.active.helpers.TestModel;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+import com.mongodb.client.model.InsertOneModel;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsSaveAllTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private BulkMongoClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new BulkMongoClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST saveAll
+	
+	@Test
+	public void theModelsAreWrittenInBatches(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(5);
+		
+		new TestModel().saveAll(models, new CsSaveAllOptions().setBatchSize(2), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertTrue(res.result().succeeded());
+			context.assertEquals(res.result().count(Status.SAVED), 5);
+			context.assertEquals(client.getBatches(), Arrays.asList(2, 2, 1));
+			
+			for(TestModel model : models) {
+				context.assertNotNull(model._id);
+				context.assertFalse(model.isNewRecord());
+				context.assertTrue(model.isBeforeSaveCalled());
+				context.assertTrue(model.isAfterSaveCalled());
+			}
+			
+			InsertOneModel<?> first = (InsertOneModel<?>) client.getWrites().get(0);
+			context.assertEquals(((JsonObject) first.getDocument()).getString("safeAttribute"), "safe0");
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theNotValidModelsAreNotWritten(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(3);
+		models.get(1).safeAttribute = null;
+		
+		new TestModel().saveAll(models, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertFalse(res.result().succeeded());
+			context.assertEquals(res.result().getStatus(1), Status.NOT_VALID);
+			context.assertEquals(res.result().getModels(Status.SAVED), Arrays.asList(models.get(0), models.get(2)));
+			context.assertEquals(client.getWrites().size(), 2);
+			context.assertNull(models.get(1)._id);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theCancelledModelsAreNotWritten(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(2);
+		models.get(0).setBeforeSaveResult(false);
+		
+		new TestModel().saveAll(models, res -> {
+			context.assertEquals(res.result().getStatus(0), Status.CANCELLED);
+			context.assertEquals(res.result().getStatus(1), Status.SAVED);
+			context.assertEquals(client.getWrites().size(), 1);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theOrderedWritesStopInTheFirstError(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(5);
+		client.setFailedIndex(1);
+		
+		new TestModel().saveAll(models, new CsSaveAllOptions().setBatchSize(3).setOrdered(true), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().getStatus(0), Status.SAVED);
+			context.assertEquals(res.result().getStatus(1), Status.FAILED);
+			context.assertEquals(res.result().getError(1).getMessage(), "duplicate key");
+			context.assertEquals(res.result().count(Status.FAILED), 4);
+			context.assertEquals(client.getBatches(), Arrays.asList(3));
+			context.assertFalse(models.get(2).isAfterSaveCalled());
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsThatAreNotInsertedDoNotKeepTheirGeneratedIds(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(3);
+		client.setFailedIndex(1);
+		
+		new TestModel().saveAll(models, new CsSaveAllOptions().setOrdered(true), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertNotNull(models.get(0)._id);
+			context.assertNull(models.get(1)._id);
+			context.assertNull(models.get(2)._id);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theUnorderedWritesFailOnlyTheWrongModels(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(5);
+		client.setFailedIndex(1);
+		
+		new TestModel().saveAll(models, new CsSaveAllOptions().setBatchSize(3), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(res.result().getStatus(1), Status.FAILED);
+			context.assertEquals(res.result().count(Status.SAVED), 4);
+			context.assertEquals(client.getBatches(), Arrays.asList(3, 2));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theUnchangedStoredModelsAreNotWritten(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(2);
+		
+		new TestModel().saveAll(models, res -> {
+			models.get(1).attribute1 = "changed";
+			client.getWrites().clear();
+			
+			new TestModel().saveAll(models, res2 -> {
+				context.assertTrue(res2.result().succeeded());
+				context.assertEquals(client.getWrites().size(), 1);
+				context.assertEquals(client.getWrites().get(0).getClass().getSimpleName(), "UpdateOneModel");
+				async.complete();
+			});
+		});
+	}
+	
+	@Test
+	public void theModelsWithIdAreReplaced(TestContext context) {
+		Async async = context.async();
+		List<TestModel> models = models(1);
+		models.get(0)._id = new ObjectId();
+		
+		new TestModel().saveAll(models, res -> {
+			context.assertTrue(res.result().succeeded());
+			context.assertEquals(client.getWrites().get(0).getClass().getSimpleName(), "ReplaceOneModel");
+			async.complete();
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	private List<TestModel> models(int count) {
+		List<TestModel> models = new ArrayList<TestModel>();
+		for(int i = 0; i < count; i++) {
+			models.add(new TestModel("attribute" + i, "safe" + i));
+		}
+		
+		return models;
+	}
+	
+}
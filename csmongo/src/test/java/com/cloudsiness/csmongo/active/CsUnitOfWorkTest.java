@@ -0,0 +1,200 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.active.helpers.TestModel;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsUnitOfWorkTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private BulkMongoClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new BulkMongoClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST commit
+	
+	@Test
+	public void theModelsAreWrittenWithOneBulkWriteForEachCollection(TestContext context) {
+		Async async = context.async();
+		CsUnitOfWork work = new CsUnitOfWork();
+		TestModel first = new TestModel("a", "b");
+		TestModel second = new TestModel("c", "d");
+		TestModel deleted = storedModel();
+		OtherModel other = new OtherModel();
+		
+		work.save(first, res -> {
+			context.assertTrue(res.result());
+			context.assertTrue(first.isBeforeSaveCalled());
+			context.assertFalse(first.isAfterSaveCalled());
+			
+			work.save(second, res2 -> work.save(other, res3 -> work.delete(deleted, res4 -> {
+				context.assertTrue(deleted.isBeforeDeleteCalled());
+				context.assertEquals(work.size(), 4);
+				context.assertTrue(client.getBatches().isEmpty());
+				
+				work.commit(res5 -> {
+					context.assertTrue(res5.succeeded());
+					context.assertEquals(client.getBatches(), Arrays.asList(3, 1));
+					context.assertTrue(first.isAfterSaveCalled());
+					context.assertFalse(first.isNewRecord());
+					context.assertNotNull(first._id);
+					context.assertTrue(deleted.isAfterDeleteCalled());
+					context.assertFalse(other.isNewRecord());
+					async.complete();
+				});
+			})));
+		});
+	}
+	
+	@Test
+	public void theNotValidModelsAreNotEnlisted(TestContext context) {
+		Async async = context.async();
+		CsUnitOfWork work = new CsUnitOfWork();
+		
+		work.save(new TestModel("a", null), res -> {
+			context.assertFalse(res.result());
+			context.assertEquals(work.size(), 0);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theCancelledModelsAreNotEnlisted(TestContext context) {
+		Async async = context.async();
+		CsUnitOfWork work = new CsUnitOfWork();
+		TestModel model = storedModel();
+		model.setBeforeDeleteResult(false);
+		
+		work.delete(model, res -> {
+			context.assertFalse(res.result());
+			context.assertEquals(work.size(), 0);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theModelsAfterAFailedWriteDoNotRunTheirAfterHooks(TestContext context) {
+		Async async = context.async();
+		CsUnitOfWork work = new CsUnitOfWork();
+		TestModel first = new TestModel("a", "b");
+		TestModel second = new TestModel("c", "d");
+		TestModel third = new TestModel("e", "f");
+		client.setFailedIndex(1);
+		
+		work.save(first, res -> work.save(second, res2 -> work.save(third, res3 -> {
+			work.commit(res4 -> {
+				context.assertTrue(res4.failed());
+				context.assertTrue(first.isAfterSaveCalled());
+				context.assertFalse(second.isAfterSaveCalled());
+				context.assertFalse(third.isAfterSaveCalled());
+				context.assertTrue(third.isNewRecord());
+				async.complete();
+			});
+		})));
+	}
+	
+	@Test
+	public void theModelsThatCanNotBeEnlistedDoNotRunTheirAfterHooks(TestContext context) {
+		Async async = context.async();
+		CsUnitOfWork work = new CsUnitOfWork();
+		TestModel deleted = new TestModel("a", "b");
+		TestModel saved = new TestModel("c", "d");
+		
+		work.delete(deleted, res -> {
+			context.assertTrue(res.failed());
+			context.assertEquals(work.size(), 0);
+			
+			work.save(saved, res2 -> work.commit(res3 -> {
+				context.assertTrue(res3.succeeded());
+				context.assertEquals(client.getBatches(), Arrays.asList(1));
+				context.assertFalse(deleted.isAfterDeleteCalled());
+				context.assertTrue(saved.isAfterSaveCalled());
+				async.complete();
+			}));
+		});
+	}
+	
+	@Test
+	public void theModelsWithNothingToWriteDoNotRunTheirAfterHooksIfTheWriteFails(TestContext context) throws Exception {
+		Async async = context.async();
+		CsUnitOfWork work = new CsUnitOfWork();
+		TestModel unchanged = storedModel();
+		TestModel failed = new TestModel("c", "d");
+		unchanged.storedDocument = ((CsActiveRecord<?>) unchanged).getAttributesToSave();
+		client.setFailedIndex(0);
+		
+		work.save(unchanged, res -> work.save(failed, res2 -> work.commit(res3 -> {
+			context.assertTrue(res3.failed());
+			context.assertEquals(client.getBatches(), Arrays.asList(1));
+			context.assertFalse(unchanged.isAfterSaveCalled());
+			context.assertFalse(failed.isAfterSaveCalled());
+			async.complete();
+		})));
+	}
+	
+	@Test
+	public void theUnitOfWorkIsCommittedOnlyOnce(TestContext context) {
+		Async async = context.async();
+		CsUnitOfWork work = new CsUnitOfWork();
+		
+		work.commit(res -> {
+			context.assertTrue(res.succeeded());
+			
+			work.commit(res2 -> {
+				context.assertTrue(res2.cause() instanceof IllegalStateException);
+				async.complete();
+			});
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	private TestModel storedModel() {
+		TestModel model = new TestModel("a", "b");
+		model._id = new ObjectId();
+		model.isNewRecord = false;
+		
+		return model;
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="other")
+	public static class OtherModel extends CsActiveRecord<OtherModel> {
+		public String name;
+	}
+	
+}
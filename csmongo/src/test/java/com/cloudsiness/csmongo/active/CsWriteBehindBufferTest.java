@@ -0,0 +1,321 @@
+package com.cloudsiness.csmongo.active;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.exceptions.CsWriteBehindBufferFull;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.active.helpers.TestModel;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.impl.codec.json.JsonObjectCodec;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsWriteBehindBufferTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private DelayedClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new DelayedClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST coalescing
+	
+	@Test
+	public void theUpdatesOfTheSameDocumentAreCoalesced(TestContext context) {
+		Async async = context.async(5);
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions());
+		
+		buffer.set(id, new JsonObject().put("a", 1), res -> async.countDown());
+		buffer.increment(id, "c", 2, res -> async.countDown());
+		buffer.increment(id, "c", 3L, res -> async.countDown());
+		buffer.set(id, new JsonObject().put("a", 2), res -> async.countDown());
+		context.assertEquals(buffer.getPendingCount(), 1);
+		
+		buffer.flush(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.getBatches(), Arrays.asList(1));
+			context.assertEquals(update(0), new BsonDocument("$set", new BsonDocument("a", new BsonInt32(2))).append("$inc", new BsonDocument("c", new BsonInt64(5))));
+			context.assertEquals(buffer.getMetrics().getUpdates(), 4L);
+			context.assertEquals(buffer.getMetrics().getWrites(), 1L);
+			context.assertEquals(buffer.getMetrics().getCoalescingRatio(), 4d);
+			async.countDown();
+		});
+	}
+	
+	@Test
+	public void theSetValuesReplaceTheIncrementsAndTheIncrementsAddToTheSetValues(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions());
+		
+		buffer.increment(id, "a", 2, res -> {});
+		buffer.set(id, new JsonObject().put("a", 10).put("b", 1.5), res -> {});
+		buffer.increment(id, "a", 1, res -> {});
+		buffer.increment(id, "b", 1, res -> {});
+		
+		buffer.flush(res -> {
+			context.assertEquals(update(0), new BsonDocument("$set", new BsonDocument("a", new BsonInt32(11)).append("b", new BsonDouble(2.5))));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theIntegerIncrementsAreAddedAsIntegersUnlessTheyOverflow(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions());
+		
+		buffer.increment(id, "a", 2, res -> {});
+		buffer.increment(id, "a", 3, res -> {});
+		buffer.increment(id, "b", Integer.MAX_VALUE, res -> {});
+		buffer.increment(id, "b", 1, res -> {});
+		
+		buffer.flush(res -> {
+			context.assertEquals(update(0), new BsonDocument("$inc", new BsonDocument("a", new BsonInt32(5)).append("b", new BsonInt64(Integer.MAX_VALUE + 1L))));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theConflictingPathsAreWrittenInTheNextBulkWrite(TestContext context) {
+		Async async = context.async(3);
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setWindow(60000));
+		
+		buffer.set(id, new JsonObject().put("a", new JsonObject()), res -> async.countDown());
+		buffer.increment(id, "a.b", 1, res -> async.countDown());
+		context.assertEquals(client.getBatches(), Arrays.asList(1));
+		context.assertEquals(buffer.getPendingCount(), 1);
+		
+		buffer.flush(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.getBatches(), Arrays.asList(1, 1));
+			context.assertEquals(update(0), new BsonDocument("$set", new BsonDocument("a", new BsonDocument())));
+			context.assertEquals(update(1), new BsonDocument("$inc", new BsonDocument("a.b", new BsonInt32(1))));
+			async.countDown();
+		});
+	}
+	
+	@Test
+	public void theSetOfAParentPathIsWrittenAfterTheSetOfItsChild(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setWindow(60000));
+		
+		buffer.set(id, new JsonObject().put("a.b", 1).put("c", 1), res -> {});
+		buffer.set(id, new JsonObject().put("a", new JsonObject().put("b", 2)), res -> {});
+		
+		buffer.flush(res -> {
+			context.assertEquals(update(0), new BsonDocument("$set", new BsonDocument("a.b", new BsonInt32(1)).append("c", new BsonInt32(1))));
+			context.assertEquals(update(1), new BsonDocument("$set", new BsonDocument("a", new BsonDocument("b", new BsonInt32(2)))));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theUpdatesAfterAConflictingUpdateWaitForIt(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setWindow(10));
+		client.delayed = true;
+		
+		buffer.set(id, new JsonObject().put("x", 1), res -> {});
+		buffer.flush(res -> {});
+		buffer.set(id, new JsonObject().put("a.b", 1), res -> {});
+		buffer.set(id, new JsonObject().put("a", new JsonObject().put("b", 2)), res -> {});
+		buffer.set(id, new JsonObject().put("a.b", 3), res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.getBatches(), Arrays.asList(1, 1, 1, 1));
+			context.assertEquals(update(1), new BsonDocument("$set", new BsonDocument("a.b", new BsonInt32(1))));
+			context.assertEquals(update(2), new BsonDocument("$set", new BsonDocument("a", new BsonDocument("b", new BsonInt32(2)))));
+			context.assertEquals(update(3), new BsonDocument("$set", new BsonDocument("a.b", new BsonInt32(3))));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theIncrementOfANotNumericSetValueIsWrittenInTheNextBulkWrite(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setWindow(60000));
+		
+		buffer.set(id, new JsonObject().putNull("a"), res -> context.assertTrue(res.succeeded()));
+		buffer.increment(id, "a", 1, res -> {});
+		context.assertEquals(client.getBatches(), Arrays.asList(1));
+		
+		buffer.flush(res -> {
+			context.assertEquals(update(0), new BsonDocument("$set", new BsonDocument("a", new BsonNull())));
+			context.assertEquals(update(1), new BsonDocument("$inc", new BsonDocument("a", new BsonInt32(1))));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theSavedAttributesAreTheValuesOfTheModel(TestContext context) {
+		Async async = context.async();
+		TestModel model = new TestModel("a", "b");
+		model._id = new ObjectId();
+		model.isNewRecord = false;
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions());
+		
+		buffer.saveAttributes(model, Arrays.asList("attribute1"), res -> {
+			context.assertTrue(res.succeeded());
+			async.complete();
+		});
+		model.attribute1 = "changed";
+		
+		buffer.flush(res -> {
+			context.assertEquals(update(0).getDocument("$set").getString("attribute1").getValue(), "a");
+		});
+	}
+	
+	
+	// TEST flush
+	
+	@Test
+	public void theBufferIsFlushedWhenTheWindowEnds(TestContext context) {
+		Async async = context.async();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setWindow(50));
+		
+		buffer.increment(new ObjectId(), "a", 1, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.getBatches(), Arrays.asList(1));
+			async.complete();
+		});
+		context.assertTrue(client.getBatches().isEmpty());
+	}
+	
+	@Test
+	public void theBufferIsFlushedWhenItReachesTheFlushSize(TestContext context) {
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setFlushSize(2).setWindow(60000));
+		
+		buffer.increment(new ObjectId(), "a", 1, res -> {});
+		context.assertTrue(client.getBatches().isEmpty());
+		buffer.increment(new ObjectId(), "a", 1, res -> {});
+		
+		context.assertEquals(client.getBatches(), Arrays.asList(2));
+		context.assertEquals(buffer.getPendingCount(), 0);
+	}
+	
+	@Test
+	public void theClosedBufferIsFlushedAndRejectsTheUpdates(TestContext context) {
+		Async async = context.async();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setWindow(60000));
+		buffer.increment(new ObjectId(), "a", 1, res -> {});
+		
+		buffer.close(res -> {
+			context.assertEquals(client.getBatches(), Arrays.asList(1));
+			
+			buffer.increment(new ObjectId(), "a", 1, res2 -> {
+				context.assertTrue(res2.cause() instanceof IllegalStateException);
+				async.complete();
+			});
+		});
+	}
+	
+	
+	// TEST back-pressure
+	
+	@Test
+	public void theFullBufferRejectsOnlyTheNewDocuments(TestContext context) {
+		Async async = context.async();
+		ObjectId id = new ObjectId();
+		CsWriteBehindBuffer buffer = buffer(new CsWriteBehindOptions().setMaxPending(1).setWindow(60000));
+		
+		buffer.increment(id, "a", 1, res -> {});
+		context.assertTrue(buffer.writeQueueFull());
+		buffer.increment(id, "a", 1, res -> context.assertTrue(res.succeeded()));
+		
+		buffer.increment(new ObjectId(), "a", 1, res -> {
+			context.assertTrue(res.cause() instanceof CsWriteBehindBufferFull);
+			
+			buffer.drainHandler(v -> async.complete());
+			buffer.flush(res2 -> {});
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	private CsWriteBehindBuffer buffer(CsWriteBehindOptions options) {
+		return new TestModel().writeBehind(rule.vertx(), options);
+	}
+	
+	private BsonDocument update(int index) {
+		UpdateOneModel<?> write = (UpdateOneModel<?>) client.getWrites().get(index);
+		
+		return write.getUpdate().toBsonDocument(BsonDocument.class, CodecRegistries.fromCodecs(new JsonObjectCodec(new JsonObject())));
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	/**
+	 * A bulk client that can answer the bulk writes later, so the updates are added while a flush is
+	 * running.
+	 */
+	private static class DelayedClient extends BulkMongoClient {
+		
+		private final Vertx vertx;
+		
+		private boolean delayed;
+		
+		
+		private DelayedClient(Vertx vertx) {
+			super(vertx);
+			
+			this.vertx = vertx;
+		}
+		
+		
+		@Override
+		public <D> void bulkWrite(String collection, Class<D> documentClass, List<? extends WriteModel<? extends D>> writes, boolean ordered, Handler<AsyncResult<BulkWriteResult>> handler) {
+			if(delayed)
+				super.bulkWrite(collection, documentClass, writes, ordered, res -> vertx.runOnContext(v -> handler.handle(res)));
+			else
+				super.bulkWrite(collection, documentClass, writes, ordered, handler);
+		}
+		
+	}
+	
+}
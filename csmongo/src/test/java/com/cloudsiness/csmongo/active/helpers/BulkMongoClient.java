@@ -0,0 +1,83 @@
+package com.cloudsiness.csmongo.active.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.BsonDocument;
+
+import com.cloudsiness.csmongo.factory.CsMongoClient;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.WriteModel;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A client that does not connect to the database: it saves the bulk writes and fails the write in
+ * the position failedIndex (of the first batch).
+ */
+public class BulkMongoClient extends CsMongoClient {
+	
+	private final List<Integer> batches = new ArrayList<Integer>();
+	
+	private final List<WriteModel<?>> writes = new ArrayList<WriteModel<?>>();
+	
+	private final List<Boolean> ordered = new ArrayList<Boolean>();
+	
+	private int failedIndex = -1;
+	
+	private BulkWriteResult result;
+	
+	
+	public BulkMongoClient(Vertx vertx) {
+		super(vertx, new JsonObject().put("connection_string", "mongodb://localhost:27017").put("db_name", "test"), "bulk");
+	}
+	
+	
+	@Override
+	public <D> void bulkWrite(String collection, Class<D> documentClass, List<? extends WriteModel<? extends D>> writes, boolean ordered, Handler<AsyncResult<BulkWriteResult>> handler) {
+		this.batches.add(writes.size());
+		this.writes.addAll(writes);
+		this.ordered.add(ordered);
+		
+		BulkWriteResult result = this.result != null ? this.result : BulkWriteResult.acknowledged(writes.size(), 0, 0, 0, Collections.<BulkWriteUpsert>emptyList());
+		if(failedIndex >= 0 && failedIndex < writes.size()) {
+			BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), failedIndex);
+			failedIndex = -1;
+			handler.handle(Future.failedFuture(new MongoBulkWriteException(result, Arrays.asList(error), null, new ServerAddress())));
+		} else {
+			handler.handle(Future.succeededFuture(result));
+		}
+	}
+	
+	
+	public List<Integer> getBatches() {
+		return batches;
+	}
+	
+	public List<WriteModel<?>> getWrites() {
+		return writes;
+	}
+	
+	public List<Boolean> getOrdered() {
+		return ordered;
+	}
+	
+	public void setFailedIndex(int failedIndex) {
+		this.failedIndex = failedIndex;
+	}
+	
+	public void setResult(BulkWriteResult result) {
+		this.result = result;
+	}
+	
+}
@@ -0,0 +1,80 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsFieldAccessorTest {
+	
+	// TEST get
+	
+	@Test
+	public void getTheValueOfAnAttribute(TestContext context) throws IllegalAccessException {
+		Model model = new Model();
+		model.name = "test";
+		
+		context.assertEquals(accessor("name").get(model), "test");
+	}
+	
+	@Test
+	public void getThePrimitiveValueOfAnAttribute(TestContext context) throws IllegalAccessException {
+		Model model = new Model();
+		model.counter = 5L;
+		model.boxedCounter = 7L;
+		
+		context.assertEquals(accessor("counter").get(model), 5L);
+		context.assertEquals(accessor("boxedCounter").get(model), 7L);
+	}
+	
+	
+	// TEST set
+	
+	@Test
+	public void setTheValueOfAnAttribute(TestContext context) throws IllegalAccessException {
+		Model model = new Model();
+		accessor("name").set(model, "test");
+		accessor("counter").set(model, 3L);
+		accessor("boxedCounter").set(model, 4L);
+		
+		context.assertEquals(model.name, "test");
+		context.assertEquals(model.counter, 3L);
+		context.assertEquals(model.boxedCounter, 4L);
+	}
+	
+	@Test
+	public void setAValueThatNeedsWidening(TestContext context) throws IllegalAccessException {
+		Model model = new Model();
+		accessor("counter").set(model, 3);
+		
+		context.assertEquals(model.counter, 3L);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void setAValueOfOtherTypeFails() throws IllegalAccessException {
+		accessor("name").set(new Model(), 3);
+	}
+	
+	
+	// HELPERS
+	
+	private CsFieldAccessor accessor(String name) {
+		return CsModelMetadata.of(Model.class).getAccessor(name);
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	public static class Model {
+		
+		public String name;
+		
+		public long counter;
+		
+		public Long boxedCounter;
+		
+	}
+	
+}
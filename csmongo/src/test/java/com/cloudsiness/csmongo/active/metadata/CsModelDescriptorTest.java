@@ -0,0 +1,76 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.events.AfterValidate;
+import com.cloudsiness.csmongo.active.annotations.events.BeforeValidate;
+
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsModelDescriptorTest {
+	
+	// TEST descriptor
+	
+	@Test
+	public void theDescriptorIsUsedWhenItExists(TestContext context) {
+		context.assertTrue(CsModelMetadata.of(DescribedModel.class).hasDescriptor());
+		context.assertFalse(CsModelMetadata.of(ScannedModel.class).hasDescriptor());
+	}
+	
+	@Test
+	public void theAttributesAreReadFromTheDescriptor(TestContext context) throws NoSuchFieldException, SecurityException {
+		CsModelMetadata metadata = CsModelMetadata.of(DescribedModel.class);
+		
+		context.assertEquals(metadata.getFields().size(), 4);
+		context.assertEquals(metadata.getField("name"), DescribedModel.class.getField("name"));
+		context.assertNotNull(metadata.getAccessor("city"));
+		context.assertTrue(metadata.getNotSaveFields().contains("password"));
+		context.assertTrue(metadata.getSearchableFields().contains(DescribedModel.class.getField("name")));
+		context.assertNull(metadata.getCollectionName());
+	}
+	
+	@Test
+	public void theScenariosAreBuiltFromTheDescriptor(TestContext context) {
+		CsModelMetadata metadata = CsModelMetadata.of(DescribedModel.class);
+		
+		context.assertFalse(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).isSafe("name"));
+		context.assertTrue(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).isSafe("city"));
+		context.assertTrue(metadata.getScenario("create").isSafe("name"));
+		context.assertTrue(metadata.getScenario("create").getRequiredFields().contains("name"));
+		context.assertFalse(metadata.getScenario("create").isSafe("calls"));
+	}
+	
+	@Test
+	public void theHooksAreInvokedFromTheDescriptor(TestContext context) {
+		CsModelMetadata metadata = CsModelMetadata.of(DescribedModel.class);
+		context.assertEquals(metadata.getHookInvokers(BeforeValidate.class).size(), 1);
+		context.assertTrue(metadata.getHookInvokers(AfterValidate.class).isEmpty());
+		
+		Async async = context.async();
+		DescribedModel model = new DescribedModel();
+		model.setScenario("create");
+		model.validate(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertFalse(res.result());
+			context.assertEquals(model.calls, 1);
+			async.complete();
+		});
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	/**
+	 * A private model, so csmongo-processor does not generate its descriptor.
+	 */
+	private static class ScannedModel extends CsActiveForm<ScannedModel> {
+		@SuppressWarnings("unused")
+		public String name;
+	}
+	
+}
@@ -0,0 +1,113 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.CsActiveBase;
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+import com.cloudsiness.csmongo.active.annotations.events.AfterSave;
+import com.cloudsiness.csmongo.active.annotations.events.BeforeSave;
+import com.cloudsiness.csmongo.benchmarks.BenchmarkModel;
+
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsModelMetadataTest {
+	
+	// TEST of
+	
+	@Test
+	public void theMetadataIsBuiltOnlyOncePerClass(TestContext context) {
+		context.assertTrue(CsModelMetadata.of(BenchmarkModel.class) == CsModelMetadata.of(BenchmarkModel.class));
+	}
+	
+	@Test
+	public void theScenarioMetadataIsBuiltOnlyOncePerScenario(TestContext context) {
+		CsModelMetadata metadata = CsModelMetadata.of(BenchmarkModel.class);
+		
+		context.assertTrue(metadata.getScenario(CsActiveForm.MAIN_SCENARIO) == metadata.getScenario(CsActiveForm.MAIN_SCENARIO));
+		context.assertTrue(metadata.getScenario(null) == metadata.getScenario(null));
+	}
+	
+	
+	// TEST fields
+	
+	@Test
+	public void onlyPublicFieldsAreAttributes(TestContext context) {
+		CsModelMetadata metadata = CsModelMetadata.of(BenchmarkModel.class);
+		
+		context.assertNotNull(metadata.getField("name"));
+		context.assertNotNull(metadata.getField("_id"));
+		context.assertNull(metadata.getField("modelType"));
+		context.assertNull(metadata.getField("isNewRecord"));
+	}
+	
+	@Test
+	public void notSaveAndSearchableAttributesAreCollected(TestContext context) throws NoSuchFieldException, SecurityException {
+		CsModelMetadata metadata = CsModelMetadata.of(BenchmarkModel.class);
+		
+		context.assertTrue(metadata.getNotSaveFields().contains("password"));
+		context.assertTrue(metadata.getNotSaveFields().contains("passwordRepeat"));
+		context.assertTrue(metadata.getSearchableFields().contains(BenchmarkModel.class.getField("name")));
+		context.assertTrue(metadata.getSearchableFields().contains(BenchmarkModel.class.getField("age")));
+		context.assertFalse(metadata.getSearchableFields().contains(BenchmarkModel.class.getField("city")));
+	}
+	
+	
+	// TEST scenarios
+	
+	@Test
+	public void safeAttributesDependOnTheScenario(TestContext context) {
+		CsModelMetadata metadata = CsModelMetadata.of(BenchmarkModel.class);
+		
+		context.assertTrue(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).isSafe("name"));
+		context.assertTrue(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).isSafe("city"));
+		context.assertFalse(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).isSafe("status"));
+		context.assertFalse(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).isSafe("createdBy"));
+		context.assertTrue(metadata.getScenario(CsActiveBase.SCENARIO_UPDATE).isSafe("status"));
+	}
+	
+	@Test
+	public void requiredAttributesAreCollected(TestContext context) {
+		CsModelMetadata metadata = CsModelMetadata.of(BenchmarkModel.class);
+		
+		context.assertTrue(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).getRequiredFields().contains("name"));
+		context.assertTrue(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).getRequiredFields().contains("email"));
+		context.assertFalse(metadata.getScenario(CsActiveForm.MAIN_SCENARIO).getRequiredFields().contains("city"));
+	}
+	
+	
+	// TEST methods
+	
+	@Test
+	public void annotatedMethodsAreCollected(TestContext context) {
+		CsModelMetadata metadata = CsModelMetadata.of(BenchmarkModel.class);
+		
+		context.assertEquals(metadata.getMethodsAnnotatedWith(BeforeSave.class).size(), 1);
+		
+		Method m = metadata.getMethodsAnnotatedWith(AfterFind.class).get(0);
+		context.assertEquals(m.getName(), "afterFind");
+	}
+	
+	@Test
+	public void hookInvokersCallTheAnnotatedMethods(TestContext context) throws Exception {
+		CsModelMetadata metadata = CsModelMetadata.of(BenchmarkModel.class);
+		BenchmarkModel model = new BenchmarkModel();
+		
+		context.assertEquals(metadata.getHookInvokers(BeforeSave.class).size(), 1);
+		context.assertTrue(metadata.getHookInvokers(AfterSave.class).isEmpty());
+		
+		Async async = context.async();
+		metadata.getHookInvokers(BeforeSave.class).get(0).invoke(model, res -> {
+			context.assertTrue(res.result());
+			context.assertNotNull(model.updatedAt);
+			async.complete();
+		});
+	}
+	
+}
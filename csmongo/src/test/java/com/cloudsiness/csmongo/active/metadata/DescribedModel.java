@@ -0,0 +1,40 @@
+package com.cloudsiness.csmongo.active.metadata;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.NotSave;
+import com.cloudsiness.csmongo.active.annotations.Safe;
+import com.cloudsiness.csmongo.active.annotations.Searchable;
+import com.cloudsiness.csmongo.active.annotations.events.BeforeValidate;
+import com.cloudsiness.csmongo.active.validators.required.Required;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * Model with a descriptor (DescribedModel_CsDescriptor) generated by csmongo-processor when the tests are
+ * compiled.
+ */
+public class DescribedModel extends CsActiveForm<DescribedModel> {
+	
+	@Required(scenarios={"create"})
+	@Searchable
+	public String name;
+	
+	@Safe
+	public String city;
+	
+	@NotSave
+	@Safe
+	public String password;
+	
+	public int calls;
+	
+	
+	@BeforeValidate
+	public void beforeValidate(Handler<AsyncResult<Boolean>> handler) {
+		calls++;
+		handler.handle(Future.succeededFuture(true));
+	}
+	
+}
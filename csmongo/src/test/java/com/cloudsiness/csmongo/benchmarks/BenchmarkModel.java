@@ -0,0 +1,165 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.util.Date;
+import java.util.List;
+
+import com.cloudsiness.csmongo.active.CsActiveRecord;
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.NotSave;
+import com.cloudsiness.csmongo.active.annotations.Safe;
+import com.cloudsiness.csmongo.active.annotations.Searchable;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+import com.cloudsiness.csmongo.active.annotations.events.BeforeSave;
+import com.cloudsiness.csmongo.active.validators.email.Email;
+import com.cloudsiness.csmongo.active.validators.required.Required;
+import com.cloudsiness.csmongo.active.validators.size.Size;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Model with the usual mix of attributes, validators and hooks, used by the benchmarks.
+ */
+@CsModel(collectionName="benchmark")
+public class BenchmarkModel extends CsActiveRecord<BenchmarkModel> {
+	
+	@Required
+	@Searchable(type=Searchable.REGEXP)
+	public String name;
+	
+	@Required
+	@Email
+	public String email;
+	
+	@Size(min=2, max=200)
+	public String description;
+	
+	@Safe
+	public String city;
+	
+	@Safe
+	public String country;
+	
+	@Safe
+	@Searchable
+	public Integer age;
+	
+	@Safe
+	public Long visits;
+	
+	@Safe
+	public Double score;
+	
+	public long counter;
+	
+	@Safe
+	public Boolean active;
+	
+	@Safe
+	public Date birthday;
+	
+	@Safe(scenarios={SCENARIO_UPDATE})
+	public String status;
+	
+	@Safe
+	public List<String> tags;
+	
+	@Safe
+	public JsonObject settings;
+	
+	@Safe
+	public JsonArray history;
+	
+	public String createdBy;
+	
+	public Date createdAt;
+	
+	public Date updatedAt;
+	
+	@NotSave
+	@Safe
+	public String password;
+	
+	@NotSave
+	public String passwordRepeat;
+	
+	
+	@BeforeSave
+	public void beforeSave(Handler<AsyncResult<Boolean>> handler) {
+		updatedAt = new Date();
+		handler.handle(Future.succeededFuture(true));
+	}
+	
+	@AfterFind
+	public void afterFind(Handler<AsyncResult<Boolean>> handler) {
+		handler.handle(Future.succeededFuture(true));
+	}
+	
+	
+	/**
+	 * @return	a document with all the attributes of the model filled.
+	 */
+	public static JsonObject document() {
+		return new JsonObject()
+				.put("_id", new JsonObject().put("$oid", "56928c11dd59030532407aed"))
+				.put("name", "John Smith")
+				.put("email", "john.smith@example.com")
+				.put("description", "A regular user of the application with some description text.")
+				.put("city", "Seville")
+				.put("country", "Spain")
+				.put("age", 37)
+				.put("visits", 1234L)
+				.put("score", 8.75)
+				.put("counter", 42L)
+				.put("active", true)
+				.put("birthday", 315532800000L)
+				.put("status", "enabled")
+				.put("tags", new JsonArray().add("one").add("two").add("three"))
+				.put("settings", new JsonObject().put("theme", "dark").put("language", "es"))
+				.put("history", new JsonArray().add(new JsonObject().put("action", "login").put("at", 1500000000000L)))
+				.put("createdBy", "admin")
+				.put("createdAt", 1500000000000L)
+				.put("updatedAt", 1500000000000L);
+	}
+	
+	/**
+	 * Fills a new model with the document as the find methods do.
+	 * 
+	 * @param document	the document read from the database.
+	 * @return			the hydrated model.
+	 */
+	public static BenchmarkModel hydrate(JsonObject document) {
+		BenchmarkModel model = new BenchmarkModel();
+		model.setAttributes(false, document);
+		model.isNewRecord = false;
+		
+		return model;
+	}
+	
+	/**
+	 * Runs the @AfterFind methods and hooks of the model (it has one annotated method).
+	 */
+	public static void callAfterFind(BenchmarkModel model, Handler<AsyncResult<Boolean>> handler) throws Exception {
+		model.callOnAfterFind(handler);
+	}
+	
+	/**
+	 * Runs the @BeforeCount methods and hooks of the model (it has none).
+	 */
+	public static void callBeforeCount(BenchmarkModel model, Handler<AsyncResult<Boolean>> handler) throws Exception {
+		model.callOnBeforeCount(handler);
+	}
+	
+	/**
+	 * @return	the document that the save method would write.
+	 */
+	public JsonObject toSaveDocument() throws JsonProcessingException {
+		return getAttributes(null, false, true);
+	}
+	
+}
@@ -0,0 +1,134 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.helpers.pojo.CsModelCodec;
+import com.cloudsiness.csmongo.helpers.pojo.CsPojoHelper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.impl.codec.json.JsonObjectCodec;
+
+/**
+ * Compares the conversions between models and the BSON bytes of the driver: through the JSON objects
+ * of the mongo client (with Jackson or with the codec of the model) and directly with the codec of the
+ * model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsBsonBenchmark {
+	
+	private RawBsonDocument document;
+	
+	private BenchmarkModel model;
+	
+	private JsonObjectCodec jsonCodec;
+	
+	private ObjectReader reader;
+	
+	private ObjectWriter writer;
+	
+	private CsModelCodec codec;
+	
+	
+	@Setup
+	public void setUp() {
+		jsonCodec = new JsonObjectCodec(new JsonObject().put("useObjectId", true));
+		reader = CsPojoHelper.reader(BenchmarkModel.class, null);
+		writer = CsPojoHelper.writer(BenchmarkModel.class, false, true, null);
+		codec = CsModelCodec.of(BenchmarkModel.class);
+		
+		model = BenchmarkModel.hydrate(BenchmarkModel.document());
+		document = codec.encode(model, false, null);
+	}
+	
+	
+	@Benchmark
+	public BenchmarkModel decodeJackson() throws IOException {
+		BenchmarkModel result = new BenchmarkModel();
+		CsPojoHelper.deserialize(result, toJson(document), reader);
+		
+		return result;
+	}
+	
+	@Benchmark
+	public BenchmarkModel decodeCodec() {
+		BenchmarkModel result = new BenchmarkModel();
+		codec.decode(result, toJson(document));
+		
+		return result;
+	}
+	
+	@Benchmark
+	public BenchmarkModel decodeBson() {
+		BenchmarkModel result = new BenchmarkModel();
+		codec.decode(result, document);
+		
+		return result;
+	}
+	
+	@Benchmark
+	public int encodeJackson() throws IOException {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		jsonCodec.encode(new BsonBinaryWriter(buffer), CsPojoHelper.serialize(model, writer), EncoderContext.builder().build());
+		
+		return buffer.getSize();
+	}
+	
+	@Benchmark
+	public int encodeCodec() {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		jsonCodec.encode(new BsonBinaryWriter(buffer), codec.encode(model, false, true), EncoderContext.builder().build());
+		
+		return buffer.getSize();
+	}
+	
+	@Benchmark
+	public int encodeBson() {
+		return codec.encode(model, false, null).getByteBuffer().remaining();
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Reads the document as the mongo client reads it.
+	 */
+	private JsonObject toJson(RawBsonDocument document) {
+		return jsonCodec.decode(new BsonBinaryReader(document.getByteBuffer().asNIO()), DecoderContext.builder().build());
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsBsonBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
@@ -0,0 +1,93 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.helpers.pojo.CsModelCodec;
+import com.cloudsiness.csmongo.helpers.pojo.CsPojoHelper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Compares the conversions between models and documents of Jackson (the cached readers and writers)
+ * and of the codec of the model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsCodecBenchmark {
+	
+	private JsonObject document;
+	
+	private BenchmarkModel model;
+	
+	private ObjectReader reader;
+	
+	private ObjectWriter writer;
+	
+	private CsModelCodec codec;
+	
+	
+	@Setup
+	public void setUp() {
+		document = BenchmarkModel.document();
+		model = BenchmarkModel.hydrate(document);
+		reader = CsPojoHelper.reader(BenchmarkModel.class, null);
+		writer = CsPojoHelper.writer(BenchmarkModel.class, false, true, null);
+		codec = CsModelCodec.of(BenchmarkModel.class);
+	}
+	
+	
+	@Benchmark
+	public BenchmarkModel decodeJackson() throws IOException {
+		BenchmarkModel result = new BenchmarkModel();
+		CsPojoHelper.deserialize(result, document, reader);
+		
+		return result;
+	}
+	
+	@Benchmark
+	public BenchmarkModel decodeCodec() {
+		BenchmarkModel result = new BenchmarkModel();
+		codec.decode(result, document);
+		
+		return result;
+	}
+	
+	@Benchmark
+	public JsonObject encodeJackson() throws IOException {
+		return CsPojoHelper.serialize(model, writer);
+	}
+	
+	@Benchmark
+	public JsonObject encodeCodec() {
+		return codec.encode(model, false, true);
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsCodecBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
@@ -0,0 +1,102 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.helpers.pojo.CsDocumentChanges;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.impl.codec.json.JsonObjectCodec;
+
+/**
+ * Compares the bytes that are sent to save a found model of 1KB, 10KB and 100KB after changing one
+ * attribute: the whole document (as the previous versions saved it) and only the changed paths. The
+ * sizes are printed when the benchmark starts and each benchmark returns the size that it writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsDirtySaveBenchmark {
+	
+	@Param({"1", "10", "100"})
+	public int kilobytes;
+	
+	private JsonObjectCodec codec;
+	
+	private JsonObject stored;
+	
+	private BenchmarkModel model;
+	
+	
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		codec = new JsonObjectCodec(new JsonObject().put("useObjectId", true));
+		
+		JsonObject document = BenchmarkModel.document();
+		JsonArray history = document.getJsonArray("history");
+		int i = 0;
+		while(document.encode().length() < kilobytes * 1024) {
+			history.add(new JsonObject().put("action", "update").put("at", 1500000000000L + i).put("field", "description").put("count", i++));
+		}
+		
+		model = BenchmarkModel.hydrate(document);
+		stored = model.toSaveDocument().put("_id", document.getValue("_id"));
+		model.status = "disabled";
+		
+		System.out.println("\nBytes written: whole document " + replace() + ", changed paths " + update());
+	}
+	
+	
+	@Benchmark
+	public int replace() throws JsonProcessingException {
+		return size(model.toSaveDocument());
+	}
+	
+	@Benchmark
+	public int update() throws JsonProcessingException {
+		return size(CsDocumentChanges.update(BenchmarkModel.class, stored, model.toSaveDocument()));
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * @return	the size of the document written as the mongo client writes it.
+	 */
+	private int size(JsonObject document) {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		codec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+		
+		return buffer.getSize();
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsDirtySaveBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
@@ -0,0 +1,105 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.active.metadata.CsFieldAccessor;
+import com.cloudsiness.csmongo.active.metadata.CsModelMetadata;
+
+/**
+ * Compares the access to the attributes through {@link Field} (the path used by getAttributeValue
+ * and setAttribute before the accessors) with {@link CsFieldAccessor}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsFieldAccessorBenchmark {
+	
+	private BenchmarkModel model;
+	
+	private CsFieldAccessor nameAccessor;
+	
+	private CsFieldAccessor counterAccessor;
+	
+	
+	@Setup
+	public void setUp() {
+		model = new BenchmarkModel();
+		model.name = "name";
+		model.counter = 42L;
+		
+		nameAccessor = CsModelMetadata.of(BenchmarkModel.class).getAccessor("name");
+		counterAccessor = CsModelMetadata.of(BenchmarkModel.class).getAccessor("counter");
+	}
+	
+	
+	// GET -------
+	
+	@Benchmark
+	public Object getWithField() throws Exception {
+		return BenchmarkModel.class.getField("name").get(model);
+	}
+	
+	@Benchmark
+	public Object getWithAccessor() throws Exception {
+		return nameAccessor.get(model);
+	}
+	
+	@Benchmark
+	public Object getAttributeValue() {
+		return model.getAttributeValue("name");
+	}
+	
+	@Benchmark
+	public Object getLongWithField() throws Exception {
+		return BenchmarkModel.class.getField("counter").get(model);
+	}
+	
+	@Benchmark
+	public Object getLongWithAccessor() throws Exception {
+		return counterAccessor.get(model);
+	}
+	
+	
+	// SET -------
+	
+	@Benchmark
+	public void setWithField() throws Exception {
+		BenchmarkModel.class.getField("name").set(model, "other");
+	}
+	
+	@Benchmark
+	public void setWithAccessor() throws Exception {
+		nameAccessor.set(model, "other");
+	}
+	
+	@Benchmark
+	public void setAttribute() {
+		model.setAttribute("name", "other");
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsFieldAccessorBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
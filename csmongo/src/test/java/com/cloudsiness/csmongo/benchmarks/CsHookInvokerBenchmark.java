@@ -0,0 +1,58 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of triggering an event of a model: without annotated methods nor hooks (the
+ * common case of count and find) and with one annotated method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsHookInvokerBenchmark {
+	
+	private BenchmarkModel model;
+	
+	
+	@Setup
+	public void setUp() {
+		model = new BenchmarkModel();
+	}
+	
+	
+	@Benchmark
+	public void withoutHooks(Blackhole blackhole) throws Exception {
+		BenchmarkModel.callBeforeCount(model, res -> blackhole.consume(res.result()));
+	}
+	
+	@Benchmark
+	public void withAnnotatedMethod(Blackhole blackhole) throws Exception {
+		BenchmarkModel.callAfterFind(model, res -> blackhole.consume(res.result()));
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsHookInvokerBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
@@ -0,0 +1,61 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Measures the cost of creating a model and of hydrating it from a document. Run it with the GC
+ * profiler (as the main method does) to get the bytes allocated per model (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsInstantiationBenchmark {
+	
+	private JsonObject document;
+	
+	
+	@Setup
+	public void setUp() {
+		document = BenchmarkModel.document();
+	}
+	
+	
+	@Benchmark
+	public BenchmarkModel instantiate() {
+		return new BenchmarkModel();
+	}
+	
+	@Benchmark
+	public BenchmarkModel hydrate() {
+		return BenchmarkModel.hydrate(document);
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsInstantiationBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+	
+}
@@ -0,0 +1,110 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.RawBsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.helpers.pojo.CsLazyDocument;
+import com.cloudsiness.csmongo.helpers.pojo.CsModelCodec;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Compares the models hydrated when they are found with the models hydrated lazily when only some
+ * attributes are read, as in the lists.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsLazyBenchmark {
+	
+	/**
+	 * The attributes read from each model.
+	 */
+	private static final String[] READ = { "name", "email", "age" };
+	
+	private JsonObject json;
+	
+	private RawBsonDocument bson;
+	
+	private CsModelCodec codec;
+	
+	
+	@Setup
+	public void setUp() {
+		codec = CsModelCodec.of(BenchmarkModel.class);
+		
+		BenchmarkModel model = BenchmarkModel.hydrate(BenchmarkModel.document());
+		json = codec.encode(model, false, true);
+		bson = codec.encode(model, false, null);
+	}
+	
+	
+	@Benchmark
+	public void eagerJson(Blackhole blackhole) {
+		BenchmarkModel result = new BenchmarkModel();
+		codec.decode(result, json);
+		read(result, blackhole);
+	}
+	
+	@Benchmark
+	public void lazyJson(Blackhole blackhole) {
+		BenchmarkModel result = new BenchmarkModel();
+		CsLazyDocument document = new CsLazyDocument(codec, json);
+		for(String attribute : READ) {
+			document.decode(result, attribute);
+		}
+		read(result, blackhole);
+	}
+	
+	@Benchmark
+	public void eagerBson(Blackhole blackhole) {
+		BenchmarkModel result = new BenchmarkModel();
+		codec.decode(result, bson);
+		read(result, blackhole);
+	}
+	
+	@Benchmark
+	public void lazyBson(Blackhole blackhole) {
+		BenchmarkModel result = new BenchmarkModel();
+		CsLazyDocument document = new CsLazyDocument(codec, bson);
+		for(String attribute : READ) {
+			document.decode(result, attribute);
+		}
+		read(result, blackhole);
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	private void read(BenchmarkModel model, Blackhole blackhole) {
+		blackhole.consume(model.name);
+		blackhole.consume(model.email);
+		blackhole.consume(model.age);
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsLazyBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
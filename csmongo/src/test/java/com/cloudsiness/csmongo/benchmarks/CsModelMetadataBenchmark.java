@@ -0,0 +1,119 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.Safe;
+import com.cloudsiness.csmongo.active.annotations.events.AfterFind;
+import com.cloudsiness.csmongo.active.metadata.CsModelMetadata;
+import com.cloudsiness.csmongo.active.validators.CsConstraint;
+
+/**
+ * Compares the per request reflection done before the metadata registry (walking the declared 
+ * fields and invoking scenarios() of each annotation) with the lookups in {@link CsModelMetadata}.
+ * <p>
+ * Run with: <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.cloudsiness.csmongo.benchmarks.CsModelMetadataBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsModelMetadataBenchmark {
+	
+	@Benchmark
+	public List<Field> safeFieldsWithReflection() throws Exception {
+		List<Field> result = new LinkedList<Field>();
+		
+		for(Field f : allFields(new LinkedList<Field>(), BenchmarkModel.class)) {
+			if(Modifier.toString(f.getModifiers()).equals("public") && isSafe(f, CsActiveForm.MAIN_SCENARIO))
+				result.add(f);
+		}
+		
+		return result;
+	}
+	
+	@Benchmark
+	public List<Field> safeFieldsWithMetadata() {
+		return CsModelMetadata.of(BenchmarkModel.class).getScenario(CsActiveForm.MAIN_SCENARIO).getSafeFields();
+	}
+	
+	@Benchmark
+	public List<Method> hookMethodsWithReflection() {
+		List<Method> result = new LinkedList<Method>();
+		
+		for(Method m : BenchmarkModel.class.getMethods()) {
+			if(m.isAnnotationPresent(AfterFind.class))
+				result.add(m);
+		}
+		
+		return result;
+	}
+	
+	@Benchmark
+	public List<Method> hookMethodsWithMetadata() {
+		return CsModelMetadata.of(BenchmarkModel.class).getMethodsAnnotatedWith(AfterFind.class);
+	}
+	
+	
+	// LEGACY REFLECTION -------
+	
+	private static List<Field> allFields(List<Field> fields, Class<?> type) {
+		fields.addAll(Arrays.asList(type.getDeclaredFields()));
+		
+		if(type.getSuperclass() != null)
+			allFields(fields, type.getSuperclass());
+		
+		return fields;
+	}
+	
+	private static boolean isSafe(Field f, String scenario) throws Exception {
+		if(f.isAnnotationPresent(Safe.class) && inScenario(f.getAnnotation(Safe.class), scenario))
+			return true;
+		
+		for(Annotation ann : f.getAnnotations()) {
+			if(ann.annotationType().getAnnotation(CsConstraint.class) != null && inScenario(ann, scenario))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	private static boolean inScenario(Annotation ann, String scenario) throws Exception {
+		for(String s : (String[]) ann.getClass().getMethod("scenarios").invoke(ann)) {
+			if(s.equals(scenario) || s.equals(CsActiveForm.MAIN_SCENARIO))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsModelMetadataBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
@@ -0,0 +1,64 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Measures the throughput of the conversions between models and documents: hydrating a model from
+ * a document (find) and building the document of a model (save).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsPojoBenchmark {
+	
+	private JsonObject document;
+	
+	private BenchmarkModel model;
+	
+	
+	@Setup
+	public void setUp() {
+		document = BenchmarkModel.document();
+		model = BenchmarkModel.hydrate(document);
+	}
+	
+	
+	@Benchmark
+	public BenchmarkModel hydrate() {
+		return BenchmarkModel.hydrate(document);
+	}
+	
+	@Benchmark
+	public JsonObject save() throws JsonProcessingException {
+		return model.toSaveDocument();
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsPojoBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
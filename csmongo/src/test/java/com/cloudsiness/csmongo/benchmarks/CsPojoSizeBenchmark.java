@@ -0,0 +1,87 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.helpers.pojo.CsPojoHelper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Measures the conversions between models and documents of 1KB, 10KB and 100KB, through Jackson
+ * tokens and through JSON text (the string round trip of the previous versions).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsPojoSizeBenchmark {
+	
+	@Param({"1", "10", "100"})
+	public int kilobytes;
+	
+	@Param({"false", "true"})
+	public boolean stringRoundTrip;
+	
+	private JsonObject document;
+	
+	private BenchmarkModel model;
+	
+	
+	@Setup
+	public void setUp() {
+		CsPojoHelper.setStringRoundTrip(stringRoundTrip);
+		
+		document = BenchmarkModel.document();
+		JsonArray history = document.getJsonArray("history");
+		int i = 0;
+		while(document.encode().length() < kilobytes * 1024) {
+			history.add(new JsonObject().put("action", "update").put("at", 1500000000000L + i).put("field", "description").put("count", i++));
+		}
+		
+		model = BenchmarkModel.hydrate(document);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		CsPojoHelper.setStringRoundTrip(false);
+	}
+	
+	
+	@Benchmark
+	public BenchmarkModel hydrate() {
+		return BenchmarkModel.hydrate(document);
+	}
+	
+	@Benchmark
+	public JsonObject save() throws JsonProcessingException {
+		return model.toSaveDocument();
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsPojoSizeBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+}
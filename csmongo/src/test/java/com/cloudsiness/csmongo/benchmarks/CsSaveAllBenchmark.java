@@ -0,0 +1,186 @@
+package com.cloudsiness.csmongo.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cloudsiness.csmongo.active.CsSaveAllResult;
+import com.cloudsiness.csmongo.factory.CsMongoClient;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+import com.cloudsiness.csmongo.helpers.CsFutureHelper;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.WriteModel;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+
+/**
+ * Measures the throughput of saving 1000 new models: with save, one after another and 32 at the same
+ * time, and with saveAll (in batches of 1000). The client does not connect to the database: it
+ * answers each request after a delay that stands for the round trip to the server (0 to only measure
+ * the work of the library), so the results only compare the number of requests, not the time that
+ * the server takes to write the documents.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CsSaveAllBenchmark {
+	
+	private static final int MODELS = 1000;
+	
+	@Param({"0", "1"})
+	public int roundTripMillis;
+	
+	private Vertx vertx;
+	
+	private Context context;
+	
+	
+	@Setup
+	public void setUp() throws Exception {
+		vertx = Vertx.vertx();
+		context = vertx.getOrCreateContext();
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, new RoundTripClient(vertx, roundTripMillis));
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		vertx.close();
+	}
+	
+	
+	@Benchmark
+	public Object saveOneByOne() throws Exception {
+		return this.<Void>run(handler -> CsFutureHelper.helper().doInItemsVoid(models(), 1, (model, f) -> model.save(res -> f.complete()), handler));
+	}
+	
+	@Benchmark
+	public Object saveInParallel() throws Exception {
+		return this.<Void>run(handler -> CsFutureHelper.helper().doInItemsVoid(models(), 32, (model, f) -> model.save(res -> f.complete()), handler));
+	}
+	
+	@Benchmark
+	public Object saveAll() throws Exception {
+		return this.<CsSaveAllResult<BenchmarkModel>>run(handler -> new BenchmarkModel().saveAll(models(), handler));
+	}
+	
+	
+	// HELPER METHODS -------
+	
+	/**
+	 * Runs the function in the context of the client and waits for its result.
+	 */
+	private <T> T run(Consumer<Handler<AsyncResult<T>>> function) throws Exception {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		context.runOnContext(v -> function.accept(res -> {
+			if(res.succeeded())
+				result.complete(res.result());
+			else
+				result.completeExceptionally(res.cause());
+		}));
+		
+		return result.get();
+	}
+	
+	private static List<BenchmarkModel> models() {
+		List<BenchmarkModel> models = new ArrayList<BenchmarkModel>(MODELS);
+		for(int i = 0; i < MODELS; i++) {
+			BenchmarkModel model = new BenchmarkModel();
+			model.name = "John Smith " + i;
+			model.email = "john.smith" + i + "@example.com";
+			model.description = "A regular user of the application with some description text.";
+			model.city = "Seville";
+			models.add(model);
+		}
+		
+		return models;
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CsSaveAllBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+	
+	
+	// CLASSES HELPERS -------
+	
+	/**
+	 * A client that does not connect to the database: it answers the saves and the bulk writes after
+	 * the round trip.
+	 */
+	private static class RoundTripClient extends CsMongoClient {
+		
+		private final Vertx vertx;
+		
+		private final int roundTripMillis;
+		
+		
+		private RoundTripClient(Vertx vertx, int roundTripMillis) {
+			super(vertx, new JsonObject().put("connection_string", "mongodb://localhost:27017").put("db_name", "benchmark"), "benchmark");
+			
+			this.vertx = vertx;
+			this.roundTripMillis = roundTripMillis;
+		}
+		
+		
+		@Override
+		public MongoClient save(String collection, JsonObject document, Handler<AsyncResult<String>> resultHandler) {
+			answer(() -> resultHandler.handle(Future.succeededFuture(new ObjectId().toHexString())));
+			return this;
+		}
+		
+		@Override
+		public <D> void bulkWrite(String collection, Class<D> documentClass, List<? extends WriteModel<? extends D>> writes, boolean ordered, Handler<AsyncResult<BulkWriteResult>> handler) {
+			BulkWriteResult result = BulkWriteResult.acknowledged(writes.size(), 0, 0, 0, Collections.<BulkWriteUpsert>emptyList());
+			answer(() -> handler.handle(Future.succeededFuture(result)));
+		}
+		
+		private void answer(Runnable answer) {
+			if(roundTripMillis > 0)
+				vertx.setTimer(roundTripMillis, id -> answer.run());
+			else
+				vertx.runOnContext(v -> answer.run());
+		}
+		
+	}
+	
+}
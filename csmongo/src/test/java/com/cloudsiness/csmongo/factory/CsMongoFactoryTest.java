@@ -42,6 +42,7 @@ public class CsMongoFactoryTest {
 		CsMongoFactory.init(clientKey, rule.vertx(), CONNECTION_STRING, DB_NAME, false, null, null, null);
 		
 		context.assertNotNull(CsMongoFactory.mongo(clientKey));
+		context.assertTrue(CsMongoFactory.mongo(clientKey) instanceof CsMongoClient);
 	}
 	
 	@Test(expected=CsClientNotInitializedException.class)
@@ -0,0 +1,137 @@
+package com.cloudsiness.csmongo.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.helpers.exceptions.CsItemsFailed;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsFutureHelperTest {
+	
+	// TEST doInItems
+	
+	@Test
+	public void theFunctionRunsForAtMostTheLimitOfItems(TestContext context) {
+		List<Future<Integer>> running = new ArrayList<Future<Integer>>();
+		List<AsyncResult<List<Integer>>> results = new ArrayList<AsyncResult<List<Integer>>>();
+		
+		CsBoundedRun<Integer, Integer> run = CsFutureHelper.helper().doInItems(Arrays.asList(1, 2, 3, 4, 5), new CsBoundedRunOptions().setLimit(2), (Integer item, Future<Integer> f) -> {
+			running.add(f);
+		}, results::add);
+		
+		context.assertEquals(running.size(), 2);
+		context.assertEquals(run.getRunning(), 2);
+		
+		running.get(0).complete(10);
+		context.assertEquals(running.size(), 3);
+		
+		for(int i = 1; i < 5; i++) {
+			running.get(i).complete(10 * (i + 1));
+		}
+		
+		context.assertTrue(run.isFinished());
+		context.assertEquals(results.get(0).result(), Arrays.asList(10, 20, 30, 40, 50));
+	}
+	
+	@Test
+	public void theResultsCanBeInTheOrderInWhichTheyFinish(TestContext context) {
+		List<Future<Integer>> running = new ArrayList<Future<Integer>>();
+		List<AsyncResult<List<Integer>>> results = new ArrayList<AsyncResult<List<Integer>>>();
+		
+		CsFutureHelper.helper().doInItems(Arrays.asList(1, 2, 3), new CsBoundedRunOptions().setOrdered(false), (Integer item, Future<Integer> f) -> {
+			running.add(f);
+		}, results::add);
+		
+		running.get(2).complete(3);
+		running.get(0).complete(1);
+		running.get(1).complete(2);
+		
+		context.assertEquals(results.get(0).result(), Arrays.asList(3, 1, 2));
+	}
+	
+	@Test
+	public void theFailFastRunsDoNotStartTheNextItems(TestContext context) {
+		List<Integer> started = new ArrayList<Integer>();
+		List<AsyncResult<List<Integer>>> results = new ArrayList<AsyncResult<List<Integer>>>();
+		
+		CsFutureHelper.helper().doInItems(Arrays.asList(1, 2, 3), new CsBoundedRunOptions().setLimit(1), (Integer item, Future<Integer> f) -> {
+			started.add(item);
+			if(item == 2)
+				f.fail("error");
+			else
+				f.complete(item);
+		}, results::add);
+		
+		context.assertEquals(started, Arrays.asList(1, 2));
+		context.assertEquals(results.get(0).cause().getMessage(), "error");
+	}
+	
+	@Test
+	public void theRunsCanCollectAllTheErrors(TestContext context) {
+		List<AsyncResult<List<Integer>>> results = new ArrayList<AsyncResult<List<Integer>>>();
+		
+		CsFutureHelper.helper().doInItems(Arrays.asList(1, 2, 3, 4), new CsBoundedRunOptions().setFailFast(false), (Integer item, Future<Integer> f) -> {
+			if(item % 2 == 0)
+				f.fail("error " + item);
+			else
+				f.complete(item);
+		}, results::add);
+		
+		CsItemsFailed failure = (CsItemsFailed) results.get(0).cause();
+		context.assertEquals(failure.getCauses().keySet(), new TreeSet<Integer>(Arrays.asList(1, 3)));
+		context.assertEquals(failure.getCause().getMessage(), "error 2");
+		context.assertEquals(failure.getResults(), Arrays.asList(1, null, 3, null));
+	}
+	
+	@Test
+	public void theCancelledRunsDoNotStartTheNextItems(TestContext context) {
+		List<Future<Integer>> running = new ArrayList<Future<Integer>>();
+		List<AsyncResult<List<Integer>>> results = new ArrayList<AsyncResult<List<Integer>>>();
+		
+		CsBoundedRun<Integer, Integer> run = CsFutureHelper.helper().doInItems(Arrays.asList(1, 2, 3), new CsBoundedRunOptions().setLimit(1), (Integer item, Future<Integer> f) -> {
+			running.add(f);
+		}, results::add);
+		
+		run.cancel();
+		running.get(0).complete(1);
+		
+		context.assertEquals(running.size(), 1);
+		context.assertEquals(results.size(), 1);
+		context.assertTrue(results.get(0).cause() instanceof CancellationException);
+	}
+	
+	@Test
+	public void theVoidRunsDoNotChangeTheOptions(TestContext context) {
+		List<AsyncResult<Void>> results = new ArrayList<AsyncResult<Void>>();
+		CsBoundedRunOptions options = new CsBoundedRunOptions().setLimit(2);
+		
+		CsFutureHelper.helper().doInItemsVoid(Arrays.asList(1, 2, 3), options, (Integer item, Future<Void> f) -> f.complete(), results::add);
+		
+		context.assertTrue(results.get(0).succeeded());
+		context.assertTrue(options.isOrdered());
+		context.assertEquals(options.getLimit(), 2);
+	}
+	
+	@Test
+	public void theBooleanRunsAreFalseIfSomeItemIsFalse(TestContext context) {
+		List<AsyncResult<Boolean>> results = new ArrayList<AsyncResult<Boolean>>();
+		
+		CsFutureHelper.helper().doInItems(Arrays.asList(true, false, true), (Boolean item, Future<Boolean> f) -> f.complete(item), results::add);
+		CsFutureHelper.helper().doInItems(Arrays.<Boolean>asList(), (Boolean item, Future<Boolean> f) -> f.complete(item), results::add);
+		
+		context.assertFalse(results.get(0).result());
+		context.assertTrue(results.get(1).result());
+	}
+	
+}
@@ -0,0 +1,421 @@
+package com.cloudsiness.csmongo.helpers.active;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.CsActiveRecord;
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientUpdateResult;
+import io.vertx.ext.mongo.impl.codec.json.JsonObjectCodec;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsRankedActiveRecordHelperTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private RankClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new RankClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST keyBetween
+	
+	@Test
+	public void theKeysAreBetweenTheOtherKeys(TestContext context) {
+		Random random = new Random(1);
+		List<String> keys = new ArrayList<String>();
+		keys.add(CsRankedActiveRecordHelper.keyBetween(null, null));
+		
+		for(int i = 0; i < 2000; i++) {
+			int index = random.nextInt(keys.size() + 1);
+			String previous = index > 0 ? keys.get(index - 1) : null;
+			String next = index < keys.size() ? keys.get(index) : null;
+			String key = CsRankedActiveRecordHelper.keyBetween(previous, next);
+			
+			context.assertTrue(previous == null || previous.compareTo(key) < 0);
+			context.assertTrue(next == null || key.compareTo(next) < 0);
+			keys.add(index, key);
+		}
+	}
+	
+	@Test
+	public void theAddedKeysDoNotGetLonger(TestContext context) {
+		String first = CsRankedActiveRecordHelper.keyBetween(null, null);
+		String last = first;
+		
+		for(int i = 0; i < 10000; i++) {
+			first = CsRankedActiveRecordHelper.keyBetween(null, first);
+			last = CsRankedActiveRecordHelper.keyBetween(last, null);
+		}
+		
+		context.assertTrue(first.length() <= CsRankedActiveRecordHelper.WIDTH);
+		context.assertTrue(last.length() <= CsRankedActiveRecordHelper.WIDTH);
+	}
+	
+	@Test
+	public void theKeysMustBeSorted(TestContext context) {
+		try {
+			CsRankedActiveRecordHelper.keyBetween("b", "a");
+			context.fail();
+		} catch(IllegalArgumentException e) {
+		}
+	}
+	
+	@Test
+	public void theSpacedKeysAreSortedAndShort(TestContext context) {
+		List<String> keys = CsRankedActiveRecordHelper.spacedKeys(50000);
+		
+		for(int i = 1; i < keys.size(); i++) {
+			context.assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+		}
+		context.assertTrue(keys.get(keys.size() - 1).length() <= CsRankedActiveRecordHelper.WIDTH);
+	}
+	
+	
+	// TEST moves
+	
+	@Test
+	public void theNewModelsAreAddedAtTheEnd(TestContext context) {
+		Async async = context.async();
+		client.add("a", "b");
+		RankedModel model = new RankedModel();
+		
+		CsRankedActiveRecordHelper.helper(model).beforeSave(res -> {
+			context.assertTrue(res.result());
+			context.assertTrue(model.rank.compareTo(client.ranks().get(1)) > 0);
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void changingThePositionOnlyWritesTheModel(TestContext context) {
+		Async async = context.async();
+		client.add("a", "b", "c", "d");
+		RankedModel model = client.model(3);
+		
+		CsRankedActiveRecordHelper.helper(model).changePosition(1, res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.updates, 1);
+			context.assertEquals(client.names(), Arrays.asList("a", "d", "b", "c"));
+			
+			CsRankedActiveRecordHelper.helper(model).getPosition(res2 -> {
+				context.assertEquals(res2.result(), 1L);
+				async.complete();
+			});
+		});
+	}
+	
+	@Test
+	public void theModelsMoveUpAndDown(TestContext context) {
+		Async async = context.async();
+		client.add("a", "b", "c");
+		
+		CsRankedActiveRecordHelper.helper(client.model(0)).up(res -> {
+			context.assertEquals(client.names(), Arrays.asList("b", "a", "c"));
+			
+			CsRankedActiveRecordHelper.helper(client.model(2)).down(res2 -> {
+				context.assertEquals(client.names(), Arrays.asList("b", "c", "a"));
+				context.assertEquals(client.updates, 2);
+				async.complete();
+			});
+		});
+	}
+	
+	@Test
+	public void theMovesBetweenTwoModelsWithTheSameKeyFailAndRebalanceTheList(TestContext context) {
+		Async async = context.async();
+		client.add("a", "b", "c", "d");
+		client.documents.get(2).put("rank", client.documents.get(1).getString("rank"));
+		
+		CsRankedActiveRecordHelper.helper(client.model(3)).changePosition(2, res -> {
+			context.assertTrue(res.cause() instanceof IllegalArgumentException);
+			context.assertEquals(client.updates, 0);
+			context.assertEquals(client.names(), Arrays.asList("a", "b", "c", "d"));
+			context.assertEquals(client.ranks(), CsRankedActiveRecordHelper.spacedKeys(4));
+			
+			CsRankedActiveRecordHelper.helper(client.model(3)).changePosition(2, res2 -> {
+				context.assertTrue(res2.succeeded());
+				context.assertEquals(client.names(), Arrays.asList("a", "b", "d", "c"));
+				async.complete();
+			});
+		});
+	}
+	
+	@Test
+	public void theLongKeysAreRebalanced(TestContext context) {
+		Async async = context.async();
+		client.add("a", "b", "c", "d");
+		
+		moveToTheSecondPosition(client.model(2), client.model(3), 40, () -> {
+			context.assertEquals(client.getBatches(), Arrays.asList(4, 4));
+			context.assertEquals(client.names().get(0), "a");
+			context.assertEquals(client.names().get(3), "b");
+			context.assertTrue(client.ranks().stream().allMatch(key -> key.length() <= CsRankedActiveRecordHelper.WIDTH));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theRebalanceReadsAndWritesTheListInBatches(TestContext context) {
+		Async async = context.async();
+		String[] names = new String[2500];
+		for(int i = 0; i < names.length; i++) {
+			names[i] = String.format("%04d", i);
+		}
+		client.add(names);
+		
+		CsRankedActiveRecordHelper.helper(client.model(0)).rebalance(res -> {
+			context.assertTrue(res.succeeded());
+			context.assertEquals(client.getBatches(), Arrays.asList(1000, 1000, 500, 1000, 1000, 500));
+			context.assertTrue(client.limits.stream().allMatch(limit -> limit == CsRankRebalance.BATCH_SIZE));
+			context.assertEquals(client.names(), Arrays.asList(names));
+			context.assertEquals(client.ranks(), CsRankedActiveRecordHelper.spacedKeys(names.length));
+			async.complete();
+		});
+	}
+	
+	@Test
+	public void theFailedRebalanceKeepsTheOrder(TestContext context) {
+		Async async = context.async();
+		client.add("a", "b", "c");
+		client.setFailedIndex(0);
+		
+		CsRankedActiveRecordHelper.helper(client.model(0)).rebalance(res -> {
+			context.assertTrue(res.failed());
+			context.assertEquals(client.names(), Arrays.asList("a", "b", "c"));
+			async.complete();
+		});
+	}
+	
+	
+	// HELPER METHODS
+	
+	/**
+	 * Moves the two models in turns to the second position, so the keys get longer, until the list is
+	 * rebalanced.
+	 */
+	private void moveToTheSecondPosition(RankedModel model, RankedModel other, int times, Runnable end) {
+		if(times == 0 || !client.getBatches().isEmpty()) {
+			end.run();
+			return;
+		}
+		
+		CsRankedActiveRecordHelper.helper(model).setMaxLength(8).changePosition(1, res -> moveToTheSecondPosition(other, model, times - 1, end));
+	}
+	
+	private static BsonDocument bson(Bson bson) {
+		return bson.toBsonDocument(BsonDocument.class, CodecRegistries.fromCodecs(new JsonObjectCodec(new JsonObject())));
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="ranked")
+	public static class RankedModel extends CsActiveRecord<RankedModel> {
+		public String name;
+		
+		public String rank;
+		
+		private RankedModel stored() {
+			isNewRecord = false;
+			
+			return this;
+		}
+	}
+	
+	/**
+	 * A client that does not connect to the database: it keeps the documents in a list and reads
+	 * them sorted by rank and _id.
+	 */
+	private static class RankClient extends BulkMongoClient {
+		
+		private final List<JsonObject> documents = new ArrayList<JsonObject>();
+		
+		private int updates;
+		
+		private final List<Integer> limits = new ArrayList<Integer>();
+		
+		
+		private RankClient(Vertx vertx) {
+			super(vertx);
+		}
+		
+		
+		private void add(String... names) {
+			String rank = null;
+			for(String name : names) {
+				rank = CsRankedActiveRecordHelper.keyBetween(rank, null);
+				documents.add(new JsonObject().put("_id", new JsonObject().put("$oid", new ObjectId().toString())).put("name", name).put("rank", rank));
+			}
+		}
+		
+		private List<JsonObject> sorted() {
+			return documents.stream().sorted(Comparator.comparing((JsonObject d) -> d.getString("rank")).thenComparing(d -> value(d, "_id"))).collect(Collectors.toList());
+		}
+		
+		private List<String> names() {
+			return sorted().stream().map(d -> d.getString("name")).collect(Collectors.toList());
+		}
+		
+		private List<String> ranks() {
+			return sorted().stream().map(d -> d.getString("rank")).collect(Collectors.toList());
+		}
+		
+		private RankedModel model(int position) {
+			JsonObject document = sorted().get(position);
+			RankedModel model = new RankedModel();
+			model._id = new ObjectId(document.getJsonObject("_id").getString("$oid"));
+			model.name = document.getString("name");
+			model.rank = document.getString("rank");
+			
+			return model.stored();
+		}
+		
+		private Predicate<JsonObject> matches(JsonObject query) {
+			return d -> matches(d, query);
+		}
+		
+		/**
+		 * Supports the $and and $or queries, and the $gt, $gte, $lt and $ne conditions of rank and _id.
+		 */
+		private static boolean matches(JsonObject document, JsonObject query) {
+			for(String key : query.fieldNames()) {
+				if(key.equals("$and") && !query.getJsonArray(key).stream().allMatch(q -> matches(document, (JsonObject) q)))
+					return false;
+				if(key.equals("$or") && !query.getJsonArray(key).stream().anyMatch(q -> matches(document, (JsonObject) q)))
+					return false;
+				if(!key.startsWith("$") && !matches(value(document, key), query.getValue(key)))
+					return false;
+			}
+			
+			return true;
+		}
+		
+		private static boolean matches(String value, Object condition) {
+			if(!(condition instanceof JsonObject))
+				return value.equals(condition);
+			
+			JsonObject operators = (JsonObject) condition;
+			if(operators.containsKey("$oid"))
+				return value.equals(operators.getString("$oid"));
+			
+			for(String operator : operators.fieldNames()) {
+				Object operand = operators.getValue(operator);
+				int comparison = value.compareTo(operand instanceof JsonObject ? ((JsonObject) operand).getString("$oid") : (String) operand);
+				if(operator.equals("$gt") && comparison <= 0 || operator.equals("$gte") && comparison < 0
+						|| operator.equals("$lt") && comparison >= 0 || operator.equals("$ne") && comparison == 0)
+					return false;
+			}
+			
+			return true;
+		}
+		
+		private static String value(JsonObject document, String key) {
+			return key.equals("_id") ? document.getJsonObject("_id").getString("$oid") : document.getString(key);
+		}
+		
+		@Override
+		public MongoClient findWithOptions(String collection, JsonObject query, FindOptions options, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+			limits.add(options.getLimit());
+			
+			Comparator<JsonObject> order = Comparator.comparing((JsonObject d) -> d.getString("rank")).thenComparing(d -> value(d, "_id"));
+			if(options.getSort().getInteger("rank") < 0)
+				order = order.reversed();
+			
+			List<JsonObject> result = documents.stream()
+					.filter(matches(query))
+					.sorted(order)
+					.skip(options.getSkip())
+					.limit(options.getLimit() > 0 ? options.getLimit() : Long.MAX_VALUE)
+					.map(JsonObject::copy)
+					.collect(Collectors.toList());
+			
+			resultHandler.handle(Future.succeededFuture(result));
+			return this;
+		}
+		
+		/**
+		 * Saves the bulk writes and runs their $set of rank.
+		 */
+		@Override
+		public <D> void bulkWrite(String collection, Class<D> documentClass, List<? extends WriteModel<? extends D>> writes, boolean ordered, Handler<AsyncResult<BulkWriteResult>> handler) {
+			for(WriteModel<? extends D> write : writes) {
+				UpdateOneModel<?> update = (UpdateOneModel<?>) write;
+				String id = bson(update.getFilter()).getObjectId("_id").getValue().toHexString();
+				String rank = bson(update.getUpdate()).getDocument("$set").getString("rank").getValue();
+				
+				for(JsonObject document : documents) {
+					if(value(document, "_id").equals(id))
+						document.put("rank", rank);
+				}
+			}
+			
+			super.bulkWrite(collection, documentClass, writes, ordered, handler);
+		}
+		
+		@Override
+		public MongoClient count(String collection, JsonObject query, Handler<AsyncResult<Long>> resultHandler) {
+			resultHandler.handle(Future.succeededFuture(documents.stream().filter(matches(query)).count()));
+			return this;
+		}
+		
+		@Override
+		public MongoClient updateCollection(String collection, JsonObject query, JsonObject update, Handler<AsyncResult<MongoClientUpdateResult>> resultHandler) {
+			updates++;
+			
+			for(JsonObject document : documents) {
+				if(document.getJsonObject("_id").equals(query.getJsonObject("_id")))
+					document.put("rank", update.getJsonObject("$set").getString("rank"));
+			}
+			
+			resultHandler.handle(Future.succeededFuture(new MongoClientUpdateResult(1, null, 1)));
+			return this;
+		}
+		
+	}
+	
+}
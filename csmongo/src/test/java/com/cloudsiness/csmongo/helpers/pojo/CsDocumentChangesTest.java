@@ -0,0 +1,109 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.util.function.Predicate;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.helpers.pojo.CsModelCodecTest.CodecModel;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsDocumentChangesTest {
+	
+	// TEST json
+	
+	@Test
+	public void theUnchangedDocumentsHaveAnEmptyUpdate(TestContext context) {
+		JsonObject stored = new JsonObject().put("_id", new JsonObject().put("$oid", "56928c11dd59030532407aed")).put("visits", 12).put("score", 8.5);
+		JsonObject current = new JsonObject().put("visits", 12L).put("score", 8.5);
+		
+		context.assertEquals(CsDocumentChanges.update(CodecModel.class, stored, current), new JsonObject());
+	}
+	
+	@Test
+	public void onlyTheChangedAttributesAreSetAndTheRemovedOnesUnset(TestContext context) {
+		CsModelCodec codec = CsModelCodec.of(CodecModel.class);
+		CodecModel model = filledModel();
+		JsonObject stored = codec.encode(model, false, true);
+		
+		model.name = "Peter";
+		model.age = null;
+		model.child.name = "other";
+		model.settings.put("theme", "light");
+		
+		JsonObject expected = new JsonObject()
+				.put("$set", new JsonObject()
+						.put("name", "Peter")
+						.put("settings", new JsonObject().put("theme", "light"))
+						.put("child.name", "other"))
+				.put("$unset", new JsonObject().put("age", ""));
+		
+		context.assertEquals(CsDocumentChanges.update(CodecModel.class, stored, codec.encode(model, false, true)), expected);
+	}
+	
+	@Test
+	public void theEmbeddedModelsThatWereNotStoredAreSet(TestContext context) {
+		CsModelCodec codec = CsModelCodec.of(CodecModel.class);
+		CodecModel model = filledModel();
+		model.child = null;
+		JsonObject stored = codec.encode(model, false, true);
+		
+		model.child = new CodecModel();
+		model.child.name = "child";
+		
+		JsonObject expected = new JsonObject().put("$set", new JsonObject().put("child", new JsonObject().put("name", "child").put("score", 0.0)));
+		
+		context.assertEquals(CsDocumentChanges.update(CodecModel.class, stored, codec.encode(model, false, true)), expected);
+	}
+	
+	
+	// TEST bson
+	
+	@Test
+	public void theBsonUpdatesHaveTheSameChanges(TestContext context) {
+		CsModelCodec codec = CsModelCodec.of(CodecModel.class);
+		CodecModel model = filledModel();
+		BsonDocument stored = codec.encode(model, false, (Predicate<String>) null);
+		
+		context.assertTrue(CsDocumentChanges.update(CodecModel.class, stored, codec.encode(model, false, (Predicate<String>) null)).isEmpty());
+		
+		model._id = new ObjectId();
+		model.name = "Peter";
+		model.age = null;
+		model.child.age = 5;
+		
+		BsonDocument expected = new BsonDocument()
+				.append("$set", new BsonDocument()
+						.append("name", new BsonString("Peter"))
+						.append("child.age", new BsonInt32(5)))
+				.append("$unset", new BsonDocument("age", new BsonString("")));
+		
+		context.assertEquals(CsDocumentChanges.update(CodecModel.class, stored, codec.encode(model, false, (Predicate<String>) null)), expected);
+	}
+	
+	
+	// HELPER METHODS
+	
+	private CodecModel filledModel() {
+		CodecModel child = new CodecModel();
+		child.name = "child";
+		
+		CodecModel model = new CodecModel();
+		model._id = new ObjectId("56928c11dd59030532407aed");
+		model.name = "John";
+		model.age = 37;
+		model.settings = new JsonObject().put("theme", "dark");
+		model.child = child;
+		
+		return model;
+	}
+	
+}
@@ -0,0 +1,141 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.RawBsonDocument;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.impl.codec.json.JsonObjectCodec;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsLazyDocumentTest {
+	
+	// TEST decode
+	
+	@Test
+	public void theAttributesAreDecodedWhenTheyAreGot(TestContext context) {
+		for(CsLazyDocument document : documents(filledDocument())) {
+			LazyModel model = new LazyModel();
+			model.load(document);
+			
+			context.assertNull(model.name);
+			context.assertEquals(model.getAttributeValue("name"), "John");
+			context.assertEquals(model.name, "John");
+			context.assertTrue(document.isDecoded("name"));
+			context.assertNull(model.age);
+			context.assertFalse(document.isDecoded("age"));
+		}
+	}
+	
+	@Test
+	public void theListedAttributesAreDecodedToGetThem(TestContext context) throws Exception {
+		for(CsLazyDocument document : documents(filledDocument())) {
+			LazyModel model = new LazyModel();
+			model.load(document);
+			
+			context.assertEquals(model.getAttributes(Arrays.asList("age")), new JsonObject().put("age", 37));
+			context.assertNull(model.name);
+		}
+	}
+	
+	@Test
+	public void theSetAttributesAreNotOverwrittenWhenTheModelIsHydrated(TestContext context) {
+		for(CsLazyDocument document : documents(filledDocument())) {
+			LazyModel model = new LazyModel();
+			model.load(document);
+			model.setAttribute("name", "Peter");
+			model.hydrate();
+			
+			context.assertEquals(model.name, "Peter");
+			context.assertEquals(model.age, 37);
+			context.assertEquals(model.birthday.getTime(), 315532800000L);
+		}
+	}
+	
+	@Test
+	public void theHydratedModelIsTheSameThatTheFormSets(TestContext context) throws Exception {
+		JsonObject values = filledDocument().put("tags", "").put("birthday_time", "");
+		
+		LazyModel expected = new LazyModel();
+		expected.setAttributes(false, values);
+		
+		for(CsLazyDocument document : documents(values)) {
+			LazyModel model = new LazyModel();
+			model.load(document);
+			model.hydrate();
+			
+			context.assertEquals(model.getAttributes(), expected.getAttributes());
+			context.assertNull(model.tags);
+			context.assertEquals(model.birthday_time, " 00:00");
+		}
+	}
+	
+	@Test
+	public void theModelsAreValidatedWithAllTheAttributes(TestContext context) {
+		LazyModel model = new LazyModel();
+		model.load(new CsLazyDocument(CsModelCodec.of(LazyModel.class), filledDocument()));
+		
+		model.validate(context.asyncAssertSuccess(res -> {
+			context.assertTrue(res);
+			context.assertEquals(model.name, "John");
+			context.assertEquals(model.age, 37);
+		}));
+	}
+	
+	
+	// HELPER METHODS
+	
+	private JsonObject filledDocument() {
+		return new JsonObject()
+				.put("name", "John")
+				.put("age", 37)
+				.put("birthday", 315532800000L)
+				.put("tags", Arrays.asList("one", "two"));
+	}
+	
+	/**
+	 * @return	the lazy documents of the values, read as JSON object and as BSON document.
+	 */
+	private List<CsLazyDocument> documents(JsonObject values) {
+		CsModelCodec codec = CsModelCodec.of(LazyModel.class);
+		RawBsonDocument bson = new RawBsonDocument(values, new JsonObjectCodec(new JsonObject()));
+		
+		return Arrays.asList(new CsLazyDocument(codec, values), new CsLazyDocument(codec, bson));
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="lazy", lazy=true)
+	public static class LazyModel extends CsActiveForm<LazyModel> {
+		public String name;
+		
+		public Integer age;
+		
+		public String birthday_time;
+		
+		public Date birthday;
+		
+		public List<String> tags;
+		
+		
+		public void load(CsLazyDocument document) {
+			setAttributes(document);
+		}
+		
+		@Override
+		public void setAttributes(boolean safes, JsonObject body) {
+			super.setAttributes(safes, body);
+		}
+	}
+	
+}
@@ -0,0 +1,322 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.CsActiveForm;
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.Safe;
+import com.cloudsiness.csmongo.benchmarks.BenchmarkModel;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.impl.JsonObjectBsonAdapter;
+import io.vertx.ext.mongo.impl.codec.json.JsonObjectCodec;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsModelCodecTest {
+	
+	// TEST forModel
+	
+	@Test
+	public void theModelsUseTheCodecOnlyIfTheyOptIn(TestContext context) {
+		context.assertNotNull(CsModelCodec.forModel(CodecModel.class, null, null));
+		context.assertNull(CsModelCodec.forModel(BenchmarkModel.class, null, null));
+	}
+	
+	@Test
+	public void theModelsWithCustomModulesUseJackson(TestContext context) {
+		context.assertNull(CsModelCodec.forModel(CustomModel.class, SimpleModule::new, null));
+	}
+	
+	@Test
+	public void theModelsWithNotSupportedAttributesUseJackson(TestContext context) {
+		context.assertNull(CsModelCodec.forModel(UnsupportedModel.class, null, null));
+	}
+	
+	@Test
+	public void theModelsSavedAsBsonUseTheCodec(TestContext context) {
+		context.assertNotNull(CsModelCodec.forModel(BsonModel.class, null, null));
+	}
+	
+	
+	// TEST encode
+	
+	@Test
+	public void theEncodedModelIsTheSameThatJacksonGives(TestContext context) throws Exception {
+		CodecModel model = filledModel();
+		CsModelCodec codec = CsModelCodec.of(CodecModel.class);
+		
+		for(boolean emptyValues : new boolean[] { true, false }) {
+			for(boolean dbObjectId : new boolean[] { true, false }) {
+				JsonObject expected = CsPojoHelper.serialize(model, CsPojoHelper.writer(CodecModel.class, emptyValues, dbObjectId, null));
+				context.assertEquals(codec.encode(model, emptyValues, dbObjectId), expected);
+			}
+		}
+	}
+	
+	@Test
+	public void theEmptyValuesAreSkippedAsJacksonDoes(TestContext context) throws Exception {
+		CodecModel model = new CodecModel();
+		model.name = "";
+		model.birthday = new Date(0);
+		model.tags = new ArrayList<String>();
+		model.counters = new LinkedHashMap<String, Integer>();
+		model.settings = new JsonObject();
+		model.score = 0;
+		CsModelCodec codec = CsModelCodec.of(CodecModel.class);
+		
+		JsonObject expected = CsPojoHelper.serialize(model, false);
+		context.assertEquals(codec.encode(model, false, false), expected);
+		context.assertFalse(expected.containsKey("name"));
+		context.assertTrue(expected.containsKey("settings"));
+		context.assertEquals(codec.encode(model, true, false), CsPojoHelper.serialize(model, true));
+	}
+	
+	@Test
+	public void theEncodedJsonObjectIsACopy(TestContext context) {
+		CodecModel model = filledModel();
+		JsonObject result = CsModelCodec.of(CodecModel.class).encode(model, true, false);
+		result.getJsonObject("settings").put("theme", "light");
+		
+		context.assertEquals(model.settings.getString("theme"), "dark");
+	}
+	
+	
+	// TEST decode
+	
+	@Test
+	public void theDecodedModelIsTheSameThatJacksonGives(TestContext context) throws Exception {
+		JsonObject document = CsModelCodec.of(CodecModel.class).encode(filledModel(), true, true);
+		
+		CodecModel expected = new CodecModel();
+		CsPojoHelper.deserialize(expected, document, (SimpleModule) null);
+		CodecModel result = new CodecModel();
+		CsModelCodec.of(CodecModel.class).decode(result, document);
+		
+		context.assertEquals(CsPojoHelper.serialize(result, true), CsPojoHelper.serialize(expected, true));
+		context.assertEquals(result._id, new ObjectId("56928c11dd59030532407aed"));
+		context.assertEquals(result.child.name, "child");
+		context.assertTrue(result.labels instanceof HashSet);
+	}
+	
+	@Test
+	public void theValuesAreConvertedAsJacksonDoes(TestContext context) throws Exception {
+		JsonObject document = new JsonObject()
+				.put("_id", "56928c11dd59030532407aed")
+				.put("name", 12)
+				.put("age", "37")
+				.put("visits", 15)
+				.put("score", "")
+				.put("active", 1)
+				.put("birthday", "2020-01-02")
+				.put("kind", "B")
+				.put("settings", "{\"theme\":\"dark\"}")
+				.put("counters", new JsonArray().add("5").add(6))
+				.put("unknown", "ignored");
+		
+		CodecModel expected = new CodecModel();
+		CsPojoHelper.deserialize(expected, document, (SimpleModule) null);
+		CodecModel result = new CodecModel();
+		CsModelCodec.of(CodecModel.class).decode(result, document);
+		
+		context.assertEquals(CsPojoHelper.serialize(result, true), CsPojoHelper.serialize(expected, true));
+		context.assertEquals(result.name, "12");
+		context.assertEquals(result.age, 37);
+		context.assertEquals(result.visits, 15L);
+		context.assertEquals(result.score, 0d);
+		context.assertEquals(result.counters.get("0"), 5);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void theNotAllowedConversionsFail() {
+		CsModelCodec.of(CodecModel.class).decode(new CodecModel(), new JsonObject().put("tags", "one"));
+	}
+	
+	
+	// TEST bson
+	
+	@Test
+	public void theBsonDocumentIsTheOneThatTheMongoClientSaves(TestContext context) {
+		CodecModel model = filledModel();
+		CsModelCodec codec = CsModelCodec.of(CodecModel.class);
+		
+		for(boolean emptyValues : new boolean[] { true, false }) {
+			BsonDocument expected = new JsonObjectBsonAdapter(codec.encode(model, emptyValues, true)).toBsonDocument(BsonDocument.class, registry);
+			context.assertEquals(codec.encode(model, emptyValues, (Predicate<String>) null), expected);
+		}
+		
+		context.assertEquals(codec.encode(model, false, attribute -> attribute.equals("name")), new BsonDocument("name", new BsonString("John")));
+	}
+	
+	@Test
+	public void theBsonDocumentIsReadAsTheMongoClientDocument(TestContext context) throws Exception {
+		CsModelCodec codec = CsModelCodec.of(CodecModel.class);
+		RawBsonDocument document = codec.encode(filledModel(), true, (Predicate<String>) null);
+		
+		CodecModel expected = new CodecModel();
+		codec.decode(expected, registry.get(JsonObject.class).decode(new BsonDocumentReader(document), DecoderContext.builder().build()));
+		CodecModel result = new CodecModel();
+		codec.decode(result, document);
+		
+		context.assertEquals(CsPojoHelper.serialize(result, true), CsPojoHelper.serialize(expected, true));
+		context.assertEquals(result._id, new ObjectId("56928c11dd59030532407aed"));
+		context.assertEquals(result.child.name, "child");
+		context.assertEquals(result.dates.get("x").get(0), new Date(5));
+	}
+	
+	@Test
+	public void theBsonValuesAreReadAsTheFormSetsThem(TestContext context) {
+		BsonDocument document = new BsonDocument()
+				.append("name", new BsonInt32(12))
+				.append("visits", new BsonString("15"))
+				.append("birthday", new BsonDateTime(315532800000L))
+				.append("tags", new BsonString(""))
+				.append("history", new BsonString(""))
+				.append("unknown", new BsonDocument("a", new BsonInt32(1)));
+		
+		CodecModel result = new CodecModel();
+		result.tags = Arrays.asList("one");
+		CsModelCodec.of(CodecModel.class).decode(result, new RawBsonDocument(document, new BsonDocumentCodec()));
+		
+		context.assertEquals(result.name, "12");
+		context.assertEquals(result.visits, 15L);
+		context.assertEquals(result.birthday.getTime(), 315532800000L);
+		context.assertNull(result.tags);
+		context.assertNull(result.history);
+	}
+	
+	
+	// TEST models
+	
+	@Test
+	public void theAttributesOfTheModelsAreSetAndGotWithTheCodec(TestContext context) throws Exception {
+		CodecModel model = new CodecModel();
+		model.setAttributes(new JsonObject().put("name", "John").put("age", 37).put("birthday", 315532800000L));
+		
+		context.assertEquals(model.name, "John");
+		context.assertEquals(model.age, 37);
+		context.assertEquals(model.birthday.getTime(), 315532800000L);
+		context.assertEquals(model.getAttributes(false), new JsonObject().put("name", "John").put("age", 37).put("score", 0).put("birthday", 315532800000L));
+	}
+	
+	
+	// HELPER METHODS
+	
+	private final CodecRegistry registry = CodecRegistries.fromCodecs(new JsonObjectCodec(new JsonObject().put("useObjectId", true)));
+	
+	private CodecModel filledModel() {
+		CodecModel child = new CodecModel();
+		child.name = "child";
+		
+		CodecModel model = new CodecModel();
+		model._id = new ObjectId("56928c11dd59030532407aed");
+		model.name = "John";
+		model.age = 37;
+		model.visits = 12345678901L;
+		model.score = 8.75;
+		model.ratio = 1.1f;
+		model.active = true;
+		model.birthday = new Date(315532800000L);
+		model.kind = Kind.B;
+		model.tags = Arrays.asList("one", null, "three");
+		model.labels = new HashSet<String>(Arrays.asList("a", "b"));
+		model.counters = new LinkedHashMap<String, Integer>();
+		model.counters.put("logins", 3);
+		model.dates = new LinkedHashMap<String, List<Date>>();
+		model.dates.put("x", Arrays.asList(new Date(5), null));
+		model.settings = new JsonObject().put("theme", "dark").put("nested", new JsonObject().put("n", 1L));
+		model.history = new JsonArray().add(new JsonObject().put("action", "login"));
+		model.child = child;
+		model.children = Arrays.asList(child);
+		
+		return model;
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	public enum Kind { A, B }
+	
+	@CsModel(collectionName="codec", codec=true)
+	public static class CodecModel extends CsActiveForm<CodecModel> {
+		public ObjectId _id;
+		
+		@Safe
+		public String name;
+		
+		@Safe
+		public Integer age;
+		
+		public Long visits;
+		
+		public double score;
+		
+		public Float ratio;
+		
+		public Boolean active;
+		
+		@Safe
+		public Date birthday;
+		
+		public Kind kind;
+		
+		public List<String> tags;
+		
+		public Set<String> labels;
+		
+		public Map<String, Integer> counters;
+		
+		public Map<String, List<Date>> dates;
+		
+		public JsonObject settings;
+		
+		public JsonArray history;
+		
+		public CodecModel child;
+		
+		public List<CodecModel> children;
+	}
+	
+	@CsModel(collectionName="bson", bson=true)
+	public static class BsonModel extends CsActiveForm<BsonModel> {
+		public String name;
+	}
+	
+	@CsModel(collectionName="custom", codec=true)
+	public static class CustomModel extends CsActiveForm<CustomModel> {
+		public String name;
+	}
+	
+	@CsModel(collectionName="unsupported", codec=true)
+	public static class UnsupportedModel extends CsActiveForm<UnsupportedModel> {
+		public String name;
+		
+		public StringBuilder text;
+	}
+	
+}
@@ -0,0 +1,131 @@
+package com.cloudsiness.csmongo.helpers.pojo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.benchmarks.BenchmarkModel;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsPojoHelperTest {
+	
+	// TEST cache
+	
+	@Test
+	public void theWritersAreCreatedOnlyOncePerClassAndOptions(TestContext context) {
+		AtomicInteger calls = new AtomicInteger();
+		
+		context.assertTrue(CsPojoHelper.writer(CachedModel.class, true, false, () -> { calls.incrementAndGet(); return new SimpleModule(); })
+				== CsPojoHelper.writer(CachedModel.class, true, false, () -> { calls.incrementAndGet(); return new SimpleModule(); }));
+		context.assertFalse(CsPojoHelper.writer(CachedModel.class, true, false, null) == CsPojoHelper.writer(CachedModel.class, false, false, null));
+		context.assertEquals(calls.get(), 1);
+	}
+	
+	@Test
+	public void theReadersAreCreatedOnlyOncePerClass(TestContext context) {
+		context.assertTrue(CsPojoHelper.reader(Model.class, null) == CsPojoHelper.reader(Model.class, null));
+	}
+	
+	
+	// TEST serialize
+	
+	@Test
+	public void theObjectIdIsSavedAsOid(TestContext context) throws Exception {
+		Model model = new Model();
+		model._id = new ObjectId("56928c11dd59030532407aed");
+		
+		JsonObject result = CsPojoHelper.serialize(model, CsPojoHelper.writer(Model.class, false, true, null));
+		context.assertEquals(result.getJsonObject("_id").getString("$oid"), "56928c11dd59030532407aed");
+		context.assertFalse(result.containsKey("name"));
+		
+		result = CsPojoHelper.serialize(model, CsPojoHelper.writer(Model.class, true, false, null));
+		context.assertEquals(result.getString("_id"), "56928c11dd59030532407aed");
+		context.assertTrue(result.containsKey("name"));
+	}
+	
+	
+	// TEST deserialize
+	
+	@Test
+	public void theModelIsFilledWithTheDocument(TestContext context) throws Exception {
+		BenchmarkModel model = BenchmarkModel.hydrate(BenchmarkModel.document());
+		
+		context.assertEquals(model._id, new ObjectId("56928c11dd59030532407aed"));
+		context.assertEquals(model.name, "John Smith");
+		context.assertEquals(model.counter, 42L);
+		context.assertEquals(model.settings.getString("theme"), "dark");
+		context.assertEquals(model.tags.size(), 3);
+		context.assertEquals(model.birthday.getTime(), 315532800000L);
+	}
+	
+	
+	// TEST string round trip
+	
+	@Test
+	public void theTokensAndTheTextGiveTheSameDocument(TestContext context) throws Exception {
+		BenchmarkModel model = BenchmarkModel.hydrate(BenchmarkModel.document());
+		
+		JsonObject tokens = model.toSaveDocument();
+		CsPojoHelper.setStringRoundTrip(true);
+		try {
+			context.assertEquals(tokens, model.toSaveDocument());
+		} finally {
+			CsPojoHelper.setStringRoundTrip(false);
+		}
+	}
+	
+	@Test
+	public void theTokensAndTheTextGiveTheSameModel(TestContext context) throws Exception {
+		BenchmarkModel tokens = BenchmarkModel.hydrate(BenchmarkModel.document());
+		
+		BenchmarkModel text;
+		CsPojoHelper.setStringRoundTrip(true);
+		try {
+			text = BenchmarkModel.hydrate(BenchmarkModel.document());
+		} finally {
+			CsPojoHelper.setStringRoundTrip(false);
+		}
+		
+		context.assertEquals(tokens.toSaveDocument(), text.toSaveDocument());
+		context.assertEquals(tokens.settings, text.settings);
+		context.assertEquals(tokens.history, text.history);
+	}
+	
+	@Test
+	public void theNestedStructuresAreKept(TestContext context) throws Exception {
+		JsonObject document = new JsonObject()
+				.put("object", new JsonObject().put("int", 1).put("long", 10000000000L).put("double", 1.5).put("null", (String) null)
+						.put("array", new JsonArray().add(true).add("text").add(new JsonObject().put("deep", new JsonArray().add(2)))));
+		
+		JsonObject result = CsPojoHelper.serialize(CsPojoHelper.deserialize(document, Nested.class), true);
+		context.assertEquals(result, document);
+		context.assertTrue(result.getJsonObject("object").getValue("int") instanceof Integer);
+		context.assertTrue(result.getJsonObject("object").getValue("long") instanceof Long);
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	public static class Model {
+		public ObjectId _id;
+		
+		public String name;
+	}
+	
+	public static class Nested {
+		public JsonObject object;
+	}
+	
+	public static class CachedModel {
+		public String name;
+	}
+	
+}
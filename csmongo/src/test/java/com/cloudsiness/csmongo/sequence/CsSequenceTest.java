@@ -0,0 +1,175 @@
+package com.cloudsiness.csmongo.sequence;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.cloudsiness.csmongo.active.CsActiveRecord;
+import com.cloudsiness.csmongo.active.CsUnitOfWork;
+import com.cloudsiness.csmongo.active.annotations.CsModel;
+import com.cloudsiness.csmongo.active.annotations.Sequence;
+import com.cloudsiness.csmongo.active.helpers.BulkMongoClient;
+import com.cloudsiness.csmongo.factory.CsMongoFactory;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.UpdateOptions;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+@RunWith(VertxUnitRunner.class)
+public class CsSequenceTest {
+	
+	@Rule
+	public RunTestOnContext rule = new RunTestOnContext();
+	
+	private CounterClient client;
+	
+	@Before
+	public void setUp() throws Exception {
+		client = new CounterClient(rule.vertx());
+		
+		Map<String, MongoClient> clients = new HashMap<String, MongoClient>();
+		clients.put(CsMongoFactory.MAIN, client);
+		Field f = CsMongoFactory.class.getDeclaredField("clients");
+		f.setAccessible(true);
+		f.set(null, clients);
+	}
+	
+	
+	// TEST next
+	
+	@Test
+	public void theValuesAreGivenFromTheReservedBlocks(TestContext context) {
+		Async async = context.async();
+		CsSequence sequence = CsSequence.sequence("test", new CsSequenceOptions().setBlockSize(100));
+		Set<Long> values = ConcurrentHashMap.newKeySet();
+		
+		for(int i = 0; i < 250; i++) {
+			sequence.next(res -> {
+				values.add(res.result());
+				
+				if(values.size() == 250) {
+					context.assertTrue(values.contains(1L));
+					context.assertTrue(values.contains(250L));
+					context.assertEquals(sequence.getBlocks(), 3L);
+					context.assertEquals(client.requests.get(), 3);
+					async.complete();
+				}
+			});
+		}
+	}
+	
+	@Test
+	public void eachContextHasItsOwnSequence(TestContext context) {
+		CsSequence sequence = CsSequence.sequence("test");
+		
+		context.assertTrue(sequence == CsSequence.sequence("test"));
+		context.assertFalse(sequence == CsSequence.sequence("other"));
+	}
+	
+	@Test
+	public void theVerticlesDoNotGiveTheSameValues(TestContext testContext) {
+		Async async = testContext.async();
+		Set<Long> values = ConcurrentHashMap.newKeySet();
+		AtomicInteger given = new AtomicInteger();
+		
+		for(int v = 0; v < 4; v++) {
+			rule.vertx().deployVerticle(new AbstractVerticle() {
+				@Override
+				public void start() {
+					CsSequence sequence = CsSequence.sequence("shared", new CsSequenceOptions().setBlockSize(50));
+					
+					for(int i = 0; i < 500; i++) {
+						sequence.next(res -> {
+							values.add(res.result());
+							
+							if(given.incrementAndGet() == 2000) {
+								testContext.assertEquals(values.size(), 2000);
+								testContext.assertEquals(client.requests.get(), 40);
+								async.complete();
+							}
+						});
+					}
+				}
+			}, res -> testContext.assertTrue(res.succeeded()));
+		}
+	}
+	
+	
+	// TEST @Sequence
+	
+	@Test
+	public void theSequenceAttributesAreGivenBeforeTheSave(TestContext context) {
+		Async async = context.async();
+		SequenceModel first = new SequenceModel();
+		SequenceModel second = new SequenceModel();
+		second.number = 42L;
+		CsUnitOfWork work = new CsUnitOfWork();
+		
+		work.save(first, res -> work.save(second, res2 -> {
+			context.assertEquals(first.number, 1L);
+			context.assertEquals(second.number, 42L);
+			context.assertEquals(client.counters.keySet().iterator().next(), "sequences.number");
+			async.complete();
+		}));
+	}
+	
+	
+	// CLASSES HELPERS
+	
+	@CsModel(collectionName="sequences")
+	public static class SequenceModel extends CsActiveRecord<SequenceModel> {
+		@Sequence
+		public Long number;
+	}
+	
+	/**
+	 * A client that does not connect to the database: it keeps the counters in memory and answers
+	 * later, on the context of the caller.
+	 */
+	private static class CounterClient extends BulkMongoClient {
+		
+		private final Map<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+		
+		private final AtomicInteger requests = new AtomicInteger();
+		
+		
+		private CounterClient(Vertx vertx) {
+			super(vertx);
+		}
+		
+		
+		@Override
+		public MongoClient findOneAndUpdateWithOptions(String collection, JsonObject query, JsonObject update, FindOptions findOptions, UpdateOptions updateOptions, Handler<AsyncResult<JsonObject>> resultHandler) {
+			requests.incrementAndGet();
+			
+			AtomicLong counter = counters.computeIfAbsent(query.getString("_id"), k -> new AtomicLong());
+			long value = counter.addAndGet(update.getJsonObject("$inc").getLong("value"));
+			
+			Vertx.currentContext().runOnContext(v -> {
+				resultHandler.handle(Future.succeededFuture(new JsonObject().put("_id", query.getString("_id")).put("value", value)));
+			});
+			return this;
+		}
+		
+	}
+	
+}